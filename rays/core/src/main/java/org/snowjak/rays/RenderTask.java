@@ -11,9 +11,11 @@ import org.snowjak.rays.annotations.UIType;
 import org.snowjak.rays.camera.Camera;
 import org.snowjak.rays.film.Film;
 import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.film.FilmSnapshotter;
 import org.snowjak.rays.renderer.Renderer;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.util.RandomSource;
 
 /**
  * Represents an entire rendering task.
@@ -24,6 +26,11 @@ import org.snowjak.rays.sampler.Sampler;
  * instance. This object will then report every whole-number increase of
  * progress-percentage.
  * </p>
+ * <p>
+ * A RenderTask may carry its {@link Scene} by reference rather than by value
+ * (see {@link #setSceneReference(String)}), in which case its recipient must
+ * {@link #setScene(Scene) resolve} that reference before executing it.
+ * </p>
  * 
  * @author snowjak88
  *
@@ -39,12 +46,15 @@ public class RenderTask implements Callable<Image> {
 	private Sampler sampler = null;
 	private Renderer renderer = null;
 	private Scene scene = null;
+	private String sceneHash = null;
 	private Camera camera = null;
 	private Film film = null;
 	
 	private int offsetX = 0, offsetY = 0;
 	
 	private transient Consumer<ProgressInfo> progressConsumer = null;
+	private transient volatile int lastReportedPercent = 0;
+	private transient volatile int achievedSamplesPerPixel = 0;
 	
 	public RenderTask(Sampler sampler, Renderer renderer, Film film, Scene scene, Camera camera) {
 		
@@ -79,6 +89,22 @@ public class RenderTask implements Callable<Image> {
 		this.progressConsumer = progressConsumer;
 	}
 	
+	/**
+	 * @return the percentage of this RenderTask completed so far
+	 */
+	public int getPercentComplete() {
+		
+		return lastReportedPercent;
+	}
+	
+	/**
+	 * @return the samples-per-pixel achieved by this RenderTask so far
+	 */
+	public int getAchievedSamplesPerPixel() {
+		
+		return achievedSamplesPerPixel;
+	}
+	
 	public UUID getUuid() {
 		
 		return uuid;
@@ -104,6 +130,50 @@ public class RenderTask implements Callable<Image> {
 		return scene;
 	}
 	
+	/**
+	 * Resolve this RenderTask's {@link Scene}, if it was sent
+	 * {@link #getSceneHash() by reference}.
+	 * 
+	 * @param scene
+	 */
+	public void setScene(Scene scene) {
+		
+		this.scene = scene;
+	}
+	
+	/**
+	 * @return the content-hash of the {@link Scene} this RenderTask refers to (see
+	 *         {@link Scene#getContentHash(String)}), or {@code null} if this
+	 *         RenderTask carries its Scene by value
+	 */
+	public String getSceneHash() {
+		
+		return sceneHash;
+	}
+	
+	/**
+	 * Replace this RenderTask's {@link Scene} with a reference to it -- namely,
+	 * the Scene's content-hash -- so that the Scene need not be shipped with
+	 * every RenderTask.
+	 * 
+	 * @param sceneHash
+	 * @see Scene#getContentHash(String)
+	 */
+	public void setSceneReference(String sceneHash) {
+		
+		this.scene = null;
+		this.sceneHash = sceneHash;
+	}
+	
+	/**
+	 * @return {@code true} if this RenderTask refers to a {@link Scene} which has
+	 *         not yet been resolved
+	 */
+	public boolean isSceneUnresolved() {
+		
+		return (scene == null && sceneHash != null);
+	}
+	
 	public Camera getCamera() {
 		
 		return camera;
@@ -119,15 +189,55 @@ public class RenderTask implements Callable<Image> {
 		return offsetY;
 	}
 	
+	/**
+	 * Create a new {@link FilmSnapshotter} for this RenderTask, with which its
+	 * {@link Film} can be snapshotted while this RenderTask is executing.
+	 * 
+	 * @return
+	 */
+	public FilmSnapshotter newSnapshotter() {
+		
+		return new FilmSnapshotter(film, getUuid(), sampler.getXStart(), sampler.getYStart(), sampler.getXEnd(),
+				sampler.getYEnd());
+	}
+	
 	/**
 	 * Execute this RenderTask. Blocks until rendering is complete -- i.e., the
 	 * configured {@link Sampler} has no more {@link Sample}s to provide.
+	 * <p>
+	 * Equivalent to {@link #render()} followed by {@link #getResult()}.
+	 * </p>
 	 */
 	@Override
 	public Image call() {
 		
-		final Consumer<Integer> consumer = (getProgressConsumer() == null) ? null
-				: (progress) -> getProgressConsumer().accept(new ProgressInfo(getUuid(), progress));
+		render();
+		return getResult();
+	}
+	
+	/**
+	 * Render this RenderTask into its {@link Film}, without developing the
+	 * result. Blocks until rendering is complete.
+	 * <p>
+	 * Developing the result (see {@link #getResult()}) is left to the caller, so
+	 * that it may be done elsewhere than on a render-thread.
+	 * </p>
+	 */
+	public void render() {
+		
+		if (isSceneUnresolved())
+			throw new IllegalStateException(
+					"Cannot execute RenderTask UUID=" + getUuid() + " -- its Scene (" + getSceneHash() + ") is unresolved.");
+		
+		final Consumer<Integer> consumer = (getProgressConsumer() == null) ? null : (progress) -> {
+			lastReportedPercent = progress;
+			getProgressConsumer().accept(new ProgressInfo(getUuid(), progress, achievedSamplesPerPixel));
+		};
+		final Consumer<Integer> sppConsumer = (spp) -> {
+			achievedSamplesPerPixel = spp;
+			if (getProgressConsumer() != null)
+				getProgressConsumer().accept(new ProgressInfo(getUuid(), lastReportedPercent, spp));
+		};
 		
 		LOG.log(Level.INFO, "Executing RenderTask:");
 		LOG.log(Level.INFO, "UUID = {0}", getUuid().toString());
@@ -146,21 +256,60 @@ public class RenderTask implements Callable<Image> {
 				sampler.getXEnd() + film.getFilter().getExtentX() * 2,
 				sampler.getYEnd() + film.getFilter().getExtentY() * 2);
 		
-		renderer.render(samplerPlusFilterExtents, film, scene, camera, consumer);
+		//
+		// Seed this thread's random stream from this task, so that re-rendering the
+		// same task (or tile) reproduces it exactly. Each sample-slice of a tile
+		// gets its own stream, so that slices don't duplicate one another's
+		// samples.
+		//
+		var seed = RandomSource.getSeed(getUuid(), sampler.getXStart(), sampler.getYStart());
+		if (sampler.isSliced())
+			seed = RandomSource.getSeed(seed, sampler.getSlice());
+		RandomSource.seed(seed);
+		try {
+			renderer.beforeRender(samplerPlusFilterExtents, film, scene);
+			renderer.render(samplerPlusFilterExtents, film, scene, camera, consumer, sppConsumer);
+		} finally {
+			renderer.afterRender(samplerPlusFilterExtents, film, scene);
+			RandomSource.unseed();
+		}
+		
+		LOG.log(Level.INFO, "RenderTask complete! UUID={0} ({1}spp)", getUuid(), achievedSamplesPerPixel);
+	}
+	
+	/**
+	 * Develop this RenderTask's {@link Film} (i.e., tone-map and encode it) into
+	 * its resulting {@link Image}. Should be called only once {@link #render()}
+	 * has finished.
+	 * 
+	 * @return
+	 */
+	public Image getResult() {
 		
-		LOG.log(Level.INFO, "RenderTask complete! UUID={0}", getUuid());
-		return film.getImage(getUuid(), sampler.getXStart(), sampler.getYStart(), sampler.getXEnd(), sampler.getYEnd());
+		//
+		// A sample-slice's Image is only useful once merged with its siblings', and
+		// so must carry its raw accumulator.
+		//
+		return film.getImage(getUuid(), sampler.getXStart(), sampler.getYStart(), sampler.getXEnd(), sampler.getYEnd(),
+				sampler.isSliced());
 	}
 	
 	public static class ProgressInfo {
 		
 		private UUID uuid;
 		private String percent;
+		private int samplesPerPixel;
 		
 		public ProgressInfo(UUID uuid, int percent) {
 			
+			this(uuid, percent, 0);
+		}
+		
+		public ProgressInfo(UUID uuid, int percent, int samplesPerPixel) {
+			
 			this.uuid = uuid;
 			this.percent = Integer.toString(percent);
+			this.samplesPerPixel = samplesPerPixel;
 		}
 		
 		public UUID getUuid() {
@@ -173,6 +322,15 @@ public class RenderTask implements Callable<Image> {
 			return Integer.parseInt(percent);
 		}
 		
+		/**
+		 * @return the samples-per-pixel achieved so far (or {@code 0} if not yet
+		 *         known)
+		 */
+		public int getSamplesPerPixel() {
+			
+			return samplesPerPixel;
+		}
+		
 	}
 	
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package org.snowjak.rays;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.stream.Collectors;
@@ -13,6 +16,7 @@ import org.snowjak.rays.geometry.Ray;
 import org.snowjak.rays.interact.Interaction;
 import org.snowjak.rays.light.DiffuseLight;
 import org.snowjak.rays.light.Light;
+import org.snowjak.rays.renderer.RenderStatistics;
 
 /**
  * A Scene represents everything to be rendered:
@@ -21,6 +25,12 @@ import org.snowjak.rays.light.Light;
  * {@link AccelerationStructure})</li>
  * <li>The configured {@link Camera}</li>
  * </ul>
+ * <p>
+ * A Scene builds its acceleration-structures lazily, the first time they're
+ * needed. A Scene which is to be shared among several threads should have
+ * {@link #prepare()} called on it first; thereafter, it is safe to use
+ * concurrently.
+ * </p>
  * 
  * @author snowjak88
  *
@@ -59,6 +69,43 @@ public class Scene {
 		this.lights = lights;
 	}
 	
+	/**
+	 * Compute the content-hash of a Scene, given its JSON representation. Two
+	 * Scenes with the same content-hash can be considered to be identical.
+	 * 
+	 * @param sceneJson
+	 * @return the hex-encoded SHA-256 digest of {@code sceneJson}
+	 */
+	public static String getContentHash(String sceneJson) {
+		
+		try {
+			final var digest = MessageDigest.getInstance("SHA-256").digest(sceneJson.getBytes(StandardCharsets.UTF_8));
+			
+			final var hash = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				hash.append(String.format("%02x", b));
+			
+			return hash.toString();
+			
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("Cannot compute Scene content-hash -- SHA-256 is not available!", e);
+		}
+	}
+	
+	/**
+	 * Build this Scene's acceleration-structures now, rather than when they're
+	 * first needed.
+	 * 
+	 * @return this Scene, for method-chaining
+	 */
+	public Scene prepare() {
+		
+		getAccelerationStructure();
+		getPhysicalLightAccelerationStructure();
+		
+		return this;
+	}
+	
 	public AccelerationStructure getAccelerationStructure() {
 		
 		if (accelerationStructure == null)
@@ -112,6 +159,8 @@ public class Scene {
 	 */
 	public Interaction<Primitive> getInteraction(Ray ray, DiffuseLight ignoring) {
 		
+		RenderStatistics.addSceneQuery();
+		
 		final var primitiveInteraction = getAccelerationStructure().getInteraction(ray);
 		final var lightInteraction = getPhysicalLightAccelerationStructure().getInteraction(ray,
 				(ignoring == null) ? null : ignoring.getPrimitive());
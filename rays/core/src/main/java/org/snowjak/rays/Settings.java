@@ -8,7 +8,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Random;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -17,6 +16,8 @@ import org.snowjak.rays.annotations.bean.Node;
 import org.snowjak.rays.camera.Camera;
 import org.snowjak.rays.camera.OrthographicCamera;
 import org.snowjak.rays.camera.PinholeCamera;
+import org.snowjak.rays.denoiser.Denoiser;
+import org.snowjak.rays.denoiser.JointBilateralDenoiser;
 import org.snowjak.rays.filter.BoxFilter;
 import org.snowjak.rays.filter.Filter;
 import org.snowjak.rays.filter.MitchellFilter;
@@ -28,11 +29,15 @@ import org.snowjak.rays.material.LambertianMaterial;
 import org.snowjak.rays.material.Material;
 import org.snowjak.rays.material.PerfectMirrorMaterial;
 import org.snowjak.rays.renderer.PathTracingRenderer;
+import org.snowjak.rays.renderer.PhotonMappingRenderer;
+import org.snowjak.rays.renderer.ProgressiveRenderer;
 import org.snowjak.rays.renderer.Renderer;
 import org.snowjak.rays.sampler.AdaptiveSampler;
 import org.snowjak.rays.sampler.BestCandidateSampler;
+import org.snowjak.rays.sampler.HaltonSampler;
 import org.snowjak.rays.sampler.PseudorandomSampler;
 import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.sampler.SobolSampler;
 import org.snowjak.rays.sampler.StratifiedSampler;
 import org.snowjak.rays.serialization.IsLoadable;
 import org.snowjak.rays.shape.PlaneShape;
@@ -49,6 +54,10 @@ import org.snowjak.rays.texture.Texture;
 import org.snowjak.rays.texture.mapping.IdentityTextureMapping;
 import org.snowjak.rays.texture.mapping.TextureMapping;
 import org.snowjak.rays.texture.mapping.TilingTextureMapping;
+import org.snowjak.rays.tonemapper.AcesToneMapper;
+import org.snowjak.rays.tonemapper.LinearToneMapper;
+import org.snowjak.rays.tonemapper.ReinhardToneMapper;
+import org.snowjak.rays.tonemapper.ToneMapper;
 import org.snowjak.rays.transform.RotationTransform;
 import org.snowjak.rays.transform.ScaleTransform;
 import org.snowjak.rays.transform.Transform;
@@ -143,11 +152,6 @@ public class Settings {
 	 */
 	private int cieXyzIntegrationStepCount = 32;
 	
-	/**
-	 * A shared {@link Random} instance.
-	 */
-	public static final Random RND = new Random(System.currentTimeMillis());
-	
 	/**
 	 * @see #getGson()
 	 */
@@ -281,7 +285,9 @@ public class Settings {
 						.registerSubtype(PseudorandomSampler.class, "pseudorandom")
 						.registerSubtype(StratifiedSampler.class, "stratified")
 						.registerSubtype(AdaptiveSampler.class, "adaptive")
-						.registerSubtype(BestCandidateSampler.class, "best-candidate"));
+						.registerSubtype(BestCandidateSampler.class, "best-candidate")
+						.registerSubtype(SobolSampler.class, "sobol")
+						.registerSubtype(HaltonSampler.class, "halton"));
 			//@formatter:on
 			
 			//
@@ -291,7 +297,9 @@ public class Settings {
 			gb.registerTypeAdapterFactory(
 				RuntimeTypeAdapterFactory
 						.of(Renderer.class, "type")
-						.registerSubtype(PathTracingRenderer.class, "path-tracing"));
+						.registerSubtype(PathTracingRenderer.class, "path-tracing")
+						.registerSubtype(PhotonMappingRenderer.class, "photon-mapping")
+						.registerSubtype(ProgressiveRenderer.class, "progressive"));
 			//@formatter:on
 			
 			//
@@ -305,6 +313,28 @@ public class Settings {
 						.registerSubtype(MitchellFilter.class, "mitchell"));
 			//@formatter:on
 			
+			//
+			// Register type-adapter for Denoiser implementations.
+			//
+			//@formatter:off
+			gb.registerTypeAdapterFactory(
+				RuntimeTypeAdapterFactory
+						.of(Denoiser.class, "type")
+						.registerSubtype(JointBilateralDenoiser.class, "joint-bilateral"));
+			//@formatter:on
+			
+			//
+			// Register type-adapter for ToneMapper implementations.
+			//
+			//@formatter:off
+			gb.registerTypeAdapterFactory(
+				RuntimeTypeAdapterFactory
+						.of(ToneMapper.class, "type")
+						.registerSubtype(LinearToneMapper.class, "linear")
+						.registerSubtype(ReinhardToneMapper.class, "reinhard")
+						.registerSubtype(AcesToneMapper.class, "aces"));
+			//@formatter:on
+			
 			//
 			// Register type-adapter for Material implementations.
 			//
@@ -10,6 +10,7 @@ import org.snowjak.rays.Settings;
 import org.snowjak.rays.geometry.Ray;
 import org.snowjak.rays.geometry.boundingvolume.AABB;
 import org.snowjak.rays.interact.Interaction;
+import org.snowjak.rays.renderer.RenderStatistics;
 
 public class HierarchicalBoundingBox implements AccelerationStructure {
 	
@@ -76,7 +77,10 @@ public class HierarchicalBoundingBox implements AccelerationStructure {
 	public Interaction<Primitive> getInteraction(Ray ray, Primitive ignoring) {
 		
 		if (root != null) {
-			final var acceleratedIntersection = getHeldPrimitiveInteraction(root, ray, ignoring);
+			final var visits = new int[] { 0 };
+			final var acceleratedIntersection = getHeldPrimitiveInteraction(root, ray, ignoring, visits);
+			RenderStatistics.addNodeVisits(visits[0]);
+			
 			if (acceleratedIntersection != null)
 				return acceleratedIntersection;
 		}
@@ -93,7 +97,15 @@ public class HierarchicalBoundingBox implements AccelerationStructure {
 		//@formatter:on
 	}
 	
-	private Interaction<Primitive> getHeldPrimitiveInteraction(TreeNode node, Ray ray, Primitive ignoring) {
+	/**
+	 * @param visits
+	 *            a single-element array, accumulating how many nodes this
+	 *            traversal visits
+	 */
+	private Interaction<Primitive> getHeldPrimitiveInteraction(TreeNode node, Ray ray, Primitive ignoring,
+			int[] visits) {
+		
+		visits[0]++;
 		
 		if (!node.getAABB().isIntersecting(ray))
 			return null;
@@ -107,10 +119,10 @@ public class HierarchicalBoundingBox implements AccelerationStructure {
 		Interaction<Primitive> result1 = null, result2 = null;
 		final BranchNode branchNode = (BranchNode) node;
 		if (branchNode.getBranch1().getAABB().isIntersecting(ray))
-			result1 = getHeldPrimitiveInteraction(branchNode.getBranch1(), ray, ignoring);
+			result1 = getHeldPrimitiveInteraction(branchNode.getBranch1(), ray, ignoring, visits);
 		
 		if (branchNode.getBranch2().getAABB().isIntersecting(ray))
-			result2 = getHeldPrimitiveInteraction(branchNode.getBranch2(), ray, ignoring);
+			result2 = getHeldPrimitiveInteraction(branchNode.getBranch2(), ray, ignoring, visits);
 		
 		final var isResult1Good = (result1 != null
 				&& result1.getInteractingRay().getT() > Settings.getInstance().getDoubleEqualityEpsilon());
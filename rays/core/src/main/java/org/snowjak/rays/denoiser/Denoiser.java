@@ -0,0 +1,45 @@
+package org.snowjak.rays.denoiser;
+
+import org.snowjak.rays.film.Film;
+
+/**
+ * A Denoiser is an optional post-processing stage which a {@link Film} applies
+ * to its accumulated luminance before exposing it into an image.
+ * <p>
+ * Besides luminance, a Film can collect a handful of per-pixel "feature"
+ * buffers -- surface albedo, surface normal, and depth -- which are typically
+ * much less noisy than luminance itself at low sample-counts, and so make good
+ * guides for deciding which neighboring pixels belong to the same surface.
+ * </p>
+ * <p>
+ * All buffers are laid out in row-major order ({@code index = x + y * width}).
+ * Triplet-valued buffers hold 3 consecutive values per pixel.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+public interface Denoiser {
+	
+	/**
+	 * Denoise the given luminance buffer.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param luminance
+	 *            per-pixel XYZ triplets
+	 * @param albedo
+	 *            per-pixel average albedo (as RGB triplets)
+	 * @param normal
+	 *            per-pixel average surface-normal
+	 * @param depth
+	 *            per-pixel average depth
+	 * @param valid
+	 *            per-pixel flags, marking which pixels actually hold data (pixels
+	 *            not so marked must be neither used nor modified)
+	 * @return a new buffer of per-pixel XYZ triplets
+	 */
+	public double[] denoise(int width, int height, double[] luminance, double[] albedo, double[] normal,
+			double[] depth, boolean[] valid);
+	
+}
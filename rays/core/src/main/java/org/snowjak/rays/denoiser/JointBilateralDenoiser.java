@@ -0,0 +1,221 @@
+package org.snowjak.rays.denoiser;
+
+import static org.apache.commons.math3.util.FastMath.exp;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import java.util.stream.IntStream;
+
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+
+/**
+ * A joint (or "cross") bilateral {@link Denoiser}.
+ * <p>
+ * Each pixel is replaced by a weighted average of its neighbors within
+ * {@code radius} pixels. Each neighbor's weight is the product of several
+ * Gaussian fall-off terms:
+ * <ul>
+ * <li>spatial distance ({@code sigmaSpatial}, in pixels)</li>
+ * <li>luminance ({@code Y}) difference, relative to the brighter of the two
+ * pixels ({@code sigmaLuminance})</li>
+ * <li>albedo difference ({@code sigmaAlbedo})</li>
+ * <li>surface-normal difference ({@code sigmaNormal})</li>
+ * <li>depth difference, relative to the nearer of the two pixels
+ * ({@code sigmaDepth})</li>
+ * </ul>
+ * Any sigma of {@code 0} disables that term.
+ * </p>
+ * <p>
+ * The image is divided into square tiles, which are denoised in parallel.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@UIType(type = "joint-bilateral", fields = { @UIField(name = "radius", type = Integer.class, defaultValue = "3"),
+		@UIField(name = "sigmaSpatial", type = Double.class, defaultValue = "2.0"),
+		@UIField(name = "sigmaLuminance", type = Double.class, defaultValue = "0.5"),
+		@UIField(name = "sigmaAlbedo", type = Double.class, defaultValue = "0.1"),
+		@UIField(name = "sigmaNormal", type = Double.class, defaultValue = "0.25"),
+		@UIField(name = "sigmaDepth", type = Double.class, defaultValue = "0.1") })
+public class JointBilateralDenoiser implements Denoiser {
+	
+	private static final int TILE_SIZE = 32;
+	private static final double EPSILON = 1e-8;
+	
+	private int radius = 3;
+	private double sigmaSpatial = 2.0;
+	private double sigmaLuminance = 0.5;
+	private double sigmaAlbedo = 0.1;
+	private double sigmaNormal = 0.25;
+	private double sigmaDepth = 0.1;
+	
+	private transient double[] spatialWeights = null;
+	
+	public JointBilateralDenoiser() {
+		
+	}
+	
+	public JointBilateralDenoiser(int radius, double sigmaSpatial, double sigmaLuminance, double sigmaAlbedo,
+			double sigmaNormal, double sigmaDepth) {
+		
+		this.radius = radius;
+		this.sigmaSpatial = sigmaSpatial;
+		this.sigmaLuminance = sigmaLuminance;
+		this.sigmaAlbedo = sigmaAlbedo;
+		this.sigmaNormal = sigmaNormal;
+		this.sigmaDepth = sigmaDepth;
+	}
+	
+	/**
+	 * Because this can be deserialized -- with only its startup parameters actually
+	 * saved and restored -- we might need to initialize this outside of the
+	 * constructor!
+	 */
+	private void initialize() {
+		
+		final var r = max(radius, 0);
+		final var size = 2 * r + 1;
+		final var weights = new double[size * size];
+		
+		for (int dy = -r; dy <= r; dy++)
+			for (int dx = -r; dx <= r; dx++)
+				weights[(dx + r) + (dy + r) * size] = gaussian((double) (dx * dx + dy * dy), sigmaSpatial);
+		
+		spatialWeights = weights;
+	}
+	
+	@Override
+	public double[] denoise(int width, int height, double[] luminance, double[] albedo, double[] normal,
+			double[] depth, boolean[] valid) {
+		
+		if (spatialWeights == null)
+			initialize();
+		
+		final var result = new double[luminance.length];
+		
+		final var tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		final var tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+		
+		IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+			final var startX = (tile % tilesX) * TILE_SIZE;
+			final var startY = (tile / tilesX) * TILE_SIZE;
+			
+			for (int y = startY; y < min(startY + TILE_SIZE, height); y++)
+				for (int x = startX; x < min(startX + TILE_SIZE, width); x++)
+					denoisePixel(x, y, width, height, luminance, albedo, normal, depth, valid, result);
+		});
+		
+		return result;
+	}
+	
+	private void denoisePixel(int x, int y, int width, int height, double[] luminance, double[] albedo,
+			double[] normal, double[] depth, boolean[] valid, double[] result) {
+		
+		final var p = x + y * width;
+		
+		if (!valid[p]) {
+			result[p * 3 + 0] = luminance[p * 3 + 0];
+			result[p * 3 + 1] = luminance[p * 3 + 1];
+			result[p * 3 + 2] = luminance[p * 3 + 2];
+			return;
+		}
+		
+		final var r = max(radius, 0);
+		final var size = 2 * r + 1;
+		
+		double totalWeight = 0, sumX = 0, sumY = 0, sumZ = 0;
+		
+		for (int ny = max(y - r, 0); ny <= min(y + r, height - 1); ny++)
+			for (int nx = max(x - r, 0); nx <= min(x + r, width - 1); nx++) {
+				
+				final var q = nx + ny * width;
+				if (!valid[q])
+					continue;
+				
+				var weight = spatialWeights[(nx - x + r) + (ny - y + r) * size];
+				
+				if (sigmaLuminance > 0d) {
+					final double lp = luminance[p * 3 + 1], lq = luminance[q * 3 + 1];
+					final var scale = max(max(lp * lp, lq * lq), EPSILON);
+					weight *= gaussian((lp - lq) * (lp - lq) / scale, sigmaLuminance);
+				}
+				
+				if (sigmaAlbedo > 0d)
+					weight *= gaussian(distanceSquared(albedo, p, q), sigmaAlbedo);
+				
+				if (sigmaNormal > 0d)
+					weight *= gaussian(distanceSquared(normal, p, q), sigmaNormal);
+				
+				if (sigmaDepth > 0d) {
+					final double dp = depth[p], dq = depth[q];
+					final var scale = max(min(dp * dp, dq * dq), EPSILON);
+					weight *= gaussian((dp - dq) * (dp - dq) / scale, sigmaDepth);
+				}
+				
+				totalWeight += weight;
+				sumX += weight * luminance[q * 3 + 0];
+				sumY += weight * luminance[q * 3 + 1];
+				sumZ += weight * luminance[q * 3 + 2];
+			}
+		
+		if (totalWeight <= 0d) {
+			result[p * 3 + 0] = luminance[p * 3 + 0];
+			result[p * 3 + 1] = luminance[p * 3 + 1];
+			result[p * 3 + 2] = luminance[p * 3 + 2];
+			return;
+		}
+		
+		result[p * 3 + 0] = sumX / totalWeight;
+		result[p * 3 + 1] = sumY / totalWeight;
+		result[p * 3 + 2] = sumZ / totalWeight;
+	}
+	
+	private static double distanceSquared(double[] triplets, int p, int q) {
+		
+		final var dx = triplets[p * 3 + 0] - triplets[q * 3 + 0];
+		final var dy = triplets[p * 3 + 1] - triplets[q * 3 + 1];
+		final var dz = triplets[p * 3 + 2] - triplets[q * 3 + 2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+	
+	private static double gaussian(double distanceSquared, double sigma) {
+		
+		if (sigma <= 0d)
+			return 1d;
+		
+		return exp(-distanceSquared / (2d * sigma * sigma));
+	}
+	
+	public int getRadius() {
+		
+		return radius;
+	}
+	
+	public double getSigmaSpatial() {
+		
+		return sigmaSpatial;
+	}
+	
+	public double getSigmaLuminance() {
+		
+		return sigmaLuminance;
+	}
+	
+	public double getSigmaAlbedo() {
+		
+		return sigmaAlbedo;
+	}
+	
+	public double getSigmaNormal() {
+		
+		return sigmaNormal;
+	}
+	
+	public double getSigmaDepth() {
+		
+		return sigmaDepth;
+	}
+	
+}
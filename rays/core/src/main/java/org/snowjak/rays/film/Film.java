@@ -2,6 +2,7 @@ package org.snowjak.rays.film;
 
 import static org.apache.commons.math3.util.FastMath.floor;
 import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
 import static org.apache.commons.math3.util.FastMath.pow;
 
 import java.awt.image.BufferedImage;
@@ -9,22 +10,39 @@ import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import javax.imageio.ImageIO;
 
+import org.snowjak.rays.Primitive;
 import org.snowjak.rays.RenderTask;
 import org.snowjak.rays.annotations.UIField;
 import org.snowjak.rays.annotations.UIType;
+import org.snowjak.rays.denoiser.Denoiser;
 import org.snowjak.rays.filter.Filter;
 import org.snowjak.rays.geometry.util.Triplet;
+import org.snowjak.rays.interact.Interaction;
 import org.snowjak.rays.sample.EstimatedSample;
 import org.snowjak.rays.sample.FixedSample;
 import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.serialization.IsLoadable;
 import org.snowjak.rays.spectrum.Spectrum;
 import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.colorspace.RGB_Gammaless;
 import org.snowjak.rays.spectrum.colorspace.XYZ;
+import org.snowjak.rays.tonemapper.LinearToneMapper;
+import org.snowjak.rays.tonemapper.ToneMapper;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSerializationContext;
 
 /**
  * A film object is responsible for accepting a series of
@@ -34,6 +52,24 @@ import org.snowjak.rays.spectrum.colorspace.XYZ;
  * that multiple threads can all utilize the same Film instance without issue
  * (apart from waiting for any pertinent synchronization locks to be freed).
  * </p>
+ * <p>
+ * To keep contention low when many threads render into the same Film, each row
+ * of pixels is guarded by its own lock. A thread adding a sample only ever
+ * holds one row's lock at a time, so threads working on different parts of the
+ * image rarely wait on each other.
+ * </p>
+ * <p>
+ * A Film may optionally be configured with a {@link Denoiser}. If so, the Film
+ * will also collect per-pixel albedo, surface-normal, and depth from each
+ * {@link EstimatedSample}'s {@link Interaction} (if any), and will use these to
+ * guide the Denoiser whenever it compiles an {@link Image}.
+ * </p>
+ * <p>
+ * A Film may also be configured with a {@link ToneMapper}, which compresses its
+ * exposed luminance into a displayable range whenever it compiles an
+ * {@link Image}. If none is configured, luminance is mapped linearly (and
+ * anything too bright is clipped).
+ * </p>
  * 
  * @author snowjak88
  *
@@ -44,7 +80,9 @@ import org.snowjak.rays.spectrum.colorspace.XYZ;
 		@UIField(name = "exposureTime", type = Double.class, defaultValue = "0.0333"),
 		@UIField(name = "isoSensitivity", type = Double.class, defaultValue = "100"),
 		@UIField(name = "calibrationConstant", type = Double.class, defaultValue = "815"),
-		@UIField(name = "filter", type = Filter.class) })
+		@UIField(name = "filter", type = Filter.class),
+		@UIField(name = "toneMapper", type = ToneMapper.class),
+		@UIField(name = "denoiser", type = Denoiser.class) })
 public class Film {
 	
 	private int width = 400, height = 300;
@@ -54,10 +92,20 @@ public class Film {
 	private double isoSensitivity = 100;
 	private double calibrationConstant = 815;
 	private Filter filter;
+	private Denoiser denoiser = null;
+	private ToneMapper toneMapper = null;
 	
-	private transient boolean initialized = false;
-	private transient double[][][] receivedLuminance;
-	private transient double[][] filterWeights;
+	private static final int ACCUMULATOR_STRIDE = 4;
+	private static final int BAND_HEIGHT = 16;
+	private static final int ACCUMULATOR_MAGIC = 0x52415941, ACCUMULATOR_VERSION = 1;
+	
+	private transient volatile boolean initialized = false;
+	private transient int paddedWidth, paddedHeight;
+	private transient double[] accumulator;
+	private transient Object[] rowLocks;
+	private transient PixelStatistics statistics;
+	private transient int[] featureCounts;
+	private transient double[] albedoSums, normalSums, depthSums;
 	
 	/**
 	 * Construct a new Film instance with the given properties.
@@ -142,6 +190,56 @@ public class Film {
 	public Film(int width, int height, int offsetX, int offsetY, double aperture, double exposureTime,
 			double isoSensitivity, double calibrationConstant, Filter filter) {
 		
+		this(width, height, offsetX, offsetY, aperture, exposureTime, isoSensitivity, calibrationConstant, filter,
+				null);
+	}
+	
+	/**
+	 * Construct a new Film instance with the given properties (see
+	 * {@link #Film(int, int, int, int, double, double, double, double, Filter)}),
+	 * which applies the given {@link Denoiser} (if not {@code null}) to every
+	 * {@link Image} it compiles.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param offsetX
+	 * @param offsetY
+	 * @param aperture
+	 * @param exposureTime
+	 * @param isoSensitivity
+	 * @param calibrationConstant
+	 * @param filter
+	 * @param denoiser
+	 */
+	public Film(int width, int height, int offsetX, int offsetY, double aperture, double exposureTime,
+			double isoSensitivity, double calibrationConstant, Filter filter, Denoiser denoiser) {
+		
+		this(width, height, offsetX, offsetY, aperture, exposureTime, isoSensitivity, calibrationConstant, filter,
+				denoiser, null);
+	}
+	
+	/**
+	 * Construct a new Film instance with the given properties (see
+	 * {@link #Film(int, int, int, int, double, double, double, double, Filter, Denoiser)}),
+	 * which applies the given {@link ToneMapper} (if not {@code null}) to every
+	 * {@link Image} it compiles.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param offsetX
+	 * @param offsetY
+	 * @param aperture
+	 * @param exposureTime
+	 * @param isoSensitivity
+	 * @param calibrationConstant
+	 * @param filter
+	 * @param denoiser
+	 * @param toneMapper
+	 */
+	public Film(int width, int height, int offsetX, int offsetY, double aperture, double exposureTime,
+			double isoSensitivity, double calibrationConstant, Filter filter, Denoiser denoiser,
+			ToneMapper toneMapper) {
+		
 		this.width = width;
 		this.height = height;
 		this.offsetX = offsetX;
@@ -151,26 +249,50 @@ public class Film {
 		this.isoSensitivity = isoSensitivity;
 		this.calibrationConstant = calibrationConstant;
 		this.filter = filter;
+		this.denoiser = denoiser;
+		this.toneMapper = toneMapper;
 	}
 	
+	/**
+	 * Because this can be deserialized -- with only its startup parameters actually
+	 * saved and restored -- we might need to initialize this outside of the
+	 * constructor!
+	 */
 	private void initialize() {
 		
-		this.receivedLuminance = new double[width + filter.getExtentX() * 2][height + filter.getExtentY() * 2][3];
-		this.filterWeights = new double[width + filter.getExtentX() * 2][height + filter.getExtentY() * 2];
-		
-		for (int x = 0; x < receivedLuminance.length; x++)
-			for (int y = 0; y < receivedLuminance[x].length; y++) {
-				for (int z = 0; z < receivedLuminance[x][y].length; z++)
-					receivedLuminance[x][y][z] = 0;
-				filterWeights[x][y] = 0;
+		synchronized (this) {
+			if (initialized)
+				return;
+			
+			//
+			// The accumulator holds, for every pixel (padded by the filter's extent
+			// on every side), its accumulated XYZ plus its total filter-weight. Pixels
+			// are laid out row-by-row, so each row can be locked independently.
+			//
+			this.paddedWidth = width + filter.getExtentX() * 2;
+			this.paddedHeight = height + filter.getExtentY() * 2;
+			this.accumulator = new double[paddedWidth * paddedHeight * ACCUMULATOR_STRIDE];
+			
+			this.rowLocks = new Object[paddedHeight];
+			for (int y = 0; y < rowLocks.length; y++)
+				rowLocks[y] = new Object();
+			
+			this.statistics = new PixelStatistics(offsetX, offsetY, offsetX + width - 1, offsetY + height - 1);
+			
+			if (denoiser != null) {
+				this.featureCounts = new int[width * height];
+				this.albedoSums = new double[width * height * 3];
+				this.normalSums = new double[width * height * 3];
+				this.depthSums = new double[width * height];
 			}
-		
-		this.aperture = max(aperture, 0d);
-		this.exposureTime = max(exposureTime, 0d);
-		this.isoSensitivity = max(isoSensitivity, 0d);
-		this.calibrationConstant = max(calibrationConstant, 0d);
-		
-		this.initialized = true;
+			
+			this.aperture = max(aperture, 0d);
+			this.exposureTime = max(exposureTime, 0d);
+			this.isoSensitivity = max(isoSensitivity, 0d);
+			this.calibrationConstant = max(calibrationConstant, 0d);
+			
+			this.initialized = true;
+		}
 	}
 	
 	/**
@@ -181,77 +303,196 @@ public class Film {
 	 * {@link Sampler#reportSampleResult(FixedSample)}), and that this
 	 * EstimatedSample is judged to be acceptable.
 	 * </p>
+	 * <p>
+	 * Besides accumulating the sample into its surrounding pixels (as weighted by
+	 * the configured {@link Filter}), this also updates the running
+	 * {@link #getStatistics() statistics} for the pixel the sample falls within.
+	 * </p>
 	 * 
 	 * @param estimate
 	 */
 	public void addSample(EstimatedSample estimate) {
 		
-		synchronized (this) {
-			if (!initialized)
-				initialize();
-		}
+		if (!initialized)
+			initialize();
 		
 		final int filmX = (int) floor(estimate.getSample().getFilmPoint().getX()),
 				filmY = (int) floor(estimate.getSample().getFilmPoint().getY());
 		
-		for (int pixelX = filmX - filter.getExtentX(); pixelX <= filmX + filter.getExtentX(); pixelX++)
-			for (int pixelY = filmY - filter.getExtentY(); pixelY <= filmY + filter.getExtentY(); pixelY++)
-				if (filter.isContributing(estimate.getSample(), pixelX, pixelY)) {
+		final var sampleXyz = XYZ.fromSpectrum(estimate.getRadiance(), false);
+		final double sampleX = sampleXyz.getX(), sampleY = sampleXyz.getY(), sampleZ = sampleXyz.getZ();
+		
+		final var extentX = filter.getExtentX();
+		final var extentY = filter.getExtentY();
+		
+		//
+		// The sample's own pixel's statistics (and features) are guarded by its
+		// row's lock.
+		//
+		final var ownRow = filmY - offsetY + extentY;
+		if (ownRow >= 0 && ownRow < paddedHeight)
+			synchronized (rowLocks[ownRow]) {
+				statistics.add(filmX, filmY, sampleY);
+				
+				if (denoiser != null)
+					addFeatures(filmX - offsetX, filmY - offsetY, estimate.getInteraction());
+			}
+		
+		//
+		// If the filter has a precomputed (separable) weight-table, each pixel's
+		// weight is just the product of two table-entries. Otherwise, evaluate the
+		// filter before taking any locks, so that each row's lock is held only as
+		// long as it takes to add to its accumulators.
+		//
+		final var table = filter.getTable();
+		final var filterWidth = 2 * extentX + 1;
+		
+		final double[] contributions;
+		final int binX, binY;
+		if (table != null) {
+			contributions = null;
+			binX = table.getBinX(estimate.getSample().getFilmPoint().getX());
+			binY = table.getBinY(estimate.getSample().getFilmPoint().getY());
+			
+		} else {
+			binX = 0;
+			binY = 0;
+			contributions = new double[filterWidth * (2 * extentY + 1)];
+			for (int dy = -extentY; dy <= extentY; dy++)
+				for (int dx = -extentX; dx <= extentX; dx++)
+					if (filter.isContributing(estimate.getSample(), filmX + dx, filmY + dy))
+						contributions[(dx + extentX) + (dy + extentY) * filterWidth] = filter
+								.getContribution(estimate.getSample(), filmX + dx, filmY + dy);
+		}
+		
+		for (int dy = -extentY; dy <= extentY; dy++) {
+			
+			final var indexY = filmY + dy - offsetY + extentY;
+			if (indexY < 0 || indexY >= paddedHeight)
+				continue;
+			
+			final var weightY = (table != null) ? table.getWeightY(binY, dy) : 0d;
+			
+			synchronized (rowLocks[indexY]) {
+				for (int dx = -extentX; dx <= extentX; dx++) {
 					
-					final Spectrum sampleRadiance = estimate.getRadiance();
+					final var filterContribution = (table != null) ? table.getWeightX(binX, dx) * weightY
+							: contributions[(dx + extentX) + (dy + extentY) * filterWidth];
+					if (filterContribution == 0d)
+						continue;
 					
-					synchronized (this) {
-						
-						final var offsetPixelX = pixelX - offsetX;
-						final var offsetPixelY = pixelY - offsetY;
-						
-						final var indexX = offsetPixelX + filter.getExtentX();
-						final var indexY = offsetPixelY + filter.getExtentY();
-						
-						if (indexX < 0 || indexX >= receivedLuminance.length)
-							continue;
-						
-						if (indexY < 0 || indexY >= receivedLuminance[indexX].length)
-							continue;
-						
-						final var filterContribution = filter.getContribution(estimate.getSample(), pixelX, pixelY);
-						final var newXyz = new XYZ(
-								XYZ.fromSpectrum(sampleRadiance, false).get().multiply(filterContribution));
-						
-						filterWeights[indexX][indexY] += filterContribution;
-						
-						receivedLuminance[indexX][indexY][0] += newXyz.getX();
-						receivedLuminance[indexX][indexY][1] += newXyz.getY();
-						receivedLuminance[indexX][indexY][2] += newXyz.getZ();
-						
-					}
+					final var indexX = filmX + dx - offsetX + extentX;
+					if (indexX < 0 || indexX >= paddedWidth)
+						continue;
 					
+					final var index = (indexX + indexY * paddedWidth) * ACCUMULATOR_STRIDE;
+					accumulator[index + 0] += sampleX * filterContribution;
+					accumulator[index + 1] += sampleY * filterContribution;
+					accumulator[index + 2] += sampleZ * filterContribution;
+					accumulator[index + 3] += filterContribution;
 				}
+			}
+		}
 	}
 	
 	/**
-	 * Get the luminance received so far at the given film (pixel) location.
+	 * Copy this Film's accumulator, row-by-row (taking each row's lock in turn).
+	 * Each pixel in the copy is self-consistent, even if other threads are still
+	 * adding samples.
+	 * 
+	 * @return
+	 */
+	private double[] getAccumulatorSnapshot() {
+		
+		final var snapshot = new double[accumulator.length];
+		final var rowLength = paddedWidth * ACCUMULATOR_STRIDE;
+		
+		for (int y = 0; y < paddedHeight; y++)
+			synchronized (rowLocks[y]) {
+				System.arraycopy(accumulator, y * rowLength, snapshot, y * rowLength, rowLength);
+			}
+		
+		return snapshot;
+	}
+	
+	/**
+	 * Accumulate the feature-buffers (albedo, normal, depth) for the given
+	 * (offset) pixel-location.
 	 * 
 	 * @param x
 	 * @param y
-	 * @return
+	 * @param interaction
 	 */
-	private XYZ getReceivedLuminance(int x, int y) {
+	private void addFeatures(int x, int y, Interaction<?> interaction) {
 		
-		final var indexX = x + filter.getExtentX();
-		final var indexY = y + filter.getExtentY();
+		if (x < 0 || x >= width || y < 0 || y >= height)
+			return;
 		
-		if (indexX < 0 || indexX >= receivedLuminance.length)
-			return new XYZ(0, 0, 0);
+		final var index = x + y * width;
+		featureCounts[index]++;
 		
-		if (indexY < 0 || indexY >= receivedLuminance[indexX].length)
-			return new XYZ(0, 0, 0);
+		//
+		// Samples which escaped the scene contribute 0 to every feature.
+		if (interaction == null)
+			return;
 		
-		if (receivedLuminance[indexX][indexY] == null || filterWeights[indexX][indexY] == 0d)
+		final var albedo = getAlbedo(interaction);
+		albedoSums[index * 3 + 0] += albedo.getRed();
+		albedoSums[index * 3 + 1] += albedo.getGreen();
+		albedoSums[index * 3 + 2] += albedo.getBlue();
+		
+		normalSums[index * 3 + 0] += interaction.getNormal().getX();
+		normalSums[index * 3 + 1] += interaction.getNormal().getY();
+		normalSums[index * 3 + 2] += interaction.getNormal().getZ();
+		
+		depthSums[index] += interaction.getInteractingRay().getT();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static RGB getAlbedo(Interaction<?> interaction) {
+		
+		if (interaction.getInteracted() instanceof Primitive)
+			return ((Primitive) interaction.getInteracted()).getMaterial()
+					.getAlbedo((Interaction<Primitive>) interaction);
+		
+		return RGB.WHITE;
+	}
+	
+	/**
+	 * Get the luminance received so far at the given film (pixel) location, from
+	 * the given accumulator-snapshot.
+	 * 
+	 * @param snapshot
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private XYZ getReceivedLuminance(double[] snapshot, int x, int y) {
+		
+		final var index = getAccumulatorIndex(x, y);
+		if (index < 0 || snapshot[index + 3] == 0d)
 			return new XYZ(0, 0, 0);
 		
-		final var filterWeight = filterWeights[indexX][indexY];
-		return new XYZ(new Triplet(receivedLuminance[indexX][indexY]).multiply(1d / filterWeight));
+		final var filterWeight = snapshot[index + 3];
+		return new XYZ(snapshot[index + 0] / filterWeight, snapshot[index + 1] / filterWeight,
+				snapshot[index + 2] / filterWeight);
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return the index into the accumulator for the given film (pixel) location,
+	 *         or {@code -1} if that location lies outside the accumulator
+	 */
+	private int getAccumulatorIndex(int x, int y) {
+		
+		final var indexX = x + filter.getExtentX();
+		final var indexY = y + filter.getExtentY();
+		
+		if (indexX < 0 || indexX >= paddedWidth || indexY < 0 || indexY >= paddedHeight)
+			return -1;
+		
+		return (indexX + indexY * paddedWidth) * ACCUMULATOR_STRIDE;
 	}
 	
 	/**
@@ -287,54 +528,371 @@ public class Film {
 	 */
 	public Image getImage(UUID uuid, int xStart, int yStart, int xEnd, int yEnd) {
 		
-		synchronized (this) {
-			if (!initialized)
-				initialize();
-		}
+		return getImage(uuid, xStart, yStart, xEnd, yEnd, false);
+	}
+	
+	/**
+	 * Compile that portion of the {@link Image} gathered so far by this Film
+	 * instance, which lies within the bounds indicated by
+	 * {@code [xStart,yStart]-[xEnd,yEnd]}. Tag it with the given {@link UUID}
+	 * (e.g., to associate it with a certain {@link RenderTask}). If
+	 * {@code includeAccumulator}, attach this Film's
+	 * {@link #exportAccumulator() exported accumulator} as well, so that the
+	 * recipient can merge it exactly with other renders.
+	 * 
+	 * @return
+	 */
+	public Image getImage(UUID uuid, int xStart, int yStart, int xEnd, int yEnd, boolean includeAccumulator) {
 		
 		final var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, width, height, getRaster(xStart, yStart, xEnd, yEnd), 0, width);
 		
-		synchronized (this) {
+		return new Image(image, uuid, (includeAccumulator) ? exportAccumulator() : null);
+		
+	}
+	
+	/**
+	 * Compile that portion of the image gathered so far by this Film instance,
+	 * which lies within the bounds indicated by {@code [xStart,yStart]-[xEnd,yEnd]},
+	 * into a packed-ARGB raster (row-major, {@link #getWidth()} pixels wide).
+	 * 
+	 * @return
+	 * @see #getImage(UUID, int, int, int, int, boolean)
+	 */
+	int[] getRaster(int xStart, int yStart, int xEnd, int yEnd) {
+		
+		if (!initialized)
+			initialize();
+		
+		final var snapshot = getAccumulatorSnapshot();
+		final var denoised = (denoiser != null) ? getDenoisedLuminance(snapshot, xStart, yStart, xEnd, yEnd) : null;
+		
+		//
+		// Tone-map into a packed ARGB raster, in parallel bands of rows. Each band
+		// is exposed, converted to linear RGB, and tone-mapped as a whole, before
+		// being gamma-corrected and packed. Pixels without data are left fully
+		// transparent.
+		//
+		final var exposure = getExposure();
+		final var toneMapper = getToneMapper();
+		final var raster = new int[width * height];
+		final var bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+		
+		IntStream.range(0, bands).parallel().forEach(band -> {
+			
+			final var bandStart = band * BAND_HEIGHT * width;
+			final var bandEnd = min((band + 1) * BAND_HEIGHT, height) * width;
+			final var pixels = new double[(bandEnd - bandStart) * 3];
+			final var valid = new boolean[bandEnd - bandStart];
+			
+			for (int index = bandStart; index < bandEnd; index++) {
+				
+				final var x = index % width;
+				final var y = index / width;
+				final var offsetX = x + this.offsetX;
+				final var offsetY = y + this.offsetY;
+				
+				final var accumulatorIndex = getAccumulatorIndex(x, y);
+				final var weight = snapshot[accumulatorIndex + 3];
+				
+				if ((offsetX < xStart || offsetX > xEnd) || (offsetY < yStart || offsetY > yEnd) || weight == 0d)
+					continue;
+				
+				final var i = index - bandStart;
+				valid[i] = true;
+				
+				for (int c = 0; c < 3; c++)
+					if (denoised != null)
+						pixels[i * 3 + c] = denoised[index * 3 + c] * exposure;
+					else
+						pixels[i * 3 + c] = snapshot[accumulatorIndex + c] * exposure / weight;
+			}
+			
+			XYZ.toRGB_Gammaless(pixels, 0, valid.length);
+			toneMapper.map(pixels, 0, valid.length);
 			
-			for (int x = 0; x < width; x++)
-				for (int y = 0; y < height; y++) {
+			for (int i = 0; i < valid.length; i++)
+				if (valid[i])
+					raster[bandStart + i] = RGB.toPacked(RGB_Gammaless.gammafy(pixels[i * 3 + 0]),
+							RGB_Gammaless.gammafy(pixels[i * 3 + 1]), RGB_Gammaless.gammafy(pixels[i * 3 + 2]), 1d);
+		});
+		
+		return raster;
+	}
+	
+	/**
+	 * Compile the raw, linear {@link HdrImage} gathered so far by this Film
+	 * instance.
+	 * 
+	 * @param uuid
+	 * @param channels
+	 * @return
+	 * @see #getHdrImage(UUID, HdrImage.Channels, int, int, int, int)
+	 */
+	public HdrImage getHdrImage(UUID uuid, HdrImage.Channels channels) {
+		
+		return getHdrImage(uuid, channels, 0, 0, width - 1, height - 1);
+	}
+	
+	/**
+	 * Compile that portion of the raw, linear {@link HdrImage} gathered so far by
+	 * this Film instance, which lies within the bounds indicated by
+	 * {@code [xStart,yStart]-[xEnd,yEnd]}. Pixels outside those bounds (or without
+	 * any samples) are left at 0.
+	 * <p>
+	 * Unlike {@link #getImage(UUID, int, int, int, int)}, this applies neither
+	 * this Film's exposure-settings nor its {@link Denoiser}: each pixel holds its
+	 * filter-weighted average of received luminance, exactly as accumulated.
+	 * </p>
+	 * 
+	 * @param uuid
+	 * @param channels
+	 *            whether to express the image in absolute XYZ, or linear RGB
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @return
+	 */
+	public HdrImage getHdrImage(UUID uuid, HdrImage.Channels channels, int xStart, int yStart, int xEnd, int yEnd) {
+		
+		if (!initialized)
+			initialize();
+		
+		final var snapshot = getAccumulatorSnapshot();
+		final var data = new float[width * height * 3];
+		
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				
+				final var offsetX = x + this.offsetX;
+				final var offsetY = y + this.offsetY;
+				
+				if ((offsetX < xStart || offsetX > xEnd) || (offsetY < yStart || offsetY > yEnd)
+						|| snapshot[getAccumulatorIndex(x, y) + 3] == 0d)
+					continue;
+				
+				final var xyz = getReceivedLuminance(snapshot, x, y);
+				final Triplet value = (channels == HdrImage.Channels.XYZ) ? xyz.get()
+						: xyz.to(RGB_Gammaless.class).get();
+				
+				final var index = (x + y * width) * 3;
+				data[index + 0] = (float) value.get(0);
+				data[index + 1] = (float) value.get(1);
+				data[index + 2] = (float) value.get(2);
+			}
+		
+		return new HdrImage(width, height, channels, data, uuid);
+	}
+	
+	/**
+	 * Run this Film's {@link Denoiser} over its received luminance, within the
+	 * bounds indicated by {@code [xStart,yStart]-[xEnd,yEnd]}.
+	 * 
+	 * @return an array of XYZ luminance (3 values per pixel, indexed by
+	 *         {@code (x + y * width) * 3})
+	 */
+	private double[] getDenoisedLuminance(double[] snapshot, int xStart, int yStart, int xEnd, int yEnd) {
+		
+		final var luminance = new double[width * height * 3];
+		final var albedo = new double[width * height * 3];
+		final var normal = new double[width * height * 3];
+		final var depth = new double[width * height];
+		final var valid = new boolean[width * height];
+		
+		for (int y = 0; y < height; y++)
+			synchronized (rowLocks[y + filter.getExtentY()]) {
+				for (int x = 0; x < width; x++) {
 					
-					final var indexX = x + filter.getExtentX();
-					final var indexY = y + filter.getExtentY();
+					final var index = x + y * width;
 					
 					final var offsetX = x + this.offsetX;
 					final var offsetY = y + this.offsetY;
 					
 					if ((offsetX < xStart || offsetX > xEnd) || (offsetY < yStart || offsetY > yEnd)
-							|| filterWeights[indexX][indexY] == 0d)
-						image.setRGB(x, y, RGB.toPacked(RGB.BLACK, 0d));
+							|| snapshot[getAccumulatorIndex(x, y) + 3] == 0d)
+						continue;
+					
+					valid[index] = true;
 					
-					else {
-						final var rgb = getExposureRGB(getReceivedLuminance(x, y));
-						image.setRGB(x, y, rgb.toPacked());
+					final var xyz = getReceivedLuminance(snapshot, x, y);
+					luminance[index * 3 + 0] = xyz.getX();
+					luminance[index * 3 + 1] = xyz.getY();
+					luminance[index * 3 + 2] = xyz.getZ();
+					
+					final var count = featureCounts[index];
+					if (count > 0) {
+						for (int i = 0; i < 3; i++) {
+							albedo[index * 3 + i] = albedoSums[index * 3 + i] / (double) count;
+							normal[index * 3 + i] = normalSums[index * 3 + i] / (double) count;
+						}
+						depth[index] = depthSums[index] / (double) count;
 					}
 				}
-			
-		}
+			}
 		
-		return new Image(image, uuid);
+		return denoiser.denoise(width, height, luminance, albedo, normal, depth, valid);
+	}
+	
+	/**
+	 * Calculate the factor by which this Film scales absolute luminance (see
+	 * {@link XYZ#fromSpectrum(Spectrum, boolean)}) when exposed.
+	 * 
+	 * @return
+	 */
+	private double getExposure() {
 		
+		return calibrationConstant * (exposureTime * isoSensitivity) / (pow(aperture, 2));
 	}
 	
 	/**
-	 * Calculate the RGB triplet resulting from exposing this Film to a given XYZ
-	 * triplet (assumed to express absolute luminance -- see
-	 * {@link XYZ#fromSpectrum(Spectrum, boolean)}).
+	 * Export this Film's raw accumulator -- each pixel's summed XYZ and total
+	 * filter-weight, including the margin around the Film's edges which its
+	 * {@link Filter} also contributes to.
+	 * <p>
+	 * The exported form is compact and binary: a short header giving the
+	 * accumulator's absolute position and dimensions, followed by 4 doubles per
+	 * pixel. It can be {@link #mergeAccumulator(byte[]) merged} into any other
+	 * Film covering an overlapping region -- e.g., to combine several workers'
+	 * (or several passes') renders of the same region, or to assemble
+	 * partitioned renders into a single Film.
+	 * </p>
 	 * 
-	 * @param exposure
 	 * @return
 	 */
-	private RGB getExposureRGB(XYZ exposure) {
+	public byte[] exportAccumulator() {
+		
+		if (!initialized)
+			initialize();
+		
+		final var snapshot = getAccumulatorSnapshot();
+		
+		final var buffer = ByteBuffer.allocate(6 * Integer.BYTES + snapshot.length * Double.BYTES);
+		buffer.putInt(ACCUMULATOR_MAGIC);
+		buffer.putInt(ACCUMULATOR_VERSION);
+		buffer.putInt(offsetX - filter.getExtentX());
+		buffer.putInt(offsetY - filter.getExtentY());
+		buffer.putInt(paddedWidth);
+		buffer.putInt(paddedHeight);
+		buffer.asDoubleBuffer().put(snapshot);
+		
+		return buffer.array();
+	}
+	
+	/**
+	 * Replace this Film's accumulator with the given exported accumulator (see
+	 * {@link #exportAccumulator()}). Only that part of the given accumulator
+	 * which overlaps this Film is imported.
+	 * <p>
+	 * <strong>Note</strong> that this Film's {@link #getStatistics() statistics}
+	 * are not affected.
+	 * </p>
+	 * 
+	 * @param exported
+	 * @throws IllegalArgumentException
+	 *             if the given data is not an exported accumulator
+	 */
+	public void importAccumulator(byte[] exported) {
 		
-		final var v = new XYZ(
-				exposure.get().multiply(calibrationConstant * (exposureTime * isoSensitivity) / (pow(aperture, 2))));
+		if (!initialized)
+			initialize();
 		
-		return v.to(RGB.class);
+		final var rowLength = paddedWidth * ACCUMULATOR_STRIDE;
+		for (int y = 0; y < paddedHeight; y++)
+			synchronized (rowLocks[y]) {
+				Arrays.fill(accumulator, y * rowLength, (y + 1) * rowLength, 0d);
+			}
+		
+		mergeAccumulator(exported);
+	}
+	
+	/**
+	 * Add the given exported accumulator (see {@link #exportAccumulator()}) into
+	 * this Film's accumulator. Only that part of the given accumulator which
+	 * overlaps this Film is merged.
+	 * <p>
+	 * Because each pixel's value is the ratio of its summed XYZ to its summed
+	 * filter-weight, merging is exact: the result is identical to having added
+	 * both sets of samples to a single Film.
+	 * </p>
+	 * <p>
+	 * <strong>Note</strong> that this Film's {@link #getStatistics() statistics}
+	 * are not affected.
+	 * </p>
+	 * 
+	 * @param exported
+	 * @throws IllegalArgumentException
+	 *             if the given data is not an exported accumulator
+	 */
+	public void mergeAccumulator(byte[] exported) {
+		
+		if (!initialized)
+			initialize();
+		
+		final var buffer = ByteBuffer.wrap(exported);
+		if (exported.length < 6 * Integer.BYTES || buffer.getInt() != ACCUMULATOR_MAGIC)
+			throw new IllegalArgumentException("Given data is not an exported Film accumulator.");
+		
+		final var version = buffer.getInt();
+		if (version != ACCUMULATOR_VERSION)
+			throw new IllegalArgumentException("Unsupported Film accumulator version (" + version + ").");
+		
+		final var startX = buffer.getInt();
+		final var startY = buffer.getInt();
+		final var otherWidth = buffer.getInt();
+		final var otherHeight = buffer.getInt();
+		
+		final var values = buffer.asDoubleBuffer();
+		if (values.remaining() != otherWidth * otherHeight * ACCUMULATOR_STRIDE)
+			throw new IllegalArgumentException("Film accumulator is truncated.");
+		
+		//
+		// Translate the other accumulator's region into our own (padded)
+		// coordinates.
+		//
+		final var shiftX = startX - (offsetX - filter.getExtentX());
+		final var shiftY = startY - (offsetY - filter.getExtentY());
+		
+		final var fromX = max(0, -shiftX);
+		final var toX = min(otherWidth, paddedWidth - shiftX);
+		if (fromX >= toX)
+			return;
+		
+		for (int y = max(0, -shiftY); y < min(otherHeight, paddedHeight - shiftY); y++) {
+			
+			final var row = y + shiftY;
+			synchronized (rowLocks[row]) {
+				for (int x = fromX; x < toX; x++) {
+					
+					final var from = (x + y * otherWidth) * ACCUMULATOR_STRIDE;
+					final var to = ((x + shiftX) + row * paddedWidth) * ACCUMULATOR_STRIDE;
+					
+					for (int i = 0; i < ACCUMULATOR_STRIDE; i++)
+						accumulator[to + i] += values.get(from + i);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the running per-pixel luminance statistics for this Film. These
+	 * statistics are indexed by absolute pixel location (i.e., including this
+	 * Film's offset), and only cover this Film's own pixels.
+	 * <p>
+	 * <strong>Note</strong> that the returned {@link PixelStatistics} is updated
+	 * under this Film's per-row locks. If you read it while other threads are
+	 * still adding samples, expect a close -- but not necessarily consistent --
+	 * view.
+	 * </p>
+	 * 
+	 * @return
+	 */
+	public PixelStatistics getStatistics() {
+		
+		if (!initialized)
+			initialize();
+		
+		return statistics;
 	}
 	
 	public int getWidth() {
@@ -352,6 +910,23 @@ public class Film {
 		return filter;
 	}
 	
+	/**
+	 * @return this Film's {@link Denoiser}, or {@code null} if it has none
+	 */
+	public Denoiser getDenoiser() {
+		
+		return denoiser;
+	}
+	
+	/**
+	 * @return this Film's {@link ToneMapper} (a {@link LinearToneMapper} if none
+	 *         was configured)
+	 */
+	public ToneMapper getToneMapper() {
+		
+		return (toneMapper != null) ? toneMapper : new LinearToneMapper();
+	}
+	
 	/**
 	 * Return a variant of this Film, with modified dimensions and offset to the
 	 * given sample-window.
@@ -363,22 +938,54 @@ public class Film {
 		final var newWidth = xEnd - xStart + 1;
 		final var newHeight = yEnd - yStart + 1;
 		return new Film(newWidth, newHeight, xStart, yStart, aperture, exposureTime, isoSensitivity,
-				calibrationConstant, filter);
+				calibrationConstant, filter, denoiser, toneMapper);
 	}
 	
 	/**
-	 * Packages a {@link RenderedImage} in a de/serializable format.
-	 * 
-	 * @author snowjak88
-	 *
+	 * A rendered (and tone-mapped) image, encoded as a PNG, optionally
+	 * accompanied by the {@link Film#exportAccumulator() Film accumulator} it was
+	 * rendered from.
+	 * <p>
+	 * An Image holds its PNG and accumulator as raw bytes. In JSON, both are
+	 * Base64-encoded (see {@link Loader}).
+	 * </p>
 	 */
 	public static class Image {
 		
-		private String png;
+		private byte[] png;
 		private UUID uuid;
+		private byte[] accumulator = null;
+		private boolean partial = false;
 		
 		public Image(RenderedImage img, UUID uuid) {
 			
+			this(img, uuid, null);
+		}
+		
+		/**
+		 * @param img
+		 * @param uuid
+		 * @param accumulator
+		 *            (optional) an {@link Film#exportAccumulator() exported Film
+		 *            accumulator} to accompany this Image
+		 */
+		public Image(RenderedImage img, UUID uuid, byte[] accumulator) {
+			
+			this(img, uuid, accumulator, false);
+		}
+		
+		/**
+		 * @param img
+		 * @param uuid
+		 * @param accumulator
+		 *            (optional) an {@link Film#exportAccumulator() exported Film
+		 *            accumulator} to accompany this Image
+		 * @param partial
+		 *            {@code true} if this Image is only a {@link #isPartial()
+		 *            partial} snapshot of a render still in progress
+		 */
+		public Image(RenderedImage img, UUID uuid, byte[] accumulator, boolean partial) {
+			
 			final var buffer = new ByteArrayOutputStream();
 			
 			try {
@@ -387,22 +994,67 @@ public class Film {
 				e.printStackTrace();
 			}
 			
-			this.png = Base64.getEncoder().encodeToString(buffer.toByteArray());
+			this.png = buffer.toByteArray();
 			this.uuid = uuid;
+			this.accumulator = accumulator;
+			this.partial = partial;
+		}
+		
+		/**
+		 * @param png
+		 *            an already-encoded PNG
+		 * @param uuid
+		 * @param accumulator
+		 *            (optional) an {@link Film#exportAccumulator() exported Film
+		 *            accumulator} to accompany this Image
+		 */
+		public Image(byte[] png, UUID uuid, byte[] accumulator) {
+			
+			this(png, uuid, accumulator, false);
+		}
+		
+		/**
+		 * @param png
+		 *            an already-encoded PNG
+		 * @param uuid
+		 * @param accumulator
+		 *            (optional) an {@link Film#exportAccumulator() exported Film
+		 *            accumulator} to accompany this Image
+		 * @param partial
+		 *            {@code true} if this Image is only a {@link #isPartial()
+		 *            partial} snapshot of a render still in progress
+		 */
+		public Image(byte[] png, UUID uuid, byte[] accumulator, boolean partial) {
+			
+			this.png = png;
+			this.uuid = uuid;
+			this.accumulator = accumulator;
+			this.partial = partial;
 		}
 		
 		public BufferedImage getBufferedImage() {
 			
 			try {
-				return ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(png)));
+				return ImageIO.read(new ByteArrayInputStream(png));
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
 			return null;
 		}
 		
+		/**
+		 * @return this Image's PNG, Base64-encoded
+		 */
 		public String getPng() {
 			
+			return Base64.getEncoder().encodeToString(png);
+		}
+		
+		/**
+		 * @return this Image's PNG
+		 */
+		public byte[] getPngBytes() {
+			
 			return png;
 		}
 		
@@ -410,6 +1062,74 @@ public class Film {
 			
 			return uuid;
 		}
+		
+		/**
+		 * @return the {@link Film#exportAccumulator() exported Film accumulator}
+		 *         accompanying this Image, or {@code null} if there is none
+		 */
+		public byte[] getAccumulator() {
+			
+			return accumulator;
+		}
+		
+		/**
+		 * @return {@code true} if this Image is only a snapshot of a render still
+		 *         in progress (see {@link FilmSnapshotter}), and so should be
+		 *         painted over its render's existing image rather than completing
+		 *         it
+		 */
+		public boolean isPartial() {
+			
+			return partial;
+		}
+		
+		public static class Loader implements IsLoadable<Image> {
+			
+			@Override
+			public Image deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
+					throws JsonParseException {
+				
+				if (!json.isJsonObject())
+					throw new JsonParseException("Cannot deserialize Image from JSON -- expecting a JSON object!");
+				
+				final var obj = json.getAsJsonObject();
+				
+				if (!obj.has("png"))
+					throw new JsonParseException("Cannot deserialize Image from JSON -- missing [png]!");
+				
+				try {
+					final var png = Base64.getDecoder().decode(obj.get("png").getAsString());
+					final var uuid = (obj.has("uuid") && !obj.get("uuid").isJsonNull())
+							? UUID.fromString(obj.get("uuid").getAsString())
+							: null;
+					final var accumulator = (obj.has("accumulator") && !obj.get("accumulator").isJsonNull())
+							? Base64.getDecoder().decode(obj.get("accumulator").getAsString())
+							: null;
+					
+					final var partial = obj.has("partial") && obj.get("partial").getAsBoolean();
+					
+					return new Image(png, uuid, accumulator, partial);
+					
+				} catch (IllegalArgumentException e) {
+					throw new JsonParseException("Cannot deserialize Image from JSON -- malformed field!", e);
+				}
+			}
+			
+			@Override
+			public JsonElement serialize(Image src, Type typeOfSrc, JsonSerializationContext context) {
+				
+				final var obj = new JsonObject();
+				
+				obj.addProperty("png", src.getPng());
+				if (src.getUuid() != null)
+					obj.addProperty("uuid", src.getUuid().toString());
+				if (src.getAccumulator() != null)
+					obj.addProperty("accumulator", Base64.getEncoder().encodeToString(src.getAccumulator()));
+				if (src.isPartial())
+					obj.addProperty("partial", true);
+				
+				return obj;
+			}
+		}
 	}
-	
 }
@@ -0,0 +1,123 @@
+package org.snowjak.rays.film;
+
+import java.awt.image.BufferedImage;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.snowjak.rays.film.Film.Image;
+
+/**
+ * Takes successive snapshots of a {@link Film} while it is still being rendered
+ * into, each one delta-encoded against the one before it.
+ * <p>
+ * Each snapshot is a {@link Image#isPartial() partial} {@link Image}, in which
+ * only those pixels that have changed since the previous snapshot are opaque
+ * -- every other pixel is left fully transparent. Painting each snapshot, in
+ * order, over the last therefore reproduces the Film as it stood at the latest
+ * snapshot. (Because unchanged pixels are transparent, a snapshot of a
+ * mostly-unchanged Film also compresses very well.)
+ * </p>
+ * <p>
+ * A FilmSnapshotter is thread-safe. Once {@link #close() closed}, it takes no
+ * further snapshots.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class FilmSnapshotter implements AutoCloseable {
+	
+	private final Film film;
+	private final UUID uuid;
+	private final int xStart, yStart, xEnd, yEnd;
+	
+	private int[] previous = null;
+	private boolean closed = false;
+	
+	/**
+	 * Construct a new FilmSnapshotter, which will take snapshots of that portion
+	 * of the given {@link Film} which lies within
+	 * {@code [xStart,yStart]-[xEnd,yEnd]}, and tag them with the given
+	 * {@link UUID}.
+	 *
+	 * @param film
+	 * @param uuid
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 */
+	public FilmSnapshotter(Film film, UUID uuid, int xStart, int yStart, int xEnd, int yEnd) {
+		
+		this.film = film;
+		this.uuid = uuid;
+		this.xStart = xStart;
+		this.yStart = yStart;
+		this.xEnd = xEnd;
+		this.yEnd = yEnd;
+	}
+	
+	/**
+	 * Take a new snapshot of this FilmSnapshotter's {@link Film}.
+	 *
+	 * @return a {@link Image#isPartial() partial} {@link Image} holding only those
+	 *         pixels which have changed since the last snapshot, or {@code null}
+	 *         if no pixels have changed (or this FilmSnapshotter is closed)
+	 */
+	public synchronized Image getSnapshot() {
+		
+		if (closed)
+			return null;
+		
+		final var raster = film.getRaster(xStart, yStart, xEnd, yEnd);
+		final var delta = new int[raster.length];
+		
+		var changed = false;
+		for (int i = 0; i < raster.length; i++)
+			if (previous == null || raster[i] != previous[i]) {
+				delta[i] = raster[i];
+				changed |= (raster[i] != 0);
+			}
+		
+		previous = raster;
+		
+		if (!changed)
+			return null;
+		
+		final var image = new BufferedImage(film.getWidth(), film.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, film.getWidth(), film.getHeight(), delta, 0, film.getWidth());
+		
+		return new Image(image, uuid, null, true);
+	}
+	
+	/**
+	 * Close this FilmSnapshotter. If a snapshot is currently being taken (or
+	 * published -- see {@link #publishSnapshot(Consumer)}), wait for it to
+	 * finish.
+	 */
+	@Override
+	public synchronized void close() {
+		
+		closed = true;
+	}
+	
+	/**
+	 * Take a new snapshot and, if anything has changed since the last one, hand it
+	 * to the given consumer. The consumer is invoked while this FilmSnapshotter is
+	 * locked, so that no snapshot can be published after {@link #close()} returns.
+	 *
+	 * @param consumer
+	 */
+	public synchronized void publishSnapshot(Consumer<Image> consumer) {
+		
+		final var snapshot = getSnapshot();
+		if (snapshot != null)
+			consumer.accept(snapshot);
+	}
+	
+	public synchronized boolean isClosed() {
+		
+		return closed;
+	}
+	
+}
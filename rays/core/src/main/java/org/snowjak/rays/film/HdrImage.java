@@ -0,0 +1,446 @@
+package org.snowjak.rays.film;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.snowjak.rays.RenderTask;
+
+/**
+ * An HdrImage holds linear, floating-point pixel data -- either absolute
+ * CIE XYZ or linear (i.e., gammaless) RGB -- exactly as accumulated by a
+ * {@link Film}, without any exposure or tone-mapping applied.
+ * <p>
+ * An HdrImage can be written as a Portable Float Map (PFM), or as an
+ * uncompressed, scanline OpenEXR file (with either 32-bit float or 16-bit half
+ * channels). PFM files can also be read back in. All I/O goes through NIO
+ * channels and buffers.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class HdrImage {
+	
+	private static final int EXR_MAGIC = 20000630;
+	private static final int EXR_VERSION = 2;
+	private static final int EXR_HALF = 1, EXR_FLOAT = 2;
+	
+	private final int width, height;
+	private final Channels channels;
+	private final float[] data;
+	private final UUID uuid;
+	
+	/**
+	 * Which quantity an {@link HdrImage}'s channels hold.
+	 */
+	public enum Channels {
+		/**
+		 * Absolute CIE XYZ
+		 */
+		XYZ("X", "Y", "Z"),
+		/**
+		 * Linear (gammaless) RGB
+		 */
+		LINEAR_RGB("R", "G", "B");
+		
+		private final String[] names;
+		
+		private Channels(String... names) {
+			
+			this.names = names;
+		}
+		
+		/**
+		 * @return the names of this set's 3 channels, in pixel-order
+		 */
+		public String[] getNames() {
+			
+			return names;
+		}
+	}
+	
+	/**
+	 * Construct a new HdrImage.
+	 *
+	 * @param width
+	 * @param height
+	 * @param channels
+	 * @param data
+	 *            3 floats per pixel, row-by-row from the top-left
+	 * @param uuid
+	 *            (optional) the {@link RenderTask} this image belongs to
+	 */
+	public HdrImage(int width, int height, Channels channels, float[] data, UUID uuid) {
+		
+		if (data.length != width * height * 3)
+			throw new IllegalArgumentException("Expected " + (width * height * 3) + " floats, but got "
+					+ data.length + ".");
+		
+		this.width = width;
+		this.height = height;
+		this.channels = channels;
+		this.data = data;
+		this.uuid = uuid;
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @param channel
+	 *            0, 1, or 2
+	 * @return the given channel's value for pixel {@code [x,y]}
+	 */
+	public float get(int x, int y, int channel) {
+		
+		return data[(x + y * width) * 3 + channel];
+	}
+	
+	/**
+	 * Write this image to the given file as a PFM.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void writePfm(Path path) throws IOException {
+		
+		try (var channel = Files.newByteChannel(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writePfm(channel);
+		}
+	}
+	
+	/**
+	 * Write this image to the given channel as a (little-endian) PFM.
+	 * <p>
+	 * <strong>Note</strong> that PFM does not record which quantity its channels
+	 * hold. Whoever reads it back must know whether it holds XYZ or linear RGB.
+	 * </p>
+	 *
+	 * @param channel
+	 * @throws IOException
+	 */
+	public void writePfm(WritableByteChannel channel) throws IOException {
+		
+		//
+		// A negative scale-factor signifies little-endian data.
+		//
+		final var header = ("PF\n" + width + " " + height + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII);
+		writeFully(channel, ByteBuffer.wrap(header));
+		
+		//
+		// PFM scanlines run from the bottom of the image to the top.
+		//
+		final var row = ByteBuffer.allocate(width * 3 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for (int y = height - 1; y >= 0; y--) {
+			row.clear();
+			row.asFloatBuffer().put(data, y * width * 3, width * 3);
+			writeFully(channel, row);
+		}
+	}
+	
+	/**
+	 * Read a PFM (either color or greyscale, either endianness) from the given
+	 * file.
+	 *
+	 * @param path
+	 * @param channels
+	 *            which quantity the PFM is known to hold
+	 * @return
+	 * @throws IOException
+	 */
+	public static HdrImage readPfm(Path path, Channels channels) throws IOException {
+		
+		try (var channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+			return readPfm(channel, channels);
+		}
+	}
+	
+	/**
+	 * Read a PFM (either color or greyscale, either endianness) from the given
+	 * channel. Greyscale PFMs have their single channel copied into all 3 of this
+	 * image's channels.
+	 *
+	 * @param channel
+	 * @param channels
+	 *            which quantity the PFM is known to hold
+	 * @return
+	 * @throws IOException
+	 */
+	public static HdrImage readPfm(ReadableByteChannel channel, Channels channels) throws IOException {
+		
+		final var single = ByteBuffer.allocate(1);
+		
+		final var type = readToken(channel, single);
+		if (!type.equals("PF") && !type.equals("Pf"))
+			throw new IOException("Not a PFM file (unexpected type \"" + type + "\").");
+		
+		final var components = type.equals("PF") ? 3 : 1;
+		
+		final int width, height;
+		final double scale;
+		try {
+			width = Integer.parseInt(readToken(channel, single));
+			height = Integer.parseInt(readToken(channel, single));
+			scale = Double.parseDouble(readToken(channel, single));
+		} catch (NumberFormatException e) {
+			throw new IOException("Cannot parse PFM header.", e);
+		}
+		
+		final var order = (scale < 0d) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		
+		final var data = new float[width * height * 3];
+		final var row = ByteBuffer.allocate(width * components * Float.BYTES).order(order);
+		
+		for (int y = height - 1; y >= 0; y--) {
+			row.clear();
+			readFully(channel, row);
+			row.flip();
+			
+			final var floats = row.asFloatBuffer();
+			for (int x = 0; x < width; x++)
+				for (int c = 0; c < 3; c++)
+					data[(x + y * width) * 3 + c] = floats.get(x * components + ((components == 3) ? c : 0));
+		}
+		
+		return new HdrImage(width, height, channels, data, null);
+	}
+	
+	/**
+	 * Write this image to the given file as an OpenEXR.
+	 *
+	 * @param path
+	 * @param half
+	 *            if {@code true}, write 16-bit half-floats; else, 32-bit floats
+	 * @throws IOException
+	 */
+	public void writeExr(Path path, boolean half) throws IOException {
+		
+		try (var channel = Files.newByteChannel(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeExr(channel, half);
+		}
+	}
+	
+	/**
+	 * Write this image to the given channel as a single-part, scanline,
+	 * uncompressed OpenEXR.
+	 *
+	 * @param channel
+	 * @param half
+	 *            if {@code true}, write 16-bit half-floats; else, 32-bit floats
+	 * @throws IOException
+	 */
+	public void writeExr(WritableByteChannel channel, boolean half) throws IOException {
+		
+		final var pixelType = half ? EXR_HALF : EXR_FLOAT;
+		final var bytesPerValue = half ? 2 : 4;
+		
+		//
+		// OpenEXR requires channels to be listed (and stored) in alphabetical
+		// order.
+		//
+		final var names = channels.getNames();
+		final var order = new Integer[] { 0, 1, 2 };
+		Arrays.sort(order, (i, j) -> names[i].compareTo(names[j]));
+		
+		final var header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(EXR_MAGIC);
+		header.putInt(EXR_VERSION);
+		
+		final var channelList = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+		for (int c : order) {
+			putString(channelList, names[c]);
+			channelList.putInt(pixelType);
+			channelList.put((byte) 0); // pLinear
+			channelList.put(new byte[3]); // reserved
+			channelList.putInt(1); // x-sampling
+			channelList.putInt(1); // y-sampling
+		}
+		channelList.put((byte) 0);
+		channelList.flip();
+		putAttribute(header, "channels", "chlist", channelList);
+		
+		putAttribute(header, "compression", "compression", ByteBuffer.wrap(new byte[] { 0 }));
+		
+		final var window = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+		window.putInt(0).putInt(0).putInt(width - 1).putInt(height - 1).flip();
+		putAttribute(header, "dataWindow", "box2i", window);
+		putAttribute(header, "displayWindow", "box2i", window.duplicate());
+		
+		putAttribute(header, "lineOrder", "lineOrder", ByteBuffer.wrap(new byte[] { 0 }));
+		putAttribute(header, "pixelAspectRatio", "float",
+				ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(1f).flip());
+		putAttribute(header, "screenWindowCenter", "v2f",
+				ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putFloat(0f).putFloat(0f).flip());
+		putAttribute(header, "screenWindowWidth", "float",
+				ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(1f).flip());
+		header.put((byte) 0);
+		header.flip();
+		
+		final var headerSize = header.remaining();
+		writeFully(channel, header);
+		
+		//
+		// Each scanline is its own chunk: y-coordinate, data-size, and then each
+		// channel's values for the whole scanline.
+		//
+		final var lineDataSize = width * 3 * bytesPerValue;
+		final var chunkSize = 4 + 4 + lineDataSize;
+		
+		final var offsets = ByteBuffer.allocate(height * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		final long firstChunk = headerSize + offsets.capacity();
+		for (int y = 0; y < height; y++)
+			offsets.putLong(firstChunk + (long) y * (long) chunkSize);
+		offsets.flip();
+		writeFully(channel, offsets);
+		
+		final var chunk = ByteBuffer.allocate(chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+		for (int y = 0; y < height; y++) {
+			chunk.clear();
+			chunk.putInt(y);
+			chunk.putInt(lineDataSize);
+			
+			for (int c : order)
+				for (int x = 0; x < width; x++) {
+					final var value = data[(x + y * width) * 3 + c];
+					if (half)
+						chunk.putShort(toHalf(value));
+					else
+						chunk.putFloat(value);
+				}
+			
+			chunk.flip();
+			writeFully(channel, chunk);
+		}
+	}
+	
+	private static void putAttribute(ByteBuffer buffer, String name, String type, ByteBuffer value) {
+		
+		putString(buffer, name);
+		putString(buffer, type);
+		buffer.putInt(value.remaining());
+		buffer.put(value);
+	}
+	
+	private static void putString(ByteBuffer buffer, String value) {
+		
+		buffer.put(value.getBytes(StandardCharsets.US_ASCII));
+		buffer.put((byte) 0);
+	}
+	
+	/**
+	 * Convert the given float to an IEEE 754 half-precision float (rounding to
+	 * nearest).
+	 *
+	 * @param value
+	 * @return
+	 */
+	static short toHalf(float value) {
+		
+		final var bits = Float.floatToIntBits(value);
+		final var sign = (bits >>> 16) & 0x8000;
+		final var magnitude = bits & 0x7fffffff;
+		final var rounded = magnitude + 0x1000;
+		
+		//
+		// Too large for a half? (Or infinite, or NaN.)
+		//
+		if (rounded >= 0x47800000) {
+			if (magnitude >= 0x47800000) {
+				if (magnitude < 0x7f800000)
+					return (short) (sign | 0x7c00);
+				return (short) (sign | 0x7c00 | ((bits & 0x007fffff) >>> 13));
+			}
+			return (short) (sign | 0x7bff);
+		}
+		
+		//
+		// Normalized?
+		//
+		if (rounded >= 0x38800000)
+			return (short) (sign | ((rounded - 0x38000000) >>> 13));
+		
+		//
+		// Too small for even a denormalized half?
+		//
+		if (rounded < 0x33000000)
+			return (short) sign;
+		
+		//
+		// Denormalized.
+		//
+		final var exponent = magnitude >>> 23;
+		return (short) (sign
+				| ((((bits & 0x7fffff) | 0x800000) + (0x800000 >>> (exponent - 102))) >>> (126 - exponent)));
+	}
+	
+	private static String readToken(ReadableByteChannel channel, ByteBuffer single) throws IOException {
+		
+		final var token = new StringBuilder();
+		
+		while (true) {
+			single.clear();
+			if (channel.read(single) < 1)
+				throw new IOException("Unexpected end of PFM header.");
+			
+			final var c = (char) single.get(0);
+			if (Character.isWhitespace(c)) {
+				if (token.length() > 0)
+					return token.toString();
+			} else
+				token.append(c);
+		}
+	}
+	
+	private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		
+		while (buffer.hasRemaining())
+			if (channel.read(buffer) < 0)
+				throw new IOException("Unexpected end of stream.");
+	}
+	
+	private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+	
+	public int getWidth() {
+		
+		return width;
+	}
+	
+	public int getHeight() {
+		
+		return height;
+	}
+	
+	public Channels getChannels() {
+		
+		return channels;
+	}
+	
+	/**
+	 * @return this image's pixel data: 3 floats per pixel, row-by-row from the
+	 *         top-left
+	 */
+	public float[] getData() {
+		
+		return data;
+	}
+	
+	public UUID getUuid() {
+		
+		return uuid;
+	}
+	
+}
@@ -0,0 +1,256 @@
+package org.snowjak.rays.film;
+
+import static org.apache.commons.math3.util.FastMath.floor;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.spectrum.colorspace.XYZ;
+
+/**
+ * Tracks running per-pixel statistics -- sample-count, mean, and variance --
+ * of the luminance ({@code Y}) of {@link EstimatedSample}s received across a
+ * rectangular region {@code [xStart,yStart]-[xEnd,yEnd]}.
+ * <p>
+ * Statistics are accumulated incrementally (using Welford's method) into
+ * primitive arrays, so adding a sample does not allocate.
+ * </p>
+ * <p>
+ * <strong>Note</strong> that PixelStatistics is <strong>not</strong>
+ * thread-safe. Callers sharing an instance across threads must synchronize
+ * externally.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class PixelStatistics {
+	
+	private final int xStart, yStart, xEnd, yEnd;
+	private final int width, height;
+	
+	private final int[] counts;
+	private final double[] means;
+	private final double[] sumSquaredDeviations;
+	
+	public PixelStatistics(int xStart, int yStart, int xEnd, int yEnd) {
+		
+		this.xStart = xStart;
+		this.yStart = yStart;
+		this.xEnd = xEnd;
+		this.yEnd = yEnd;
+		
+		this.width = xEnd - xStart + 1;
+		this.height = yEnd - yStart + 1;
+		
+		this.counts = new int[width * height];
+		this.means = new double[width * height];
+		this.sumSquaredDeviations = new double[width * height];
+	}
+	
+	/**
+	 * Add the given {@link EstimatedSample} to the statistics for the pixel it
+	 * falls within. Samples falling outside this region are ignored.
+	 *
+	 * @param estimate
+	 */
+	public void add(EstimatedSample estimate) {
+		
+		add((int) floor(estimate.getSample().getFilmPoint().getX()),
+				(int) floor(estimate.getSample().getFilmPoint().getY()),
+				XYZ.fromSpectrum(estimate.getRadiance(), false).getY());
+	}
+	
+	/**
+	 * Add the given luminance value to the statistics for the pixel
+	 * {@code [x,y]}. Values falling outside this region are ignored.
+	 *
+	 * @param x
+	 * @param y
+	 * @param luminance
+	 */
+	public void add(int x, int y, double luminance) {
+		
+		if (!contains(x, y))
+			return;
+		
+		final var index = getIndex(x, y);
+		
+		counts[index]++;
+		final var delta = luminance - means[index];
+		means[index] += delta / (double) counts[index];
+		sumSquaredDeviations[index] += delta * (luminance - means[index]);
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return {@code true} if pixel {@code [x,y]} lies within this region
+	 */
+	public boolean contains(int x, int y) {
+		
+		return (x >= xStart && x <= xEnd && y >= yStart && y <= yEnd);
+	}
+	
+	/**
+	 * @return the index into this region's arrays for pixel {@code [x,y]}
+	 */
+	private int getIndex(int x, int y) {
+		
+		return (x - xStart) + (y - yStart) * width;
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return the number of samples received for pixel {@code [x,y]}
+	 */
+	public int getCount(int x, int y) {
+		
+		if (!contains(x, y))
+			return 0;
+		
+		return counts[getIndex(x, y)];
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return the mean luminance received for pixel {@code [x,y]}
+	 */
+	public double getMean(int x, int y) {
+		
+		if (!contains(x, y))
+			return 0d;
+		
+		return means[getIndex(x, y)];
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return the (unbiased) sample-variance of the luminance received for pixel
+	 *         {@code [x,y]}, or {@link Double#POSITIVE_INFINITY} if fewer than 2
+	 *         samples have been received
+	 */
+	public double getVariance(int x, int y) {
+		
+		if (!contains(x, y))
+			return Double.POSITIVE_INFINITY;
+		
+		final var index = getIndex(x, y);
+		if (counts[index] < 2)
+			return Double.POSITIVE_INFINITY;
+		
+		return sumSquaredDeviations[index] / (double) (counts[index] - 1);
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return the estimated variance of pixel {@code [x,y]}'s mean luminance
+	 *         (i.e., the squared standard-error), or
+	 *         {@link Double#POSITIVE_INFINITY} if fewer than 2 samples have been
+	 *         received
+	 */
+	public double getVarianceOfMean(int x, int y) {
+		
+		if (!contains(x, y))
+			return Double.POSITIVE_INFINITY;
+		
+		final var index = getIndex(x, y);
+		return getVarianceOfMean(index);
+	}
+	
+	private double getVarianceOfMean(int index) {
+		
+		final var n = counts[index];
+		if (n < 2)
+			return Double.POSITIVE_INFINITY;
+		
+		return sumSquaredDeviations[index] / ((double) (n - 1) * (double) n);
+	}
+	
+	/**
+	 * @return the average, across all pixels in this region, of
+	 *         {@link #getVarianceOfMean(int, int)}
+	 */
+	public double getAverageVarianceOfMean() {
+		
+		return getAverageVarianceOfMean(xStart, yStart, xEnd, yEnd);
+	}
+	
+	/**
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @return the average, across all pixels in both this region and
+	 *         {@code [xStart,yStart]-[xEnd,yEnd]}, of
+	 *         {@link #getVarianceOfMean(int, int)}, or
+	 *         {@link Double#POSITIVE_INFINITY} if any of those pixels has fewer
+	 *         than 2 samples (or the two regions don't overlap)
+	 */
+	public double getAverageVarianceOfMean(int xStart, int yStart, int xEnd, int yEnd) {
+		
+		final int x0 = max(xStart, this.xStart), y0 = max(yStart, this.yStart), x1 = min(xEnd, this.xEnd),
+				y1 = min(yEnd, this.yEnd);
+		if (x0 > x1 || y0 > y1)
+			return Double.POSITIVE_INFINITY;
+		
+		double total = 0d;
+		for (int y = y0; y <= y1; y++)
+			for (int x = x0; x <= x1; x++) {
+				final var v = getVarianceOfMean(getIndex(x, y));
+				if (Double.isInfinite(v))
+					return Double.POSITIVE_INFINITY;
+				
+				total += v;
+			}
+		
+		return total / ((double) (x1 - x0 + 1) * (double) (y1 - y0 + 1));
+	}
+	
+	/**
+	 * Reset all statistics to 0.
+	 */
+	public void clear() {
+		
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 0;
+			means[i] = 0;
+			sumSquaredDeviations[i] = 0;
+		}
+	}
+	
+	public int getXStart() {
+		
+		return xStart;
+	}
+	
+	public int getYStart() {
+		
+		return yStart;
+	}
+	
+	public int getXEnd() {
+		
+		return xEnd;
+	}
+	
+	public int getYEnd() {
+		
+		return yEnd;
+	}
+	
+	public int getWidth() {
+		
+		return width;
+	}
+	
+	public int getHeight() {
+		
+		return height;
+	}
+	
+}
@@ -15,6 +15,7 @@ public class BoxFilter implements Filter {
 	
 	private int extent;
 	private transient int pixelsInBox = -1;
+	private transient FilterTable table = null;
 	
 	/**
 	 * @see BoxFilter
@@ -57,4 +58,15 @@ public class BoxFilter implements Filter {
 		return 1d / (double) getPixelsInBox();
 	}
 	
+	@Override
+	public FilterTable getTable() {
+		
+		if (table == null) {
+			final var weight = (getPixelsInBox() == 0) ? 1d : 1d / (double) getPixelsInBox();
+			table = new FilterTable(extent, extent, 1, d -> weight, d -> 1d);
+		}
+		
+		return table;
+	}
+	
 }
@@ -70,4 +70,17 @@ public interface Filter {
 				&& (filmY >= (double) pixelY - extentY && filmY <= (double) pixelY + extentY);
 	}
 	
+	/**
+	 * Get this Filter's precomputed {@link FilterTable}, if it has one. Callers
+	 * splatting many Samples (e.g., a Film) should prefer the table -- if present
+	 * -- to calling {@link #getContribution(Sample, int, int)} for every pixel.
+	 * 
+	 * @return this Filter's FilterTable, or {@code null} if this Filter is not
+	 *         separable
+	 */
+	public default FilterTable getTable() {
+		
+		return null;
+	}
+	
 }
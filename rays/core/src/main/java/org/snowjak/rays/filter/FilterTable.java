@@ -0,0 +1,171 @@
+package org.snowjak.rays.filter;
+
+import static org.apache.commons.math3.util.FastMath.floor;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import java.util.function.DoubleUnaryOperator;
+
+import org.snowjak.rays.sample.Sample;
+
+/**
+ * A precomputed table of a separable {@link Filter}'s weights.
+ * <p>
+ * A separable Filter's contribution factors into independent X and Y terms,
+ * each depending only on the distance from the {@link Sample} to the pixel's
+ * center along that axis. Each pixel is divided into {@code resolution}
+ * sub-pixel bins along each axis; for every bin, this table holds the weight
+ * applied to every pixel within the Filter's extent. Finding a Sample's
+ * contribution to a pixel then takes only two lookups and a multiplication,
+ * regardless of how expensive the Filter itself is to evaluate.
+ * </p>
+ * <p>
+ * A FilterTable is immutable once constructed, and so is thread-safe.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class FilterTable {
+	
+	/**
+	 * The default number of sub-pixel bins along each axis.
+	 */
+	public static final int DEFAULT_RESOLUTION = 64;
+	
+	private final int extentX, extentY;
+	private final int resolution;
+	private final double[] weightsX, weightsY;
+	
+	/**
+	 * Build a new FilterTable.
+	 * <p>
+	 * Each weighting-function receives the signed distance, in pixels, from a
+	 * Sample to a pixel's center (i.e., {@code sample - (pixel + 0.5)}) along its
+	 * axis.
+	 * </p>
+	 *
+	 * @param extentX
+	 * @param extentY
+	 * @param resolution
+	 *            the number of sub-pixel bins along each axis
+	 * @param weightX
+	 * @param weightY
+	 */
+	public FilterTable(int extentX, int extentY, int resolution, DoubleUnaryOperator weightX,
+			DoubleUnaryOperator weightY) {
+		
+		this.extentX = extentX;
+		this.extentY = extentY;
+		this.resolution = max(resolution, 1);
+		this.weightsX = tabulate(extentX, this.resolution, weightX);
+		this.weightsY = tabulate(extentY, this.resolution, weightY);
+	}
+	
+	private static double[] tabulate(int extent, int resolution, DoubleUnaryOperator weight) {
+		
+		final var size = 2 * extent + 1;
+		final var weights = new double[resolution * size];
+		
+		for (int bin = 0; bin < resolution; bin++) {
+			
+			//
+			// Evaluate each bin at its center.
+			//
+			final var subPixel = ((double) bin + 0.5) / (double) resolution;
+			
+			for (int offset = -extent; offset <= extent; offset++)
+				weights[bin * size + (offset + extent)] = weight
+						.applyAsDouble(subPixel - (double) offset - 0.5);
+		}
+		
+		return weights;
+	}
+	
+	/**
+	 * @param filmX
+	 *            a Sample's film-point X-coordinate
+	 * @return the sub-pixel bin along X that the given film-point falls into
+	 */
+	public int getBinX(double filmX) {
+		
+		return getBin(filmX);
+	}
+	
+	/**
+	 * @param filmY
+	 *            a Sample's film-point Y-coordinate
+	 * @return the sub-pixel bin along Y that the given film-point falls into
+	 */
+	public int getBinY(double filmY) {
+		
+		return getBin(filmY);
+	}
+	
+	private int getBin(double coordinate) {
+		
+		final var subPixel = coordinate - floor(coordinate);
+		return min((int) (subPixel * (double) resolution), resolution - 1);
+	}
+	
+	/**
+	 * @param binX
+	 *            the Sample's sub-pixel bin along X (see {@link #getBinX(double)})
+	 * @param offsetX
+	 *            the pixel's offset from the Sample's own pixel along X, in
+	 *            {@code [-extentX, +extentX]}
+	 * @return the X-term of the Filter's weight
+	 */
+	public double getWeightX(int binX, int offsetX) {
+		
+		return weightsX[binX * (2 * extentX + 1) + (offsetX + extentX)];
+	}
+	
+	/**
+	 * @param binY
+	 *            the Sample's sub-pixel bin along Y (see {@link #getBinY(double)})
+	 * @param offsetY
+	 *            the pixel's offset from the Sample's own pixel along Y, in
+	 *            {@code [-extentY, +extentY]}
+	 * @return the Y-term of the Filter's weight
+	 */
+	public double getWeightY(int binY, int offsetY) {
+		
+		return weightsY[binY * (2 * extentY + 1) + (offsetY + extentY)];
+	}
+	
+	/**
+	 * @param sample
+	 * @param pixelX
+	 * @param pixelY
+	 * @return the tabulated equivalent of
+	 *         {@link Filter#getContribution(Sample, int, int)}
+	 */
+	public double getContribution(Sample sample, int pixelX, int pixelY) {
+		
+		final var offsetX = pixelX - (int) floor(sample.getFilmPoint().getX());
+		final var offsetY = pixelY - (int) floor(sample.getFilmPoint().getY());
+		
+		if (offsetX < -extentX || offsetX > extentX || offsetY < -extentY || offsetY > extentY)
+			return 0d;
+		
+		return getWeightX(getBinX(sample.getFilmPoint().getX()), offsetX)
+				* getWeightY(getBinY(sample.getFilmPoint().getY()), offsetY);
+	}
+	
+	public int getExtentX() {
+		
+		return extentX;
+	}
+	
+	public int getExtentY() {
+		
+		return extentY;
+	}
+	
+	public int getResolution() {
+		
+		return resolution;
+	}
+	
+}
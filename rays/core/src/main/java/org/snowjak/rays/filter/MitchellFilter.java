@@ -21,6 +21,8 @@ public class MitchellFilter implements Filter {
 	private int extent;
 	private double b, c;
 	
+	private transient FilterTable table = null;
+	
 	/**
 	 * 
 	 * @param extent
@@ -51,7 +53,7 @@ public class MitchellFilter implements Filter {
 		
 		if (!isContributing(sample, pixelX, pixelY))
 			return 0d;
-			
+		
 		//
 		// Calculate the sample's position relative to the filter's center-point,
 		// on the interval [-1,+1].
@@ -65,6 +67,18 @@ public class MitchellFilter implements Filter {
 		return getMitchell1D(x) * getMitchell1D(y);
 	}
 	
+	@Override
+	public FilterTable getTable() {
+		
+		if (table == null) {
+			final double filterExtent = (double) extent + 0.5;
+			table = new FilterTable(extent, extent, FilterTable.DEFAULT_RESOLUTION,
+					d -> getMitchell1D(d / filterExtent), d -> getMitchell1D(d / filterExtent));
+		}
+		
+		return table;
+	}
+	
 	private double getMitchell1D(double x) {
 		
 		//
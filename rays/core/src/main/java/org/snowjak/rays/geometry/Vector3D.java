@@ -1,5 +1,6 @@
 package org.snowjak.rays.geometry;
 
+import static org.apache.commons.math3.util.FastMath.abs;
 import static org.apache.commons.math3.util.FastMath.acos;
 import static org.apache.commons.math3.util.FastMath.atan2;
 import static org.apache.commons.math3.util.FastMath.cos;
@@ -9,7 +10,6 @@ import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import java.io.Serializable;
 import java.lang.reflect.Type;
-import java.util.Random;
 
 import org.snowjak.rays.annotations.UIField;
 import org.snowjak.rays.annotations.UIType;
@@ -218,35 +218,22 @@ public class Vector3D extends Triplet implements Serializable {
 	/**
 	 * Create one possible orthogonal Vector to this Vector. The new Vector is
 	 * normalized after creation.
+	 * <p>
+	 * The same Vector always yields the same orthogonal Vector, so that anything
+	 * built on it (e.g., {@link org.snowjak.rays.util.Util#sampleHemisphere
+	 * Util.sampleHemisphere()}) is reproducible from its random inputs alone.
+	 * </p>
 	 */
 	public Vector3D orthogonal() {
 		
-		final Random rnd = new Random(System.currentTimeMillis());
-		final double newX, newY, newZ;
+		//
+		// Zero whichever of X or Z is smaller, and swap the other with Y (negating
+		// one of them).
+		//
+		if (abs(this.getX()) > abs(this.getZ()))
+			return new Vector3D(-this.getY(), this.getX(), 0d).normalize();
 		
-		if (this.getZ() == 0d) {
-			
-			if (this.getX() == 0d) {
-				
-				newX = rnd.nextGaussian();
-				newZ = rnd.nextGaussian();
-				newY = (-this.getX() * newX - this.getZ() * newZ) / this.getY();
-				
-			} else {
-				
-				newY = rnd.nextGaussian();
-				newZ = rnd.nextGaussian();
-				newX = (-this.getY() * newY - this.getZ() * newZ) / this.getX();
-			}
-			
-		} else {
-			
-			newX = rnd.nextGaussian();
-			newY = rnd.nextGaussian();
-			newZ = (-this.getX() * newX - this.getY() * newY) / this.getZ();
-		}
-		
-		return new Vector3D(newX, newY, newZ).normalize();
+		return new Vector3D(0d, -this.getZ(), this.getY()).normalize();
 	}
 	
 	/**
@@ -301,6 +301,16 @@ public class Matrix {
 		return determinant;
 	}
 	
+	/**
+	 * @param row
+	 * @param column
+	 * @return the value at the given row and column of this Matrix
+	 */
+	public double get(int row, int column) {
+		
+		return values[row][column];
+	}
+	
 	/**
 	 * Returns <code>true</code> if each value in this Matrix is
 	 * +/-<code>tolerance</code> difference from the given array of values.
@@ -3,6 +3,8 @@
  */
 package org.snowjak.rays.light;
 
+import static org.apache.commons.math3.util.FastMath.PI;
+
 import java.util.function.Function;
 
 import org.snowjak.rays.Primitive;
@@ -18,7 +20,9 @@ import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.shape.Shape;
 import org.snowjak.rays.spectrum.Spectrum;
 import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+import org.snowjak.rays.util.Duo;
 import org.snowjak.rays.util.Quad;
+import org.snowjak.rays.util.Util;
 
 /**
  * A DiffuseLight occupies a definite region of space defined by a
@@ -103,6 +107,32 @@ public class DiffuseLight implements Light {
 		return getPrimitive().pdf_sampleSolidAngleFrom(interaction, w_i);
 	}
 	
+	/**
+	 * Sample a photon emitted from a point on this light's surface, in a
+	 * cosine-weighted direction from the hemisphere around that point's
+	 * surface-normal.
+	 */
+	@Override
+	public Duo<Ray, Spectrum> samplePhoton(Sample sample) {
+		
+		final var surface = getPrimitive().sampleSurfaceArea(sample);
+		final var areaPdf = getPrimitive().pdf_sampleSurfaceArea(surface);
+		if (areaPdf <= 0d)
+			return null;
+		
+		final var direction = Util.sampleHemisphere(surface.getNormal(), sample);
+		final var cos_o = direction.dotProduct(surface.getNormal());
+		if (cos_o <= 0d)
+			return null;
+		
+		//
+		// Util.sampleHemisphere() is cosine-weighted, with a PDF of cos / PI --
+		// which cancels the cos in the emitted power.
+		final var power = getRadiance().multiply(PI / areaPdf);
+		
+		return new Duo<>(new Ray(surface.getPoint(), direction), power);
+	}
+	
 	/**
 	 * Get the {@link Primitive} representing this DiffuseLight in physical terms
 	 * (i.e., {@link Shape} plus {@link EmissionMaterial}).
@@ -3,11 +3,13 @@ package org.snowjak.rays.light;
 import java.util.function.Function;
 
 import org.snowjak.rays.Scene;
+import org.snowjak.rays.geometry.Ray;
 import org.snowjak.rays.geometry.Vector3D;
 import org.snowjak.rays.interact.Interactable;
 import org.snowjak.rays.interact.Interaction;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.spectrum.Spectrum;
+import org.snowjak.rays.util.Duo;
 import org.snowjak.rays.util.Quad;
 
 /**
@@ -96,4 +98,26 @@ public interface Light {
 	 * @return
 	 */
 	public <T extends Interactable<T>> double pdf_sample(Interaction<T> interaction, Vector3D w_i, Scene scene);
+	
+	/**
+	 * Sample a photon emitted from this Light, for use by photon-mapping
+	 * renderers.
+	 * <p>
+	 * The returned power is the Light's emitted radiance along the returned
+	 * {@link Ray}, divided by the probability of having selected that Ray. (In
+	 * other words, the average of many such samples approximates the Light's
+	 * total emitted power.)
+	 * </p>
+	 * <p>
+	 * By default, Lights do not emit photons, and this method returns
+	 * {@code null}.
+	 * </p>
+	 * 
+	 * @param sample
+	 * @return {@link Duo}(photon-ray, photon-power), or {@code null}
+	 */
+	public default Duo<Ray, Spectrum> samplePhoton(Sample sample) {
+		
+		return null;
+	}
 }
@@ -1,6 +1,9 @@
 package org.snowjak.rays.light;
 
 import static org.apache.commons.math3.util.FastMath.PI;
+import static org.apache.commons.math3.util.FastMath.cos;
+import static org.apache.commons.math3.util.FastMath.sin;
+import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import java.util.function.Function;
 
@@ -15,6 +18,7 @@ import org.snowjak.rays.interact.Interaction;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.spectrum.Spectrum;
 import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+import org.snowjak.rays.util.Duo;
 import org.snowjak.rays.util.Quad;
 
 /**
@@ -86,4 +90,31 @@ public class PointLight implements Light {
 		return 0.0;
 	}
 	
+	/**
+	 * Sample a photon emitted uniformly in all directions from this light's
+	 * position.
+	 * <p>
+	 * Note that {@link #sample(Interaction, Sample)} reports a PDF of
+	 * {@code 1 / PI}, and so direct lighting from a PointLight is {@code PI}
+	 * times brighter than its radiance alone would suggest. Photons carry the
+	 * same factor, so that indirect lighting estimated from them is consistent
+	 * with that direct lighting.
+	 * </p>
+	 */
+	@Override
+	public Duo<Ray, Spectrum> samplePhoton(Sample sample) {
+		
+		final var samplePoint = sample.getAdditional2DSampleArray();
+		
+		final var y = 1d - 2d * samplePoint[0];
+		final var r = sqrt(1d - y * y);
+		final var orientation = samplePoint[1] * 2d * PI;
+		
+		final var direction = new Vector3D(r * cos(orientation), y, r * sin(orientation));
+		
+		//
+		// Uniform sphere-sampling has a PDF of 1 / (4 * PI).
+		return new Duo<>(new Ray(position, direction), getRadiance().multiply(4d * PI * PI));
+	}
+	
 }
@@ -9,6 +9,7 @@ import org.snowjak.rays.interact.Interactable;
 import org.snowjak.rays.interact.Interaction;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.spectrum.Spectrum;
+import org.snowjak.rays.spectrum.colorspace.RGB;
 import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
 import org.snowjak.rays.texture.Texture;
 import org.snowjak.rays.util.Duo;
@@ -99,4 +100,10 @@ public class LambertianMaterial implements Material {
 		return NO_EMISSION_SAMPLE;
 	}
 	
+	@Override
+	public <T extends Interactable<T>> RGB getAlbedo(Interaction<T> interaction) {
+		
+		return texture.getRGB(interaction);
+	}
+	
 }
@@ -5,6 +5,7 @@ import org.snowjak.rays.interact.Interactable;
 import org.snowjak.rays.interact.Interaction;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.spectrum.Spectrum;
+import org.snowjak.rays.spectrum.colorspace.RGB;
 import org.snowjak.rays.util.Duo;
 import org.snowjak.rays.util.Trio;
 
@@ -113,4 +114,17 @@ public interface Material {
 	 */
 	public <T extends Interactable<T>> Duo<Double, Spectrum> sampleLe(Interaction<T> interaction, Sample sample);
 	
+	/**
+	 * Get this Material's albedo (i.e., its overall surface-color) at the given
+	 * {@link Interaction}. This isn't used in rendering proper, but rather as a
+	 * guide for post-processing (e.g., denoising). By default, this is white.
+	 * 
+	 * @param interaction
+	 * @return
+	 */
+	public default <T extends Interactable<T>> RGB getAlbedo(Interaction<T> interaction) {
+		
+		return RGB.WHITE;
+	}
+	
 }
@@ -0,0 +1,378 @@
+package org.snowjak.rays.renderer;
+
+import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.sqrt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.snowjak.rays.geometry.Normal3D;
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.geometry.Vector3D;
+import org.snowjak.rays.spectrum.Spectrum;
+
+/**
+ * An IrradianceCache stores sparse, expensive estimates of indirect irradiance
+ * ({@link Record}s) in an octree, and interpolates between them to answer later
+ * lookups cheaply.
+ * <p>
+ * Each Record is weighted by Ward's error-metric:
+ *
+ * <pre>
+ * e_i(P,N) = |P - P_i| / R_i + sqrt( 1 - N .dot. N_i )
+ * </pre>
+ *
+ * where {@code R_i} is the harmonic-mean distance to the surfaces seen from
+ * {@code P_i}. A Record contributes to a lookup only if
+ * {@code e_i < accuracy}, with weight {@code 1 / e_i}. Each Record's
+ * irradiance is extrapolated to the lookup-point using its translational
+ * gradient.
+ * </p>
+ * <p>
+ * The octree is "loose": each node's bounds are twice the size of its cube, and
+ * a Record is stored in the smallest node whose cube contains the Record's
+ * point and whose loose bounds contain its entire radius of influence. The
+ * root grows as necessary to contain new Records.
+ * </p>
+ * <p>
+ * An IrradianceCache is thread-safe. Concurrent lookups proceed in parallel;
+ * insertions are exclusive.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class IrradianceCache {
+	
+	private static final int MAX_DEPTH = 16;
+	private static final double MIN_HALF_SIZE = 1e-3;
+	
+	private final double accuracy;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final List<Record> unbounded = new ArrayList<>();
+	private Node root = null;
+	private int size = 0;
+	
+	/**
+	 * @param accuracy
+	 *            the maximum allowable error ({@code a}) for any Record used in
+	 *            a lookup. Smaller values produce more Records, and a smoother
+	 *            result.
+	 */
+	public IrradianceCache(double accuracy) {
+		
+		this.accuracy = accuracy;
+	}
+	
+	/**
+	 * Interpolate the irradiance at the given point from nearby {@link Record}s.
+	 *
+	 * @param point
+	 * @param normal
+	 * @return the interpolated irradiance, or {@code null} if no Records are
+	 *         close enough to be used
+	 */
+	public Spectrum lookup(Point3D point, Normal3D normal) {
+		
+		final var n = Vector3D.from(normal).normalize();
+		final var result = new Interpolation();
+		
+		lock.readLock().lock();
+		try {
+			
+			for (Record record : unbounded)
+				result.add(record, point, n);
+			
+			if (root != null)
+				lookup(root, point, n, result);
+			
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		return result.get();
+	}
+	
+	private void lookup(Node node, Point3D point, Vector3D normal, Interpolation result) {
+		
+		if (!node.looselyContains(point))
+			return;
+		
+		for (Record record : node.records)
+			result.add(record, point, normal);
+		
+		if (node.children != null)
+			for (Node child : node.children)
+				if (child != null)
+					lookup(child, point, normal, result);
+	}
+	
+	/**
+	 * Add the given {@link Record} to this cache.
+	 *
+	 * @param record
+	 */
+	public void insert(Record record) {
+		
+		lock.writeLock().lock();
+		try {
+			
+			size++;
+			
+			//
+			// A Record whose radius is infinite (because all its samples escaped
+			// the scene) can be used anywhere its normal agrees.
+			//
+			if (Double.isInfinite(record.getRadius())) {
+				unbounded.add(record);
+				return;
+			}
+			
+			final var influence = record.getRadius() * accuracy;
+			
+			if (root == null)
+				root = new Node(record.getPoint().getX(), record.getPoint().getY(), record.getPoint().getZ(),
+						max(influence, MIN_HALF_SIZE));
+			
+			while (!root.contains(record.getPoint()) || root.halfSize < influence)
+				root = root.grow(record.getPoint());
+			
+			var node = root;
+			for (int depth = 0; depth < MAX_DEPTH && node.halfSize / 2d >= influence; depth++)
+				node = node.getChild(record.getPoint());
+			
+			node.records.add(record);
+			
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return the number of {@link Record}s in this cache
+	 */
+	public int size() {
+		
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public double getAccuracy() {
+		
+		return accuracy;
+	}
+	
+	/**
+	 * Accumulates the weighted contributions of {@link Record}s to a single
+	 * lookup.
+	 */
+	private class Interpolation {
+		
+		private Spectrum total = null;
+		private double totalWeight = 0d;
+		
+		public void add(Record record, Point3D point, Vector3D normal) {
+			
+			final var offset = Vector3D.from(record.getPoint(), point);
+			
+			//
+			// Reject Records which lie "in front of" the lookup-point -- i.e.,
+			// which may see a different set of surfaces.
+			//
+			final var inFront = offset.dotProduct(normal.add(record.getNormal()).multiply(0.5));
+			if (inFront < -0.05 * record.getRadius())
+				return;
+			
+			final var error = offset.getMagnitude() / record.getRadius()
+					+ sqrt(max(1d - normal.dotProduct(record.getNormal()), 0d));
+			if (error >= accuracy)
+				return;
+			
+			final var weight = 1d / max(error, 1e-9);
+			final var irradiance = record.getIrradiance(point).multiply(weight);
+			
+			total = (total == null) ? irradiance : total.add(irradiance);
+			totalWeight += weight;
+		}
+		
+		public Spectrum get() {
+			
+			if (total == null)
+				return null;
+			
+			return total.multiply(1d / totalWeight);
+		}
+	}
+	
+	private static class Node {
+		
+		private final double centerX, centerY, centerZ;
+		private final double halfSize;
+		private final List<Record> records = new ArrayList<>();
+		private Node[] children = null;
+		
+		public Node(double centerX, double centerY, double centerZ, double halfSize) {
+			
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.centerZ = centerZ;
+			this.halfSize = halfSize;
+		}
+		
+		public boolean contains(Point3D point) {
+			
+			return abs(point.getX() - centerX) <= halfSize && abs(point.getY() - centerY) <= halfSize
+					&& abs(point.getZ() - centerZ) <= halfSize;
+		}
+		
+		public boolean looselyContains(Point3D point) {
+			
+			final var looseSize = 2d * halfSize;
+			return abs(point.getX() - centerX) <= looseSize && abs(point.getY() - centerY) <= looseSize
+					&& abs(point.getZ() - centerZ) <= looseSize;
+		}
+		
+		private int getOctant(double x, double y, double z) {
+			
+			return ((x >= centerX) ? 1 : 0) | ((y >= centerY) ? 2 : 0) | ((z >= centerZ) ? 4 : 0);
+		}
+		
+		/**
+		 * Get (creating, if necessary) the child of this Node containing the
+		 * given point.
+		 */
+		public Node getChild(Point3D point) {
+			
+			if (children == null)
+				children = new Node[8];
+			
+			final var octant = getOctant(point.getX(), point.getY(), point.getZ());
+			if (children[octant] == null) {
+				final var childHalfSize = halfSize / 2d;
+				children[octant] = new Node(centerX + (((octant & 1) != 0) ? childHalfSize : -childHalfSize),
+						centerY + (((octant & 2) != 0) ? childHalfSize : -childHalfSize),
+						centerZ + (((octant & 4) != 0) ? childHalfSize : -childHalfSize), childHalfSize);
+			}
+			
+			return children[octant];
+		}
+		
+		/**
+		 * Construct a new Node, twice this Node's size, extending toward the given
+		 * point and having this Node as one of its children.
+		 */
+		public Node grow(Point3D toward) {
+			
+			final var parent = new Node(centerX + ((toward.getX() >= centerX) ? halfSize : -halfSize),
+					centerY + ((toward.getY() >= centerY) ? halfSize : -halfSize),
+					centerZ + ((toward.getZ() >= centerZ) ? halfSize : -halfSize), halfSize * 2d);
+			
+			parent.children = new Node[8];
+			parent.children[parent.getOctant(centerX, centerY, centerZ)] = this;
+			
+			return parent;
+		}
+	}
+	
+	/**
+	 * A Record is a single, cached estimate of irradiance at a point.
+	 *
+	 * @author snowjak88
+	 *
+	 */
+	public static class Record {
+		
+		private final Point3D point;
+		private final Vector3D normal;
+		private final Spectrum irradiance;
+		private final double radius;
+		private final Spectrum gradientX, gradientY, gradientZ;
+		
+		/**
+		 * @param point
+		 *            the point at which irradiance was estimated
+		 * @param normal
+		 *            the surface-normal at {@code point}
+		 * @param irradiance
+		 *            the estimated irradiance
+		 * @param radius
+		 *            the harmonic-mean distance to the surfaces seen from
+		 *            {@code point} (may be {@link Double#POSITIVE_INFINITY})
+		 * @param gradientX
+		 *            the rate of change of irradiance along the world X-axis
+		 * @param gradientY
+		 *            the rate of change of irradiance along the world Y-axis
+		 * @param gradientZ
+		 *            the rate of change of irradiance along the world Z-axis
+		 */
+		public Record(Point3D point, Normal3D normal, Spectrum irradiance, double radius, Spectrum gradientX,
+				Spectrum gradientY, Spectrum gradientZ) {
+			
+			this.point = point;
+			this.normal = Vector3D.from(normal).normalize();
+			this.irradiance = irradiance;
+			this.radius = radius;
+			this.gradientX = gradientX;
+			this.gradientY = gradientY;
+			this.gradientZ = gradientZ;
+		}
+		
+		/**
+		 * Extrapolate this Record's irradiance to the given point, using its
+		 * gradient.
+		 *
+		 * @param to
+		 * @return
+		 */
+		public Spectrum getIrradiance(Point3D to) {
+			
+			return irradiance.add(gradientX.multiply(to.getX() - point.getX()))
+					.add(gradientY.multiply(to.getY() - point.getY()))
+					.add(gradientZ.multiply(to.getZ() - point.getZ()));
+		}
+		
+		public Point3D getPoint() {
+			
+			return point;
+		}
+		
+		public Vector3D getNormal() {
+			
+			return normal;
+		}
+		
+		public Spectrum getIrradiance() {
+			
+			return irradiance;
+		}
+		
+		public double getRadius() {
+			
+			return radius;
+		}
+		
+		public Spectrum getGradientX() {
+			
+			return gradientX;
+		}
+		
+		public Spectrum getGradientY() {
+			
+			return gradientY;
+		}
+		
+		public Spectrum getGradientZ() {
+			
+			return gradientZ;
+		}
+	}
+	
+}
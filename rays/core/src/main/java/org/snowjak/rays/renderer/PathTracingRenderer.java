@@ -1,6 +1,13 @@
 package org.snowjak.rays.renderer;
 
+import static org.apache.commons.math3.util.FastMath.PI;
 import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.cos;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+import static org.apache.commons.math3.util.FastMath.round;
+import static org.apache.commons.math3.util.FastMath.sin;
+import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import org.snowjak.rays.Primitive;
 import org.snowjak.rays.Scene;
@@ -14,23 +21,39 @@ import org.snowjak.rays.sample.EstimatedSample;
 import org.snowjak.rays.sample.TracedSample;
 import org.snowjak.rays.spectrum.Spectrum;
 import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+import org.snowjak.rays.util.RandomSource;
 
 /**
  * A path-tracing renderer will recursively spawn rays at each
  * reflection/transmission event until a certain number of reflections ("depth")
  * has been reached, or no further interactions are found.
+ * <p>
+ * Optionally, this renderer can use an {@link IrradianceCache} to estimate
+ * diffuse indirect lighting at camera-ray intersections. Where no cached
+ * {@link IrradianceCache.Record} is close enough, a new Record is computed by
+ * tracing a stratified set of secondary rays over the hemisphere, and the
+ * resulting irradiance and gradient are inserted into the cache for re-use. The
+ * cache is enabled by setting {@code irradianceCacheAccuracy} greater than 0.
+ * </p>
  * 
  * @author snowjak88
  *
  */
 @UIType(type = "path-tracing", fields = { @UIField(name = "maxDepth", type = Integer.class, defaultValue = "4"),
 		@UIField(name = "n", type = Integer.class, defaultValue = "1"),
-		@UIField(name = "lightSamples", type = Integer.class, defaultValue = "1") })
+		@UIField(name = "lightSamples", type = Integer.class, defaultValue = "1"),
+		@UIField(name = "irradianceCacheAccuracy", type = Double.class, defaultValue = "0"),
+		@UIField(name = "irradianceCacheSamples", type = Integer.class, defaultValue = "64") })
 public class PathTracingRenderer extends Renderer {
 	
 	private int maxDepth = 4;
 	private int lightSamples = 1;
 	private int n = 1;
+	private double irradianceCacheAccuracy = 0;
+	private int irradianceCacheSamples = 64;
+	
+	private transient volatile IrradianceCache irradianceCache = null;
+	private transient volatile Scene irradianceCacheScene = null;
 	
 	public PathTracingRenderer() {
 		
@@ -39,9 +62,32 @@ public class PathTracingRenderer extends Renderer {
 	
 	public PathTracingRenderer(int maxDepth, int n, int lightSamples) {
 		
+		this(maxDepth, n, lightSamples, 0, 64);
+	}
+	
+	/**
+	 * @param maxDepth
+	 *            the maximum number of bounces
+	 * @param n
+	 *            the number of indirect-lighting samples to take at each bounce
+	 * @param lightSamples
+	 *            the number of samples to take of each Light for direct lighting
+	 * @param irradianceCacheAccuracy
+	 *            the maximum error allowed when interpolating from the
+	 *            {@link IrradianceCache} (typically 0.1 - 0.3), or {@code 0} to
+	 *            disable the cache
+	 * @param irradianceCacheSamples
+	 *            the number of secondary rays to trace when computing a new
+	 *            {@link IrradianceCache.Record}
+	 */
+	public PathTracingRenderer(int maxDepth, int n, int lightSamples, double irradianceCacheAccuracy,
+			int irradianceCacheSamples) {
+		
 		this.maxDepth = maxDepth;
 		this.n = n;
 		this.lightSamples = lightSamples;
+		this.irradianceCacheAccuracy = irradianceCacheAccuracy;
+		this.irradianceCacheSamples = irradianceCacheSamples;
 	}
 	
 	@Override
@@ -60,6 +106,11 @@ public class PathTracingRenderer extends Renderer {
 		if (sample.getRay().getDepth() >= maxDepth)
 			return EstimatedSample.zero(sample);
 			
+		if (sample.getRay().getDepth() == 0)
+			RenderStatistics.addCameraRay();
+		else
+			RenderStatistics.addIndirectRay();
+		
 		//
 		// Attempt to find an Interaction between the given ray and the scene.
 		//
@@ -165,6 +216,7 @@ public class PathTracingRenderer extends Renderer {
 					//
 					// Compute g(X,X`)
 					//
+					RenderStatistics.addShadowRay();
 					final var visible = lightSample.getD().apply(scene);
 					if (!visible)
 						continue;
@@ -208,6 +260,13 @@ public class PathTracingRenderer extends Renderer {
 		
 		final var mat = interaction.getInteracted().getMaterial();
 		
+		//
+		// Diffuse indirect lighting at camera-ray intersections may be
+		// interpolated from the irradiance-cache.
+		//
+		if (irradianceCacheAccuracy > 0d && !mat.isDelta() && interaction.getInteractingRay().getDepth() == 0)
+			return estimateCachedIndirectLighting(interaction, sample, scene);
+		
 		Spectrum totalIrradiance = SpectralPowerDistribution.BLACK;
 		
 		final var reflectionSamples = mat.isDelta() ? 1 : n;
@@ -249,6 +308,188 @@ public class PathTracingRenderer extends Renderer {
 		return totalIrradiance;
 	}
 	
+	/**
+	 * Estimate diffuse indirect lighting by interpolating from the
+	 * {@link IrradianceCache}, computing and inserting a new
+	 * {@link IrradianceCache.Record} if necessary.
+	 * 
+	 * @param interaction
+	 * @param sample
+	 * @param scene
+	 * @return
+	 */
+	protected Spectrum estimateCachedIndirectLighting(Interaction<Primitive> interaction, TracedSample sample,
+			Scene scene) {
+		
+		final var cache = getIrradianceCache(scene);
+		
+		var irradiance = cache.lookup(interaction.getPoint(), interaction.getNormal());
+		if (irradiance == null) {
+			final var record = computeIrradianceRecord(interaction, sample, scene);
+			cache.insert(record);
+			irradiance = record.getIrradiance();
+		}
+		
+		//
+		// The cache only applies to diffuse surfaces, whose BRDF we assume is
+		// independent of direction.
+		//
+		final var brdf = interaction.getInteracted().getMaterial().pdfReflectionW_i(interaction, sample.getSample(),
+				Vector3D.from(interaction.getNormal()).normalize());
+		if (brdf.getA() <= 0d)
+			return SpectralPowerDistribution.BLACK;
+		
+		return irradiance.multiply(brdf.getB());
+	}
+	
+	/**
+	 * Compute a new {@link IrradianceCache.Record} at the given Interaction, by
+	 * tracing secondary rays over a stratified, cosine-weighted hemisphere. The
+	 * Record's translational gradient is estimated from differences between
+	 * neighboring strata (after Ward &amp; Heckbert, "Irradiance Gradients").
+	 * 
+	 * @param interaction
+	 * @param sample
+	 * @param scene
+	 * @return
+	 */
+	protected IrradianceCache.Record computeIrradianceRecord(Interaction<Primitive> interaction, TracedSample sample,
+			Scene scene) {
+		
+		//
+		// Divide the hemisphere into M strata by elevation and N by azimuth,
+		// with N ~= PI * M.
+		//
+		final var m = (int) max(round(sqrt((double) irradianceCacheSamples / PI)), 2);
+		final var n = (int) max(round(PI * (double) m), 3);
+		
+		final var normal = Vector3D.from(interaction.getNormal()).normalize();
+		final var u = normal.orthogonal().normalize();
+		final var v = normal.crossProduct(u).normalize();
+		
+		final var radiance = new Spectrum[m][n];
+		final var distance = new double[m][n];
+		
+		Spectrum total = SpectralPowerDistribution.BLACK;
+		double inverseDistanceSum = 0d;
+		
+		for (int j = 0; j < m; j++)
+			for (int k = 0; k < n; k++) {
+				
+				final var sinTheta = sqrt(((double) j + RandomSource.nextDouble()) / (double) m);
+				final var cosTheta = sqrt(max(1d - sinTheta * sinTheta, 0d));
+				final var phi = 2d * PI * ((double) k + RandomSource.nextDouble()) / (double) n;
+				
+				final var direction = u.multiply(sinTheta * cos(phi)).add(normal.multiply(cosTheta))
+						.add(v.multiply(sinTheta * sin(phi))).normalize();
+				
+				final var ray = new Ray(interaction.getPoint(), direction,
+						interaction.getInteractingRay().getDepth() + 1);
+				final var estimate = this.estimate(new TracedSample(sample.getSample(), ray), scene);
+				
+				if (estimate.getInteraction() == null || estimate.getInteraction().getPoint() == null
+						|| estimate.getInteraction().getPoint().nearlyEquals(interaction.getPoint())) {
+					
+					distance[j][k] = Double.POSITIVE_INFINITY;
+					radiance[j][k] = estimate.getRadiance();
+					
+				} else {
+					
+					distance[j][k] = Vector3D.from(interaction.getPoint(), estimate.getInteraction().getPoint())
+							.getMagnitude();
+					inverseDistanceSum += 1d / distance[j][k];
+					
+					//
+					// As in estimateIndirectLighting(), incident radiance is
+					// attenuated by its squared distance, so that enabling the
+					// cache doesn't change the image's overall brightness.
+					//
+					radiance[j][k] = estimate.getRadiance().multiply(1d / (distance[j][k] * distance[j][k]));
+				}
+				
+				total = total.add(radiance[j][k]);
+			}
+		
+		//
+		// With cosine-weighted samples, E = PI / (M*N) * sum( L_jk )
+		//
+		final var irradiance = total.multiply(PI / (double) (m * n));
+		
+		final var radius = (inverseDistanceSum > 0d) ? (double) (m * n) / inverseDistanceSum
+				: Double.POSITIVE_INFINITY;
+		
+		//
+		// Translational gradient: the sum, over every boundary between strata, of
+		// the change in radiance across that boundary, weighted by the rate at
+		// which that boundary moves as the origin moves.
+		//
+		Spectrum gradientX = SpectralPowerDistribution.BLACK, gradientY = SpectralPowerDistribution.BLACK,
+				gradientZ = SpectralPowerDistribution.BLACK;
+		
+		for (int k = 0; k < n; k++) {
+			
+			final var phiCenter = 2d * PI * ((double) k + 0.5) / (double) n;
+			final var uk = u.multiply(cos(phiCenter)).add(v.multiply(sin(phiCenter)));
+			
+			final var phiMinus = 2d * PI * (double) k / (double) n;
+			final var vk = u.multiply(-sin(phiMinus)).add(v.multiply(cos(phiMinus)));
+			
+			final var previousK = (k + n - 1) % n;
+			
+			for (int j = 0; j < m; j++) {
+				
+				if (j > 0) {
+					final var sinThetaMinus = sqrt((double) j / (double) m);
+					final var cosSqThetaMinus = 1d - (double) j / (double) m;
+					final var coefficient = (2d * PI / (double) n) * sinThetaMinus * cosSqThetaMinus
+							/ min(distance[j][k], distance[j - 1][k]);
+					
+					final var difference = radiance[j][k].subtract(radiance[j - 1][k]);
+					gradientX = gradientX.add(difference.multiply(coefficient * uk.getX()));
+					gradientY = gradientY.add(difference.multiply(coefficient * uk.getY()));
+					gradientZ = gradientZ.add(difference.multiply(coefficient * uk.getZ()));
+				}
+				
+				final var cosThetaMinus = sqrt(1d - (double) j / (double) m);
+				final var cosThetaPlus = sqrt(max(1d - (double) (j + 1) / (double) m, 0d));
+				final var sinThetaMid = sqrt(((double) j + 0.5) / (double) m);
+				final var coefficient = (cosThetaMinus - cosThetaPlus)
+						/ (sinThetaMid * min(distance[j][k], distance[j][previousK]));
+				
+				final var difference = radiance[j][k].subtract(radiance[j][previousK]);
+				gradientX = gradientX.add(difference.multiply(coefficient * vk.getX()));
+				gradientY = gradientY.add(difference.multiply(coefficient * vk.getY()));
+				gradientZ = gradientZ.add(difference.multiply(coefficient * vk.getZ()));
+			}
+		}
+		
+		return new IrradianceCache.Record(interaction.getPoint(), interaction.getNormal(), irradiance, radius,
+				gradientX, gradientY, gradientZ);
+	}
+	
+	/**
+	 * Get the {@link IrradianceCache} for the given {@link Scene}, creating it if
+	 * necessary.
+	 * 
+	 * @param scene
+	 * @return
+	 */
+	public IrradianceCache getIrradianceCache(Scene scene) {
+		
+		final var cache = irradianceCache;
+		if (cache != null && irradianceCacheScene == scene)
+			return cache;
+		
+		synchronized (this) {
+			if (irradianceCache == null || irradianceCacheScene != scene) {
+				irradianceCacheScene = scene;
+				irradianceCache = new IrradianceCache(irradianceCacheAccuracy);
+			}
+			
+			return irradianceCache;
+		}
+	}
+	
 	protected Spectrum estimateTransmissiveRadiance(Interaction<Primitive> interaction, TracedSample sample,
 			Scene scene) {
 		
@@ -276,6 +517,31 @@ public class PathTracingRenderer extends Renderer {
 		return totalRadiance;
 	}
 	
+	public int getMaxDepth() {
+		
+		return maxDepth;
+	}
+	
+	public int getLightSamples() {
+		
+		return lightSamples;
+	}
+	
+	public int getN() {
+		
+		return n;
+	}
+	
+	public double getIrradianceCacheAccuracy() {
+		
+		return irradianceCacheAccuracy;
+	}
+	
+	public int getIrradianceCacheSamples() {
+		
+		return irradianceCacheSamples;
+	}
+	
 	protected double getBalanceHeuristic(int nf, double pf, int ng, double pg) {
 		
 		return (nf * pf) / (nf * pf + ng * pg);
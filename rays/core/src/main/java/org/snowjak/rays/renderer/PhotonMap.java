@@ -0,0 +1,212 @@
+package org.snowjak.rays.renderer;
+
+import static org.apache.commons.math3.util.FastMath.floor;
+
+import java.util.List;
+
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.geometry.Vector3D;
+import org.snowjak.rays.spectrum.Spectrum;
+
+/**
+ * A PhotonMap stores a fixed set of {@link Photon}s in a uniform hash-grid,
+ * allowing quick lookup of all Photons within a given radius of a point.
+ * <p>
+ * The grid's cell-size is equal to the lookup-radius it's built for, so any
+ * lookup need only visit the 27 cells surrounding the query-point. Photons are
+ * sorted by cell (a counting-sort), so that each cell's Photons lie contiguous
+ * in memory.
+ * </p>
+ * <p>
+ * A PhotonMap is immutable once constructed, and so is thread-safe.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class PhotonMap {
+	
+	private final double cellSize;
+	private final int tableMask;
+	
+	private final double[] positions;
+	private final Photon[] photons;
+	private final int[] cellStarts;
+	
+	/**
+	 * Build a new PhotonMap from the given {@link Photon}s, optimized for lookups
+	 * of the given radius.
+	 *
+	 * @param photons
+	 * @param radius
+	 */
+	public PhotonMap(List<Photon> photons, double radius) {
+		
+		this.cellSize = radius;
+		
+		//
+		// Size the hash-table to the next power of 2 at or above twice the
+		// number of photons, so cells rarely collide.
+		//
+		int tableSize = 1;
+		while (tableSize < photons.size() * 2)
+			tableSize <<= 1;
+		this.tableMask = tableSize - 1;
+		
+		final var unsorted = photons.toArray(new Photon[0]);
+		final var cells = new int[unsorted.length];
+		for (int i = 0; i < unsorted.length; i++)
+			cells[i] = getCell(unsorted[i].getPosition());
+		
+		//
+		// Counting-sort the photons by cell.
+		//
+		this.cellStarts = new int[tableSize + 1];
+		for (int i = 0; i < cells.length; i++)
+			cellStarts[cells[i] + 1]++;
+		for (int i = 1; i < cellStarts.length; i++)
+			cellStarts[i] += cellStarts[i - 1];
+		
+		final var cursors = new int[tableSize];
+		this.photons = new Photon[unsorted.length];
+		for (int i = 0; i < unsorted.length; i++) {
+			final var cell = cells[i];
+			this.photons[cellStarts[cell] + cursors[cell]++] = unsorted[i];
+		}
+		
+		this.positions = new double[this.photons.length * 3];
+		for (int i = 0; i < this.photons.length; i++) {
+			positions[i * 3 + 0] = this.photons[i].getPosition().getX();
+			positions[i * 3 + 1] = this.photons[i].getPosition().getY();
+			positions[i * 3 + 2] = this.photons[i].getPosition().getZ();
+		}
+	}
+	
+	private int getCell(Point3D point) {
+		
+		return getCell((int) floor(point.getX() / cellSize), (int) floor(point.getY() / cellSize),
+				(int) floor(point.getZ() / cellSize));
+	}
+	
+	private int getCell(int x, int y, int z) {
+		
+		return ((x * 73856093) ^ (y * 19349663) ^ (z * 83492791)) & tableMask;
+	}
+	
+	/**
+	 * Report every {@link Photon} within {@code radius} of the given point to the
+	 * given {@link PhotonConsumer}.
+	 * <p>
+	 * <strong>Note</strong> that {@code radius} should be no greater than the
+	 * radius this PhotonMap was built for. Larger radii will miss Photons.
+	 * </p>
+	 *
+	 * @param point
+	 * @param radius
+	 * @param consumer
+	 */
+	public void gather(Point3D point, double radius, PhotonConsumer consumer) {
+		
+		if (photons.length == 0)
+			return;
+		
+		final var radiusSq = radius * radius;
+		
+		final var cellX = (int) floor(point.getX() / cellSize);
+		final var cellY = (int) floor(point.getY() / cellSize);
+		final var cellZ = (int) floor(point.getZ() / cellSize);
+		
+		//
+		// Distinct grid-cells may hash to the same table-cell. Make sure we only
+		// visit each table-cell once.
+		//
+		final var visited = new int[27];
+		var visitedCount = 0;
+		
+		for (int dx = -1; dx <= 1; dx++)
+			for (int dy = -1; dy <= 1; dy++)
+				for (int dz = -1; dz <= 1; dz++) {
+					
+					final var cell = getCell(cellX + dx, cellY + dy, cellZ + dz);
+					
+					var alreadyVisited = false;
+					for (int v = 0; v < visitedCount && !alreadyVisited; v++)
+						alreadyVisited = (visited[v] == cell);
+					if (alreadyVisited)
+						continue;
+					visited[visitedCount++] = cell;
+					
+					for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+						final var ox = positions[i * 3 + 0] - point.getX();
+						final var oy = positions[i * 3 + 1] - point.getY();
+						final var oz = positions[i * 3 + 2] - point.getZ();
+						final var distanceSq = ox * ox + oy * oy + oz * oz;
+						
+						if (distanceSq <= radiusSq)
+							consumer.accept(photons[i], distanceSq);
+					}
+				}
+	}
+	
+	/**
+	 * @return the number of {@link Photon}s stored in this PhotonMap
+	 */
+	public int size() {
+		
+		return photons.length;
+	}
+	
+	/**
+	 * Receives {@link Photon}s found by {@link PhotonMap#gather(Point3D, double, PhotonConsumer)}.
+	 */
+	@FunctionalInterface
+	public interface PhotonConsumer {
+		
+		public void accept(Photon photon, double distanceSq);
+	}
+	
+	/**
+	 * A Photon is a packet of power which has arrived at a surface.
+	 *
+	 * @author snowjak88
+	 *
+	 */
+	public static class Photon {
+		
+		private final Point3D position;
+		private final Vector3D w_i;
+		private final Spectrum power;
+		
+		/**
+		 * @param position
+		 *            the point on the surface where this Photon arrived
+		 * @param w_i
+		 *            the direction (pointing away from the surface) this Photon
+		 *            arrived from
+		 * @param power
+		 *            the power carried by this Photon
+		 */
+		public Photon(Point3D position, Vector3D w_i, Spectrum power) {
+			
+			this.position = position;
+			this.w_i = w_i;
+			this.power = power;
+		}
+		
+		public Point3D getPosition() {
+			
+			return position;
+		}
+		
+		public Vector3D getW_i() {
+			
+			return w_i;
+		}
+		
+		public Spectrum getPower() {
+			
+			return power;
+		}
+	}
+	
+}
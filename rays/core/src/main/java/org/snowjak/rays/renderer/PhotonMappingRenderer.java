@@ -0,0 +1,315 @@
+package org.snowjak.rays.renderer;
+
+import static org.apache.commons.math3.util.FastMath.PI;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.snowjak.rays.Primitive;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.geometry.Ray;
+import org.snowjak.rays.geometry.Vector3D;
+import org.snowjak.rays.interact.Interaction;
+import org.snowjak.rays.light.DiffuseLight;
+import org.snowjak.rays.light.Light;
+import org.snowjak.rays.renderer.PhotonMap.Photon;
+import org.snowjak.rays.sample.SuppliedSample;
+import org.snowjak.rays.sample.TracedSample;
+import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.spectrum.Spectrum;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+import org.snowjak.rays.util.RandomSource;
+
+/**
+ * A photon-mapping renderer. Before rendering, this renderer shoots a number of
+ * photons from the {@link Scene}'s {@link Light}s, following them through
+ * specular (delta) reflections and transmissions and diffuse bounces, and
+ * records where they land in a {@link PhotonMap}.
+ * <p>
+ * While rendering, this renderer estimates direct lighting and specular
+ * reflection/transmission exactly as the {@link PathTracingRenderer} does.
+ * Diffuse indirect lighting, however -- including caustics, which a path-tracer
+ * resolves only very slowly -- is estimated by gathering nearby photons from
+ * the photon-map, rather than by tracing further rays.
+ * </p>
+ * <p>
+ * Photons arriving directly from a Light are not recorded, as direct lighting
+ * is estimated separately.
+ * </p>
+ * <p>
+ * A photon-map is built only once for each Scene (and set of photon-mapping
+ * parameters), by the first render-thread to need it -- usually in
+ * {@link #beforeRender(Sampler, Film, Scene)} -- and shared by every
+ * PhotonMappingRenderer rendering that Scene. Photon-maps are held only as
+ * long as their Scene is (e.g., in the worker's Scene-cache). Photons
+ * are traced from a fixed seed, so that every RenderTask (on every worker)
+ * sees exactly the same photon-map.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@UIType(type = "photon-mapping", fields = { @UIField(name = "maxDepth", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "lightSamples", type = Integer.class, defaultValue = "1"),
+		@UIField(name = "photons", type = Integer.class, defaultValue = "100000"),
+		@UIField(name = "gatherRadius", type = Double.class, defaultValue = "0.25") })
+public class PhotonMappingRenderer extends PathTracingRenderer {
+	
+	private static final long PHOTON_SEED = 0x2545F4914F6CDD1DL;
+	
+	private static final Map<Scene, Map<List<Object>, CompletableFuture<PhotonMap>>> PHOTON_MAPS = new WeakHashMap<>();
+	
+	private int photons = 100000;
+	private double gatherRadius = 0.25;
+	
+	public PhotonMappingRenderer() {
+		
+		this(4, 1, 100000, 0.25);
+	}
+	
+	/**
+	 * @param maxDepth
+	 *            the maximum number of bounces for both camera- and photon-paths
+	 * @param lightSamples
+	 *            the number of samples to take of each Light for direct lighting
+	 * @param photons
+	 *            the number of photons to shoot
+	 * @param gatherRadius
+	 *            the world-space radius within which photons are gathered
+	 */
+	public PhotonMappingRenderer(int maxDepth, int lightSamples, int photons, double gatherRadius) {
+		
+		super(maxDepth, 1, lightSamples);
+		
+		this.photons = photons;
+		this.gatherRadius = gatherRadius;
+	}
+	
+	@Override
+	public void beforeRender(Sampler sampler, Film film, Scene scene) {
+		
+		getPhotonMap(scene);
+	}
+	
+	/**
+	 * Estimates its cost with a plain {@link PathTracingRenderer} -- which traces
+	 * much the same camera- and light-rays, but without first building a whole
+	 * {@link PhotonMap}.
+	 */
+	@Override
+	public Renderer getCostEstimator() {
+		
+		return new PathTracingRenderer(getMaxDepth(), 1, getLightSamples());
+	}
+	
+	@Override
+	protected Spectrum estimateIndirectLighting(Interaction<Primitive> interaction, TracedSample sample, Scene scene) {
+		
+		final var mat = interaction.getInteracted().getMaterial();
+		
+		//
+		// Specular surfaces are handled by tracing the specular ray, as usual.
+		//
+		if (mat.isDelta())
+			return super.estimateIndirectLighting(interaction, sample, scene);
+		
+		final var radiance = new Spectrum[] { SpectralPowerDistribution.BLACK };
+		
+		getPhotonMap(scene).gather(interaction.getPoint(), gatherRadius, (photon, distanceSq) -> {
+			
+			if (photon.getW_i().dotProduct(interaction.getNormal()) <= 0d)
+				return;
+			
+			final var brdf = mat.pdfReflectionW_i(interaction, sample.getSample(), photon.getW_i());
+			if (brdf.getA() <= 0d)
+				return;
+			
+			radiance[0] = radiance[0].add(photon.getPower().multiply(brdf.getB()));
+		});
+		
+		//
+		// L = sum( f_r * power ) / ( PI * r^2 )
+		//
+		return radiance[0].multiply(1d / (PI * gatherRadius * gatherRadius));
+	}
+	
+	/**
+	 * Get the {@link PhotonMap} for the given {@link Scene}, building it if
+	 * necessary. A PhotonMap is built only once, no matter how many threads (or
+	 * PhotonMappingRenderers) request it at the same time.
+	 *
+	 * @param scene
+	 * @return
+	 */
+	public PhotonMap getPhotonMap(Scene scene) {
+		
+		final var key = List.<Object>of(photons, getMaxDepth(), gatherRadius);
+		
+		final CompletableFuture<PhotonMap> future;
+		final boolean isBuilder;
+		
+		synchronized (PHOTON_MAPS) {
+			final var maps = PHOTON_MAPS.computeIfAbsent(scene, s -> new HashMap<>());
+			final var existing = maps.get(key);
+			if (existing != null) {
+				future = existing;
+				isBuilder = false;
+			} else {
+				future = new CompletableFuture<>();
+				isBuilder = true;
+				maps.put(key, future);
+			}
+		}
+		
+		if (isBuilder) {
+			try {
+				future.complete(buildPhotonMap(scene));
+			} catch (RuntimeException e) {
+				
+				//
+				// Don't hold onto a failure -- the next request should try again.
+				//
+				synchronized (PHOTON_MAPS) {
+					final var maps = PHOTON_MAPS.get(scene);
+					if (maps != null)
+						maps.remove(key, future);
+				}
+				future.completeExceptionally(e);
+			}
+		}
+		
+		return future.join();
+	}
+	
+	private PhotonMap buildPhotonMap(Scene scene) {
+		
+		final var lights = new ArrayList<>(scene.getLights());
+		if (lights.isEmpty() || photons < 1)
+			return new PhotonMap(Collections.emptyList(), gatherRadius);
+		
+		//
+		// Each Light receives an equal share of the photons, and so each photon
+		// carries (# lights / # photons) of its Light's sampled power.
+		//
+		final var scale = (double) lights.size() / (double) photons;
+		
+		//
+		// Each photon draws from its own random stream, derived from a fixed seed,
+		// so that the photon-map doesn't depend on which thread built it.
+		//
+		// Photons are traced on this thread alone. The render-threads are already
+		// busy; tracing on the common ForkJoinPool would only contend with them.
+		//
+		final var traced = IntStream.range(0, photons)
+				.mapToObj(i -> tracePhoton(lights.get(i % lights.size()), scene, scale,
+						new SplittableRandom(RandomSource.getSeed(PHOTON_SEED, i))))
+				.flatMap(List::stream).collect(Collectors.toList());
+		
+		return new PhotonMap(traced, gatherRadius);
+	}
+	
+	private List<Photon> tracePhoton(Light light, Scene scene, double scale, SplittableRandom rnd) {
+		
+		final var sample = new SuppliedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0.5,
+				() -> rnd.nextDouble(), () -> new Point2D(rnd.nextDouble(), rnd.nextDouble()));
+		
+		final var emitted = light.samplePhoton(sample);
+		if (emitted == null)
+			return Collections.emptyList();
+		
+		final var result = new ArrayList<Photon>();
+		
+		var ray = emitted.getA();
+		var power = emitted.getB().multiply(scale);
+		final var ignoring = (light instanceof DiffuseLight) ? (DiffuseLight) light : null;
+		
+		for (int depth = 0; depth < getMaxDepth(); depth++) {
+			
+			final var interaction = scene.getInteraction(ray, (depth == 0) ? ignoring : null);
+			if (interaction == null)
+				break;
+			
+			//
+			// The path-tracer attenuates radiance arriving along every secondary
+			// ray by that ray's squared length. Photons must be attenuated
+			// likewise, or photon-mapped indirect lighting would be brighter than
+			// path-traced. (Photons leaving the Light need no such attenuation --
+			// they spread out naturally, just as Light.sample() expects.)
+			//
+			if (depth > 0) {
+				final var distanceSq = Vector3D.from(ray.getOrigin(), interaction.getPoint()).getMagnitudeSq();
+				if (distanceSq > 0d)
+					power = power.multiply(1d / distanceSq);
+			}
+			
+			final var mat = interaction.getInteracted().getMaterial();
+			
+			//
+			// Specular surfaces simply redirect the photon.
+			//
+			if (mat.isDelta()) {
+				
+				if (mat.isReflective()) {
+					final var reflection = mat.sampleReflectionW_i(interaction, sample);
+					power = power.multiply(reflection.getC());
+					ray = new Ray(interaction.getPoint(), reflection.getA().normalize(), depth + 1);
+					
+				} else if (mat.isTransmissive()) {
+					final var transmission = mat.sampleTransmissionW_i(interaction, sample);
+					ray = new Ray(interaction.getPoint(), transmission.getA().normalize(), depth + 1);
+					
+				} else
+					break;
+				
+				continue;
+			}
+			
+			if (!mat.isReflective())
+				break;
+			
+			//
+			// Diffuse surfaces record the photon (unless it's direct lighting) and
+			// bounce it onward.
+			//
+			if (depth > 0)
+				result.add(new Photon(interaction.getPoint(), interaction.getW_e(), power));
+			
+			final var reflection = mat.sampleReflectionW_i(interaction, sample);
+			if (reflection.getB() <= 0d)
+				break;
+			
+			final var direction = reflection.getA().normalize();
+			final var cos_i = direction.dotProduct(interaction.getNormal());
+			if (cos_i <= 0d)
+				break;
+			
+			power = power.multiply(reflection.getC()).multiply(cos_i / reflection.getB());
+			ray = new Ray(interaction.getPoint(), direction, depth + 1);
+		}
+		
+		return result;
+	}
+	
+	public int getPhotons() {
+		
+		return photons;
+	}
+	
+	public double getGatherRadius() {
+		
+		return gatherRadius;
+	}
+	
+}
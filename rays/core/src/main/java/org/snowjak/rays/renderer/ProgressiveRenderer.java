@@ -0,0 +1,234 @@
+package org.snowjak.rays.renderer;
+
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import java.util.function.Consumer;
+
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+import org.snowjak.rays.camera.Camera;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.film.PixelStatistics;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.MutableSample;
+import org.snowjak.rays.sample.TracedSample;
+import org.snowjak.rays.sampler.Sampler;
+
+/**
+ * A progressive renderer wraps another {@link Renderer}, and renders the
+ * configured {@link Sampler}'s domain repeatedly -- in "passes" -- into the
+ * same {@link Film}. Each pass adds another {@link Sampler#getSamplesPerPixel()}
+ * samples to every pixel.
+ * <p>
+ * Rendering stops as soon as any of the following is true:
+ * <ul>
+ * <li>the configured wall-clock budget ({@code timeBudget}, in seconds) would
+ * be exceeded by another pass</li>
+ * <li>the estimated per-pixel variance has fallen to or below the configured
+ * target ({@code targetVariance})</li>
+ * <li>the configured maximum number of passes ({@code maxPasses}) has been
+ * rendered</li>
+ * </ul>
+ * A {@code timeBudget} or {@code targetVariance} of {@code 0} disables that
+ * stopping-criterion.
+ * </p>
+ * <p>
+ * The per-pixel variance estimate is the variance of each pixel's mean
+ * luminance ({@code Y}), as tracked by the Film's {@link PixelStatistics};
+ * rendering stops when the average of these estimates across the Sampler's
+ * pixels (which, in a decomposed render, are only some of the Film's) reaches
+ * the target.
+ * </p>
+ * <p>
+ * After every pass, the achieved samples-per-pixel are reported via
+ * {@link #render(Sampler, Film, Scene, Camera, Consumer, Consumer)}.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@UIType(type = "progressive", fields = { @UIField(name = "renderer", type = Renderer.class),
+		@UIField(name = "timeBudget", type = Double.class, defaultValue = "60"),
+		@UIField(name = "targetVariance", type = Double.class, defaultValue = "0"),
+		@UIField(name = "maxPasses", type = Integer.class, defaultValue = "64") })
+public class ProgressiveRenderer extends Renderer {
+	
+	private Renderer renderer;
+	private double timeBudget = 60;
+	private double targetVariance = 0;
+	private int maxPasses = 64;
+	
+	private transient int passesRendered = 0;
+	
+	public ProgressiveRenderer(Renderer renderer) {
+		
+		this(renderer, 60, 0, 64);
+	}
+	
+	/**
+	 *
+	 * @param renderer
+	 *            the Renderer used to compute each sample's estimate
+	 * @param timeBudget
+	 *            wall-clock budget (in seconds), or {@code 0} for no budget
+	 * @param targetVariance
+	 *            target per-pixel variance, or {@code 0} for no target
+	 * @param maxPasses
+	 *            the maximum number of passes to render
+	 */
+	public ProgressiveRenderer(Renderer renderer, double timeBudget, double targetVariance, int maxPasses) {
+		
+		this.renderer = renderer;
+		this.timeBudget = timeBudget;
+		this.targetVariance = targetVariance;
+		this.maxPasses = maxPasses;
+	}
+	
+	@Override
+	public void beforeRender(Sampler sampler, Film film, Scene scene) {
+		
+		renderer.beforeRender(sampler, film, scene);
+	}
+	
+	@Override
+	public void render(Sampler sampler, Film film, Scene scene, Camera camera, Consumer<Integer> progressConsumer) {
+		
+		render(sampler, film, scene, camera, progressConsumer, null);
+	}
+	
+	@Override
+	public void render(Sampler sampler, Film film, Scene scene, Camera camera, Consumer<Integer> progressConsumer,
+			Consumer<Integer> samplesPerPixelConsumer) {
+		
+		final var budgetNanos = (long) (max(timeBudget, 0d) * 1e9);
+		final var passLimit = max(maxPasses, 1);
+		
+		final var statistics = film.getStatistics();
+		
+		final var startTime = System.nanoTime();
+		long longestPass = 0;
+		int lastPercentage = -1;
+		
+		passesRendered = 0;
+		
+		final var record = new MutableSample();
+		
+		while (passesRendered < passLimit) {
+			
+			final var passStart = System.nanoTime();
+			
+			//
+			// Each pass uses a fresh Sampler across the same domain.
+			//
+			final var passSampler = sampler.getPassSampler(passesRendered);
+			passSampler.beforeRender(film);
+			
+			while (passSampler.hasNextSample()) {
+				if (Thread.interrupted())
+					//
+					// The current thread was interrupted!
+					return;
+				
+				final var sample = passSampler.getNextSample(record);
+				final var estimated = this.estimate(camera.trace(sample), scene);
+				RenderStatistics.addSample();
+				
+				if (passSampler.reportSampleResult(estimated))
+					film.addSample(estimated);
+			}
+			
+			passesRendered++;
+			
+			final var now = System.nanoTime();
+			longestPass = max(longestPass, now - passStart);
+			
+			if (samplesPerPixelConsumer != null)
+				samplesPerPixelConsumer.accept(passesRendered * sampler.getSamplesPerPixel());
+			
+			//
+			// Do we report progress?
+			if (progressConsumer != null) {
+				
+				final double fraction;
+				if (budgetNanos > 0)
+					fraction = max((double) (now - startTime) / (double) budgetNanos,
+							(double) passesRendered / (double) passLimit);
+				else
+					fraction = (double) passesRendered / (double) passLimit;
+				
+				final int currentPercentage = (int) (min(fraction, 1d) * 100d);
+				if (currentPercentage != lastPercentage) {
+					lastPercentage = currentPercentage;
+					progressConsumer.accept(currentPercentage);
+				}
+			}
+			
+			//
+			// Would another pass overrun our time-budget?
+			if (budgetNanos > 0 && (now - startTime) + longestPass > budgetNanos)
+				break;
+			
+			//
+			// Have we converged far enough? (Only this Sampler's pixels count -- the
+			// rest of the Film may be another worker's business.)
+			if (targetVariance > 0d) {
+				if (statistics.getAverageVarianceOfMean(sampler.getXStart(), sampler.getYStart(), sampler.getXEnd(),
+						sampler.getYEnd()) <= targetVariance)
+					break;
+			}
+		}
+		
+		if (progressConsumer != null && lastPercentage != 100)
+			progressConsumer.accept(100);
+	}
+	
+	@Override
+	public void afterRender(Sampler sampler, Film film, Scene scene) {
+		
+		renderer.afterRender(sampler, film, scene);
+	}
+	
+	@Override
+	public EstimatedSample estimate(TracedSample sample, Scene scene) {
+		
+		return renderer.estimate(sample, scene);
+	}
+	
+	@Override
+	public Renderer getCostEstimator() {
+		
+		return renderer.getCostEstimator();
+	}
+	
+	public Renderer getRenderer() {
+		
+		return renderer;
+	}
+	
+	public double getTimeBudget() {
+		
+		return timeBudget;
+	}
+	
+	public double getTargetVariance() {
+		
+		return targetVariance;
+	}
+	
+	public int getMaxPasses() {
+		
+		return maxPasses;
+	}
+	
+	/**
+	 * @return the number of passes completed during the last call to
+	 *         {@link #render(Sampler, Film, Scene, Camera, Consumer, Consumer)}
+	 */
+	public int getPassesRendered() {
+		
+		return passesRendered;
+	}
+	
+}
@@ -0,0 +1,380 @@
+package org.snowjak.rays.renderer;
+
+import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.camera.Camera;
+import org.snowjak.rays.sample.MutableSample;
+import org.snowjak.rays.sampler.PseudorandomSampler;
+import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.util.RandomSource;
+
+/**
+ * An estimate of how expensive each part of an image is to render, with which
+ * that image can be decomposed into regions of roughly-equal cost.
+ * <p>
+ * The image is divided into square cells (each {@code cellSize} pixels on a
+ * side). Each cell's cost is estimated by timing a cheap pre-pass: a single
+ * sample for each pixel of a small, randomly-placed probe-block within that
+ * cell. Regions of sky, say, will be cheap; regions full of glass and lights,
+ * expensive.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class RenderCostMap {
+	
+	private final int xStart, yStart, xEnd, yEnd;
+	private final int cellSize, cellsX, cellsY;
+	private final double[] costs;
+	
+	/**
+	 * The summed-area table of {@link #costs}, with an extra leading row and
+	 * column of 0s.
+	 */
+	private final double[] summedCosts;
+	
+	/**
+	 * Construct a new RenderCostMap over the image-region
+	 * {@code [xStart,yStart]-[xEnd,yEnd]}, with the given per-cell costs.
+	 *
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param cellSize
+	 * @param costs
+	 *            each cell's cost, in row-major order
+	 * @throws IllegalArgumentException
+	 *             if the given costs don't cover the given region
+	 */
+	public RenderCostMap(int xStart, int yStart, int xEnd, int yEnd, int cellSize, double[] costs) {
+		
+		if (cellSize < 1)
+			throw new IllegalArgumentException("Cell-size must be a positive integer.");
+		
+		this.xStart = xStart;
+		this.yStart = yStart;
+		this.xEnd = xEnd;
+		this.yEnd = yEnd;
+		this.cellSize = cellSize;
+		this.cellsX = (xEnd - xStart) / cellSize + 1;
+		this.cellsY = (yEnd - yStart) / cellSize + 1;
+		
+		if (costs.length != cellsX * cellsY)
+			throw new IllegalArgumentException("Expected " + (cellsX * cellsY) + " cell-costs, not " + costs.length
+					+ ", for a " + cellsX + "x" + cellsY + " grid.");
+		
+		this.costs = Arrays.copyOf(costs, costs.length);
+		
+		this.summedCosts = new double[(cellsX + 1) * (cellsY + 1)];
+		for (int cy = 0; cy < cellsY; cy++)
+			for (int cx = 0; cx < cellsX; cx++)
+				summedCosts[(cy + 1) * (cellsX + 1) + (cx + 1)] = costs[cy * cellsX + cx]
+						+ summedCosts[cy * (cellsX + 1) + (cx + 1)] + summedCosts[(cy + 1) * (cellsX + 1) + cx]
+						- summedCosts[cy * (cellsX + 1) + cx];
+	}
+	
+	/**
+	 * Estimate the cost of rendering the image-region
+	 * {@code [xStart,yStart]-[xEnd,yEnd]} with the given {@link Renderer}.
+	 * <p>
+	 * Cells are probed in parallel, with the Renderer's
+	 * {@link Renderer#getCostEstimator() cost-estimator} (so that, e.g., no
+	 * {@link PhotonMap} need be built first). One cell is probed beforehand,
+	 * untimed, to warm things up.
+	 * </p>
+	 * <p>
+	 * If probing takes longer than {@code timeBudget}, it is abandoned, and
+	 * {@code null} is returned -- a cost-map too expensive to estimate won't
+	 * repay the wait.
+	 * </p>
+	 *
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param template
+	 *            the {@link Sampler} the region will eventually be rendered with
+	 *            (only its additional-sample counts are used)
+	 * @param renderer
+	 * @param scene
+	 * @param camera
+	 * @param cellSize
+	 * @param probeSize
+	 *            the probe-block's width and height (clamped to the cell's size)
+	 * @param timeBudget
+	 *            the wall-clock time (in seconds) allowed for probing, or
+	 *            {@code 0} for no limit
+	 * @return the estimated RenderCostMap, or {@code null} if probing exceeded
+	 *         its budget
+	 */
+	public static RenderCostMap estimate(int xStart, int yStart, int xEnd, int yEnd, Sampler template,
+			Renderer renderer, Scene scene, Camera camera, int cellSize, int probeSize, double timeBudget) {
+		
+		final var cellsX = (xEnd - xStart) / cellSize + 1;
+		final var cellsY = (yEnd - yStart) / cellSize + 1;
+		final var costs = new double[cellsX * cellsY];
+		
+		final var estimator = renderer.getCostEstimator();
+		
+		final var start = System.nanoTime();
+		final var budgetNanos = (long) (max(timeBudget, 0d) * 1e9);
+		final var overBudget = new AtomicBoolean(false);
+		
+		probe(0, xStart, yStart, xEnd, yEnd, template, estimator, scene, camera, cellSize, probeSize);
+		
+		IntStream.range(0, costs.length).parallel().forEach(cell -> {
+			
+			if (overBudget.get())
+				return;
+			
+			if (budgetNanos > 0 && System.nanoTime() - start > budgetNanos) {
+				overBudget.set(true);
+				return;
+			}
+			
+			costs[cell] = probe(cell, xStart, yStart, xEnd, yEnd, template, estimator, scene, camera, cellSize,
+					probeSize);
+		});
+		
+		if (overBudget.get())
+			return null;
+		
+		return new RenderCostMap(xStart, yStart, xEnd, yEnd, cellSize, costs);
+	}
+	
+	/**
+	 * Time a probe of the given cell (in row-major order).
+	 * 
+	 * @return the probe's cost, scaled up to the whole cell
+	 */
+	private static double probe(int cell, int xStart, int yStart, int xEnd, int yEnd, Sampler template,
+			Renderer renderer, Scene scene, Camera camera, int cellSize, int probeSize) {
+		
+		final var cellsX = (xEnd - xStart) / cellSize + 1;
+		
+		final var cellStartX = xStart + (cell % cellsX) * cellSize;
+		final var cellStartY = yStart + (cell / cellsX) * cellSize;
+		final var cellWidth = min(cellSize, xEnd - cellStartX + 1);
+		final var cellHeight = min(cellSize, yEnd - cellStartY + 1);
+		
+		final var probeWidth = min(max(probeSize, 1), cellWidth);
+		final var probeHeight = min(max(probeSize, 1), cellHeight);
+		
+		//
+		// Place the probe-block the same way every time.
+		//
+		RandomSource.seed(RandomSource.getSeed(null, cellStartX, cellStartY));
+		try {
+			final var probeX = cellStartX + (int) (RandomSource.nextDouble() * (cellWidth - probeWidth + 1));
+			final var probeY = cellStartY + (int) (RandomSource.nextDouble() * (cellHeight - probeHeight + 1));
+			
+			final var probe = new PseudorandomSampler(probeX, probeY, probeX + probeWidth - 1,
+					probeY + probeHeight - 1, 1, template.getAdditional1DSamples(), template.getAdditional2DSamples());
+			final var record = new MutableSample();
+			
+			final var start = System.nanoTime();
+			while (probe.hasNextSample())
+				renderer.estimate(camera.trace(probe.getNextSample(record)), scene);
+			final var elapsed = System.nanoTime() - start;
+			
+			//
+			// Scale the probe's cost up to the whole cell. Every pixel costs
+			// *something*, however small.
+			//
+			final var costPerPixel = max((double) elapsed / (double) (probeWidth * probeHeight), 1d);
+			return costPerPixel * cellWidth * cellHeight;
+			
+		} finally {
+			RandomSource.unseed();
+		}
+	}
+	
+	/**
+	 * Decompose this RenderCostMap's image-region into (up to) the given number of
+	 * rectangular {@link Region}s, each of roughly the same estimated cost.
+	 * <p>
+	 * The image-region is recursively bisected -- along its longer axis, at
+	 * whichever cell-boundary best divides its cost in proportion to the number
+	 * of Regions to be made on either side. Regions are aligned to cells, and so
+	 * fewer Regions may be returned than were requested if there are too few
+	 * cells.
+	 * </p>
+	 *
+	 * @param regionCount
+	 * @return
+	 */
+	public List<Region> decompose(int regionCount) {
+		
+		final var regions = new ArrayList<Region>();
+		decompose(0, 0, cellsX - 1, cellsY - 1, max(regionCount, 1), regions);
+		return regions;
+	}
+	
+	private void decompose(int cx1, int cy1, int cx2, int cy2, int regionCount, List<Region> regions) {
+		
+		final var width = cx2 - cx1 + 1;
+		final var height = cy2 - cy1 + 1;
+		
+		if (regionCount <= 1 || (width == 1 && height == 1)) {
+			regions.add(new Region(xStart + cx1 * cellSize, yStart + cy1 * cellSize,
+					min(xStart + (cx2 + 1) * cellSize - 1, xEnd), min(yStart + (cy2 + 1) * cellSize - 1, yEnd),
+					getCost(cx1, cy1, cx2, cy2)));
+			return;
+		}
+		
+		final var firstCount = regionCount / 2;
+		final var target = getCost(cx1, cy1, cx2, cy2) * firstCount / regionCount;
+		
+		//
+		// Split across the longer axis (in pixels), unless it can't be split.
+		//
+		final var pixelWidth = min(xStart + (cx2 + 1) * cellSize - 1, xEnd) - (xStart + cx1 * cellSize) + 1;
+		final var pixelHeight = min(yStart + (cy2 + 1) * cellSize - 1, yEnd) - (yStart + cy1 * cellSize) + 1;
+		final var splitX = (height == 1) || (width > 1 && pixelWidth >= pixelHeight);
+		
+		var bestSplit = -1;
+		var bestError = Double.MAX_VALUE;
+		if (splitX) {
+			for (int split = cx1; split < cx2; split++) {
+				final var error = abs(getCost(cx1, cy1, split, cy2) - target);
+				if (error < bestError) {
+					bestError = error;
+					bestSplit = split;
+				}
+			}
+			
+			decompose(cx1, cy1, bestSplit, cy2, firstCount, regions);
+			decompose(bestSplit + 1, cy1, cx2, cy2, regionCount - firstCount, regions);
+			
+		} else {
+			for (int split = cy1; split < cy2; split++) {
+				final var error = abs(getCost(cx1, cy1, cx2, split) - target);
+				if (error < bestError) {
+					bestError = error;
+					bestSplit = split;
+				}
+			}
+			
+			decompose(cx1, cy1, cx2, bestSplit, firstCount, regions);
+			decompose(cx1, bestSplit + 1, cx2, cy2, regionCount - firstCount, regions);
+		}
+	}
+	
+	/**
+	 * @param cx1
+	 * @param cy1
+	 * @param cx2
+	 * @param cy2
+	 * @return the total cost of the cells in {@code [cx1,cy1]-[cx2,cy2]}
+	 *         (inclusive)
+	 */
+	private double getCost(int cx1, int cy1, int cx2, int cy2) {
+		
+		final var stride = cellsX + 1;
+		return summedCosts[(cy2 + 1) * stride + (cx2 + 1)] - summedCosts[cy1 * stride + (cx2 + 1)]
+				- summedCosts[(cy2 + 1) * stride + cx1] + summedCosts[cy1 * stride + cx1];
+	}
+	
+	/**
+	 * @param cellX
+	 * @param cellY
+	 * @return the estimated cost of the given cell
+	 */
+	public double getCost(int cellX, int cellY) {
+		
+		return costs[cellY * cellsX + cellX];
+	}
+	
+	/**
+	 * @return the estimated cost of the whole image-region
+	 */
+	public double getTotalCost() {
+		
+		return getCost(0, 0, cellsX - 1, cellsY - 1);
+	}
+	
+	public int getCellSize() {
+		
+		return cellSize;
+	}
+	
+	public int getCellsX() {
+		
+		return cellsX;
+	}
+	
+	public int getCellsY() {
+		
+		return cellsY;
+	}
+	
+	/**
+	 * A rectangular portion of a {@link RenderCostMap}'s image-region,
+	 * {@code [xStart,yStart]-[xEnd,yEnd]} (inclusive).
+	 */
+	public static class Region {
+		
+		private final int xStart, yStart, xEnd, yEnd;
+		private final double cost;
+		
+		public Region(int xStart, int yStart, int xEnd, int yEnd, double cost) {
+			
+			this.xStart = xStart;
+			this.yStart = yStart;
+			this.xEnd = xEnd;
+			this.yEnd = yEnd;
+			this.cost = cost;
+		}
+		
+		public int getXStart() {
+			
+			return xStart;
+		}
+		
+		public int getYStart() {
+			
+			return yStart;
+		}
+		
+		public int getXEnd() {
+			
+			return xEnd;
+		}
+		
+		public int getYEnd() {
+			
+			return yEnd;
+		}
+		
+		public int getWidth() {
+			
+			return xEnd - xStart + 1;
+		}
+		
+		public int getHeight() {
+			
+			return yEnd - yStart + 1;
+		}
+		
+		/**
+		 * @return this Region's estimated cost
+		 */
+		public double getCost() {
+			
+			return cost;
+		}
+		
+	}
+	
+}
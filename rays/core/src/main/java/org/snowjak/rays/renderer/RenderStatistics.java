@@ -0,0 +1,122 @@
+package org.snowjak.rays.renderer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.acceleration.AccelerationStructure;
+
+/**
+ * Running totals of the work done by every {@link Renderer} in this JVM: how
+ * many samples were estimated, how many rays were traced (of each kind), and
+ * how much of the {@link AccelerationStructure}s were traversed in tracing
+ * them.
+ * <p>
+ * These totals only ever increase. They're meant to be read periodically (by a
+ * metrics registry, say) and turned into rates. Each is a {@link LongAdder}, so
+ * that many render-threads can add to them without contending.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class RenderStatistics {
+	
+	private static final LongAdder samples = new LongAdder();
+	private static final LongAdder cameraRays = new LongAdder();
+	private static final LongAdder shadowRays = new LongAdder();
+	private static final LongAdder indirectRays = new LongAdder();
+	private static final LongAdder sceneQueries = new LongAdder();
+	private static final LongAdder nodeVisits = new LongAdder();
+	
+	private RenderStatistics() {
+		
+	}
+	
+	/**
+	 * Count a sample estimated for a Film.
+	 */
+	public static void addSample() {
+		
+		samples.increment();
+	}
+	
+	/**
+	 * Count a ray traced from the Camera.
+	 */
+	public static void addCameraRay() {
+		
+		cameraRays.increment();
+	}
+	
+	/**
+	 * Count a ray traced toward a Light, to test that Light's visibility.
+	 */
+	public static void addShadowRay() {
+		
+		shadowRays.increment();
+	}
+	
+	/**
+	 * Count a ray traced from a surface, to estimate its indirect (reflected or
+	 * transmitted) lighting.
+	 */
+	public static void addIndirectRay() {
+		
+		indirectRays.increment();
+	}
+	
+	/**
+	 * Count a ray tested against the whole {@link Scene}, whatever its kind (and
+	 * whether traced by a Renderer, or while preparing to render).
+	 */
+	public static void addSceneQuery() {
+		
+		sceneQueries.increment();
+	}
+	
+	/**
+	 * Count nodes visited while traversing an {@link AccelerationStructure}.
+	 *
+	 * @param visits
+	 */
+	public static void addNodeVisits(long visits) {
+		
+		nodeVisits.add(visits);
+	}
+	
+	public static long getSamples() {
+		
+		return samples.sum();
+	}
+	
+	public static long getCameraRays() {
+		
+		return cameraRays.sum();
+	}
+	
+	public static long getShadowRays() {
+		
+		return shadowRays.sum();
+	}
+	
+	public static long getIndirectRays() {
+		
+		return indirectRays.sum();
+	}
+	
+	/**
+	 * @return how many rays have been tested against the whole Scene -- the
+	 *         denominator for {@link #getNodeVisits()}, to give the average number
+	 *         of nodes visited per ray
+	 */
+	public static long getSceneQueries() {
+		
+		return sceneQueries.sum();
+	}
+	
+	public static long getNodeVisits() {
+		
+		return nodeVisits.sum();
+	}
+	
+}
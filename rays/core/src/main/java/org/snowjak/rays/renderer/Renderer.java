@@ -7,6 +7,7 @@ import org.snowjak.rays.Scene;
 import org.snowjak.rays.camera.Camera;
 import org.snowjak.rays.film.Film;
 import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.MutableSample;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.sample.TracedSample;
 import org.snowjak.rays.sampler.Sampler;
@@ -105,13 +106,21 @@ public abstract class Renderer {
 		
 		int lastPercentage = -1;
 		
+		sampler.beforeRender(film);
+		
+		//
+		// Each Sample is finished with before the next is generated, so the
+		// Sampler may keep refilling the same one.
+		//
+		final var record = new MutableSample();
+		
 		while (sampler.hasNextSample()) {
 			if (Thread.interrupted())
 				//
 				// The current thread was interrupted!
 				return;
 			
-			final var sample = sampler.getNextSample();
+			final var sample = sampler.getNextSample(record);
 			
 			//
 			// Do we report progress?
@@ -127,6 +136,7 @@ public abstract class Renderer {
 			}
 			
 			final var estimated = this.estimate(camera.trace(sample), scene);
+			RenderStatistics.addSample();
 			
 			if (sampler.reportSampleResult(estimated))
 				film.addSample(estimated);
@@ -134,6 +144,31 @@ public abstract class Renderer {
 		
 	}
 	
+	/**
+	 * As {@link #render(Sampler, Film, Scene, Camera, Consumer)}, additionally
+	 * reporting the samples-per-pixel achieved so far.
+	 * <p>
+	 * By default, this simply renders the Sampler to exhaustion and then reports
+	 * {@link Sampler#getSamplesPerPixel()}. Implementations which render
+	 * progressively (e.g., {@link ProgressiveRenderer}) may report more often.
+	 * </p>
+	 *
+	 * @param sampler
+	 * @param film
+	 * @param scene
+	 * @param camera
+	 * @param progressConsumer
+	 * @param samplesPerPixelConsumer
+	 */
+	public void render(Sampler sampler, Film film, Scene scene, Camera camera, Consumer<Integer> progressConsumer,
+			Consumer<Integer> samplesPerPixelConsumer) {
+		
+		render(sampler, film, scene, camera, progressConsumer);
+		
+		if (samplesPerPixelConsumer != null && !Thread.currentThread().isInterrupted())
+			samplesPerPixelConsumer.accept(sampler.getSamplesPerPixel());
+	}
+	
 	/**
 	 * Called immediately after this Renderer completes its current render-task.
 	 * Useful for executing any necessary takedown tasks. By default, this is a
@@ -162,4 +197,18 @@ public abstract class Renderer {
 	 */
 	public abstract EstimatedSample estimate(TracedSample sample, Scene scene);
 	
+	/**
+	 * Get a Renderer with which to estimate how expensive this Renderer will be
+	 * (see {@link RenderCostMap}). Its per-sample cost should be roughly
+	 * proportional to this Renderer's, but it should need no expensive setup in
+	 * {@link #beforeRender(Sampler, Film, Scene)}. By default, this is simply
+	 * this Renderer.
+	 * 
+	 * @return
+	 */
+	public Renderer getCostEstimator() {
+		
+		return this;
+	}
+	
 }
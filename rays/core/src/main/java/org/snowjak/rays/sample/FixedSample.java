@@ -7,8 +7,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-import org.snowjak.rays.Settings;
 import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.util.Util;
 
 /**
  * A {@link Sample} implementation that contains pregenerated lists of
@@ -156,7 +156,7 @@ public class FixedSample implements Sample {
 			}
 			
 			synchronized (shuffledAdditional1DSamples) {
-				Collections.shuffle(shuffledAdditional1DSamples, Settings.RND);
+				Util.shuffle(shuffledAdditional1DSamples);
 				next1DSample = shuffledAdditional1DSamples.iterator();
 			}
 		}
@@ -188,7 +188,7 @@ public class FixedSample implements Sample {
 			}
 			
 			synchronized (shuffledAdditional2DSamples) {
-				Collections.shuffle(shuffledAdditional2DSamples, Settings.RND);
+				Util.shuffle(shuffledAdditional2DSamples);
 				next2DSample = shuffledAdditional2DSamples.iterator();
 			}
 		}
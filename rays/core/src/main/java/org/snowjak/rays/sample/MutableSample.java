@@ -0,0 +1,286 @@
+package org.snowjak.rays.sample;
+
+import static org.apache.commons.math3.util.FastMath.max;
+
+import java.util.Arrays;
+
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.util.RandomSource;
+
+/**
+ * A {@link Sample} implementation which a {@link Sampler} can fill in, and
+ * fill in again, rather than allocating a new Sample every time.
+ * <p>
+ * All of a MutableSample's values are stored as primitives. Its film-point and
+ * lens-UV are materialized as {@link Point2D}s only if (and when) they're
+ * requested, and its additional points are kept in flat, reusable arrays (and
+ * can be read back without allocating, by
+ * {@link #getAdditional2DSample(double[])}). Its additional points are handed
+ * out in the order they were added. When they run out, the MutableSample asks
+ * its {@link Refill} (if it has one) for another batch, or else shuffles them
+ * and starts over -- so it doesn't simply repeat the same sequence.
+ * </p>
+ * <p>
+ * A MutableSample is not thread-safe. Each thread should fill in its own, and
+ * must not hold onto it (or any object referring to it) once it has asked for
+ * the next Sample. See {@link Sampler#getNextSample(MutableSample)}.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class MutableSample implements Sample {
+	
+	private static final long serialVersionUID = 5097271563440930164L;
+	
+	private double filmX, filmY;
+	private double lensU = 0.5, lensV = 0.5;
+	private double t = 0.5;
+	
+	private transient Point2D filmPoint = null, lensUV = null;
+	
+	private double[] additional1D = new double[4];
+	private double[] additional2D = new double[8];
+	private int additional1DCount = 0, additional2DCount = 0;
+	private transient int next1D = 0, next2D = 0;
+	
+	private transient Refill refill = null;
+	
+	private transient double[] scratch2D = null;
+	
+	/**
+	 * Supplies a MutableSample with another batch of additional points, once it
+	 * has handed out all those it was given -- e.g., by drawing them from the
+	 * same stream as its {@link Sampler} filled it from to begin with.
+	 */
+	public interface Refill {
+		
+		/**
+		 * Add another batch of additional 1-D points to the given Sample.
+		 *
+		 * @param sample
+		 */
+		public void refill1D(MutableSample sample);
+		
+		/**
+		 * Add another batch of additional 2-D points to the given Sample.
+		 *
+		 * @param sample
+		 */
+		public void refill2D(MutableSample sample);
+	}
+	
+	/**
+	 * Reset this MutableSample to the given film-point, lens-UV, and time, with
+	 * no additional points (and no {@link Refill}).
+	 *
+	 * @param filmX
+	 * @param filmY
+	 * @param lensU
+	 * @param lensV
+	 * @param t
+	 */
+	public void set(double filmX, double filmY, double lensU, double lensV, double t) {
+		
+		this.filmX = filmX;
+		this.filmY = filmY;
+		this.lensU = lensU;
+		this.lensV = lensV;
+		this.t = t;
+		
+		this.filmPoint = null;
+		this.lensUV = null;
+		
+		this.additional1DCount = 0;
+		this.additional2DCount = 0;
+		this.next1D = 0;
+		this.next2D = 0;
+		
+		this.refill = null;
+	}
+	
+	/**
+	 * Set the {@link Refill} this MutableSample should ask for more additional
+	 * points, once it runs out. If {@code null}, this MutableSample will instead
+	 * shuffle the points it has and start over.
+	 *
+	 * @param refill
+	 */
+	public void setRefill(Refill refill) {
+		
+		this.refill = refill;
+	}
+	
+	/**
+	 * Add an additional 1-D point to this Sample.
+	 *
+	 * @param value
+	 */
+	public void addAdditional1DSample(double value) {
+		
+		if (additional1DCount >= additional1D.length)
+			additional1D = Arrays.copyOf(additional1D, max(additional1D.length * 2, 4));
+		
+		additional1D[additional1DCount++] = value;
+	}
+	
+	/**
+	 * Add an additional 2-D point to this Sample.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void addAdditional2DSample(double x, double y) {
+		
+		if (additional2DCount * 2 >= additional2D.length)
+			additional2D = Arrays.copyOf(additional2D, max(additional2D.length * 2, 8));
+		
+		additional2D[additional2DCount * 2 + 0] = x;
+		additional2D[additional2DCount * 2 + 1] = y;
+		additional2DCount++;
+	}
+	
+	@Override
+	public Point2D getFilmPoint() {
+		
+		if (filmPoint == null)
+			filmPoint = new Point2D(filmX, filmY);
+		
+		return filmPoint;
+	}
+	
+	@Override
+	public Point2D getLensUV() {
+		
+		if (lensUV == null)
+			lensUV = new Point2D(lensU, lensV);
+		
+		return lensUV;
+	}
+	
+	@Override
+	public double getT() {
+		
+		return t;
+	}
+	
+	/**
+	 * @return the next additional 1-D point, or {@code 0.5} if this Sample has
+	 *         none
+	 */
+	@Override
+	public double getAdditional1DSample() {
+		
+		if (next1D >= additional1DCount)
+			restart1D();
+		
+		if (additional1DCount == 0)
+			return 0.5;
+		
+		return additional1D[next1D++];
+	}
+	
+	/**
+	 * @return the next additional 2-D point, or {@code (0.5, 0.5)} if this Sample
+	 *         has none
+	 */
+	@Override
+	public Point2D getAdditional2DSample() {
+		
+		if (next2D >= additional2DCount)
+			restart2D();
+		
+		if (additional2DCount == 0)
+			return Point2D.HALF;
+		
+		final var index = next2D++;
+		return new Point2D(additional2D[index * 2 + 0], additional2D[index * 2 + 1]);
+	}
+	
+	/**
+	 * As {@link #getAdditional2DSample()}, without allocating a new
+	 * {@link Point2D}.
+	 */
+	@Override
+	public double[] getAdditional2DSample(double[] point) {
+		
+		if (next2D >= additional2DCount)
+			restart2D();
+		
+		if (additional2DCount == 0) {
+			point[0] = 0.5;
+			point[1] = 0.5;
+			return point;
+		}
+		
+		final var index = next2D++;
+		point[0] = additional2D[index * 2 + 0];
+		point[1] = additional2D[index * 2 + 1];
+		return point;
+	}
+	
+	/**
+	 * As {@link #getAdditional2DSample(double[])}, re-using the same scratch
+	 * array every time.
+	 */
+	@Override
+	public double[] getAdditional2DSampleArray() {
+		
+		if (scratch2D == null)
+			scratch2D = new double[2];
+		
+		return getAdditional2DSample(scratch2D);
+	}
+	
+	private void restart1D() {
+		
+		next1D = 0;
+		
+		if (refill != null) {
+			additional1DCount = 0;
+			refill.refill1D(this);
+		} else
+			shuffle(additional1D, additional1DCount, 1);
+	}
+	
+	private void restart2D() {
+		
+		next2D = 0;
+		
+		if (refill != null) {
+			additional2DCount = 0;
+			refill.refill2D(this);
+		} else
+			shuffle(additional2D, additional2DCount, 2);
+	}
+	
+	/**
+	 * Shuffle the first {@code count} entries of the given array in place, where
+	 * each entry is {@code width} values wide.
+	 */
+	private static void shuffle(double[] array, int count, int width) {
+		
+		for (int i = count - 1; i > 0; i--) {
+			
+			final int j = RandomSource.nextInt(i + 1);
+			
+			for (int k = 0; k < width; k++) {
+				final double scratch = array[i * width + k];
+				array[i * width + k] = array[j * width + k];
+				array[j * width + k] = scratch;
+			}
+		}
+	}
+	
+	public int getAdditional1DSampleCount() {
+		
+		return additional1DCount;
+	}
+	
+	public int getAdditional2DSampleCount() {
+		
+		return additional2DCount;
+	}
+	
+}
@@ -70,4 +70,35 @@ public interface Sample extends Serializable {
 		
 		return new Point2D(0.5d, 0.5d);
 	}
+	
+	/**
+	 * As {@link #getAdditional2DSample()}, but writing the point's coordinates
+	 * into the given array ({@code x} at index 0, {@code y} at index 1) rather
+	 * than into a new {@link Point2D}. Implementations which store their
+	 * additional points as primitives can thus hand them out without allocating.
+	 * 
+	 * @param point
+	 *            an array of (at least) 2 elements
+	 * @return {@code point}
+	 */
+	public default double[] getAdditional2DSample(double[] point) {
+		
+		final var p = getAdditional2DSample();
+		point[0] = p.getX();
+		point[1] = p.getY();
+		return point;
+	}
+	
+	/**
+	 * As {@link #getAdditional2DSample(double[])}, but writing into a scratch
+	 * array which this Sample may re-use from one call to the next. Callers
+	 * should read the point's coordinates out of the returned array at once, and
+	 * must not hold onto it.
+	 * 
+	 * @return a 2-element array holding the next additional 2-D point
+	 */
+	public default double[] getAdditional2DSampleArray() {
+		
+		return getAdditional2DSample(new double[2]);
+	}
 }
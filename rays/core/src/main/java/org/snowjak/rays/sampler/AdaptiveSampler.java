@@ -4,22 +4,21 @@
 package org.snowjak.rays.sampler;
 
 import static org.apache.commons.math3.util.FastMath.ceil;
-import static org.apache.commons.math3.util.FastMath.pow;
+import static org.apache.commons.math3.util.FastMath.floor;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
-import org.snowjak.rays.Settings;
 import org.snowjak.rays.annotations.UIField;
 import org.snowjak.rays.annotations.UIType;
-import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.film.PixelStatistics;
+import org.snowjak.rays.renderer.ProgressiveRenderer;
 import org.snowjak.rays.renderer.Renderer;
 import org.snowjak.rays.sample.EstimatedSample;
-import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.sample.MutableSample;
 import org.snowjak.rays.sample.Sample;
-import org.snowjak.rays.spectrum.colorspace.XYZ;
+import org.snowjak.rays.util.RandomSource;
 
 /**
  * Implements an adaptive {@link Sampler}.
@@ -29,12 +28,29 @@ import org.snowjak.rays.spectrum.colorspace.XYZ;
  * sample-domains of greater or lesser complexity.
  * </p>
  * <p>
- * When a Sample is successfully estimated and the {@link Renderer} calls
- * {@link Sampler#reportSampleResult(org.snowjak.rays.sample.EstimatedSample)},
- * this AdaptiveSampler will capture the {@link EstimatedSample}. At the
- * conclusion of each pixel's worth of Samples, this AdaptiveSampler will decide
- * whether to move on to the next pixel, or to generate a further set of Samples
- * for the same pixel.
+ * Sampling proceeds in two phases:
+ * <ol>
+ * <li>Every pixel receives {@code minSamplesPerPixel} stratified Samples.</li>
+ * <li>The remaining sample-budget (the difference between
+ * {@code averageSamplesPerPixel} and {@code minSamplesPerPixel}, over every
+ * pixel) is then spent in a series of rounds. Each round distributes further
+ * batches of {@code minSamplesPerPixel} Samples across the pixels in proportion
+ * to their current estimated variance, so that the noisiest pixels receive the
+ * most Samples. No pixel receives more than {@code maxSamplesPerPixel}.</li>
+ * </ol>
+ * If {@code averageSamplesPerPixel} is not given, it defaults to halfway
+ * between {@code minSamplesPerPixel} and {@code maxSamplesPerPixel}.
+ * </p>
+ * <p>
+ * Each round is scheduled from the running per-pixel {@link PixelStatistics}
+ * of the {@link Film} being rendered into (as given by the {@link Renderer} --
+ * see {@link #beforeRender(Film)}), and so relies on every Sample of the prior
+ * round having been added to that Film first. Pixels outside that Film are
+ * never refined. Because a Film may already hold samples from earlier passes
+ * (see {@link ProgressiveRenderer}), {@code maxSamplesPerPixel} counts only the
+ * samples each pixel has received since this Sampler began. Only if this AdaptiveSampler is used without a Film does it
+ * keep statistics of its own, folding in each {@link EstimatedSample} reported
+ * to {@link Sampler#reportSampleResult(EstimatedSample)}.
  * </p>
  * 
  * @author snowjak88
@@ -46,25 +62,32 @@ import org.snowjak.rays.spectrum.colorspace.XYZ;
 		@UIField(name = "yEnd", type = Double.class, defaultValue = "299"),
 		@UIField(name = "minSamplesPerPixel", type = Integer.class, defaultValue = "4"),
 		@UIField(name = "maxSamplesPerPixel", type = Integer.class, defaultValue = "32"),
+		@UIField(name = "averageSamplesPerPixel", type = Integer.class, defaultValue = "0"),
 		@UIField(name = "additional1DSamples", type = Integer.class, defaultValue = "4"),
-		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "4") })
+		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "pixelOrder", type = String.class, defaultValue = "scanline") })
 public class AdaptiveSampler extends Sampler {
 	
 	private int minSamplesPerPixel;
 	private int maxSamplesPerPixel;
+	private int averageSamplesPerPixel;
 	
 	private transient boolean initialized = false;
-	private transient int currentPixelX, currentPixelY;
+	private transient boolean refining, roundPending, finished;
+	private transient int currentPixelIndex, currentPixelX, currentPixelY;
 	private transient int currentPixelSampleNumber;
-	private transient int totalPixelSampleCount;
 	
 	private transient double blockSize1D, blockSize2D, additionalSize1D, additionalSize2D;
-	private transient Point2D[][] film, lens, add2d;
+	private transient PointGrid film, lens, add2d;
 	private transient double[] t, add1d;
 	
-	private transient ArrayList<XYZ> estimates;
+	private transient PixelStatistics statistics;
+	private transient boolean ownStatistics;
+	private transient int[] startingCounts;
+	private transient int[] scheduledBatches;
+	private transient int scheduleIndex;
 	
-	private transient long pixelsGenerated = 0;
+	private transient long samplesGenerated = 0, sampleBudget = 0;
 	
 	/**
 	 * 
@@ -93,10 +116,34 @@ public class AdaptiveSampler extends Sampler {
 	public AdaptiveSampler(int xStart, int yStart, int xEnd, int yEnd, int minSamplesPerPixel, int maxSamplesPerPixel,
 			int additional1dSamples, int additional2dSamples) {
 		
+		this(xStart, yStart, xEnd, yEnd, minSamplesPerPixel, maxSamplesPerPixel, 0, additional1dSamples,
+				additional2dSamples);
+	}
+	
+	/**
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param minSamplesPerPixel
+	 * @param maxSamplesPerPixel
+	 * @param averageSamplesPerPixel
+	 *            the total sample-budget, expressed as an average across all
+	 *            pixels, or {@code 0} to default to halfway between
+	 *            {@code minSamplesPerPixel} and {@code maxSamplesPerPixel}
+	 * @param additional1dSamples
+	 * @param additional2dSamples
+	 */
+	public AdaptiveSampler(int xStart, int yStart, int xEnd, int yEnd, int minSamplesPerPixel, int maxSamplesPerPixel,
+			int averageSamplesPerPixel, int additional1dSamples, int additional2dSamples) {
+		
 		super(xStart, yStart, xEnd, yEnd, minSamplesPerPixel, additional1dSamples, additional2dSamples);
 		
+		checkMinSamplesPerPixel(minSamplesPerPixel);
+		
 		this.minSamplesPerPixel = minSamplesPerPixel;
 		this.maxSamplesPerPixel = maxSamplesPerPixel;
+		this.averageSamplesPerPixel = averageSamplesPerPixel;
 	}
 	
 	/**
@@ -106,13 +153,24 @@ public class AdaptiveSampler extends Sampler {
 	 */
 	private void initialize() {
 		
-		currentPixelX = getXStart();
-		currentPixelY = getYStart();
+		checkMinSamplesPerPixel(minSamplesPerPixel);
+		
+		currentPixelIndex = 0;
+		currentPixelX = getPixelX(currentPixelIndex);
+		currentPixelY = getPixelY(currentPixelIndex);
 		currentPixelSampleNumber = 0;
-		totalPixelSampleCount = 0;
 		
-		pixelsGenerated = 0;
-		setTotalSamples(-1);
+		refining = false;
+		roundPending = false;
+		finished = false;
+		
+		final long pixelCount = (long) (getXEnd() - getXStart() + 1) * (long) (getYEnd() - getYStart() + 1);
+		final int average = (averageSamplesPerPixel > 0) ? averageSamplesPerPixel
+				: (minSamplesPerPixel + maxSamplesPerPixel) / 2;
+		
+		samplesGenerated = 0;
+		sampleBudget = pixelCount * (long) max(min(average, maxSamplesPerPixel), minSamplesPerPixel);
+		setTotalSamples(sampleBudget);
 		
 		final int blockCount1D = getSamplesPerPixel(), blockCount2D = (int) ceil(sqrt((double) getSamplesPerPixel()));
 		final int additionalBlockCount1D = getAdditional1DSamples(),
@@ -123,18 +181,31 @@ public class AdaptiveSampler extends Sampler {
 		additionalSize1D = 1d / (double) additionalBlockCount1D;
 		additionalSize2D = 1d / (double) additionalBlockCount2D;
 		
-		film = generate2D(getSamplesPerPixel(), blockCount2D, blockSize2D, blockSize2D);
+		film = PointGrid.jittered(getSamplesPerPixel(), blockCount2D, blockSize2D, blockSize2D);
 		t = generate1D(getSamplesPerPixel(), blockCount1D, blockSize1D);
-		lens = generate2D(getSamplesPerPixel(), blockCount2D, blockSize2D, blockSize2D);
+		lens = PointGrid.jittered(getSamplesPerPixel(), blockCount2D, blockSize2D, blockSize2D);
 		
 		add1d = generate1D(getAdditional1DSamples(), additionalBlockCount1D, additionalSize1D);
-		add2d = generate2D(getAdditional2DSamples(), additionalBlockCount2D, additionalSize2D, additionalSize2D);
+		add2d = PointGrid.jittered(getAdditional2DSamples(), additionalBlockCount2D, additionalSize2D,
+				additionalSize2D);
 		
-		estimates = new ArrayList<>(maxSamplesPerPixel);
+		if (statistics == null) {
+			statistics = new PixelStatistics(getXStart(), getYStart(), getXEnd(), getYEnd());
+			ownStatistics = true;
+		}
+		
+		scheduledBatches = new int[(int) pixelCount];
+		scheduleIndex = 0;
 		
 		initialized = true;
 	}
 	
+	private static void checkMinSamplesPerPixel(int minSamplesPerPixel) {
+		
+		if (minSamplesPerPixel < 1)
+			throw new IllegalArgumentException("minSamplesPerPixel must be a positive integer.");
+	}
+	
 	private double[] generate1D(int samples, int blockCount1D, double blockSize) {
 		
 		final double[] result = new double[blockCount1D];
@@ -143,7 +214,7 @@ public class AdaptiveSampler extends Sampler {
 		
 		for (int i = 0; i < result.length; i++)
 			if (sampleCount < samples) {
-				final double jittered = Settings.RND.nextDouble() * blockSize;
+				final double jittered = RandomSource.nextDouble() * blockSize;
 				result[i] = jittered;
 				sampleCount++;
 			}
@@ -151,165 +222,275 @@ public class AdaptiveSampler extends Sampler {
 		return result;
 	}
 	
-	private Point2D[][] generate2D(int samples, int blockCount2D, double blockSizeX, double blockSizeY) {
-		
-		final Point2D[][] result = new Point2D[blockCount2D][blockCount2D];
-		
-		int sampleCount = 0;
-		
-		for (int x = 0; x < result.length; x++)
-			for (int y = 0; y < result[x].length; y++)
-				if (sampleCount < samples) {
-					final double jitteredX = Settings.RND.nextDouble() * blockSizeX,
-							jitteredY = Settings.RND.nextDouble() * blockSizeY;
-					result[x][y] = new Point2D(jitteredX, jitteredY);
-					sampleCount++;
-				}
-			
-		return result;
-	}
-	
 	@Override
 	public boolean hasNextSample() {
 		
 		if (!initialized)
 			initialize();
 		
-		return currentPixelY <= getYEnd();
+		//
+		// We defer scheduling each round until we're asked for the next Sample --
+		// by then, the prior round's Samples should all have been reported.
+		if (roundPending)
+			scheduleRound();
+		
+		return !finished;
 	}
 	
 	@Override
 	public Sample getNextSample() {
 		
-		if (!initialized)
-			initialize();
+		return getNextSample(new MutableSample());
+	}
+	
+	@Override
+	public Sample getNextSample(MutableSample sample) {
 		
 		if (!hasNextSample())
 			return null;
 		
-		final int index1D = currentPixelSampleNumber, index2Dx = currentPixelSampleNumber / film.length,
-				index2Dy = currentPixelSampleNumber % film.length;
+		final int index1D = currentPixelSampleNumber, index2Dx = currentPixelSampleNumber / film.getSize(),
+				index2Dy = currentPixelSampleNumber % film.getSize();
 		
-		final Point2D filmPoint = new Point2D(
-				currentPixelX + film[index2Dx][index2Dy].getX() + (double) index2Dx * blockSize2D,
-				currentPixelY + film[index2Dx][index2Dy].getY() + (double) index2Dy * blockSize2D);
-		final Point2D lensUV = new Point2D(lens[index2Dx][index2Dy].getX() + (double) index2Dx * blockSize2D,
-				lens[index2Dx][index2Dy].getY() + (double) index2Dy * blockSize2D);
-		final double tPoint = t[index1D];
+		sample.set(currentPixelX + film.getX(index2Dx, index2Dy) + (double) index2Dx * blockSize2D,
+				currentPixelY + film.getY(index2Dx, index2Dy) + (double) index2Dy * blockSize2D,
+				lens.getX(index2Dx, index2Dy) + (double) index2Dx * blockSize2D,
+				lens.getY(index2Dx, index2Dy) + (double) index2Dy * blockSize2D, t[index1D]);
 		
-		final List<Double> additional1DSamples = new LinkedList<>();
 		for (int i = 0; i < add1d.length; i++) {
 			final double si = (double) i * additionalSize1D;
 			
-			additional1DSamples.add(si + add1d[i]);
+			sample.addAdditional1DSample(si + add1d[i]);
 		}
 		
-		final List<Point2D> additional2DSamples = new LinkedList<>();
-		for (int x = 0; x < add2d.length; x++) {
+		for (int x = 0; x < add2d.getSize(); x++) {
 			final double sx = (double) x * additionalSize2D;
-			for (int y = 0; y < add2d[x].length; y++) {
+			for (int y = 0; y < add2d.getSize(); y++) {
 				final double sy = (double) y * additionalSize2D;
 				
-				additional2DSamples.add(new Point2D(sx + add2d[x][y].getX(), sy + add2d[x][y].getY()));
+				sample.addAdditional2DSample(sx + add2d.getX(x, y), sy + add2d.getY(x, y));
 			}
 		}
 		
-		final Sample result = new FixedSample(filmPoint, lensUV, tPoint, additional1DSamples, additional2DSamples);
-		
 		shuffle1D(add1d);
-		shuffle2D(add2d);
+		add2d.shuffle();
 		
 		currentPixelSampleNumber++;
-		totalPixelSampleCount++;
+		samplesGenerated++;
 		
 		if (currentPixelSampleNumber >= minSamplesPerPixel) {
 			
-			shuffle2D(film);
-			shuffle2D(lens);
+			film.shuffle();
+			lens.shuffle();
 			shuffle1D(t);
 			
 			currentPixelSampleNumber = 0;
 			
-			if (!repeatCurrentPixel()) {
-				
-				estimates.clear();
-				totalPixelSampleCount = 0;
-				
-				pixelsGenerated++;
-				currentPixelX++;
-				
-				if (currentPixelX > getXEnd()) {
-					
-					currentPixelX = getXStart();
-					currentPixelY++;
-				}
-			}
+			if (refining)
+				nextScheduledPixel();
+			else
+				nextPixel();
 		}
 		
-		return result;
+		return sample;
 	}
 	
-	private void shuffle1D(double[] array) {
+	/**
+	 * During the first phase, move to the next pixel in this Sampler's
+	 * {@link #getPixelOrder() pixel-order}.
+	 */
+	private void nextPixel() {
 		
-		for (int i = 0; i < array.length; i++) {
-			
-			int j = i;
-			while (j == i)
-				j = Settings.RND.nextInt(array.length);
-			
-			final double scratch = array[i];
-			array[i] = array[j];
-			array[j] = scratch;
+		currentPixelIndex++;
+		currentPixelX = getPixelX(currentPixelIndex);
+		currentPixelY = getPixelY(currentPixelIndex);
+		
+		if (currentPixelY > getYEnd()) {
+			refining = true;
+			roundPending = true;
 		}
 	}
 	
-	private void shuffle2D(Point2D[][] array) {
+	/**
+	 * During the second phase, move to the next batch of Samples scheduled for
+	 * the current round.
+	 */
+	private void nextScheduledPixel() {
 		
-		for (int i = 0; i < array.length; i++) {
-			
-			int j = i;
-			while (j == i)
-				j = Settings.RND.nextInt(array.length);
+		scheduledBatches[scheduleIndex]--;
+		
+		while (scheduleIndex < scheduledBatches.length && scheduledBatches[scheduleIndex] <= 0)
+			scheduleIndex++;
+		
+		if (scheduleIndex >= scheduledBatches.length)
+			roundPending = true;
+		else
+			moveToScheduledPixel();
+	}
+	
+	private void moveToScheduledPixel() {
+		
+		final var width = getXEnd() - getXStart() + 1;
+		currentPixelX = getXStart() + (scheduleIndex % width);
+		currentPixelY = getYStart() + (scheduleIndex / width);
+	}
+	
+	/**
+	 * Distribute the next round's worth of Sample-batches across all pixels, in
+	 * proportion to each pixel's estimated variance.
+	 */
+	private void scheduleRound() {
+		
+		roundPending = false;
+		
+		final var width = getXEnd() - getXStart() + 1;
+		final var pixelCount = scheduledBatches.length;
+		
+		final long remaining = sampleBudget - samplesGenerated;
+		final long roundBatches = min(remaining, (long) pixelCount * (long) minSamplesPerPixel)
+				/ (long) minSamplesPerPixel;
+		
+		if (roundBatches <= 0) {
+			finished = true;
+			return;
+		}
+		
+		//
+		// Pixels which cannot yet estimate their variance are treated as being
+		// as noisy as the noisiest pixel that can.
+		//
+		double greatestVariance = 0d, totalVariance = 0d;
+		int uncertainPixels = 0;
+		for (int i = 0; i < pixelCount; i++) {
+			final var x = getXStart() + (i % width);
+			final var y = getYStart() + (i / width);
+			if (!statistics.contains(x, y) || getCount(i, x, y) + minSamplesPerPixel > maxSamplesPerPixel)
+				continue;
 			
-			for (int y = 0; y < array[i].length; y++) {
-				final Point2D scratch = array[i][y];
-				array[i][y] = array[j][y];
-				array[j][y] = scratch;
+			final var variance = statistics.getVarianceOfMean(x, y);
+			if (Double.isInfinite(variance))
+				uncertainPixels++;
+			else {
+				greatestVariance = max(greatestVariance, variance);
+				totalVariance += variance;
 			}
 		}
 		
-		for (int i = 0; i < array[0].length; i++) {
+		final var uncertainVariance = (greatestVariance > 0d) ? greatestVariance : 1d;
+		totalVariance += (double) uncertainPixels * uncertainVariance;
+		
+		if (totalVariance <= 0d) {
+			finished = true;
+			return;
+		}
+		
+		//
+		// Allocate batches proportionally, carrying each pixel's rounding-error
+		// forward to the next.
+		//
+		long allocated = 0;
+		double carry = 0d;
+		scheduleIndex = -1;
+		for (int i = 0; i < pixelCount; i++) {
+			scheduledBatches[i] = 0;
 			
-			int j = i;
-			while (j == i)
-				j = Settings.RND.nextInt(array[0].length);
+			final var x = getXStart() + (i % width);
+			final var y = getYStart() + (i / width);
+			if (!statistics.contains(x, y))
+				continue;
 			
-			for (int x = 0; x < array.length; x++) {
-				final Point2D scratch = array[x][i];
-				array[x][i] = array[x][j];
-				array[x][j] = scratch;
-			}
+			final var count = getCount(i, x, y);
+			if (count + minSamplesPerPixel > maxSamplesPerPixel)
+				continue;
+			
+			var variance = statistics.getVarianceOfMean(x, y);
+			if (Double.isInfinite(variance))
+				variance = uncertainVariance;
+			
+			final var share = (double) roundBatches * variance / totalVariance + carry;
+			final var capacity = (maxSamplesPerPixel - count) / minSamplesPerPixel;
+			final var batches = (int) min(floor(share), capacity);
+			
+			//
+			// Any excess beyond this pixel's capacity is simply dropped.
+			carry = share - floor(share);
+			
+			scheduledBatches[i] = batches;
+			allocated += batches;
+			
+			if (batches > 0 && scheduleIndex < 0)
+				scheduleIndex = i;
 		}
-	}
-	
-	private boolean repeatCurrentPixel() {
 		
-		if (totalPixelSampleCount >= maxSamplesPerPixel)
-			return false;
+		if (allocated <= 0) {
+			finished = true;
+			return;
+		}
 		
-		final double averageLuminance = estimates.parallelStream().mapToDouble(XYZ::getY).average().orElse(0);
+		moveToScheduledPixel();
+	}
+	
+	private void shuffle1D(double[] array) {
 		
-		final double stdDevLuminance = sqrt(
-				estimates.parallelStream().mapToDouble(XYZ::getY).map(v -> pow(v - averageLuminance, 2)).sum());
+		if (array.length < 2)
+			return;
 		
-		return (stdDevLuminance > 1d / (double) minSamplesPerPixel);
+		for (int i = 0; i < array.length; i++) {
+			
+			int j = i;
+			while (j == i)
+				j = RandomSource.nextInt(array.length);
+			
+			final double scratch = array[i];
+			array[i] = array[j];
+			array[j] = scratch;
+		}
+	}
+	
+	/**
+	 * @param index
+	 *            the pixel's index, in scanline order, within this Sampler's
+	 *            pixels
+	 * @param x
+	 * @param y
+	 * @return how many samples the given pixel has received since this Sampler
+	 *         began (not counting any it already had from earlier passes)
+	 */
+	private int getCount(int index, int x, int y) {
 		
+		return statistics.getCount(x, y) - ((startingCounts == null) ? 0 : startingCounts[index]);
+	}
+	
+	/**
+	 * Schedule refinement from the given {@link Film}'s
+	 * {@link Film#getStatistics() statistics}, rather than keeping statistics of
+	 * our own. The Film's per-pixel sample-counts are noted now, so that samples
+	 * from earlier passes don't count against {@code maxSamplesPerPixel}.
+	 */
+	@Override
+	public void beforeRender(Film film) {
+		
+		statistics = film.getStatistics();
+		ownStatistics = false;
+		
+		final var width = getXEnd() - getXStart() + 1;
+		startingCounts = new int[width * (getYEnd() - getYStart() + 1)];
+		for (int i = 0; i < startingCounts.length; i++) {
+			final var x = getXStart() + (i % width);
+			final var y = getYStart() + (i / width);
+			if (statistics.contains(x, y))
+				startingCounts[i] = statistics.getCount(x, y);
+		}
 	}
 	
 	@Override
 	public boolean reportSampleResult(EstimatedSample estimate) {
 		
-		this.estimates.add(XYZ.fromSpectrum(estimate.getRadiance(), false));
+		if (!initialized)
+			initialize();
+		
+		if (ownStatistics)
+			statistics.add(estimate);
 		
 		return true;
 	}
@@ -317,14 +498,53 @@ public class AdaptiveSampler extends Sampler {
 	@Override
 	public double getPercentComplete() {
 		
-		return ((double) pixelsGenerated) / ((double) (getXEnd() - getXStart() + 1) * (getYEnd() - getYStart() + 1));
+		if (!initialized)
+			initialize();
+		
+		if (finished)
+			return 1d;
+		
+		return min(((double) samplesGenerated) / ((double) sampleBudget), 1d);
+	}
+	
+	/**
+	 * @return the running per-pixel statistics this Sampler schedules from --
+	 *         either its {@link Film}'s, or (without one) its own, gathered from
+	 *         the {@link EstimatedSample}s reported to it
+	 */
+	public PixelStatistics getStatistics() {
+		
+		if (!initialized)
+			initialize();
+		
+		return statistics;
 	}
 	
 	@Override
 	public Sampler partition(int xStart, int yStart, int xEnd, int yEnd) {
 		
-		return new AdaptiveSampler(xStart, yStart, xEnd, yEnd, this.minSamplesPerPixel, this.maxSamplesPerPixel,
-				getAdditional1DSamples(), getAdditional2DSamples());
+		return inheritSlice(inheritPixelOrder(new AdaptiveSampler(xStart, yStart, xEnd, yEnd, this.minSamplesPerPixel,
+				this.maxSamplesPerPixel, this.averageSamplesPerPixel, getAdditional1DSamples(),
+				getAdditional2DSamples())));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Each slice's minimum, maximum, and average samples-per-pixel are all
+	 * divided up likewise.
+	 * </p>
+	 */
+	@Override
+	public Sampler partitionSamples(int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		return inheritSlice(new AdaptiveSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSliceSamplesPerPixel(this.minSamplesPerPixel, slices),
+				getSliceSamplesPerPixel(this.maxSamplesPerPixel, slices),
+				(this.averageSamplesPerPixel < 1) ? this.averageSamplesPerPixel
+						: getSliceSamplesPerPixel(this.averageSamplesPerPixel, slices),
+				getAdditional1DSamples(), getAdditional2DSamples()), slice, slices);
 	}
 	
 }
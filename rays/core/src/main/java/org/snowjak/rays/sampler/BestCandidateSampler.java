@@ -25,6 +25,7 @@ import org.snowjak.rays.geometry.Point2D;
 import org.snowjak.rays.geometry.util.Pair;
 import org.snowjak.rays.sample.FixedSample;
 import org.snowjak.rays.sample.Sample;
+import org.snowjak.rays.util.RandomSource;
 import org.snowjak.rays.util.Util;
 
 /**
@@ -46,6 +47,11 @@ import org.snowjak.rays.util.Util;
  * required film-points at once on that block. Samples for other dimensions
  * (e.g., lens-points) are generated only per-pixel.
  * </p>
+ * <p>
+ * Because those blocks are laid out along successive scan-lines, this Sampler
+ * always visits its pixels in {@link PixelOrder#SCANLINE scan-line order},
+ * regardless of its configured {@link #getPixelOrder() pixel-order}.
+ * </p>
  * 
  * @author snowjak88
  *
@@ -127,11 +133,11 @@ public class BestCandidateSampler extends Sampler {
 		generateNewBlock();
 		
 		this.lensSamples = generateSamples(blockSize * blockSize * getSamplesPerPixel(),
-				() -> new Point2D(Settings.RND.nextDouble(), Settings.RND.nextDouble()),
+				() -> new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble()),
 				(p1, p2) -> pow(p1.getX() - p2.getX(), 2) + pow(p1.getY() - p2.getY(), 2), (p) -> true, (p) -> {
 				}).toArray(new Point2D[0]);
 		
-		this.tSamples = generateSamples(blockSize * blockSize * getSamplesPerPixel(), () -> Settings.RND.nextDouble(),
+		this.tSamples = generateSamples(blockSize * blockSize * getSamplesPerPixel(), () -> RandomSource.nextDouble(),
 				(p1, p2) -> sqrt(pow(p1 - p2, 2)), (p) -> true, (p) -> {
 				}).toArray(new Double[0]);
 		
@@ -170,10 +176,10 @@ public class BestCandidateSampler extends Sampler {
 				+ currentBlockY * getSamplesPerPixel() + currentPixelSample];
 		
 		final var result = new FixedSample(filmPoint, lensPoint, t, generateSamples(getAdditional1DSamples(),
-				() -> Settings.RND.nextDouble(), (d1, d2) -> pow(d1 - d2, 2), (d) -> true, (d) -> {
+				() -> RandomSource.nextDouble(), (d1, d2) -> pow(d1 - d2, 2), (d) -> true, (d) -> {
 				}),
 				generateSamples(getAdditional2DSamples(),
-						() -> new Point2D(Settings.RND.nextDouble(), Settings.RND.nextDouble()),
+						() -> new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble()),
 						(p1, p2) -> pow(p1.getX() - p2.getX(), 2) + pow(p1.getY() - p2.getY(), 2), (p) -> true, (p) -> {
 						}));
 		
@@ -282,8 +288,8 @@ public class BestCandidateSampler extends Sampler {
 	
 	private Point2D generatePoint(int xOffset, int yOffset, double xExtent, double yExtent) {
 		
-		return new Point2D((double) xOffset + Settings.RND.nextDouble() * xExtent,
-				(double) yOffset + Settings.RND.nextDouble() * yExtent);
+		return new Point2D((double) xOffset + RandomSource.nextDouble() * xExtent,
+				(double) yOffset + RandomSource.nextDouble() * yExtent);
 	}
 	
 	private void insertPointIntoBlock(Point2D point) {
@@ -339,8 +345,17 @@ public class BestCandidateSampler extends Sampler {
 	@Override
 	public Sampler partition(int xStart, int yStart, int xEnd, int yEnd) {
 		
-		return new BestCandidateSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(), getAdditional1DSamples(),
-				getAdditional2DSamples());
+		return inheritSlice(inheritPixelOrder(new BestCandidateSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(),
+				getAdditional1DSamples(), getAdditional2DSamples())));
+	}
+	
+	@Override
+	public Sampler partitionSamples(int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		return inheritSlice(new BestCandidateSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSliceSamplesPerPixel(getSamplesPerPixel(), slices), getAdditional1DSamples(),
+				getAdditional2DSamples()), slice, slices);
 	}
 	
 }
@@ -0,0 +1,176 @@
+package org.snowjak.rays.sampler;
+
+import static org.apache.commons.math3.util.FastMath.min;
+
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+
+/**
+ * Implements a scrambled Halton {@link Sampler}.
+ * <p>
+ * Each component of each slot (see {@link LowDiscrepancySampler}) is assigned
+ * its own prime base, and is computed as the radical-inverse of the point's
+ * index in that base. Each pixel's points are decorrelated from every other
+ * pixel's by Owen-scrambling: every digit is randomly shifted, depending on the
+ * digits above it and on a seed hashed from the pixel and slot.
+ * </p>
+ * <p>
+ * Unlike the {@link SobolSampler}, any number of samples per pixel is
+ * well-distributed; however, components with large bases (i.e., slots far down
+ * the list) converge more slowly.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+@UIType(type = "halton", fields = { @UIField(name = "xStart", type = Double.class, defaultValue = "0"),
+		@UIField(name = "yStart", type = Double.class, defaultValue = "0"),
+		@UIField(name = "xEnd", type = Double.class, defaultValue = "399"),
+		@UIField(name = "yEnd", type = Double.class, defaultValue = "299"),
+		@UIField(name = "samplesPerPixel", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "additional1DSamples", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "pixelOrder", type = String.class, defaultValue = "scanline") })
+public class HaltonSampler extends LowDiscrepancySampler {
+	
+	private static final int[] PRIMES = new int[256];
+	static {
+		int count = 0;
+		for (int candidate = 2; count < PRIMES.length; candidate++) {
+			var isPrime = true;
+			for (int i = 0; i < count && PRIMES[i] * PRIMES[i] <= candidate; i++)
+				if (candidate % PRIMES[i] == 0) {
+					isPrime = false;
+					break;
+				}
+			
+			if (isPrime)
+				PRIMES[count++] = candidate;
+		}
+	}
+	
+	private static final double ONE_MINUS_EPSILON = Math.nextDown(1d);
+	
+	/**
+	 * Construct a new {@link HaltonSampler} across the given interval
+	 * [<code>(xStart,yStart)</code>, <code>(xEnd,yEnd)</code>], with no additional
+	 * points requested.
+	 * 
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param samplesPerPixel
+	 */
+	public HaltonSampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel) {
+		
+		this(xStart, yStart, xEnd, yEnd, samplesPerPixel, 0, 0);
+	}
+	
+	/**
+	 * Construct a new {@link HaltonSampler} across the given interval
+	 * [<code>(xStart,yStart)</code>, <code>(xEnd,yEnd)</code>].
+	 * 
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param samplesPerPixel
+	 * @param additional1dSamples
+	 * @param additional2dSamples
+	 */
+	public HaltonSampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel, int additional1dSamples,
+			int additional2dSamples) {
+		
+		this(xStart, yStart, xEnd, yEnd, samplesPerPixel, additional1dSamples, additional2dSamples, 0);
+	}
+	
+	/**
+	 * Construct a new {@link HaltonSampler} across the given interval
+	 * [<code>(xStart,yStart)</code>, <code>(xEnd,yEnd)</code>], generating the
+	 * given pass.
+	 * 
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param samplesPerPixel
+	 * @param additional1dSamples
+	 * @param additional2dSamples
+	 * @param pass
+	 */
+	public HaltonSampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel, int additional1dSamples,
+			int additional2dSamples, int pass) {
+		
+		super(xStart, yStart, xEnd, yEnd, samplesPerPixel, additional1dSamples, additional2dSamples, pass);
+	}
+	
+	@Override
+	protected double get(int pixelX, int pixelY, long index, int slot, int component) {
+		
+		final var dimension = 2 * slot + component;
+		return scrambledRadicalInverse(PRIMES[dimension % PRIMES.length], index, hash(pixelX, pixelY, dimension));
+	}
+	
+	/**
+	 * Compute the Owen-scrambled radical-inverse of the given index.
+	 * <p>
+	 * Digits are generated until they no longer affect the result's
+	 * double-precision value -- including those past the index's most-significant
+	 * digit, which are 0 before being scrambled.
+	 * </p>
+	 * 
+	 * @param base
+	 * @param index
+	 * @param seed
+	 * @return
+	 */
+	static double scrambledRadicalInverse(int base, long index, int seed) {
+		
+		final var inverseBase = 1d / (double) base;
+		
+		var result = 0d;
+		var digitScale = 1d;
+		var node = seed;
+		
+		while (digitScale > 0x1p-53) {
+			
+			final var next = index / base;
+			final var digit = (int) ((index - next * base
+					+ Integer.remainderUnsigned(mix(node), base)) % base);
+			
+			digitScale *= inverseBase;
+			result += (double) digit * digitScale;
+			
+			node = mix(node ^ (digit + 1) * 0x9E3779B9);
+			index = next;
+		}
+		
+		return min(result, ONE_MINUS_EPSILON);
+	}
+	
+	@Override
+	public Sampler partition(int xStart, int yStart, int xEnd, int yEnd) {
+		
+		return inheritSlice(inheritPixelOrder(new HaltonSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(),
+				getAdditional1DSamples(), getAdditional2DSamples(), getPass())));
+	}
+	
+	@Override
+	public Sampler getPassSampler(int pass) {
+		
+		return inheritSlice(inheritPixelOrder(new HaltonSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSamplesPerPixel(), getAdditional1DSamples(), getAdditional2DSamples(),
+				getPass() + pass * getSliceCount())));
+	}
+	
+	@Override
+	public Sampler partitionSamples(int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		return inheritSlice(new HaltonSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSliceSamplesPerPixel(getSamplesPerPixel(), slices), getAdditional1DSamples(),
+				getAdditional2DSamples(), getPass() * slices + slice), slice, slices);
+	}
+	
+}
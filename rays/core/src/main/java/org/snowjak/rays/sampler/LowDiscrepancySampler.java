@@ -0,0 +1,199 @@
+package org.snowjak.rays.sampler;
+
+import java.util.ArrayList;
+
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.sample.Sample;
+
+/**
+ * Base class for {@link Sampler}s which draw their sample-points from a
+ * deterministic low-discrepancy sequence, rather than from
+ * {@link org.snowjak.rays.util.RandomSource}.
+ * <p>
+ * Every value in a {@link Sample} is computed directly from its pixel, its
+ * index within that pixel, and its "slot":
+ * <ol>
+ * <li>slot 0: film-point offset (2D)</li>
+ * <li>slot 1: lens-UV (2D)</li>
+ * <li>slot 2: time (1D)</li>
+ * <li>slots {@code 3 ... 3 + n1 - 1}: additional 1D samples</li>
+ * <li>slots {@code 3 + n1 ...}: additional 2D samples</li>
+ * </ol>
+ * Implementations decorrelate slots (and pixels) from one another by hashing
+ * these together into a scrambling seed. Because nothing depends on any
+ * previously-generated sample, no state (beyond the current position) need be
+ * kept, and any Sample can be regenerated exactly.
+ * </p>
+ * <p>
+ * Each pixel receives {@link #getSamplesPerPixel()} consecutive points from its
+ * sequence, starting at {@code pass * samplesPerPixel}. Successive
+ * {@link #getPassSampler(int) passes} therefore continue each pixel's sequence
+ * instead of repeating it. Likewise, a
+ * {@link #partitionSamples(int, int) sample-slice} starts where the previous
+ * slice left off; a sliced Sampler's passes step over its sibling slices'.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+public abstract class LowDiscrepancySampler extends Sampler {
+	
+	private int pass = 0;
+	
+	private transient boolean initialized = false;
+	private transient int currentPixelIndex, currentPixelX, currentPixelY;
+	private transient int currentPixelSampleNumber;
+	
+	private transient long samplesGenerated = 0;
+	
+	public LowDiscrepancySampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel,
+			int additional1DSamples, int additional2DSamples, int pass) {
+		
+		super(xStart, yStart, xEnd, yEnd, samplesPerPixel, additional1DSamples, additional2DSamples);
+		
+		this.pass = pass;
+		
+		initialize();
+	}
+	
+	/**
+	 * Because this can be deserialized -- with only its startup parameters actually
+	 * saved and restored -- we might need to initialize this outside of the
+	 * constructor!
+	 */
+	private void initialize() {
+		
+		currentPixelIndex = 0;
+		currentPixelX = getPixelX(currentPixelIndex);
+		currentPixelY = getPixelY(currentPixelIndex);
+		currentPixelSampleNumber = 0;
+		
+		samplesGenerated = 0;
+		setTotalSamples(-1);
+		
+		initialized = true;
+	}
+	
+	@Override
+	public boolean hasNextSample() {
+		
+		if (!initialized)
+			initialize();
+		
+		return currentPixelY <= getYEnd();
+	}
+	
+	@Override
+	public Sample getNextSample() {
+		
+		if (!initialized)
+			initialize();
+		
+		if (!hasNextSample())
+			return null;
+		
+		final var result = getSample(currentPixelX, currentPixelY, currentPixelSampleNumber);
+		
+		currentPixelSampleNumber++;
+		if (currentPixelSampleNumber >= getSamplesPerPixel()) {
+			
+			currentPixelSampleNumber = 0;
+			currentPixelIndex++;
+			currentPixelX = getPixelX(currentPixelIndex);
+			currentPixelY = getPixelY(currentPixelIndex);
+		}
+		
+		samplesGenerated++;
+		
+		return result;
+	}
+	
+	/**
+	 * Generate the given {@link Sample} for the given pixel.
+	 * 
+	 * @param pixelX
+	 * @param pixelY
+	 * @param sampleNumber
+	 *            the Sample's index within this pass, in
+	 *            {@code [0, samplesPerPixel)}
+	 * @return
+	 */
+	public Sample getSample(int pixelX, int pixelY, int sampleNumber) {
+		
+		final var index = (long) pass * (long) getSamplesPerPixel() + (long) sampleNumber;
+		
+		final var filmPoint = new Point2D((double) pixelX + get(pixelX, pixelY, index, 0, 0),
+				(double) pixelY + get(pixelX, pixelY, index, 0, 1));
+		final var lensUV = new Point2D(get(pixelX, pixelY, index, 1, 0), get(pixelX, pixelY, index, 1, 1));
+		final var t = get(pixelX, pixelY, index, 2, 0);
+		
+		final var additional1DSamples = new ArrayList<Double>(getAdditional1DSamples());
+		for (int i = 0; i < getAdditional1DSamples(); i++)
+			additional1DSamples.add(get(pixelX, pixelY, index, 3 + i, 0));
+		
+		final var additional2DSamples = new ArrayList<Point2D>(getAdditional2DSamples());
+		for (int i = 0; i < getAdditional2DSamples(); i++) {
+			final var slot = 3 + getAdditional1DSamples() + i;
+			additional2DSamples.add(new Point2D(get(pixelX, pixelY, index, slot, 0), get(pixelX, pixelY, index, slot, 1)));
+		}
+		
+		return new FixedSample(filmPoint, lensUV, t, additional1DSamples, additional2DSamples);
+	}
+	
+	/**
+	 * Compute a single component of a single sample-point.
+	 * 
+	 * @param pixelX
+	 * @param pixelY
+	 * @param index
+	 *            the point's index within the pixel's sequence
+	 * @param slot
+	 *            the slot (see above) this point is drawn for
+	 * @param component
+	 *            {@code 0} or {@code 1} (1D slots only ever use {@code 0})
+	 * @return a value in {@code [0,1)}
+	 */
+	protected abstract double get(int pixelX, int pixelY, long index, int slot, int component);
+	
+	@Override
+	public double getPercentComplete() {
+		
+		return ((double) samplesGenerated) / ((double) getTotalSamples());
+	}
+	
+	public int getPass() {
+		
+		return pass;
+	}
+	
+	/**
+	 * Hash the given values together into a single well-mixed seed.
+	 * 
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @return
+	 */
+	protected static int hash(int a, int b, int c) {
+		
+		return mix(mix(mix(a + 0x9E3779B9) ^ b) ^ c);
+	}
+	
+	/**
+	 * An integer finalizer, mixing every input bit into every output bit.
+	 * 
+	 * @param x
+	 * @return
+	 */
+	protected static int mix(int x) {
+		
+		x ^= x >>> 16;
+		x *= 0x7FEB352D;
+		x ^= x >>> 15;
+		x *= 0x846CA68B;
+		x ^= x >>> 16;
+		return x;
+	}
+	
+}
@@ -0,0 +1,193 @@
+package org.snowjak.rays.sampler;
+
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import java.util.Arrays;
+
+/**
+ * The order in which a {@link Sampler} visits the pixels in its domain.
+ * <p>
+ * Rays traced from neighboring pixels tend to hit the same objects, and walk
+ * the same parts of the scene's acceleration-structure. Visiting pixels in a
+ * spatially-coherent order -- rather than sweeping all the way across each
+ * scan-line in turn -- keeps that shared working-set in cache from one pixel
+ * to the next.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public enum PixelOrder {
+	/**
+	 * Left-to-right along each row, and top-to-bottom.
+	 */
+	SCANLINE("scanline"),
+	/**
+	 * Square tiles of {@link #TILE_SIZE} pixels on a side, in scan-line order,
+	 * with each tile itself visited in scan-line order.
+	 */
+	TILES("tiles"),
+	/**
+	 * Along a Morton (Z-order) curve.
+	 */
+	MORTON("morton"),
+	/**
+	 * Along a Hilbert curve. Unlike a Morton curve, a Hilbert curve never jumps:
+	 * within a square, power-of-two domain, each pixel is adjacent to the last.
+	 */
+	HILBERT("hilbert");
+	
+	/**
+	 * The size of each tile visited by {@link #TILES}.
+	 */
+	public static final int TILE_SIZE = 8;
+	
+	private final String name;
+	
+	private PixelOrder(String name) {
+		
+		this.name = name;
+	}
+	
+	public String getName() {
+		
+		return name;
+	}
+	
+	/**
+	 * Find the PixelOrder with the given name.
+	 *
+	 * @param name
+	 * @return the named PixelOrder, or {@link #SCANLINE} if {@code name} is
+	 *         {@code null} or empty
+	 * @throws IllegalArgumentException
+	 *             if no PixelOrder has the given name
+	 */
+	public static PixelOrder forName(String name) {
+		
+		if (name == null || name.trim().isEmpty())
+			return SCANLINE;
+		
+		for (PixelOrder order : values())
+			if (order.name.equalsIgnoreCase(name.trim()))
+				return order;
+		
+		throw new IllegalArgumentException("Unknown pixel-order \"" + name + "\".");
+	}
+	
+	/**
+	 * Compute the sequence in which this order visits the pixels of a
+	 * {@code width} x {@code height} domain. Each pixel is identified by its
+	 * scan-line offset (i.e., {@code y * width + x}) from the domain's top-left
+	 * corner.
+	 *
+	 * @param width
+	 * @param height
+	 * @return the sequence of pixel-offsets, or {@code null} if this order is
+	 *         simply scan-line order
+	 */
+	public int[] getSequence(int width, int height) {
+		
+		if (this == SCANLINE || width <= 0 || height <= 0)
+			return null;
+		
+		final var sequence = new int[width * height];
+		
+		if (this == TILES) {
+			
+			var i = 0;
+			for (int tileY = 0; tileY < height; tileY += TILE_SIZE)
+				for (int tileX = 0; tileX < width; tileX += TILE_SIZE)
+					for (int y = tileY; y < min(tileY + TILE_SIZE, height); y++)
+						for (int x = tileX; x < min(tileX + TILE_SIZE, width); x++)
+							sequence[i++] = y * width + x;
+			
+			return sequence;
+		}
+		
+		//
+		// For the space-filling curves, find each pixel's distance along the
+		// curve covering the smallest enclosing power-of-two square, and sort
+		// the pixels by that distance.
+		//
+		// Each key packs that distance (at most 32 bits, for domains up to 65536
+		// pixels on a side) above the pixel's offset (at most 31 bits).
+		//
+		final var side = Integer.highestOneBit(max(max(width, height) - 1, 1)) << 1;
+		final var keys = new long[width * height];
+		
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				final var offset = y * width + x;
+				final var distance = (this == MORTON) ? getMortonDistance(x, y) : getHilbertDistance(side, x, y);
+				keys[offset] = (distance << 31) | offset;
+			}
+		
+		Arrays.sort(keys);
+		
+		for (int i = 0; i < keys.length; i++)
+			sequence[i] = (int) (keys[i] & 0x7FFFFFFFL);
+		
+		return sequence;
+	}
+	
+	/**
+	 * @param x
+	 * @param y
+	 * @return the given point's distance along a Morton curve
+	 */
+	static long getMortonDistance(int x, int y) {
+		
+		return spreadBits(x) | (spreadBits(y) << 1);
+	}
+	
+	/**
+	 * Spread the low 16 bits of the given value out to every other bit.
+	 */
+	private static long spreadBits(int value) {
+		
+		long v = value & 0xFFFFL;
+		v = (v | (v << 8)) & 0x00FF00FFL;
+		v = (v | (v << 4)) & 0x0F0F0F0FL;
+		v = (v | (v << 2)) & 0x33333333L;
+		v = (v | (v << 1)) & 0x55555555L;
+		return v;
+	}
+	
+	/**
+	 * @param side
+	 *            the size of the square the Hilbert curve covers (must be a
+	 *            power of two)
+	 * @param x
+	 * @param y
+	 * @return the given point's distance along a Hilbert curve
+	 */
+	static long getHilbertDistance(int side, int x, int y) {
+		
+		long distance = 0;
+		for (int s = side / 2; s > 0; s /= 2) {
+			
+			final var rx = ((x & s) != 0) ? 1 : 0;
+			final var ry = ((y & s) != 0) ? 1 : 0;
+			distance += (long) s * (long) s * (long) ((3 * rx) ^ ry);
+			
+			//
+			// Rotate this quadrant so the curve within it has the right
+			// orientation.
+			//
+			if (ry == 0) {
+				if (rx == 1) {
+					x = side - 1 - x;
+					y = side - 1 - y;
+				}
+				
+				final var swap = x;
+				x = y;
+				y = swap;
+			}
+		}
+		
+		return distance;
+	}
+}
@@ -0,0 +1,166 @@
+package org.snowjak.rays.sampler;
+
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.util.RandomSource;
+
+/**
+ * A square grid of 2-D points, as used by the stratified {@link Sampler}s to
+ * hold one point per stratum.
+ * <p>
+ * Points are stored as primitive coordinates in a single flat array, rather
+ * than as {@link Point2D}s, so that a grid can be re-jittered and re-shuffled
+ * in place, Sample after Sample, without allocating. Cells are addressed
+ * either by row and column, or by a single index in row-major order.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+class PointGrid {
+	
+	private final int size;
+	private final double[] coordinates;
+	
+	/**
+	 * Construct a new PointGrid of {@code size * size} points, each at
+	 * {@code (0,0)}.
+	 *
+	 * @param size
+	 */
+	public PointGrid(int size) {
+		
+		this.size = size;
+		this.coordinates = new double[size * size * 2];
+	}
+	
+	/**
+	 * Construct a new PointGrid of {@code size * size} cells, filling the first
+	 * {@code samples} (in row-major order) with a point jittered randomly within
+	 * {@code ([0,blockSizeX), [0,blockSizeY))}.
+	 *
+	 * @param samples
+	 * @param size
+	 * @param blockSizeX
+	 * @param blockSizeY
+	 * @return
+	 */
+	public static PointGrid jittered(int samples, int size, double blockSizeX, double blockSizeY) {
+		
+		final var result = new PointGrid(size);
+		
+		int sampleCount = 0;
+		
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				if (sampleCount < samples) {
+					final double jitteredX = RandomSource.nextDouble() * blockSizeX,
+							jitteredY = RandomSource.nextDouble() * blockSizeY;
+					result.set(x, y, jitteredX, jitteredY);
+					sampleCount++;
+				}
+		
+		return result;
+	}
+	
+	/**
+	 * @return the number of rows (and of columns) in this grid
+	 */
+	public int getSize() {
+		
+		return size;
+	}
+	
+	/**
+	 * @return the number of cells in this grid
+	 */
+	public int getCellCount() {
+		
+		return size * size;
+	}
+	
+	public double getX(int x, int y) {
+		
+		return coordinates[(x * size + y) * 2 + 0];
+	}
+	
+	public double getY(int x, int y) {
+		
+		return coordinates[(x * size + y) * 2 + 1];
+	}
+	
+	/**
+	 * @param index
+	 *            a cell-index, in row-major order
+	 * @return
+	 */
+	public double getX(int index) {
+		
+		return coordinates[index * 2 + 0];
+	}
+	
+	/**
+	 * @param index
+	 *            a cell-index, in row-major order
+	 * @return
+	 */
+	public double getY(int index) {
+		
+		return coordinates[index * 2 + 1];
+	}
+	
+	/**
+	 * Re-jitter every cell of this grid in place, with a new point chosen
+	 * randomly within {@code ([0,blockSizeX), [0,blockSizeY))}.
+	 *
+	 * @param blockSizeX
+	 * @param blockSizeY
+	 */
+	public void jitter(double blockSizeX, double blockSizeY) {
+		
+		for (int i = 0; i < coordinates.length; i += 2) {
+			coordinates[i + 0] = RandomSource.nextDouble() * blockSizeX;
+			coordinates[i + 1] = RandomSource.nextDouble() * blockSizeY;
+		}
+	}
+	
+	public void set(int x, int y, double pointX, double pointY) {
+		
+		coordinates[(x * size + y) * 2 + 0] = pointX;
+		coordinates[(x * size + y) * 2 + 1] = pointY;
+	}
+	
+	/**
+	 * Shuffle this grid in place: first permuting its rows, and then its
+	 * columns.
+	 */
+	public void shuffle() {
+		
+		for (int i = size - 1; i > 0; i--) {
+			
+			final int j = RandomSource.nextInt(i + 1);
+			
+			for (int y = 0; y < size; y++)
+				swap(i, y, j, y);
+		}
+		
+		for (int i = size - 1; i > 0; i--) {
+			
+			final int j = RandomSource.nextInt(i + 1);
+			
+			for (int x = 0; x < size; x++)
+				swap(x, i, x, j);
+		}
+	}
+	
+	private void swap(int x1, int y1, int x2, int y2) {
+		
+		final int i1 = (x1 * size + y1) * 2, i2 = (x2 * size + y2) * 2;
+		
+		final double scratchX = coordinates[i1], scratchY = coordinates[i1 + 1];
+		coordinates[i1] = coordinates[i2];
+		coordinates[i1 + 1] = coordinates[i2 + 1];
+		coordinates[i2] = scratchX;
+		coordinates[i2 + 1] = scratchY;
+	}
+	
+}
@@ -3,12 +3,12 @@ package org.snowjak.rays.sampler;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import org.snowjak.rays.Settings;
 import org.snowjak.rays.annotations.UIField;
 import org.snowjak.rays.annotations.UIType;
 import org.snowjak.rays.geometry.Point2D;
 import org.snowjak.rays.sample.FixedSample;
 import org.snowjak.rays.sample.Sample;
+import org.snowjak.rays.util.RandomSource;
 
 /**
  * Implements a simple pseudo-random {@link Sampler}, where all sample-points
@@ -30,11 +30,12 @@ import org.snowjak.rays.sample.Sample;
 		@UIField(name = "yEnd", type = Double.class, defaultValue = "299"),
 		@UIField(name = "samplesPerPixel", type = Integer.class, defaultValue = "4"),
 		@UIField(name = "additional1DSamples", type = Integer.class, defaultValue = "4"),
-		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "4") })
+		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "pixelOrder", type = String.class, defaultValue = "scanline") })
 public class PseudorandomSampler extends Sampler {
 	
 	private transient boolean initialized = false;
-	private transient int currentPixelX, currentPixelY;
+	private transient int currentPixelIndex, currentPixelX, currentPixelY;
 	private transient int currentPixelSampleNumber;
 	
 	private transient long samplesGenerated = 0;
@@ -82,8 +83,9 @@ public class PseudorandomSampler extends Sampler {
 	 */
 	private void initialize() {
 		
-		currentPixelX = getXStart();
-		currentPixelY = getYStart();
+		currentPixelIndex = 0;
+		currentPixelX = getPixelX(currentPixelIndex);
+		currentPixelY = getPixelY(currentPixelIndex);
 		currentPixelSampleNumber = 0;
 		
 		samplesGenerated = 0;
@@ -110,14 +112,14 @@ public class PseudorandomSampler extends Sampler {
 		if (!hasNextSample())
 			return null;
 		
-		final var filmPoint = new Point2D(((double) currentPixelX) + Settings.RND.nextDouble(),
-				((double) currentPixelY) + Settings.RND.nextDouble());
-		final var lensUV = new Point2D(Settings.RND.nextDouble(), Settings.RND.nextDouble());
-		final var t = Settings.RND.nextDouble();
+		final var filmPoint = new Point2D(((double) currentPixelX) + RandomSource.nextDouble(),
+				((double) currentPixelY) + RandomSource.nextDouble());
+		final var lensUV = new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble());
+		final var t = RandomSource.nextDouble();
 		final var additional1dSamples = IntStream.range(0, getAdditional1DSamples())
-				.mapToObj(i -> Settings.RND.nextDouble()).collect(Collectors.toList());
+				.mapToObj(i -> RandomSource.nextDouble()).collect(Collectors.toList());
 		final var additional2dSamples = IntStream.range(0, getAdditional2DSamples())
-				.mapToObj(i -> new Point2D(Settings.RND.nextDouble(), Settings.RND.nextDouble()))
+				.mapToObj(i -> new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble()))
 				.collect(Collectors.toList());
 		
 		final var result = new FixedSample(filmPoint, lensUV, t, additional1dSamples, additional2dSamples);
@@ -126,11 +128,9 @@ public class PseudorandomSampler extends Sampler {
 		if (currentPixelSampleNumber >= getSamplesPerPixel()) {
 			
 			currentPixelSampleNumber = 0;
-			currentPixelX++;
-			if (currentPixelX > getXEnd()) {
-				currentPixelX = getXStart();
-				currentPixelY++;
-			}
+			currentPixelIndex++;
+			currentPixelX = getPixelX(currentPixelIndex);
+			currentPixelY = getPixelY(currentPixelIndex);
 		}
 		
 		samplesGenerated++;
@@ -147,8 +147,17 @@ public class PseudorandomSampler extends Sampler {
 	@Override
 	public Sampler partition(int xStart, int yStart, int xEnd, int yEnd) {
 		
-		return new PseudorandomSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(), getAdditional1DSamples(),
-				getAdditional2DSamples());
+		return inheritSlice(inheritPixelOrder(new PseudorandomSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(),
+				getAdditional1DSamples(), getAdditional2DSamples())));
+	}
+	
+	@Override
+	public Sampler partitionSamples(int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		return inheritSlice(new PseudorandomSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSliceSamplesPerPixel(getSamplesPerPixel(), slices), getAdditional1DSamples(),
+				getAdditional2DSamples()), slice, slices);
 	}
 	
 }
@@ -1,8 +1,14 @@
 package org.snowjak.rays.sampler;
 
+import static org.apache.commons.math3.util.FastMath.max;
+
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.renderer.Renderer;
 import org.snowjak.rays.sample.EstimatedSample;
 import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.sample.MutableSample;
 import org.snowjak.rays.sample.Sample;
+import org.snowjak.rays.util.RandomSource;
 
 /**
  * A sampler is something that generates {@link FixedSample}s.
@@ -15,6 +21,10 @@ import org.snowjak.rays.sample.Sample;
  * Note that, unless otherwise stated, Sampler implementations
  * <strong>must</strong> be considered to be <strong>thread un-safe</strong>.
  * </p>
+ * <p>
+ * Implementations should visit the pixels in their domain in the configured
+ * {@link PixelOrder} (see {@link #getPixelX(int)} and {@link #getPixelY(int)}).
+ * </p>
  * 
  * @author snowjak88
  *
@@ -26,8 +36,12 @@ public abstract class Sampler {
 	private int samplesPerPixel;
 	private int additional1DSamples;
 	private int additional2DSamples;
+	private String pixelOrder;
+	private Integer slice, slices;
 	
 	private transient long totalSamples;
+	private transient int[] pixelSequence;
+	private transient boolean pixelSequenceComputed = false;
 	
 	public Sampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel, int additional1DSamples,
 			int additional2DSamples) {
@@ -55,6 +69,29 @@ public abstract class Sampler {
 	 */
 	public abstract Sample getNextSample();
 	
+	/**
+	 * Generate the next {@link Sample} from this sampler's domain, or
+	 * <code>null</code> if no more Samples remain -- filling in and returning the
+	 * given {@link MutableSample}, if this sampler supports doing so, rather than
+	 * allocating a new Sample.
+	 * <p>
+	 * Callers using this method must be finished with the returned Sample
+	 * (including any {@link EstimatedSample} wrapping it) before they request the
+	 * next one.
+	 * </p>
+	 * <p>
+	 * This trivial implementation ignores {@code sample} and simply delegates to
+	 * {@link #getNextSample()}.
+	 * </p>
+	 * 
+	 * @param sample
+	 * @return
+	 */
+	public Sample getNextSample(MutableSample sample) {
+		
+		return getNextSample();
+	}
+	
 	/**
 	 * After computing an {@link EstimatedSample}, report that estimate back. This
 	 * sampler will return <code>true</code> if the computed estimate is acceptable.
@@ -73,6 +110,22 @@ public abstract class Sampler {
 		return true;
 	}
 	
+	/**
+	 * Called by the {@link Renderer} immediately before it begins taking
+	 * {@link Sample}s from this sampler, with the {@link Film} which will receive
+	 * them. (Advanced implementations may, e.g., consult that Film's
+	 * {@link Film#getStatistics() statistics}.)
+	 * <p>
+	 * This trivial implementation does nothing.
+	 * </p>
+	 * 
+	 * @param film
+	 */
+	public void beforeRender(Film film) {
+		
+		// By default, do nothing.
+	}
+	
 	public int getXStart() {
 		
 		return xStart;
@@ -108,6 +161,120 @@ public abstract class Sampler {
 		return additional2DSamples;
 	}
 	
+	/**
+	 * @return the order in which this Sampler visits the pixels in its domain
+	 */
+	public PixelOrder getPixelOrder() {
+		
+		return PixelOrder.forName(pixelOrder);
+	}
+	
+	/**
+	 * Set the order in which this Sampler visits the pixels in its domain. This
+	 * should be called before any {@link Sample}s are generated.
+	 * 
+	 * @param pixelOrder
+	 */
+	public void setPixelOrder(PixelOrder pixelOrder) {
+		
+		this.pixelOrder = (pixelOrder == null) ? null : pixelOrder.getName();
+		this.pixelSequence = null;
+		this.pixelSequenceComputed = false;
+	}
+	
+	/**
+	 * Copy this Sampler's {@link PixelOrder} to the given Sampler (e.g., a
+	 * {@link #partition(int, int, int, int) partition} of this one).
+	 * 
+	 * @param sampler
+	 * @return the given Sampler
+	 */
+	protected <T extends Sampler> T inheritPixelOrder(T sampler) {
+		
+		if (pixelOrder != null)
+			sampler.setPixelOrder(getPixelOrder());
+		
+		return sampler;
+	}
+	
+	/**
+	 * @return which of its {@link #getSliceCount() sample-slices} this Sampler
+	 *         generates (or {@code 0} if it has never been
+	 *         {@link #partitionSamples(int, int) sliced})
+	 */
+	public int getSlice() {
+		
+		return (slice == null) ? 0 : slice;
+	}
+	
+	/**
+	 * @return how many sample-slices this Sampler's original Sampler was
+	 *         {@link #partitionSamples(int, int) sliced} into (or {@code 1} if
+	 *         it has never been sliced)
+	 */
+	public int getSliceCount() {
+		
+		return (slices == null) ? 1 : slices;
+	}
+	
+	/**
+	 * @return {@code true} if this Sampler generates only a
+	 *         {@link #partitionSamples(int, int) slice} of some other Sampler's
+	 *         samples
+	 */
+	public boolean isSliced() {
+		
+		return getSliceCount() > 1;
+	}
+	
+	/**
+	 * @return the number of pixels in this Sampler's domain
+	 */
+	protected int getPixelCount() {
+		
+		return (getXEnd() - getXStart() + 1) * (getYEnd() - getYStart() + 1);
+	}
+	
+	/**
+	 * @param index
+	 *            a pixel's (0-based) position in this Sampler's
+	 *            {@link #getPixelOrder() pixel-order}
+	 * @return the X-coordinate of the pixel at that position, or
+	 *         {@link #getXStart()} if {@code index} is past the last pixel
+	 */
+	protected int getPixelX(int index) {
+		
+		if (index >= getPixelCount())
+			return getXStart();
+		
+		return getXStart() + (getPixelOffset(index) % (getXEnd() - getXStart() + 1));
+	}
+	
+	/**
+	 * @param index
+	 *            a pixel's (0-based) position in this Sampler's
+	 *            {@link #getPixelOrder() pixel-order}
+	 * @return the Y-coordinate of the pixel at that position, or
+	 *         {@code getYEnd() + 1} if {@code index} is past the last pixel
+	 */
+	protected int getPixelY(int index) {
+		
+		if (index >= getPixelCount())
+			return getYEnd() + 1;
+		
+		return getYStart() + (getPixelOffset(index) / (getXEnd() - getXStart() + 1));
+	}
+	
+	private int getPixelOffset(int index) {
+		
+		if (!pixelSequenceComputed) {
+			pixelSequence = getPixelOrder().getSequence(getXEnd() - getXStart() + 1, getYEnd() - getYStart() + 1);
+			pixelSequenceComputed = true;
+		}
+		
+		return (pixelSequence == null) ? index : pixelSequence[index];
+	}
+	
 	/**
 	 * @return the total number of samples in this Sampler's domain
 	 */
@@ -142,4 +309,109 @@ public abstract class Sampler {
 	 * @return
 	 */
 	public abstract Sampler partition(int xStart, int yStart, int xEnd, int yEnd);
+	
+	/**
+	 * Construct a new Sampler covering this Sampler's entire sampling-space
+	 * again, to be used for the given (0-based) pass of a progressive render.
+	 * <p>
+	 * By default, this is simply a {@link #partition(int, int, int, int)
+	 * partition} over this Sampler's own domain. Samplers whose points are
+	 * deterministic should override this, so that successive passes don't merely
+	 * repeat one another.
+	 * </p>
+	 * 
+	 * @param pass
+	 * @return
+	 */
+	public Sampler getPassSampler(int pass) {
+		
+		return partition(getXStart(), getYStart(), getXEnd(), getYEnd());
+	}
+	
+	/**
+	 * Construct a new Sampler covering this Sampler's entire pixel-domain, but
+	 * generating only the given (0-based) slice of each pixel's samples -- e.g.,
+	 * slice 1 of 2 of a 128spp Sampler generates each pixel's samples 64-127.
+	 * <p>
+	 * Each slice takes {@code ceil(samplesPerPixel / slices)} samples per pixel.
+	 * A slice's samples are disjoint from its siblings': low-discrepancy
+	 * Samplers continue each pixel's sequence from where the previous slice
+	 * left off, while random Samplers draw from a different
+	 * {@link RandomSource} stream (see {@link #getSlice()}). The slices' films
+	 * can therefore be {@link Film#mergeAccumulator(byte[]) merged} into an
+	 * image just as good as this Sampler's would have been.
+	 * </p>
+	 * <p>
+	 * A slice can itself be sliced again.
+	 * </p>
+	 * 
+	 * @param slice
+	 * @param slices
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if {@code slice} is not in {@code [0, slices)}
+	 */
+	public abstract Sampler partitionSamples(int slice, int slices);
+	
+	/**
+	 * @param samplesPerPixel
+	 * @param slices
+	 * @return how many samples-per-pixel each of {@code slices} slices of
+	 *         {@code samplesPerPixel} should take
+	 * @see #partitionSamples(int, int)
+	 */
+	protected static int getSliceSamplesPerPixel(int samplesPerPixel, int slices) {
+		
+		return max((samplesPerPixel + slices - 1) / slices, 1);
+	}
+	
+	/**
+	 * Copy this Sampler's {@link #getSlice() sample-slice} to the given Sampler
+	 * (e.g., a {@link #partition(int, int, int, int) partition} of this one,
+	 * which should generate the same slice of its pixels' samples).
+	 * 
+	 * @param sampler
+	 * @return the given Sampler
+	 */
+	protected <T extends Sampler> T inheritSlice(T sampler) {
+		
+		((Sampler) sampler).slice = slice;
+		((Sampler) sampler).slices = slices;
+		
+		return sampler;
+	}
+	
+	/**
+	 * Set up the given Sampler (constructed over this Sampler's domain, with
+	 * {@link #getSliceSamplesPerPixel(int, int) fewer samples per pixel}) as the
+	 * given slice of this Sampler.
+	 * 
+	 * @param sampler
+	 * @param slice
+	 * @param slices
+	 * @return the given Sampler
+	 * @see #partitionSamples(int, int)
+	 */
+	protected <T extends Sampler> T inheritSlice(T sampler, int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		
+		inheritPixelOrder(sampler);
+		((Sampler) sampler).slice = getSlice() * slices + slice;
+		((Sampler) sampler).slices = getSliceCount() * slices;
+		
+		return sampler;
+	}
+	
+	/**
+	 * @param slice
+	 * @param slices
+	 * @throws IllegalArgumentException
+	 *             if {@code slice} is not in {@code [0, slices)}
+	 */
+	protected static void checkSlice(int slice, int slices) {
+		
+		if (slices < 1 || slice < 0 || slice >= slices)
+			throw new IllegalArgumentException("Cannot take sample-slice " + slice + " of " + slices + ".");
+	}
 }
@@ -0,0 +1,184 @@
+package org.snowjak.rays.sampler;
+
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+
+/**
+ * Implements an Owen-scrambled Sobol' {@link Sampler}.
+ * <p>
+ * Each slot (see {@link LowDiscrepancySampler}) is drawn from the first two
+ * dimensions of the Sobol' sequence -- which together form a (0,2)-sequence,
+ * so that every power-of-2 prefix of a pixel's points is perfectly stratified
+ * in 2D. Following Burley's "Practical Hash-based Owen Scrambling" (2020), each
+ * slot of each pixel receives its own scrambling seed, with which:
+ * <ul>
+ * <li>the point's index is shuffled (by a nested uniform scramble), to
+ * decorrelate slots from one another, and</li>
+ * <li>each component is Owen-scrambled, which preserves the sequence's
+ * stratification while removing its structured artifacts.</li>
+ * </ul>
+ * For best results, use a power-of-2 number of samples per pixel.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+@UIType(type = "sobol", fields = { @UIField(name = "xStart", type = Double.class, defaultValue = "0"),
+		@UIField(name = "yStart", type = Double.class, defaultValue = "0"),
+		@UIField(name = "xEnd", type = Double.class, defaultValue = "399"),
+		@UIField(name = "yEnd", type = Double.class, defaultValue = "299"),
+		@UIField(name = "samplesPerPixel", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "additional1DSamples", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "4"),
+		@UIField(name = "pixelOrder", type = String.class, defaultValue = "scanline") })
+public class SobolSampler extends LowDiscrepancySampler {
+	
+	private static final int[] DIRECTIONS = new int[32];
+	static {
+		//
+		// The 2nd Sobol' dimension's direction-numbers (from the primitive
+		// polynomial x + 1) are the rows of Pascal's triangle, mod 2.
+		//
+		var v = 1 << 31;
+		for (int i = 0; i < DIRECTIONS.length; i++) {
+			DIRECTIONS[i] = v;
+			v ^= v >>> 1;
+		}
+	}
+	
+	/**
+	 * Construct a new {@link SobolSampler} across the given interval
+	 * [<code>(xStart,yStart)</code>, <code>(xEnd,yEnd)</code>], with no additional
+	 * points requested.
+	 * 
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param samplesPerPixel
+	 */
+	public SobolSampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel) {
+		
+		this(xStart, yStart, xEnd, yEnd, samplesPerPixel, 0, 0);
+	}
+	
+	/**
+	 * Construct a new {@link SobolSampler} across the given interval
+	 * [<code>(xStart,yStart)</code>, <code>(xEnd,yEnd)</code>].
+	 * 
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param samplesPerPixel
+	 * @param additional1dSamples
+	 * @param additional2dSamples
+	 */
+	public SobolSampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel, int additional1dSamples,
+			int additional2dSamples) {
+		
+		this(xStart, yStart, xEnd, yEnd, samplesPerPixel, additional1dSamples, additional2dSamples, 0);
+	}
+	
+	/**
+	 * Construct a new {@link SobolSampler} across the given interval
+	 * [<code>(xStart,yStart)</code>, <code>(xEnd,yEnd)</code>], generating the
+	 * given pass.
+	 * 
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param samplesPerPixel
+	 * @param additional1dSamples
+	 * @param additional2dSamples
+	 * @param pass
+	 */
+	public SobolSampler(int xStart, int yStart, int xEnd, int yEnd, int samplesPerPixel, int additional1dSamples,
+			int additional2dSamples, int pass) {
+		
+		super(xStart, yStart, xEnd, yEnd, samplesPerPixel, additional1dSamples, additional2dSamples, pass);
+	}
+	
+	@Override
+	protected double get(int pixelX, int pixelY, long index, int slot, int component) {
+		
+		final var seed = hash(pixelX, pixelY, slot);
+		
+		final var shuffled = nestedUniformScramble((int) index, seed);
+		final var value = (component == 0) ? Integer.reverse(shuffled) : sobol1(shuffled);
+		
+		return toUnit(nestedUniformScramble(value, mix(seed ^ (component + 1))));
+	}
+	
+	/**
+	 * @param index
+	 * @return the given point of the 2nd Sobol' dimension, as a 32-bit fraction
+	 */
+	private static int sobol1(int index) {
+		
+		var result = 0;
+		for (int bit = 0; index != 0; index >>>= 1, bit++)
+			if ((index & 1) != 0)
+				result ^= DIRECTIONS[bit];
+		
+		return result;
+	}
+	
+	/**
+	 * Owen-scramble the given 32-bit fraction -- i.e., randomly flip each bit,
+	 * depending on the bits above it.
+	 * 
+	 * @param x
+	 * @param seed
+	 * @return
+	 */
+	private static int nestedUniformScramble(int x, int seed) {
+		
+		return Integer.reverse(laineKarrasPermutation(Integer.reverse(x), seed));
+	}
+	
+	/**
+	 * Burley's improvement of the Laine-Karras hash, in which each bit is
+	 * affected only by the bits below it.
+	 */
+	private static int laineKarrasPermutation(int x, int seed) {
+		
+		x ^= x * 0x3D20ADEA;
+		x += seed;
+		x *= (seed >>> 16) | 1;
+		x ^= x * 0x05526C56;
+		x ^= x * 0x53A22864;
+		return x;
+	}
+	
+	private static double toUnit(int x) {
+		
+		return (double) Integer.toUnsignedLong(x) * 0x1p-32;
+	}
+	
+	@Override
+	public Sampler partition(int xStart, int yStart, int xEnd, int yEnd) {
+		
+		return inheritSlice(inheritPixelOrder(new SobolSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(),
+				getAdditional1DSamples(), getAdditional2DSamples(), getPass())));
+	}
+	
+	@Override
+	public Sampler getPassSampler(int pass) {
+		
+		return inheritSlice(inheritPixelOrder(new SobolSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSamplesPerPixel(), getAdditional1DSamples(), getAdditional2DSamples(),
+				getPass() + pass * getSliceCount())));
+	}
+	
+	@Override
+	public Sampler partitionSamples(int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		return inheritSlice(new SobolSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSliceSamplesPerPixel(getSamplesPerPixel(), slices), getAdditional1DSamples(),
+				getAdditional2DSamples(), getPass() * slices + slice), slice, slices);
+	}
+	
+}
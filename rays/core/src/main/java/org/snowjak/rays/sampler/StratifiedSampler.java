@@ -8,14 +8,12 @@ import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import java.util.Iterator;
 import java.util.PrimitiveIterator;
-import java.util.function.Supplier;
 
-import org.snowjak.rays.Settings;
 import org.snowjak.rays.annotations.UIField;
 import org.snowjak.rays.annotations.UIType;
-import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.MutableSample;
 import org.snowjak.rays.sample.Sample;
-import org.snowjak.rays.sample.SuppliedSample;
+import org.snowjak.rays.util.RandomSource;
 
 /**
  * Implements a stratified {@link Sampler}.
@@ -25,6 +23,18 @@ import org.snowjak.rays.sample.SuppliedSample;
  * sample point for each block. This helps ensure that the picked samples are
  * relatively well-distributed.
  * </p>
+ * <p>
+ * Each Sample receives {@link #getAdditional1DSamples()} additional 1D points
+ * and {@link #getAdditional2DSamples()} additional 2D points, drawn in turn from
+ * their own stratified sets. Each set is re-jittered and re-shuffled whenever
+ * it runs out. All sets are kept as primitives (see {@link PointGrid}), and so
+ * are refilled without allocating.
+ * </p>
+ * <p>
+ * A Sample that runs out of additional points is given more from those same
+ * sets (see {@link MutableSample.Refill}), so that each Sample draws from an
+ * endless stratified stream.
+ * </p>
  * 
  * @author snowjak88
  *
@@ -35,24 +45,24 @@ import org.snowjak.rays.sample.SuppliedSample;
 		@UIField(name = "yEnd", type = Double.class, defaultValue = "299"),
 		@UIField(name = "samplesPerPixel", type = Integer.class, defaultValue = "4"),
 		@UIField(name = "additional1DSamples", type = Integer.class, defaultValue = "9"),
-		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "9") })
+		@UIField(name = "additional2DSamples", type = Integer.class, defaultValue = "9"),
+		@UIField(name = "pixelOrder", type = String.class, defaultValue = "scanline") })
 public class StratifiedSampler extends Sampler {
 	
 	private transient boolean initialized = false;
-	private transient int currentPixelX, currentPixelY;
+	private transient int currentPixelIndex, currentPixelX, currentPixelY;
 	private transient int currentPixelSampleNumber;
 	
 	private transient double blockSize1D, blockSize2D, additionalSize1D, additionalSize2D;
-	private transient Point2D[][] film, lens, add2dJitter, add2d;
+	private transient PointGrid film, lens, add2dJitter, add2d;
 	private transient double[] t, add1dJitter, add1d;
 	
 	private transient long samplesGenerated = 0;
 	
-	private transient Supplier<Double> additional1DSupplier;
-	private transient Supplier<Point2D> additional2DSupplier;
-	
 	private transient DoubleArrayIterator additional1DIterator;
-	private transient Array2DIterator<Point2D> additional2DIterator;
+	private transient int additional2DIndex;
+	
+	private transient MutableSample.Refill refill;
 	
 	/**
 	 * 
@@ -89,8 +99,9 @@ public class StratifiedSampler extends Sampler {
 	 */
 	private void initialize() {
 		
-		currentPixelX = getXStart();
-		currentPixelY = getYStart();
+		currentPixelIndex = 0;
+		currentPixelX = getPixelX(currentPixelIndex);
+		currentPixelY = getPixelY(currentPixelIndex);
 		currentPixelSampleNumber = 0;
 		
 		samplesGenerated = 0;
@@ -105,61 +116,81 @@ public class StratifiedSampler extends Sampler {
 		additionalSize1D = 1d / (double) additionalBlockCount1D;
 		additionalSize2D = 1d / (double) additionalBlockCount2D;
 		
-		film = generate2D(blockCount2D * blockCount2D, blockCount2D, blockSize2D, blockSize2D);
+		film = PointGrid.jittered(blockCount2D * blockCount2D, blockCount2D, blockSize2D, blockSize2D);
 		t = generate1D(blockCount1D, blockCount1D, blockSize1D);
-		lens = generate2D(blockCount2D * blockCount2D, blockCount2D, blockSize2D, blockSize2D);
+		lens = PointGrid.jittered(blockCount2D * blockCount2D, blockCount2D, blockSize2D, blockSize2D);
 		
 		add1dJitter = generate1D(additionalBlockCount1D, additionalBlockCount1D, additionalSize1D);
-		add2dJitter = generate2D(additionalBlockCount2D * additionalBlockCount2D, additionalBlockCount2D,
+		add2dJitter = PointGrid.jittered(additionalBlockCount2D * additionalBlockCount2D, additionalBlockCount2D,
 				additionalSize2D, additionalSize2D);
 		
-		shuffle2D(film);
+		film.shuffle();
 		shuffle1D(t);
-		shuffle2D(lens);
+		lens.shuffle();
 		shuffle1D(add1dJitter);
-		shuffle2D(add2dJitter);
+		add2dJitter.shuffle();
 		
 		add1d = new double[add1dJitter.length];
-		add2d = new Point2D[add2dJitter.length][add2dJitter[0].length];
+		add2d = new PointGrid(add2dJitter.getSize());
 		
 		update1DFromJittered(add1d, add1dJitter, additionalSize1D);
 		update2DFromJittered(add2d, add2dJitter, additionalSize2D, additionalSize2D);
 		
 		shuffle1D(add1d);
-		shuffle2D(add2d);
+		add2d.shuffle();
 		
 		additional1DIterator = new DoubleArrayIterator(add1d);
-		additional2DIterator = new Array2DIterator<>(add2d);
-		
-		additional1DSupplier = () -> {
-			if (!additional1DIterator.hasNext())
-				synchronized (additional1DIterator) {
-					if (!additional1DIterator.hasNext()) {
-						shuffle1D(add1dJitter);
-						update1DFromJittered(add1d, add1dJitter, additionalSize1D);
-						shuffle1D(add1d);
-						additional1DIterator.reset();
-					}
-				}
+		additional2DIndex = 0;
+		
+		refill = new MutableSample.Refill() {
 			
-			return additional1DIterator.nextDouble();
-		};
-		additional2DSupplier = () -> {
-			if (!additional2DIterator.hasNext())
-				synchronized (additional2DIterator) {
-					if (!additional2DIterator.hasNext()) {
-						shuffle2D(add2dJitter);
-						update2DFromJittered(add2d, add2dJitter, additionalSize2D, additionalSize2D);
-						shuffle2D(add2d);
-						additional2DIterator.reset();
-					}
-				}
-			return additional2DIterator.next();
+			@Override
+			public void refill1D(MutableSample sample) {
+				
+				for (int i = 0; i < getAdditional1DSamples(); i++)
+					sample.addAdditional1DSample(nextAdditional1D());
+			}
+			
+			@Override
+			public void refill2D(MutableSample sample) {
+				
+				for (int i = 0; i < getAdditional2DSamples(); i++)
+					addNextAdditional2D(sample);
+			}
 		};
 		
 		initialized = true;
 	}
 	
+	private double nextAdditional1D() {
+		
+		if (!additional1DIterator.hasNext()) {
+			for (int i = 0; i < add1dJitter.length; i++)
+				add1dJitter[i] = RandomSource.nextDouble() * additionalSize1D;
+			update1DFromJittered(add1d, add1dJitter, additionalSize1D);
+			shuffle1D(add1d);
+			additional1DIterator.reset();
+		}
+		
+		return additional1DIterator.nextDouble();
+	}
+	
+	/**
+	 * Add the next additional 2D point to the given Sample.
+	 */
+	private void addNextAdditional2D(MutableSample sample) {
+		
+		if (additional2DIndex >= add2d.getCellCount()) {
+			add2dJitter.jitter(additionalSize2D, additionalSize2D);
+			update2DFromJittered(add2d, add2dJitter, additionalSize2D, additionalSize2D);
+			add2d.shuffle();
+			additional2DIndex = 0;
+		}
+		
+		sample.addAdditional2DSample(add2d.getX(additional2DIndex), add2d.getY(additional2DIndex));
+		additional2DIndex++;
+	}
+	
 	private void update1DFromJittered(double[] result, double[] jitter, double blockSize) {
 		
 		assert (result.length == jitter.length);
@@ -171,18 +202,17 @@ public class StratifiedSampler extends Sampler {
 		}
 	}
 	
-	private void update2DFromJittered(Point2D[][] result, Point2D[][] jitter, double blockSizeX, double blockSizeY) {
+	private void update2DFromJittered(PointGrid result, PointGrid jitter, double blockSizeX, double blockSizeY) {
 		
-		assert (result.length == jitter.length);
+		assert (result.getSize() == jitter.getSize());
 		
-		for (int i = 0; i < jitter.length; i++) {
+		for (int i = 0; i < jitter.getSize(); i++) {
 			double si = (double) i * blockSizeX;
 			
-			for (int j = 0; j < jitter[i].length; j++) {
+			for (int j = 0; j < jitter.getSize(); j++) {
 				double sj = (double) j * blockSizeY;
 				
-				final var jit = jitter[i][j];
-				result[i][j] = new Point2D(si + jit.getX(), sj + jit.getY());
+				result.set(i, j, si + jitter.getX(i, j), sj + jitter.getY(i, j));
 			}
 		}
 	}
@@ -195,7 +225,7 @@ public class StratifiedSampler extends Sampler {
 		
 		for (int i = 0; i < result.length; i++)
 			if (sampleCount < samples) {
-				final double jittered = Settings.RND.nextDouble() * blockSize;
+				final double jittered = RandomSource.nextDouble() * blockSize;
 				result[i] = jittered;
 				sampleCount++;
 			}
@@ -203,24 +233,6 @@ public class StratifiedSampler extends Sampler {
 		return result;
 	}
 	
-	private Point2D[][] generate2D(int samples, int blockCount2D, double blockSizeX, double blockSizeY) {
-		
-		final Point2D[][] result = new Point2D[blockCount2D][blockCount2D];
-		
-		int sampleCount = 0;
-		
-		for (int x = 0; x < result.length; x++)
-			for (int y = 0; y < result[x].length; y++)
-				if (sampleCount < samples) {
-					final double jitteredX = Settings.RND.nextDouble() * blockSizeX,
-							jitteredY = Settings.RND.nextDouble() * blockSizeY;
-					result[x][y] = new Point2D(jitteredX, jitteredY);
-					sampleCount++;
-				}
-			
-		return result;
-	}
-	
 	@Override
 	public boolean hasNextSample() {
 		
@@ -233,44 +245,47 @@ public class StratifiedSampler extends Sampler {
 	@Override
 	public Sample getNextSample() {
 		
+		return getNextSample(new MutableSample());
+	}
+	
+	@Override
+	public Sample getNextSample(MutableSample sample) {
+		
 		if (!initialized)
 			initialize();
 		
 		if (!hasNextSample())
 			return null;
 		
-		final int index1D = currentPixelSampleNumber, index2Dx = currentPixelSampleNumber / film.length,
-				index2Dy = currentPixelSampleNumber % film.length;
+		final int index1D = currentPixelSampleNumber, index2Dx = currentPixelSampleNumber / film.getSize(),
+				index2Dy = currentPixelSampleNumber % film.getSize();
 		
-		final Point2D filmPoint = new Point2D(
-				currentPixelX + film[index2Dx][index2Dy].getX() + (double) index2Dx * blockSize2D,
-				currentPixelY + film[index2Dx][index2Dy].getY() + (double) index2Dy * blockSize2D);
-		final Point2D lensUV = new Point2D(lens[index2Dx][index2Dy].getX() + (double) index2Dx * blockSize2D,
-				lens[index2Dx][index2Dy].getY() + (double) index2Dy * blockSize2D);
-		final double tPoint = t[index1D];
+		sample.set(currentPixelX + film.getX(index2Dx, index2Dy) + (double) index2Dx * blockSize2D,
+				currentPixelY + film.getY(index2Dx, index2Dy) + (double) index2Dy * blockSize2D,
+				lens.getX(index2Dx, index2Dy) + (double) index2Dx * blockSize2D,
+				lens.getY(index2Dx, index2Dy) + (double) index2Dy * blockSize2D, t[index1D]);
+		
+		refill.refill1D(sample);
+		refill.refill2D(sample);
+		sample.setRefill(refill);
 		
-		final Sample result = new SuppliedSample(filmPoint, lensUV, tPoint, additional1DSupplier, additional2DSupplier);
 		samplesGenerated++;
 		
 		currentPixelSampleNumber++;
 		
 		if (currentPixelSampleNumber >= getSamplesPerPixel()) {
 			
-			shuffle2D(film);
-			shuffle2D(lens);
+			film.shuffle();
+			lens.shuffle();
 			shuffle1D(t);
 			
 			currentPixelSampleNumber = 0;
-			currentPixelX++;
-			
-			if (currentPixelX > getXEnd()) {
-				
-				currentPixelX = getXStart();
-				currentPixelY++;
-			}
+			currentPixelIndex++;
+			currentPixelX = getPixelX(currentPixelIndex);
+			currentPixelY = getPixelY(currentPixelIndex);
 		}
 		
-		return result;
+		return sample;
 	}
 	
 	private void shuffle1D(double[] array) {
@@ -280,7 +295,7 @@ public class StratifiedSampler extends Sampler {
 				
 				int j = i;
 				while (j == i)
-					j = Settings.RND.nextInt(array.length);
+					j = RandomSource.nextInt(array.length);
 				
 				final double scratch = array[i];
 				array[i] = array[j];
@@ -288,37 +303,6 @@ public class StratifiedSampler extends Sampler {
 			}
 	}
 	
-	private void shuffle2D(Point2D[][] array) {
-		
-		if (array.length >= 2)
-			for (int i = 0; i < array.length; i++) {
-				
-				int j = i;
-				while (j == i)
-					j = Settings.RND.nextInt(array.length);
-				
-				for (int y = 0; y < array[i].length; y++) {
-					final Point2D scratch = array[i][y];
-					array[i][y] = array[j][y];
-					array[j][y] = scratch;
-				}
-			}
-		
-		if (array[0].length >= 2)
-			for (int i = 0; i < array[0].length; i++) {
-				
-				int j = i;
-				while (j == i)
-					j = Settings.RND.nextInt(array[0].length);
-				
-				for (int x = 0; x < array.length; x++) {
-					final Point2D scratch = array[x][i];
-					array[x][i] = array[x][j];
-					array[x][j] = scratch;
-				}
-			}
-	}
-	
 	@Override
 	public double getPercentComplete() {
 		
@@ -328,8 +312,17 @@ public class StratifiedSampler extends Sampler {
 	@Override
 	public Sampler partition(int xStart, int yStart, int xEnd, int yEnd) {
 		
-		return new StratifiedSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(), getAdditional1DSamples(),
-				getAdditional2DSamples());
+		return inheritSlice(inheritPixelOrder(new StratifiedSampler(xStart, yStart, xEnd, yEnd, getSamplesPerPixel(),
+				getAdditional1DSamples(), getAdditional2DSamples())));
+	}
+	
+	@Override
+	public Sampler partitionSamples(int slice, int slices) {
+		
+		checkSlice(slice, slices);
+		return inheritSlice(new StratifiedSampler(getXStart(), getYStart(), getXEnd(), getYEnd(),
+				getSliceSamplesPerPixel(getSamplesPerPixel(), slices), getAdditional1DSamples(),
+				getAdditional2DSamples()), slice, slices);
 	}
 	
 	public static class DoubleArrayIterator implements PrimitiveIterator.OfDouble {
@@ -346,7 +339,7 @@ public class StratifiedSampler extends Sampler {
 		@Override
 		public boolean hasNext() {
 			
-			return i < array.length - 1;
+			return i < array.length;
 		}
 		
 		@Override
@@ -411,7 +404,7 @@ public class StratifiedSampler extends Sampler {
 		@Override
 		public boolean hasNext() {
 			
-			return i < array[i].length - 1;
+			return i < array.length;
 		}
 		
 		@Override
@@ -0,0 +1,421 @@
+package org.snowjak.rays.serialization;
+
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.snowjak.rays.RenderTask;
+import org.snowjak.rays.RenderTask.ProgressInfo;
+import org.snowjak.rays.Settings;
+import org.snowjak.rays.film.Film.Image;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * A compact, versioned binary encoding for the messages exchanged between the
+ * frontend and its workers: {@link RenderTask}s, {@link ProgressInfo}s, and
+ * {@link Image}s.
+ * <p>
+ * Every message begins with a fixed header:
+ *
+ * <pre>
+ * int    magic      (0x52415957, "RAYW")
+ * short  version
+ * byte   kind       (see {@link Kind})
+ * byte   flags      (bit 0: body is deflated)
+ * int    length     (of the body, as stored)
+ * byte[] body
+ * </pre>
+ *
+ * A deflated body is itself prefixed by its inflated length (an int). No body
+ * may be longer than 1 GiB, inflated or not.
+ * </p>
+ * <p>
+ * A RenderTask's body is its JSON, UTF-8 encoded and deflated -- its Sampler,
+ * Renderer, Film, and Camera are polymorphic, and deflated JSON is already a
+ * small fraction of its original size. Images and ProgressInfos are encoded
+ * field-by-field, with an Image's PNG and accumulator carried as raw bytes
+ * rather than Base64.
+ * </p>
+ * <p>
+ * Nodes signal which encoding a message uses with its content-type:
+ * {@link #CONTENT_TYPE} for this encoding, anything else for JSON. A node
+ * which receives a binary-encoded message can assume its sender will accept
+ * binary-encoded replies.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class WireFormat {
+	
+	/**
+	 * The content-type identifying a message in this encoding.
+	 */
+	public static final String CONTENT_TYPE = "application/x-rays-binary";
+	
+	/**
+	 * The current version of this encoding. Messages of this or any earlier
+	 * version can be decoded.
+	 */
+	public static final short VERSION = 1;
+	
+	private static final int MAGIC = 0x52415957;
+	private static final int HEADER_LENGTH = Integer.BYTES + Short.BYTES + 2 * Byte.BYTES + Integer.BYTES;
+	private static final byte FLAG_DEFLATED = 0x01;
+	private static final byte IMAGE_HAS_UUID = 0x01, IMAGE_PARTIAL = 0x02;
+	
+	//
+	// Lengths are checked before anything is allocated to fit them, so that a
+	// corrupt message can't exhaust our memory.
+	//
+	private static final int MAX_BODY_LENGTH = 1 << 30;
+	private static final int MAX_DEFLATE_RATIO = 1032;
+	
+	/**
+	 * The kinds of message this encoding can carry.
+	 */
+	public enum Kind {
+		RENDER_TASK((byte) 1), PROGRESS_INFO((byte) 2), IMAGE((byte) 3);
+		
+		private final byte id;
+		
+		private Kind(byte id) {
+			
+			this.id = id;
+		}
+		
+		public byte getId() {
+			
+			return id;
+		}
+		
+		public static Kind forId(byte id) {
+			
+			for (Kind kind : values())
+				if (kind.id == id)
+					return kind;
+			
+			throw new IllegalArgumentException("Unknown wire-format message kind (" + id + ").");
+		}
+	}
+	
+	/**
+	 * @param contentType
+	 * @return <code>true</code> if the given content-type identifies this
+	 *         encoding
+	 */
+	public static boolean isBinary(String contentType) {
+		
+		return CONTENT_TYPE.equalsIgnoreCase(contentType);
+	}
+	
+	/**
+	 * Encode a {@link RenderTask}. Its body is always deflated.
+	 *
+	 * @param task
+	 * @return
+	 */
+	public static byte[] encode(RenderTask task) {
+		
+		final var json = Settings.getInstance().getGson().toJson(task).getBytes(StandardCharsets.UTF_8);
+		return frame(Kind.RENDER_TASK, json, true);
+	}
+	
+	/**
+	 * Encode a {@link ProgressInfo}. Its body is never deflated.
+	 *
+	 * @param progress
+	 * @return
+	 */
+	public static byte[] encode(ProgressInfo progress) {
+		
+		final var body = ByteBuffer.allocate(2 * Long.BYTES + 2 * Integer.BYTES);
+		putUUID(body, progress.getUuid());
+		body.putInt(progress.getPercent());
+		body.putInt(progress.getSamplesPerPixel());
+		
+		return frame(Kind.PROGRESS_INFO, body.array(), false);
+	}
+	
+	/**
+	 * Encode an {@link Image}. Its body is deflated only if it carries an
+	 * accumulator (its PNG is already compressed).
+	 *
+	 * @param image
+	 * @return
+	 */
+	public static byte[] encode(Image image) {
+		
+		return encode(image, image.getAccumulator() != null);
+	}
+	
+	/**
+	 * Encode an {@link Image}, deflating its body if so requested.
+	 *
+	 * @param image
+	 * @param deflate
+	 * @return
+	 */
+	public static byte[] encode(Image image, boolean deflate) {
+		
+		final var png = image.getPngBytes();
+		final var accumulator = image.getAccumulator();
+		
+		final var body = ByteBuffer.allocate(Byte.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES + png.length
+				+ ((accumulator == null) ? 0 : accumulator.length));
+		
+		byte imageFlags = (image.getUuid() == null) ? 0 : IMAGE_HAS_UUID;
+		if (image.isPartial())
+			imageFlags |= IMAGE_PARTIAL;
+		
+		body.put(imageFlags);
+		putUUID(body, image.getUuid());
+		
+		body.putInt(png.length);
+		body.put(png);
+		
+		body.putInt((accumulator == null) ? -1 : accumulator.length);
+		if (accumulator != null)
+			body.put(accumulator);
+		
+		return frame(Kind.IMAGE, body.array(), deflate);
+	}
+	
+	/**
+	 * @param message
+	 * @return the {@link Kind} of the given encoded message
+	 * @throws IllegalArgumentException
+	 *             if the given data is not an encoded message (or is of an
+	 *             unsupported version)
+	 */
+	public static Kind getKind(byte[] message) {
+		
+		return Kind.forId(checkHeader(ByteBuffer.wrap(message), message.length).get(6));
+	}
+	
+	/**
+	 * Decode a {@link RenderTask}.
+	 *
+	 * @param message
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given data is not an encoded RenderTask
+	 * @throws JsonParseException
+	 *             if the encoded RenderTask cannot be parsed
+	 */
+	public static RenderTask decodeRenderTask(byte[] message) throws JsonParseException {
+		
+		final var body = unframe(message, Kind.RENDER_TASK);
+		return Settings.getInstance().getGson().fromJson(
+				new String(body.array(), body.position(), body.remaining(), StandardCharsets.UTF_8), RenderTask.class);
+	}
+	
+	/**
+	 * Decode a {@link ProgressInfo}.
+	 *
+	 * @param message
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given data is not an encoded ProgressInfo
+	 */
+	public static ProgressInfo decodeProgressInfo(byte[] message) {
+		
+		final var body = require(unframe(message, Kind.PROGRESS_INFO), 2 * Long.BYTES + 2 * Integer.BYTES);
+		
+		final var uuid = getUUID(body);
+		final var percent = body.getInt();
+		final var samplesPerPixel = body.getInt();
+		
+		return new ProgressInfo(uuid, percent, samplesPerPixel);
+	}
+	
+	/**
+	 * Decode an {@link Image}.
+	 *
+	 * @param message
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the given data is not an encoded Image
+	 */
+	public static Image decodeImage(byte[] message) {
+		
+		final var body = require(unframe(message, Kind.IMAGE), Byte.BYTES + 2 * Long.BYTES + Integer.BYTES);
+		
+		final var imageFlags = body.get();
+		final var hasUUID = (imageFlags & IMAGE_HAS_UUID) != 0;
+		final var partial = (imageFlags & IMAGE_PARTIAL) != 0;
+		final var uuid = getUUID(body);
+		
+		final var png = getBytes(body, body.getInt());
+		
+		final var accumulatorLength = require(body, Integer.BYTES).getInt();
+		final var accumulator = (accumulatorLength < 0) ? null : getBytes(body, accumulatorLength);
+		
+		return new Image(png, (hasUUID) ? uuid : null, accumulator, partial);
+	}
+	
+	private static byte[] frame(Kind kind, byte[] body, boolean deflate) {
+		
+		final var stored = (deflate) ? deflate(body) : body;
+		
+		final var message = ByteBuffer.allocate(HEADER_LENGTH + stored.length);
+		message.putInt(MAGIC);
+		message.putShort(VERSION);
+		message.put(kind.getId());
+		message.put((deflate) ? FLAG_DEFLATED : 0);
+		message.putInt(stored.length);
+		message.put(stored);
+		
+		return message.array();
+	}
+	
+	private static ByteBuffer unframe(byte[] message, Kind expectedKind) {
+		
+		final var buffer = checkHeader(ByteBuffer.wrap(message), message.length);
+		
+		buffer.position(Integer.BYTES + Short.BYTES);
+		final var kind = Kind.forId(buffer.get());
+		if (kind != expectedKind)
+			throw new IllegalArgumentException(
+					"Wire-format message is a " + kind + ", not a " + expectedKind + " as expected.");
+		
+		final var flags = buffer.get();
+		final var length = buffer.getInt();
+		if (length < 0 || buffer.remaining() < length)
+			throw new IllegalArgumentException("Wire-format message is truncated.");
+		
+		if ((flags & FLAG_DEFLATED) == 0)
+			return ByteBuffer.wrap(message, HEADER_LENGTH, length).slice();
+		
+		return ByteBuffer.wrap(inflate(message, HEADER_LENGTH, length));
+	}
+	
+	private static ByteBuffer checkHeader(ByteBuffer buffer, int length) {
+		
+		if (length < HEADER_LENGTH || buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("Given data is not a wire-format message.");
+		
+		final var version = buffer.getShort(Integer.BYTES);
+		if (version < 1 || version > VERSION)
+			throw new IllegalArgumentException("Unsupported wire-format version (" + version + ").");
+		
+		return buffer;
+	}
+	
+	private static byte[] deflate(byte[] data) {
+		
+		final var deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			
+			final var output = new ByteArrayOutputStream(data.length / 2 + 64);
+			output.write(data.length >>> 24);
+			output.write(data.length >>> 16);
+			output.write(data.length >>> 8);
+			output.write(data.length);
+			
+			final var chunk = new byte[8192];
+			while (!deflater.finished())
+				output.write(chunk, 0, deflater.deflate(chunk));
+			
+			return output.toByteArray();
+			
+		} finally {
+			deflater.end();
+		}
+	}
+	
+	private static byte[] inflate(byte[] data, int offset, int length) {
+		
+		if (length < Integer.BYTES)
+			throw new IllegalArgumentException("Wire-format message is truncated.");
+		
+		//
+		// DEFLATE can't compress anything by more than MAX_DEFLATE_RATIO.
+		//
+		final var inflatedLength = ByteBuffer.wrap(data, offset, length).getInt();
+		if (inflatedLength < 0 || inflatedLength > MAX_BODY_LENGTH
+				|| inflatedLength > (long) length * MAX_DEFLATE_RATIO + 64)
+			throw new IllegalArgumentException("Wire-format message is corrupt.");
+		
+		final var inflater = new Inflater();
+		try {
+			inflater.setInput(data, offset + Integer.BYTES, length - Integer.BYTES);
+			
+			//
+			// Grow the result as data is actually inflated, rather than trusting the
+			// inflated length up front.
+			//
+			var result = new byte[(int) min(inflatedLength, max(4L * length, 8192L))];
+			var inflated = 0;
+			while (inflated < inflatedLength && !inflater.finished()) {
+				if (inflated == result.length)
+					result = Arrays.copyOf(result, (int) min(2L * result.length, inflatedLength));
+				
+				final var count = inflater.inflate(result, inflated, result.length - inflated);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				inflated += count;
+			}
+			
+			if (inflated != inflatedLength)
+				throw new IllegalArgumentException("Wire-format message is truncated.");
+			
+			return result;
+			
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException("Wire-format message is corrupt.", e);
+			
+		} finally {
+			inflater.end();
+		}
+	}
+	
+	/**
+	 * @param body
+	 * @param length
+	 * @return {@code body}, if it has at least {@code length} bytes remaining
+	 * @throws IllegalArgumentException
+	 *             if it does not
+	 */
+	private static ByteBuffer require(ByteBuffer body, int length) {
+		
+		if (length < 0)
+			throw new IllegalArgumentException("Wire-format message is corrupt.");
+		if (body.remaining() < length)
+			throw new IllegalArgumentException("Wire-format message is truncated.");
+		
+		return body;
+	}
+	
+	private static byte[] getBytes(ByteBuffer body, int length) {
+		
+		require(body, length);
+		
+		final var bytes = new byte[length];
+		body.get(bytes);
+		return bytes;
+	}
+	
+	private static void putUUID(ByteBuffer buffer, UUID uuid) {
+		
+		buffer.putLong((uuid == null) ? 0L : uuid.getMostSignificantBits());
+		buffer.putLong((uuid == null) ? 0L : uuid.getLeastSignificantBits());
+	}
+	
+	private static UUID getUUID(ByteBuffer buffer) {
+		
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+	
+}
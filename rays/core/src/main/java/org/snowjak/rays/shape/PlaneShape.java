@@ -107,10 +107,10 @@ public class PlaneShape extends Shape {
 	@Override
 	public SurfaceDescriptor<Shape> sampleSurfaceArea(Sample sample) {
 		
-		final Point2D samplePoint = sample.getAdditional2DSample();
-		final double x = (samplePoint.getX() - 0.5) * Double.MAX_VALUE;
+		final double[] samplePoint = sample.getAdditional2DSampleArray();
+		final double x = (samplePoint[0] - 0.5) * Double.MAX_VALUE;
 		final double y = 0d;
-		final double z = (samplePoint.getY() - 0.5) * Double.MAX_VALUE;
+		final double z = (samplePoint[1] - 0.5) * Double.MAX_VALUE;
 		
 		final Point3D surfacePoint = new Point3D(x, y, z);
 		
@@ -139,15 +139,17 @@ public class SphereShape extends Shape {
 	@Override
 	public SurfaceDescriptor<Shape> sampleSurfaceArea(Sample sample) {
 		
-		final Point2D samplePoint = sample.getAdditional2DSample();
+		final double[] samplePoint = sample.getAdditional2DSampleArray();
 		final boolean flipHemispheres = (sample.getAdditional1DSample() <= 0.5);
 		
-		final double sin2_theta = samplePoint.getX();
-		final double cos2_theta = 1d - sin2_theta;
-		final double sin_theta = sqrt(sin2_theta);
-		final double cos_theta = sqrt(cos2_theta);
+		//
+		// Choosing cos(theta) uniformly yields points uniformly distributed over
+		// the sphere's surface-area.
+		//
+		final double cos_theta = samplePoint[0];
+		final double sin_theta = sqrt(1d - cos_theta * cos_theta);
 		
-		final double orientation = samplePoint.getY() * 2d * PI;
+		final double orientation = samplePoint[1] * 2d * PI;
 		//
 		final double x = sin_theta * cos(orientation);
 		final double y = cos_theta * (flipHemispheres ? -1d : 1d);
@@ -162,7 +164,7 @@ public class SphereShape extends Shape {
 	@Override
 	public double pdf_sampleSurfaceArea(SurfaceDescriptor<?> surface) {
 		
-		return 1d / (4d * PI);
+		return 1d / (4d * PI * radius * radius);
 	}
 	
 	@Override
@@ -180,14 +182,14 @@ public class SphereShape extends Shape {
 		//
 		//
 		//
-		final Point2D samplePoint = sample.getAdditional2DSample();
+		final double[] samplePoint = sample.getAdditional2DSampleArray();
 		
-		final double sin2_theta = samplePoint.getX();
+		final double sin2_theta = samplePoint[0];
 		final double cos2_theta = 1d - sin2_theta;
 		final double sin_theta = sqrt(sin2_theta);
 		final double cos_theta = sqrt(cos2_theta);
 		
-		final double orientation = samplePoint.getY() * 2d * PI;
+		final double orientation = samplePoint[1] * 2d * PI;
 		//
 		final double x = sin_theta * cos(orientation);
 		final double y = cos_theta;
@@ -236,7 +238,7 @@ public class SphereShape extends Shape {
 	@Override
 	public Duo<Vector3D, Double> sampleSolidAngleFrom(SurfaceDescriptor<?> neighbor, Sample sample) {
 		
-		final var rnd = sample.getAdditional2DSample();
+		final var rnd = sample.getAdditional2DSampleArray();
 		
 		final var toLightV = Vector3D.from(neighbor.getPoint(), getObjectZero());
 		final var distance = toLightV.getMagnitude();
@@ -245,8 +247,8 @@ public class SphereShape extends Shape {
 		// Pick a direction within the solid-angle subtended by this sphere, expressed
 		// in polar coordinates, with
 		final var q = sqrt(1d - pow(getRadius() / distance, 2));
-		final var theta = acos(1d - rnd.getX() + rnd.getX() * q);
-		final var phi = 2d * PI * rnd.getY();
+		final var theta = acos(1d - rnd[0] + rnd[0] * q);
+		final var phi = 2d * PI * rnd[1];
 		
 		//
 		// Construct a Cartesian basis with w oriented from the neighboring point toward
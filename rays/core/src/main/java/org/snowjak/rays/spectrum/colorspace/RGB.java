@@ -158,10 +158,24 @@ public class RGB extends Colorspace<RGB, Triplet> {
 	 */
 	public static int toPacked(RGB rgb, double alpha) {
 		
+		return toPacked(rgb.getRed(), rgb.getGreen(), rgb.getBlue(), alpha);
+	}
+	
+	/**
+	 * Given RGB components, transform them to a packed ARGB quadruple.
+	 * 
+	 * @param red
+	 * @param green
+	 * @param blue
+	 * @param alpha
+	 * @return
+	 */
+	public static int toPacked(double red, double green, double blue, double alpha) {
+		
 		final double a = max(min(alpha, 1d), 0d);
-		final double r = max(min(rgb.getRed(), 1d), 0d);
-		final double g = max(min(rgb.getGreen(), 1d), 0d);
-		final double b = max(min(rgb.getBlue(), 1d), 0d);
+		final double r = max(min(red, 1d), 0d);
+		final double g = max(min(green, 1d), 0d);
+		final double b = max(min(blue, 1d), 0d);
 		
 		return ((int) (a * 255d)) << 24 | ((int) (r * 255d)) << 16 | ((int) (g * 255d)) << 8 | ((int) (b * 255d));
 		
@@ -233,7 +233,19 @@ public class RGB_Gammaless extends Colorspace<RGB_Gammaless, Triplet> {
 	 */
 	protected static RGB gammafy(RGB_Gammaless rgb) {
 		
-		return new RGB(rgb.get().apply(c -> (c <= 0.0031308d) ? (12.92d * c) : (1.055d * pow(c, 1d / 2.4d)) - 0.055d));
+		return new RGB(rgb.get().apply(RGB_Gammaless::gammafy));
+	}
+	
+	/**
+	 * Add gamma-correction to a single (linear) component, producing an sRGB
+	 * component.
+	 * 
+	 * @param c
+	 * @return
+	 */
+	public static double gammafy(double c) {
+		
+		return (c <= 0.0031308d) ? (12.92d * c) : (1.055d * pow(c, 1d / 2.4d)) - 0.055d;
 	}
 	
 	@Override
@@ -1,6 +1,5 @@
 package org.snowjak.rays.spectrum.colorspace;
 
-import static org.apache.commons.math3.util.FastMath.pow;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
@@ -194,8 +193,57 @@ public class XYZ extends Colorspace<XYZ, Triplet> {
 		
 		registry.register(XYZ.class, (xyz) -> xyz);
 		registry.register(RGB_Gammaless.class, (xyz) -> new RGB_Gammaless(__CONVERSION_TO_RGB.multiply(xyz.get(), 0d)));
-		registry.register(RGB.class, (xyz) -> new RGB(xyz.to(RGB_Gammaless.class).get()
-				.apply(c -> (c <= 0.0031308d) ? (12.92d * c) : (1.055d * pow(c, 1d / 2.4d)) - 0.055d)));
+		registry.register(RGB.class, (xyz) -> new RGB(xyz.to(RGB_Gammaless.class).get().apply(RGB_Gammaless::gammafy)));
+	}
+	
+	/**
+	 * Convert the given XYZ components directly to a packed (sRGB) ARGB
+	 * quadruple, without allocating any intermediate objects. Equivalent to
+	 * {@code RGB.toPacked(new XYZ(x, y, z).to(RGB.class), alpha)}.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param alpha
+	 * @return
+	 */
+	public static int toPackedRGB(double x, double y, double z, double alpha) {
+		
+		final var m = __CONVERSION_TO_RGB;
+		final var r = m.get(0, 0) * x + m.get(0, 1) * y + m.get(0, 2) * z;
+		final var g = m.get(1, 0) * x + m.get(1, 1) * y + m.get(1, 2) * z;
+		final var b = m.get(2, 0) * x + m.get(2, 1) * y + m.get(2, 2) * z;
+		
+		return RGB.toPacked(RGB_Gammaless.gammafy(r), RGB_Gammaless.gammafy(g), RGB_Gammaless.gammafy(b), alpha);
+	}
+	
+	/**
+	 * Convert a buffer of XYZ triplets (3 consecutive values per pixel), in
+	 * place, to linear sRGB triplets (see {@link RGB_Gammaless}), without
+	 * allocating any intermediate objects.
+	 * 
+	 * @param values
+	 * @param start
+	 *            the first triplet to convert
+	 * @param end
+	 *            the triplet after the last triplet to convert
+	 */
+	public static void toRGB_Gammaless(double[] values, int start, int end) {
+		
+		final var m = __CONVERSION_TO_RGB;
+		final double m00 = m.get(0, 0), m01 = m.get(0, 1), m02 = m.get(0, 2);
+		final double m10 = m.get(1, 0), m11 = m.get(1, 1), m12 = m.get(1, 2);
+		final double m20 = m.get(2, 0), m21 = m.get(2, 1), m22 = m.get(2, 2);
+		
+		for (int i = start * 3; i < end * 3; i += 3) {
+			final var x = values[i + 0];
+			final var y = values[i + 1];
+			final var z = values[i + 2];
+			
+			values[i + 0] = m00 * x + m01 * y + m02 * z;
+			values[i + 1] = m10 * x + m11 * y + m12 * z;
+			values[i + 2] = m20 * x + m21 * y + m22 * z;
+		}
 	}
 	
 	@Override
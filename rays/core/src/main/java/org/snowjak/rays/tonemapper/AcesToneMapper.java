@@ -0,0 +1,65 @@
+package org.snowjak.rays.tonemapper;
+
+import static org.apache.commons.math3.util.FastMath.max;
+
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+
+/**
+ * A filmic {@link ToneMapper}, approximating the ACES reference rendering
+ * transform with Narkowicz's rational curve:
+ * 
+ * <pre>
+ * f(x) = x * (2.51 x + 0.03) / ( x * (2.43 x + 0.59) + 0.14 )
+ * </pre>
+ * 
+ * applied to each channel independently. This gives a gentle toe, a long
+ * shoulder, and desaturates very bright colors toward white, much as film
+ * does.
+ * <p>
+ * Each channel is first multiplied by {@code exposureBias}. The curve's
+ * mid-tones are somewhat brighter than a linear mapping's; Narkowicz
+ * recommends a bias of about {@code 0.6} to compensate.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+@UIType(type = "aces", fields = { @UIField(name = "exposureBias", type = Double.class, defaultValue = "0.6") })
+public class AcesToneMapper implements ToneMapper {
+	
+	private static final double A = 2.51, B = 0.03, C = 2.43, D = 0.59, E = 0.14;
+	
+	private double exposureBias = 0.6;
+	
+	public AcesToneMapper() {
+		
+	}
+	
+	/**
+	 * @param exposureBias
+	 *            the factor by which each channel is multiplied before being
+	 *            mapped
+	 */
+	public AcesToneMapper(double exposureBias) {
+		
+		this.exposureBias = exposureBias;
+	}
+	
+	@Override
+	public void map(double[] rgb, int start, int end) {
+		
+		final var bias = exposureBias;
+		
+		for (int i = start * 3; i < end * 3; i++) {
+			final var x = max(rgb[i] * bias, 0d);
+			rgb[i] = (x * (A * x + B)) / (x * (C * x + D) + E);
+		}
+	}
+	
+	public double getExposureBias() {
+		
+		return exposureBias;
+	}
+	
+}
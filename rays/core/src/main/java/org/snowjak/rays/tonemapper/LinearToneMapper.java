@@ -0,0 +1,27 @@
+package org.snowjak.rays.tonemapper;
+
+import org.snowjak.rays.annotations.UIType;
+
+/**
+ * A linear {@link ToneMapper}, which leaves all luminance unchanged. Anything
+ * brighter than {@code 1} is simply clipped.
+ * <p>
+ * This reproduces the behavior of a {@link org.snowjak.rays.film.Film Film}
+ * which has no ToneMapper configured.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+@UIType(type = "linear", fields = {})
+public class LinearToneMapper implements ToneMapper {
+	
+	@Override
+	public void map(double[] rgb, int start, int end) {
+		
+		//
+		// Nothing to do!
+		//
+	}
+	
+}
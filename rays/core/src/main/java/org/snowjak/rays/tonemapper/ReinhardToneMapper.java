@@ -0,0 +1,66 @@
+package org.snowjak.rays.tonemapper;
+
+import org.snowjak.rays.annotations.UIField;
+import org.snowjak.rays.annotations.UIType;
+
+/**
+ * Reinhard's global {@link ToneMapper}.
+ * <p>
+ * Each pixel's luminance {@code L} is mapped to
+ * 
+ * <pre>
+ * L_d = L * (1 + L / L_white^2) / (1 + L)
+ * </pre>
+ * 
+ * and its color scaled accordingly, preserving its hue. {@code L_white} is the
+ * smallest luminance which is mapped to pure white. If {@code whitePoint} is
+ * {@code 0}, no luminance burns out ({@code L_d = L / (1 + L)}).
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+@UIType(type = "reinhard", fields = { @UIField(name = "whitePoint", type = Double.class, defaultValue = "0") })
+public class ReinhardToneMapper implements ToneMapper {
+	
+	private double whitePoint = 0d;
+	
+	public ReinhardToneMapper() {
+		
+	}
+	
+	/**
+	 * @param whitePoint
+	 *            the smallest luminance to map to pure white, or {@code 0} to
+	 *            never burn out
+	 */
+	public ReinhardToneMapper(double whitePoint) {
+		
+		this.whitePoint = whitePoint;
+	}
+	
+	@Override
+	public void map(double[] rgb, int start, int end) {
+		
+		final var inverseWhiteSq = (whitePoint > 0d) ? 1d / (whitePoint * whitePoint) : 0d;
+		
+		for (int i = start * 3; i < end * 3; i += 3) {
+			
+			final var luminance = 0.2126 * rgb[i + 0] + 0.7152 * rgb[i + 1] + 0.0722 * rgb[i + 2];
+			if (luminance <= 0d)
+				continue;
+			
+			final var scale = (1d + luminance * inverseWhiteSq) / (1d + luminance);
+			
+			rgb[i + 0] *= scale;
+			rgb[i + 1] *= scale;
+			rgb[i + 2] *= scale;
+		}
+	}
+	
+	public double getWhitePoint() {
+		
+		return whitePoint;
+	}
+	
+}
@@ -0,0 +1,39 @@
+package org.snowjak.rays.tonemapper;
+
+import org.snowjak.rays.film.Film;
+
+/**
+ * A ToneMapper compresses the (unbounded) luminance a {@link Film} has
+ * gathered into the displayable range {@code [0,1]}, just before it is
+ * gamma-corrected and packed into an image.
+ * <p>
+ * A ToneMapper receives linear sRGB triplets (3 consecutive values per pixel),
+ * which the Film has already scaled by its exposure. It operates on whole
+ * blocks of pixels at once, so that any constants it depends on can be
+ * computed once per block rather than once per pixel. Pixels holding
+ * {@code [0,0,0]} must be left black.
+ * </p>
+ * <p>
+ * A ToneMapper is applied only when compiling an {@link Film.Image}, and
+ * doesn't affect the Film's accumulated luminance -- so changing it does not
+ * require re-rendering.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+public interface ToneMapper {
+	
+	/**
+	 * Tone-map the given pixels, in place.
+	 * 
+	 * @param rgb
+	 *            per-pixel linear sRGB triplets
+	 * @param start
+	 *            the first pixel to tone-map
+	 * @param end
+	 *            the pixel after the last pixel to tone-map
+	 */
+	public void map(double[] rgb, int start, int end);
+	
+}
@@ -0,0 +1,132 @@
+package org.snowjak.rays.util;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Provides each thread with its own stream of pseudo-random numbers.
+ * <p>
+ * A single, shared {@link java.util.Random} must update its seed atomically on
+ * every call, which becomes a point of contention once many threads are
+ * sampling at once. Instead, each thread draws from its own
+ * {@link SplittableRandom}, which it never shares.
+ * </p>
+ * <p>
+ * By default, each thread's stream is split off from a common, randomly-seeded
+ * root, so that no two threads' streams are correlated. A thread may
+ * {@link #seed(long) re-seed} its stream -- e.g., from a render-task's UUID and
+ * tile-coordinates (see {@link #getSeed(UUID, int, int)}) -- so that the same
+ * work, re-run on the same thread, draws exactly the same numbers.
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+public class RandomSource {
+	
+	private static final SplittableRandom ROOT = new SplittableRandom();
+	
+	private static final ThreadLocal<SplittableRandom> CURRENT = ThreadLocal.withInitial(RandomSource::split);
+	
+	private RandomSource() {
+		
+	}
+	
+	private static SplittableRandom split() {
+		
+		synchronized (ROOT) {
+			return ROOT.split();
+		}
+	}
+	
+	/**
+	 * @return the current thread's stream
+	 */
+	public static SplittableRandom get() {
+		
+		return CURRENT.get();
+	}
+	
+	/**
+	 * @return the next pseudo-random value in {@code [0,1)} from the current
+	 *         thread's stream
+	 */
+	public static double nextDouble() {
+		
+		return CURRENT.get().nextDouble();
+	}
+	
+	/**
+	 * @param bound
+	 * @return the next pseudo-random value in {@code [0,bound)} from the current
+	 *         thread's stream
+	 */
+	public static int nextInt(int bound) {
+		
+		return CURRENT.get().nextInt(bound);
+	}
+	
+	/**
+	 * Replace the current thread's stream with one starting from the given
+	 * seed.
+	 * 
+	 * @param seed
+	 */
+	public static void seed(long seed) {
+		
+		CURRENT.set(new SplittableRandom(seed));
+	}
+	
+	/**
+	 * Replace the current thread's stream with a fresh, unpredictable one (as
+	 * each thread starts with).
+	 */
+	public static void unseed() {
+		
+		CURRENT.set(split());
+	}
+	
+	/**
+	 * Compute a seed for the given render-task and tile.
+	 * 
+	 * @param uuid
+	 *            the render-task's UUID (may be {@code null})
+	 * @param tileX
+	 *            the tile's starting X-coordinate
+	 * @param tileY
+	 *            the tile's starting Y-coordinate
+	 * @return
+	 */
+	public static long getSeed(UUID uuid, int tileX, int tileY) {
+		
+		var seed = 0x9E3779B97F4A7C15L;
+		if (uuid != null)
+			seed = mix(mix(seed ^ uuid.getMostSignificantBits()) ^ uuid.getLeastSignificantBits());
+		
+		return mix(seed ^ (((long) tileX << 32) | ((long) tileY & 0xFFFFFFFFL)));
+	}
+	
+	/**
+	 * Derive the seed for a single sub-stream (e.g., one of many items processed
+	 * in parallel) from a parent seed.
+	 * 
+	 * @param seed
+	 * @param index
+	 * @return
+	 */
+	public static long getSeed(long seed, long index) {
+		
+		return mix(seed + (index + 1) * 0x9E3779B97F4A7C15L);
+	}
+	
+	/**
+	 * The "Stafford variant 13" 64-bit finalizer.
+	 */
+	private static long mix(long z) {
+		
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+}
@@ -5,12 +5,14 @@ import static org.apache.commons.math3.util.FastMath.cos;
 import static org.apache.commons.math3.util.FastMath.sin;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.function.DoubleFunction;
 import java.util.function.DoubleUnaryOperator;
 import java.util.stream.DoubleStream;
 
-import org.snowjak.rays.Settings;
 import org.snowjak.rays.geometry.Normal3D;
 import org.snowjak.rays.geometry.Vector3D;
 import org.snowjak.rays.geometry.util.Triplet;
@@ -126,7 +128,7 @@ public class Util {
 			
 			int newIndex;
 			do {
-				newIndex = Settings.RND.nextInt(array.length - i) + i;
+				newIndex = RandomSource.nextInt(array.length - i) + i;
 			} while (newIndex == i);
 			
 			final Object temp = array[i];
@@ -135,11 +137,41 @@ public class Util {
 		}
 	}
 	
+	/**
+	 * Shuffle a list in-place, using the current thread's {@link RandomSource}.
+	 * 
+	 * @param list
+	 */
+	public static <T> void shuffle(List<T> list) {
+		
+		if (!(list instanceof RandomAccess)) {
+			//
+			// Shuffling a linked list in place would be quadratic.
+			//
+			final var array = new ArrayList<>(list);
+			shuffle(array);
+			
+			final var iterator = list.listIterator();
+			for (T item : array) {
+				iterator.next();
+				iterator.set(item);
+			}
+			return;
+		}
+		
+		for (int i = list.size() - 1; i > 0; i--) {
+			
+			final int newIndex = RandomSource.nextInt(i + 1);
+			list.set(i, list.set(newIndex, list.get(i)));
+		}
+	}
+	
 	/**
 	 * Sample a Vector3D in the hemisphere centered around {@code (0,0,0)} and the
 	 * given Normal3D.
 	 * <p>
-	 * This sampling is performed with a uniform PDF of {@code 1 / ( 2 * PI )}.
+	 * This sampling is cosine-weighted (as {@code sin^2(theta)} is chosen
+	 * uniformly), with a PDF of {@code cos(theta) / PI}.
 	 * </p>
 	 * 
 	 * @param normal
@@ -148,14 +180,14 @@ public class Util {
 	 */
 	public static Vector3D sampleHemisphere(Normal3D normal, Sample sample) {
 		
-		final var sphericalPoint = sample.getAdditional2DSample();
+		final var sphericalPoint = sample.getAdditional2DSampleArray();
 		
-		final var sin2_theta = sphericalPoint.getX();
+		final var sin2_theta = sphericalPoint[0];
 		final var cos2_theta = 1d - sin2_theta;
 		final var sin_theta = sqrt(sin2_theta);
 		final var cos_theta = sqrt(cos2_theta);
 		
-		final var orientation = sphericalPoint.getY() * 2d * PI;
+		final var orientation = sphericalPoint[1] * 2d * PI;
 		//
 		//
 		//
@@ -0,0 +1,70 @@
+package org.snowjak.rays.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads, where the running JVM supports them (Java 21 and
+ * later).
+ * <p>
+ * Virtual threads are cheap enough to create one per task, and block without
+ * tying up a platform thread -- ideal for work which spends most of its time
+ * waiting on I/O (e.g., sending messages, or querying a database). They are
+ * <strong>not</strong> suited to CPU-bound work like rendering, which should
+ * stay on a fixed pool of platform threads.
+ * </p>
+ * <p>
+ * This project is compiled for Java 11, and so virtual threads can only be
+ * reached reflectively. Where they're not supported, {@link #isAvailable()}
+ * returns {@code false}, and callers should fall back to platform threads.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class VirtualThreads {
+	
+	private VirtualThreads() {
+		
+	}
+	
+	/**
+	 * @return {@code true} if the running JVM can create virtual threads
+	 */
+	public static boolean isAvailable() {
+		
+		return newThreadFactory("virtual-") != null;
+	}
+	
+	/**
+	 * Create a {@link ThreadFactory} which creates virtual threads, named
+	 * {@code namePrefix0}, {@code namePrefix1}, and so on.
+	 *
+	 * @param namePrefix
+	 * @return the new ThreadFactory, or {@code null} if the running JVM can't
+	 *         create virtual threads
+	 */
+	public static ThreadFactory newThreadFactory(String namePrefix) {
+		
+		try {
+			//
+			// Thread.ofVirtual().name(namePrefix, 0).factory()
+			//
+			final var builderType = Class.forName("java.lang.Thread$Builder");
+			
+			var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+			
+		} catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+				| InvocationTargetException e) {
+			//
+			// Either virtual threads don't exist yet, or (as on Java 19 and 20) they're
+			// a preview feature which hasn't been enabled.
+			//
+			return null;
+		}
+	}
+	
+}
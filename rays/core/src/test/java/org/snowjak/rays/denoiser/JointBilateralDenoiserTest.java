@@ -0,0 +1,102 @@
+package org.snowjak.rays.denoiser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JointBilateralDenoiserTest {
+	
+	@Test
+	public void testReducesNoise() {
+		
+		final int width = 64, height = 64;
+		final var rnd = new Random(1234);
+		
+		final var luminance = new double[width * height * 3];
+		for (int i = 0; i < luminance.length; i++)
+			luminance[i] = 0.5 + (rnd.nextDouble() - 0.5) * 0.2;
+		
+		final var denoiser = new JointBilateralDenoiser(3, 2.0, 0, 0.1, 0.25, 0.1);
+		final var denoised = denoiser.denoise(width, height, luminance, new double[width * height * 3],
+				new double[width * height * 3], new double[width * height], allValid(width, height));
+		
+		assertTrue("Denoising did not reduce variance!", variance(denoised) < variance(luminance) / 4d);
+		assertEquals("Denoising shifted the mean!", 0.5, mean(denoised), 0.01);
+	}
+	
+	@Test
+	public void testPreservesAlbedoEdges() {
+		
+		final int width = 16, height = 16;
+		
+		//
+		// Left half is black, right half is white -- and the albedo-buffer says so.
+		//
+		final var luminance = new double[width * height * 3];
+		final var albedo = new double[width * height * 3];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				for (int i = 0; i < 3; i++) {
+					luminance[(x + y * width) * 3 + i] = (x < width / 2) ? 0d : 1d;
+					albedo[(x + y * width) * 3 + i] = (x < width / 2) ? 0d : 1d;
+				}
+		
+		final var denoiser = new JointBilateralDenoiser(3, 2.0, 0, 0.1, 0, 0);
+		final var denoised = denoiser.denoise(width, height, luminance, albedo, new double[width * height * 3],
+				new double[width * height], allValid(width, height));
+		
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				assertEquals("Edge not preserved at [" + x + "," + y + "]!", (x < width / 2) ? 0d : 1d,
+						denoised[(x + y * width) * 3 + 1], 0.0001);
+	}
+	
+	@Test
+	public void testIgnoresInvalidPixels() {
+		
+		final int width = 8, height = 8;
+		
+		final var luminance = new double[width * height * 3];
+		final var valid = allValid(width, height);
+		for (int i = 0; i < width * height; i++) {
+			luminance[i * 3 + 1] = (i % 2 == 0) ? 1d : 100d;
+			valid[i] = (i % 2 == 0);
+		}
+		
+		final var denoiser = new JointBilateralDenoiser(2, 2.0, 0, 0, 0, 0);
+		final var denoised = denoiser.denoise(width, height, luminance, new double[width * height * 3],
+				new double[width * height * 3], new double[width * height], valid);
+		
+		for (int i = 0; i < width * height; i++)
+			assertEquals((i % 2 == 0) ? 1d : 100d, denoised[i * 3 + 1], 0.0001);
+	}
+	
+	private static boolean[] allValid(int width, int height) {
+		
+		final var valid = new boolean[width * height];
+		for (int i = 0; i < valid.length; i++)
+			valid[i] = true;
+		return valid;
+	}
+	
+	private static double mean(double[] values) {
+		
+		double sum = 0;
+		for (double v : values)
+			sum += v;
+		return sum / (double) values.length;
+	}
+	
+	private static double variance(double[] values) {
+		
+		final var mean = mean(values);
+		double sum = 0;
+		for (double v : values)
+			sum += (v - mean) * (v - mean);
+		return sum / (double) values.length;
+	}
+	
+}
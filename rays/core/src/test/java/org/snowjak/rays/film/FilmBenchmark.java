@@ -0,0 +1,104 @@
+package org.snowjak.rays.film;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.snowjak.rays.filter.MitchellFilter;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+/**
+ * Measures the throughput of {@link Film#addSample(EstimatedSample)} as the
+ * number of threads adding samples to the same {@link Film} increases, from 1
+ * up to the number of available processors.
+ * <p>
+ * This is not run as part of the test-suite. Run it directly:
+ * 
+ * <pre>
+ * java -cp ... org.snowjak.rays.film.FilmBenchmark [samples-per-thread]
+ * </pre>
+ * </p>
+ * 
+ * @author snowjak88
+ *
+ */
+public class FilmBenchmark {
+	
+	private static final int WIDTH = 400, HEIGHT = 300;
+	
+	public static void main(String[] args) throws InterruptedException {
+		
+		final var samplesPerThread = (args.length > 0) ? Integer.parseInt(args[0]) : 250000;
+		final var processors = Runtime.getRuntime().availableProcessors();
+		
+		//
+		// Warm up.
+		//
+		run(processors, samplesPerThread / 10);
+		
+		double baseline = 0d;
+		for (int threads = 1; threads <= processors; threads++) {
+			
+			final var throughput = run(threads, samplesPerThread);
+			if (threads == 1)
+				baseline = throughput;
+			
+			System.out.println(String.format("%3d thread(s): %,15.0f samples/sec (%.2fx)", threads, throughput,
+					throughput / baseline));
+		}
+	}
+	
+	private static double run(int threadCount, int samplesPerThread) throws InterruptedException {
+		
+		final var film = new Film(WIDTH, HEIGHT, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(2, 0.33, 0.33));
+		
+		final var start = new CountDownLatch(1);
+		final var finish = new CountDownLatch(threadCount);
+		
+		final var threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; t++) {
+			
+			final var samples = getSamples(t, samplesPerThread);
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					samples.forEach(film::addSample);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					finish.countDown();
+				}
+			}));
+		}
+		
+		threads.forEach(Thread::start);
+		
+		final var startTime = System.nanoTime();
+		start.countDown();
+		finish.await();
+		final var elapsed = System.nanoTime() - startTime;
+		
+		return (double) (threadCount * samplesPerThread) / ((double) elapsed / 1e9);
+	}
+	
+	private static List<EstimatedSample> getSamples(int seed, int count) {
+		
+		final var rnd = new Random(seed);
+		final var radiance = SpectralPowerDistribution.fromRGB(RGB.WHITE);
+		
+		final var samples = new ArrayList<EstimatedSample>(count);
+		for (int i = 0; i < count; i++)
+			samples.add(new EstimatedSample(
+					new FixedSample(new Point2D(rnd.nextDouble() * WIDTH, rnd.nextDouble() * HEIGHT),
+							new Point2D(0.5, 0.5), 0d, new ArrayList<>(), new ArrayList<>()),
+					radiance));
+		
+		return samples;
+	}
+	
+}
@@ -0,0 +1,95 @@
+package org.snowjak.rays.film;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.snowjak.rays.filter.BoxFilter;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class FilmSnapshotterTest {
+	
+	private static final UUID UUID_1 = UUID.fromString("3a313f08-8262-4f45-8cf6-60b9cb13601b");
+	
+	private static void addSample(Film film, int x, int y, RGB rgb) {
+		
+		film.addSample(new EstimatedSample(new FixedSample(new Point2D(x + 0.5, y + 0.5), new Point2D(0.5, 0.5), 0d,
+				Collections.emptyList(), Collections.emptyList()), SpectralPowerDistribution.fromRGB(rgb)));
+	}
+	
+	@Test
+	public void testGetSnapshot() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var snapshotter = new FilmSnapshotter(film, UUID_1, 0, 0, 3, 3);
+		
+		assertNull("Should not have snapshotted an empty Film!", snapshotter.getSnapshot());
+		
+		addSample(film, 0, 0, RGB.RED);
+		addSample(film, 1, 0, RGB.GREEN);
+		
+		final var first = snapshotter.getSnapshot();
+		assertNotNull(first);
+		assertTrue(first.isPartial());
+		assertEquals(UUID_1, first.getUuid());
+		
+		final var firstImage = first.getBufferedImage();
+		assertEquals(4, firstImage.getWidth());
+		assertTrue((firstImage.getRGB(0, 0) >>> 24) > 0);
+		assertTrue((firstImage.getRGB(1, 0) >>> 24) > 0);
+		assertEquals(0, firstImage.getRGB(2, 0) >>> 24);
+		
+		assertNull("Should not have snapshotted an unchanged Film!", snapshotter.getSnapshot());
+		
+		//
+		// The next snapshot should hold only the pixels that have changed.
+		//
+		addSample(film, 1, 0, RGB.BLUE);
+		addSample(film, 3, 3, RGB.WHITE);
+		
+		final var second = snapshotter.getSnapshot().getBufferedImage();
+		assertEquals(0, second.getRGB(0, 0) >>> 24);
+		assertTrue((second.getRGB(1, 0) >>> 24) > 0);
+		assertTrue((second.getRGB(3, 3) >>> 24) > 0);
+		assertEquals(film.getImage().getBufferedImage().getRGB(1, 0), second.getRGB(1, 0));
+	}
+	
+	@Test
+	public void testGetSnapshot_bounds() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var snapshotter = new FilmSnapshotter(film, UUID_1, 2, 2, 3, 3);
+		
+		addSample(film, 0, 0, RGB.RED);
+		assertNull("Should not have snapshotted outside its bounds!", snapshotter.getSnapshot());
+		
+		addSample(film, 2, 2, RGB.RED);
+		assertNotNull(snapshotter.getSnapshot());
+	}
+	
+	@Test
+	public void testClose() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var snapshotter = new FilmSnapshotter(film, UUID_1, 0, 0, 3, 3);
+		
+		addSample(film, 0, 0, RGB.RED);
+		snapshotter.close();
+		
+		assertTrue(snapshotter.isClosed());
+		assertNull(snapshotter.getSnapshot());
+		snapshotter.publishSnapshot((image) -> {
+			throw new AssertionError("Should not have published a snapshot after closing!");
+		});
+	}
+	
+}
@@ -1,17 +1,27 @@
 package org.snowjak.rays.film;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
+import org.snowjak.rays.Settings;
 import org.snowjak.rays.filter.BoxFilter;
+import org.snowjak.rays.filter.MitchellFilter;
+import org.snowjak.rays.geometry.Point2D;
 import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.FixedSample;
 import org.snowjak.rays.sample.Sample;
 import org.snowjak.rays.sampler.PseudorandomSampler;
 import org.snowjak.rays.sampler.Sampler;
 import org.snowjak.rays.spectrum.colorspace.RGB;
 import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+import org.snowjak.rays.tonemapper.LinearToneMapper;
+import org.snowjak.rays.tonemapper.ReinhardToneMapper;
 
 public class FilmTest {
 	
@@ -67,4 +77,187 @@ public class FilmTest {
 			}
 	}
 	
+	@Test
+	public void testAddSample_concurrent() {
+		
+		final var rnd = new Random(5678);
+		final var colors = new SpectralPowerDistribution[] { SpectralPowerDistribution.fromRGB(RGB.RED),
+				SpectralPowerDistribution.fromRGB(RGB.GREEN), SpectralPowerDistribution.fromRGB(RGB.BLUE) };
+		
+		final List<EstimatedSample> samples = new ArrayList<>();
+		for (int i = 0; i < 20000; i++)
+			samples.add(new EstimatedSample(
+					new FixedSample(new Point2D(rnd.nextDouble() * 16d, rnd.nextDouble() * 16d), new Point2D(0.5, 0.5),
+							0d, new ArrayList<>(), new ArrayList<>()),
+					colors[rnd.nextInt(colors.length)]));
+		
+		final var sequential = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(2, 0.33, 0.33));
+		samples.forEach(sequential::addSample);
+		
+		final var concurrent = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(2, 0.33, 0.33));
+		samples.parallelStream().forEach(concurrent::addSample);
+		
+		final var expected = sequential.getImage().getBufferedImage();
+		final var actual = concurrent.getImage().getBufferedImage();
+		
+		for (int x = 0; x < 16; x++)
+			for (int y = 0; y < 16; y++) {
+				assertEquals("Sample-count at [" + x + "," + y + "] not as expected!",
+						sequential.getStatistics().getCount(x, y), concurrent.getStatistics().getCount(x, y));
+				//
+				// Samples are summed in a different order, so allow for rounding.
+				//
+				final var expectedRgb = RGB.fromPacked(expected.getRGB(x, y));
+				final var actualRgb = RGB.fromPacked(actual.getRGB(x, y));
+				assertEquals("RGB(R) at [" + x + "," + y + "] not as expected!", expectedRgb.getRed(),
+						actualRgb.getRed(), 1.5 / 255d);
+				assertEquals("RGB(G) at [" + x + "," + y + "] not as expected!", expectedRgb.getGreen(),
+						actualRgb.getGreen(), 1.5 / 255d);
+				assertEquals("RGB(B) at [" + x + "," + y + "] not as expected!", expectedRgb.getBlue(),
+						actualRgb.getBlue(), 1.5 / 255d);
+			}
+	}
+	
+	@Test
+	public void testAccumulator_merge() {
+		
+		final var samples = getRandomSamples(new Random(2468), 16, 16, 4000);
+		
+		final var whole = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+		samples.forEach(whole::addSample);
+		
+		//
+		// Split the samples between two "workers", and merge their results.
+		//
+		final var first = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+		final var second = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+		for (int i = 0; i < samples.size(); i++)
+			((i % 2 == 0) ? first : second).addSample(samples.get(i));
+		
+		final var merged = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+		merged.importAccumulator(first.exportAccumulator());
+		merged.mergeAccumulator(second.exportAccumulator());
+		
+		assertHdrEquals(whole, merged);
+	}
+	
+	@Test
+	public void testAccumulator_partition() {
+		
+		final var samples = getRandomSamples(new Random(1357), 16, 16, 4000);
+		
+		final var whole = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+		samples.forEach(whole::addSample);
+		
+		//
+		// Render the left and right halves separately (each including the
+		// samples from its margin), and assemble them into a single Film.
+		//
+		final var left = whole.partition(0, 0, 7, 15);
+		final var right = whole.partition(8, 0, 15, 15);
+		for (EstimatedSample sample : samples) {
+			if (sample.getSample().getFilmPoint().getX() < 10d)
+				left.addSample(sample);
+			if (sample.getSample().getFilmPoint().getX() >= 6d)
+				right.addSample(sample);
+		}
+		
+		final var assembled = new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+		final var leftImage = left.getImage(null, 0, 0, 7, 15, true);
+		final var rightImage = right.getImage(null, 8, 0, 15, 15, true);
+		
+		//
+		// The halves' margins overlap, so clear each half's margin before merging
+		// by importing only the pixels each is responsible for.
+		//
+		final var leftOnly = new Film(8, 16, 0, 0, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		leftOnly.importAccumulator(leftImage.getAccumulator());
+		final var rightOnly = new Film(8, 16, 8, 0, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		rightOnly.importAccumulator(rightImage.getAccumulator());
+		
+		assembled.mergeAccumulator(leftOnly.exportAccumulator());
+		assembled.mergeAccumulator(rightOnly.exportAccumulator());
+		
+		assertHdrEquals(whole, assembled);
+	}
+	
+	@Test
+	public void testGetImage_toneMapper() {
+		
+		final var film = new Film(2, 1, 0, 0, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0), null, new ReinhardToneMapper());
+		
+		//
+		// The left pixel is far too bright to display linearly; the right pixel is
+		// black.
+		//
+		final var bright = SpectralPowerDistribution.fromRGB(RGB.WHITE).multiply(8d);
+		film.addSample(new EstimatedSample(new FixedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0d,
+				new ArrayList<>(), new ArrayList<>()), bright));
+		film.addSample(new EstimatedSample(new FixedSample(new Point2D(1.5, 0.5), new Point2D(0.5, 0.5), 0d,
+				new ArrayList<>(), new ArrayList<>()), SpectralPowerDistribution.BLACK));
+		
+		final var image = film.getImage(null).getBufferedImage();
+		final var left = RGB.fromPacked(image.getRGB(0, 0));
+		final var right = RGB.fromPacked(image.getRGB(1, 0));
+		
+		assertTrue("Tone-mapped pixel should not have burned out!", left.getGreen() < 1d);
+		assertTrue("Tone-mapped pixel should still be bright!", left.getGreen() > 0.5d);
+		assertEquals(0d, right.getGreen(), 0.00001);
+		
+		final var linear = new Film(2, 1, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		linear.addSample(new EstimatedSample(new FixedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0d,
+				new ArrayList<>(), new ArrayList<>()), bright));
+		assertEquals(1d, RGB.fromPacked(linear.getImage(null).getBufferedImage().getRGB(0, 0)).getGreen(), 0.01);
+	}
+	
+	@Test
+	public void testDeserialize_toneMapper() {
+		
+		final var json = "{\"width\":2,\"height\":2,\"aperture\":1.0,\"exposureTime\":1.0,\"isoSensitivity\":1.0,"
+				+ "\"calibrationConstant\":1.0,\"filter\":{\"type\":\"box\",\"extent\":0},"
+				+ "\"toneMapper\":{\"type\":\"reinhard\",\"whitePoint\":4.0}}";
+		
+		final var film = Settings.getInstance().getGson().fromJson(json, Film.class);
+		
+		assertTrue(film.getToneMapper() instanceof ReinhardToneMapper);
+		assertEquals(4d, ((ReinhardToneMapper) film.getToneMapper()).getWhitePoint(), 0.00001);
+		
+		final var withoutJson = "{\"width\":2,\"height\":2,\"aperture\":1.0,\"exposureTime\":1.0,"
+				+ "\"isoSensitivity\":1.0,\"calibrationConstant\":1.0,\"filter\":{\"type\":\"box\",\"extent\":0}}";
+		assertTrue(Settings.getInstance().getGson().fromJson(withoutJson, Film.class)
+				.getToneMapper() instanceof LinearToneMapper);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAccumulator_invalid() {
+		
+		new Film(2, 2, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0)).mergeAccumulator(new byte[64]);
+	}
+	
+	private static List<EstimatedSample> getRandomSamples(Random rnd, int width, int height, int count) {
+		
+		final var colors = new SpectralPowerDistribution[] { SpectralPowerDistribution.fromRGB(RGB.RED),
+				SpectralPowerDistribution.fromRGB(RGB.GREEN), SpectralPowerDistribution.fromRGB(RGB.BLUE) };
+		
+		final List<EstimatedSample> samples = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			samples.add(new EstimatedSample(new FixedSample(
+					new Point2D(rnd.nextDouble() * (double) width, rnd.nextDouble() * (double) height),
+					new Point2D(0.5, 0.5), 0d, new ArrayList<>(), new ArrayList<>()), colors[rnd.nextInt(colors.length)]));
+		
+		return samples;
+	}
+	
+	private static void assertHdrEquals(Film expected, Film actual) {
+		
+		final var expectedImage = expected.getHdrImage(null, HdrImage.Channels.XYZ);
+		final var actualImage = actual.getHdrImage(null, HdrImage.Channels.XYZ);
+		
+		for (int x = 0; x < expectedImage.getWidth(); x++)
+			for (int y = 0; y < expectedImage.getHeight(); y++)
+				for (int c = 0; c < 3; c++)
+					assertEquals("Channel " + c + " at [" + x + "," + y + "] not as expected!",
+							expectedImage.get(x, y, c), actualImage.get(x, y, c), 0.0001);
+	}
+	
 }
@@ -0,0 +1,115 @@
+package org.snowjak.rays.film;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.snowjak.rays.filter.BoxFilter;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.colorspace.XYZ;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class HdrImageTest {
+	
+	@Test
+	public void testPfm() throws IOException {
+		
+		final var data = new float[4 * 3 * 3];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (float) i * 1.5f - 7f;
+		
+		final var image = new HdrImage(4, 3, HdrImage.Channels.LINEAR_RGB, data, null);
+		
+		final var bytes = new ByteArrayOutputStream();
+		image.writePfm(Channels.newChannel(bytes));
+		
+		final var read = HdrImage.readPfm(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())),
+				HdrImage.Channels.LINEAR_RGB);
+		
+		assertEquals(4, read.getWidth());
+		assertEquals(3, read.getHeight());
+		for (int x = 0; x < 4; x++)
+			for (int y = 0; y < 3; y++)
+				for (int c = 0; c < 3; c++)
+					assertEquals(image.get(x, y, c), read.get(x, y, c), 0f);
+	}
+	
+	@Test
+	public void testExr() throws IOException {
+		
+		final var data = new float[5 * 2 * 3];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (float) i;
+		
+		final var image = new HdrImage(5, 2, HdrImage.Channels.LINEAR_RGB, data, null);
+		
+		final var bytes = new ByteArrayOutputStream();
+		image.writeExr(Channels.newChannel(bytes), false);
+		
+		final var buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(20000630, buffer.getInt(0));
+		assertEquals(2, buffer.getInt(4));
+		
+		//
+		// The file ends with 2 scanline-chunks, each of which is: y, size, and
+		// then the B, G, and R channels in turn.
+		//
+		final var chunkSize = 4 + 4 + 5 * 3 * 4;
+		final var firstChunk = buffer.capacity() - 2 * chunkSize;
+		assertEquals(firstChunk, buffer.getLong(firstChunk - 16));
+		assertEquals(firstChunk + chunkSize, buffer.getLong(firstChunk - 8));
+		
+		final var secondChunk = firstChunk + chunkSize;
+		assertEquals(1, buffer.getInt(secondChunk));
+		assertEquals(5 * 3 * 4, buffer.getInt(secondChunk + 4));
+		
+		// B, at x = 0, y = 1
+		assertEquals(image.get(0, 1, 2), buffer.getFloat(secondChunk + 8), 0f);
+		// G, at x = 0, y = 1
+		assertEquals(image.get(0, 1, 1), buffer.getFloat(secondChunk + 8 + 5 * 4), 0f);
+		// R, at x = 4, y = 1
+		assertEquals(image.get(4, 1, 0), buffer.getFloat(secondChunk + 8 + 2 * 5 * 4 + 4 * 4), 0f);
+	}
+	
+	@Test
+	public void testToHalf() {
+		
+		assertEquals((short) 0x0000, HdrImage.toHalf(0f));
+		assertEquals((short) 0x3c00, HdrImage.toHalf(1f));
+		assertEquals((short) 0xc000, HdrImage.toHalf(-2f));
+		assertEquals((short) 0x3555, HdrImage.toHalf(1f / 3f));
+		assertEquals((short) 0x7bff, HdrImage.toHalf(65504f));
+		assertEquals((short) 0x7c00, HdrImage.toHalf(Float.POSITIVE_INFINITY));
+		assertEquals((short) 0x0001, HdrImage.toHalf(5.9604645e-8f));
+	}
+	
+	@Test
+	public void testFilm() {
+		
+		final var film = new Film(2, 1, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var spd = SpectralPowerDistribution.fromRGB(RGB.RED);
+		
+		film.addSample(new EstimatedSample(new FixedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0d,
+				new ArrayList<>(), new ArrayList<>()), spd));
+		
+		final var image = film.getHdrImage(null, HdrImage.Channels.XYZ);
+		final var expected = XYZ.fromSpectrum(spd, false);
+		
+		assertEquals(expected.getX(), image.get(0, 0, 0), 0.0001);
+		assertEquals(expected.getY(), image.get(0, 0, 1), 0.0001);
+		assertEquals(expected.getZ(), image.get(0, 0, 2), 0.0001);
+		
+		assertEquals(0f, image.get(1, 0, 1), 0f);
+	}
+	
+}
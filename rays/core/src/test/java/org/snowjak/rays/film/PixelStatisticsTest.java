@@ -0,0 +1,60 @@
+package org.snowjak.rays.film;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PixelStatisticsTest {
+	
+	@Test
+	public void testMeanAndVariance() {
+		
+		final var stats = new PixelStatistics(10, 20, 11, 21);
+		
+		for (double v : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 })
+			stats.add(11, 21, v);
+		
+		assertEquals(8, stats.getCount(11, 21));
+		assertEquals(5d, stats.getMean(11, 21), 0.00001);
+		assertEquals(32d / 7d, stats.getVariance(11, 21), 0.00001);
+		assertEquals(32d / 7d / 8d, stats.getVarianceOfMean(11, 21), 0.00001);
+		
+		assertEquals(0, stats.getCount(10, 20));
+		assertTrue(Double.isInfinite(stats.getVarianceOfMean(10, 20)));
+		assertTrue(Double.isInfinite(stats.getAverageVarianceOfMean()));
+	}
+	
+	@Test
+	public void testAverageVarianceOfMean_region() {
+		
+		final var stats = new PixelStatistics(0, 0, 3, 3);
+		
+		//
+		// Only pixels [2..3]x[2..3] get any samples.
+		//
+		for (int x = 2; x <= 3; x++)
+			for (int y = 2; y <= 3; y++)
+				for (double v : new double[] { 1, 3 })
+					stats.add(x, y, v);
+		
+		assertTrue(Double.isInfinite(stats.getAverageVarianceOfMean()));
+		assertEquals(2d / 2d, stats.getAverageVarianceOfMean(2, 2, 3, 3), 0.00001);
+		assertEquals(2d / 2d, stats.getAverageVarianceOfMean(2, 2, 5, 5), 0.00001);
+		assertTrue(Double.isInfinite(stats.getAverageVarianceOfMean(1, 1, 3, 3)));
+		assertTrue(Double.isInfinite(stats.getAverageVarianceOfMean(4, 4, 5, 5)));
+	}
+	
+	@Test
+	public void testOutOfRange() {
+		
+		final var stats = new PixelStatistics(0, 0, 1, 1);
+		stats.add(2, 0, 1d);
+		stats.add(-1, 0, 1d);
+		
+		for (int x = 0; x <= 1; x++)
+			for (int y = 0; y <= 1; y++)
+				assertEquals(0, stats.getCount(x, y));
+	}
+	
+}
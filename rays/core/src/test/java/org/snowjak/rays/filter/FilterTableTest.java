@@ -0,0 +1,68 @@
+package org.snowjak.rays.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.FixedSample;
+
+public class FilterTableTest {
+	
+	@Test
+	public void testMitchell() {
+		
+		final var filter = new MitchellFilter(2, 0.33, 0.33);
+		final var table = filter.getTable();
+		
+		assertEquals(2, table.getExtentX());
+		assertEquals(2, table.getExtentY());
+		
+		final var rnd = new Random(9876);
+		for (int i = 0; i < 1000; i++) {
+			
+			final var sample = new FixedSample(new Point2D(rnd.nextDouble() * 32d, rnd.nextDouble() * 32d),
+					new Point2D(0.5, 0.5), 0d, new ArrayList<>(), new ArrayList<>());
+			
+			final var pixelX = (int) sample.getFilmPoint().getX() + rnd.nextInt(5) - 2;
+			final var pixelY = (int) sample.getFilmPoint().getY() + rnd.nextInt(5) - 2;
+			
+			//
+			// The table is evaluated at the center of each sub-pixel bin, so
+			// allow for a little error.
+			//
+			assertEquals("Contribution to [" + pixelX + "," + pixelY + "] from " + sample.getFilmPoint()
+					+ " not as expected!", filter.getContribution(sample, pixelX, pixelY),
+					table.getContribution(sample, pixelX, pixelY), 0.02);
+		}
+	}
+	
+	@Test
+	public void testBox() {
+		
+		final var filter = new BoxFilter(1);
+		final var table = filter.getTable();
+		
+		final var sample = new FixedSample(new Point2D(4.3, 7.9), new Point2D(0.5, 0.5), 0d, new ArrayList<>(),
+				new ArrayList<>());
+		
+		for (int pixelX = 2; pixelX <= 6; pixelX++)
+			for (int pixelY = 5; pixelY <= 9; pixelY++)
+				assertEquals(filter.getContribution(sample, pixelX, pixelY),
+						table.getContribution(sample, pixelX, pixelY), 0.00001);
+	}
+	
+	@Test
+	public void testGetBin() {
+		
+		final var table = new FilterTable(0, 0, 4, d -> 1d, d -> 1d);
+		
+		assertEquals(0, table.getBinX(3.0));
+		assertEquals(1, table.getBinX(3.3));
+		assertEquals(3, table.getBinX(3.99));
+		assertEquals(2, table.getBinY(-0.4));
+	}
+	
+}
@@ -0,0 +1,103 @@
+package org.snowjak.rays.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.snowjak.rays.geometry.Normal3D;
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.renderer.IrradianceCache.Record;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class IrradianceCacheTest {
+	
+	private static final SpectralPowerDistribution WHITE = SpectralPowerDistribution.fromRGB(RGB.WHITE);
+	private static final Normal3D UP = new Normal3D(0, 1, 0);
+	
+	@Test
+	public void testLookup_empty() {
+		
+		final var cache = new IrradianceCache(0.2);
+		assertNull(cache.lookup(Point3D.ZERO, UP));
+	}
+	
+	@Test
+	public void testLookup() {
+		
+		final var cache = new IrradianceCache(0.2);
+		cache.insert(new Record(Point3D.ZERO, UP, WHITE.multiply(2d), 1d, SpectralPowerDistribution.BLACK,
+				SpectralPowerDistribution.BLACK, SpectralPowerDistribution.BLACK));
+		
+		final var near = cache.lookup(new Point3D(0.05, 0, 0), UP);
+		assertNotNull(near);
+		assertEquals(WHITE.multiply(2d).getPower(550), near.getPower(550), 0.00001);
+		
+		assertNull("Should not have used a too-distant record!", cache.lookup(new Point3D(1, 0, 0), UP));
+		assertNull("Should not have used a record with a different normal!",
+				cache.lookup(new Point3D(0.05, 0, 0), new Normal3D(1, 0, 0)));
+	}
+	
+	@Test
+	public void testLookup_gradient() {
+		
+		final var cache = new IrradianceCache(0.2);
+		cache.insert(new Record(Point3D.ZERO, UP, WHITE.multiply(2d), 1d, WHITE.multiply(3d),
+				SpectralPowerDistribution.BLACK, SpectralPowerDistribution.BLACK));
+		
+		final var result = cache.lookup(new Point3D(0.1, 0, 0), UP);
+		assertNotNull(result);
+		assertEquals(WHITE.multiply(2d + 0.1 * 3d).getPower(550), result.getPower(550), 0.00001);
+	}
+	
+	@Test
+	public void testLookup_weighted() {
+		
+		final var cache = new IrradianceCache(0.5);
+		cache.insert(new Record(new Point3D(-0.1, 0, 0), UP, WHITE.multiply(1d), 1d, SpectralPowerDistribution.BLACK,
+				SpectralPowerDistribution.BLACK, SpectralPowerDistribution.BLACK));
+		cache.insert(new Record(new Point3D(0.3, 0, 0), UP, WHITE.multiply(4d), 1d, SpectralPowerDistribution.BLACK,
+				SpectralPowerDistribution.BLACK, SpectralPowerDistribution.BLACK));
+		
+		//
+		// Weights are 1/0.1 and 1/0.3, respectively
+		//
+		final var expected = (10d * 1d + (1d / 0.3) * 4d) / (10d + (1d / 0.3));
+		
+		final var result = cache.lookup(Point3D.ZERO, UP);
+		assertNotNull(result);
+		assertEquals(WHITE.multiply(expected).getPower(550), result.getPower(550), 0.00001);
+	}
+	
+	@Test
+	public void testInsert_concurrent() {
+		
+		final var cache = new IrradianceCache(0.2);
+		final var count = 10000;
+		
+		final var points = new Point3D[count];
+		final var radii = new double[count];
+		final var rnd = new Random(1234);
+		for (int i = 0; i < count; i++) {
+			points[i] = new Point3D(rnd.nextDouble() * 100 - 50, rnd.nextDouble() * 100 - 50,
+					rnd.nextDouble() * 100 - 50);
+			radii[i] = 0.01 + rnd.nextDouble() * 10d;
+		}
+		
+		IntStream.range(0, count).parallel().forEach(i -> {
+			cache.insert(new Record(points[i], UP, WHITE, radii[i], SpectralPowerDistribution.BLACK,
+					SpectralPowerDistribution.BLACK, SpectralPowerDistribution.BLACK));
+			cache.lookup(points[(i * 7) % count], UP);
+		});
+		
+		assertEquals(count, cache.size());
+		
+		IntStream.range(0, count).parallel().forEach(
+				i -> assertNotNull("Could not find record #" + i + "!", cache.lookup(points[i], UP)));
+	}
+	
+}
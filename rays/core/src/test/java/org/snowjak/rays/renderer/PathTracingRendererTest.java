@@ -0,0 +1,110 @@
+package org.snowjak.rays.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.snowjak.rays.Primitive;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.Settings;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.geometry.Ray;
+import org.snowjak.rays.geometry.Vector3D;
+import org.snowjak.rays.light.PointLight;
+import org.snowjak.rays.material.LambertianMaterial;
+import org.snowjak.rays.sample.SuppliedSample;
+import org.snowjak.rays.sample.TracedSample;
+import org.snowjak.rays.shape.PlaneShape;
+import org.snowjak.rays.shape.SphereShape;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.texture.ConstantTexture;
+import org.snowjak.rays.transform.TranslationTransform;
+import org.snowjak.rays.util.RandomSource;
+
+public class PathTracingRendererTest {
+	
+	@Test
+	public void testIrradianceCache() {
+		
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new SphereShape(1.0, new TranslationTransform(0, 1.5, 0)),
+						new LambertianMaterial(new ConstantTexture(RGB.WHITE)))),
+				Arrays.asList(new PointLight(new Point3D(3, 3, 0),
+						Settings.getInstance().getIlluminatorSpectralPowerDistribution())));
+		
+		final var renderer = new PathTracingRenderer(3, 1, 1, 0.3, 16);
+		final var sample = new SuppliedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0.5,
+				() -> RandomSource.nextDouble(),
+				() -> new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble()));
+		
+		//
+		// Look down at the floor, beside the sphere.
+		//
+		final var first = renderer.estimate(
+				new TracedSample(sample, new Ray(new Point3D(2, 5, 0), new Vector3D(0, -1, 0))), scene);
+		assertFalse(first.getRadiance().isBlack());
+		
+		final var cache = renderer.getIrradianceCache(scene);
+		assertEquals(1, cache.size());
+		
+		//
+		// A second, nearby lookup should re-use the first record.
+		//
+		renderer.estimate(new TracedSample(sample, new Ray(new Point3D(2.01, 5, 0), new Vector3D(0, -1, 0))), scene);
+		assertEquals(1, cache.size());
+		
+		assertTrue("Irradiance-cache not reused!", cache == renderer.getIrradianceCache(scene));
+	}
+	
+	@Test
+	public void testStatistics() {
+		
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new SphereShape(1.0, new TranslationTransform(0, 1.5, 0)),
+						new LambertianMaterial(new ConstantTexture(RGB.WHITE)))),
+				Arrays.asList(new PointLight(new Point3D(3, 3, 0),
+						Settings.getInstance().getIlluminatorSpectralPowerDistribution())));
+		
+		final var renderer = new PathTracingRenderer(2, 1, 1);
+		final var sample = new SuppliedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0.5,
+				() -> RandomSource.nextDouble(),
+				() -> new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble()));
+		
+		final var cameraRays = RenderStatistics.getCameraRays();
+		final var shadowRays = RenderStatistics.getShadowRays();
+		final var indirectRays = RenderStatistics.getIndirectRays();
+		final var sceneQueries = RenderStatistics.getSceneQueries();
+		final var nodeVisits = RenderStatistics.getNodeVisits();
+		
+		//
+		// Look down at the sphere.
+		//
+		renderer.estimate(new TracedSample(sample, new Ray(new Point3D(0, 5, 0), new Vector3D(0, -1, 0))), scene);
+		
+		assertTrue("Camera-ray not counted!", RenderStatistics.getCameraRays() > cameraRays);
+		assertTrue("Shadow-ray not counted!", RenderStatistics.getShadowRays() > shadowRays);
+		assertTrue("Indirect-ray not counted!", RenderStatistics.getIndirectRays() > indirectRays);
+		assertTrue("Scene-queries not counted!", RenderStatistics.getSceneQueries() > sceneQueries);
+		assertTrue("Node-visits not counted!", RenderStatistics.getNodeVisits() > nodeVisits);
+	}
+	
+	@Test
+	public void testSerialization() {
+		
+		final var json = "{\"type\":\"path-tracing\",\"maxDepth\":3,\"n\":2,\"lightSamples\":2,\"irradianceCacheAccuracy\":0.2,\"irradianceCacheSamples\":32}";
+		final var renderer = Settings.getInstance().getGson().fromJson(json, Renderer.class);
+		
+		assertTrue(renderer instanceof PathTracingRenderer);
+		assertEquals(3, ((PathTracingRenderer) renderer).getMaxDepth());
+		assertEquals(2, ((PathTracingRenderer) renderer).getN());
+		assertEquals(0.2, ((PathTracingRenderer) renderer).getIrradianceCacheAccuracy(), 0.00001);
+		assertEquals(32, ((PathTracingRenderer) renderer).getIrradianceCacheSamples());
+	}
+	
+}
@@ -0,0 +1,57 @@
+package org.snowjak.rays.renderer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.geometry.Vector3D;
+import org.snowjak.rays.renderer.PhotonMap.Photon;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class PhotonMapTest {
+	
+	@Test
+	public void testGather() {
+		
+		final var rnd = new Random(4321);
+		final var photons = new ArrayList<Photon>();
+		for (int i = 0; i < 5000; i++)
+			photons.add(new Photon(
+					new Point3D(rnd.nextDouble() * 10 - 5, rnd.nextDouble() * 10 - 5, rnd.nextDouble() * 10 - 5),
+					Vector3D.J, SpectralPowerDistribution.BLACK));
+		
+		final var radius = 0.75;
+		final var map = new PhotonMap(photons, radius);
+		assertEquals(photons.size(), map.size());
+		
+		for (int q = 0; q < 100; q++) {
+			
+			final var point = new Point3D(rnd.nextDouble() * 10 - 5, rnd.nextDouble() * 10 - 5,
+					rnd.nextDouble() * 10 - 5);
+			
+			final var expected = photons.stream()
+					.filter(p -> Vector3D.from(point, p.getPosition()).getMagnitudeSq() <= radius * radius).count();
+			
+			final var actual = new int[] { 0 };
+			map.gather(point, radius, (photon, distanceSq) -> {
+				assertEquals(Vector3D.from(point, photon.getPosition()).getMagnitudeSq(), distanceSq, 0.00001);
+				actual[0]++;
+			});
+			
+			assertEquals("Gathered unexpected number of photons around " + point.toString(), expected, actual[0]);
+		}
+	}
+	
+	@Test
+	public void testEmpty() {
+		
+		final var map = new PhotonMap(new ArrayList<>(), 1.0);
+		map.gather(Point3D.ZERO, 1.0, (photon, distanceSq) -> {
+			throw new AssertionError("Should not have gathered any photons!");
+		});
+	}
+	
+}
@@ -0,0 +1,144 @@
+package org.snowjak.rays.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.snowjak.rays.Primitive;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.Settings;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.geometry.Ray;
+import org.snowjak.rays.geometry.Vector3D;
+import org.snowjak.rays.light.Light;
+import org.snowjak.rays.light.PointLight;
+import org.snowjak.rays.material.LambertianMaterial;
+import org.snowjak.rays.material.PerfectMirrorMaterial;
+import org.snowjak.rays.sample.SuppliedSample;
+import org.snowjak.rays.sample.TracedSample;
+import org.snowjak.rays.shape.PlaneShape;
+import org.snowjak.rays.shape.SphereShape;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.texture.ConstantTexture;
+import org.snowjak.rays.transform.TranslationTransform;
+import org.snowjak.rays.util.RandomSource;
+
+public class PhotonMappingRendererTest {
+	
+	private static final Collection<Light> LIGHTS = Arrays.asList(new PointLight(new Point3D(3, 3, 0),
+			Settings.getInstance().getIlluminatorSpectralPowerDistribution()));
+	
+	@Test
+	public void testNoDirectPhotons() {
+		
+		//
+		// A lone diffuse floor receives only direct light, which isn't recorded.
+		//
+		final var scene = new Scene(
+				Arrays.asList(new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE)))),
+				LIGHTS);
+		
+		final var renderer = new PhotonMappingRenderer(4, 1, 2000, 0.5);
+		assertEquals(0, renderer.getPhotonMap(scene).size());
+	}
+	
+	@Test
+	public void testCausticPhotons() {
+		
+		//
+		// A mirrored sphere hanging above the floor should focus some photons onto
+		// the floor.
+		//
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new SphereShape(1.0, new TranslationTransform(0, 1.5, 0)), new PerfectMirrorMaterial())),
+				LIGHTS);
+		
+		final var renderer = new PhotonMappingRenderer(4, 1, 2000, 0.5);
+		final var map = renderer.getPhotonMap(scene);
+		assertTrue("Expected some caustic photons!", map.size() > 0);
+		
+		assertTrue("Photon-map not reused!", map == renderer.getPhotonMap(scene));
+	}
+	
+	@Test
+	public void testPhotonMapSharedAmongRenderers() {
+		
+		//
+		// Each RenderTask deserializes its own Renderer -- but they should all share
+		// the same photon-map for the same Scene.
+		//
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new SphereShape(1.0, new TranslationTransform(0, 1.5, 0)), new PerfectMirrorMaterial())),
+				LIGHTS);
+		
+		final var first = new PhotonMappingRenderer(4, 1, 2000, 0.5);
+		final var second = new PhotonMappingRenderer(4, 1, 2000, 0.5);
+		
+		first.beforeRender(null, null, scene);
+		final var map = first.getPhotonMap(scene);
+		
+		assertTrue("Photon-map not shared!", map == second.getPhotonMap(scene));
+		assertTrue("Photon-map shared despite different parameters!",
+				map != new PhotonMappingRenderer(4, 1, 1000, 0.5).getPhotonMap(scene));
+	}
+	
+	@Test
+	public void testAgreesWithPathTracing() {
+		
+		//
+		// A floor and a ceiling, lit by a point-light between them. Indirect
+		// lighting on the floor is reflected entirely from the ceiling.
+		//
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new PlaneShape(new TranslationTransform(0, 2, 0)),
+						new LambertianMaterial(new ConstantTexture(RGB.WHITE)))),
+				Arrays.asList(new PointLight(new Point3D(0, 1, 0),
+						Settings.getInstance().getIlluminatorSpectralPowerDistribution())));
+		
+		final var interaction = scene.getInteraction(new Ray(new Point3D(0, 1, 0), new Vector3D(0, -1, 0)));
+		final var sample = new TracedSample(
+				new SuppliedSample(new Point2D(0.5, 0.5), new Point2D(0.5, 0.5), 0.5, () -> RandomSource.nextDouble(),
+						() -> new Point2D(RandomSource.nextDouble(), RandomSource.nextDouble())),
+				interaction.getInteractingRay());
+		
+		//
+		// With a maximum depth of 2, both renderers estimate a single bounce of
+		// indirect lighting.
+		//
+		final var pathTracer = new PathTracingRenderer(2, 1, 1);
+		final var pathTracedSamples = 5000;
+		
+		double pathTraced = 0d;
+		for (int i = 0; i < pathTracedSamples; i++)
+			pathTraced += pathTracer.estimateIndirectLighting(interaction, sample, scene).getTotalPower();
+		pathTraced /= (double) pathTracedSamples;
+		
+		final var photonMapped = new PhotonMappingRenderer(2, 1, 50000, 0.3)
+				.estimateIndirectLighting(interaction, sample, scene).getTotalPower();
+		
+		assertTrue("Expected some indirect lighting!", pathTraced > 0d);
+		assertEquals("Photon-mapped indirect lighting doesn't agree with path-traced!", 1d, photonMapped / pathTraced,
+				0.1);
+	}
+	
+	@Test
+	public void testSerialization() {
+		
+		final var json = "{\"type\":\"photon-mapping\",\"maxDepth\":3,\"lightSamples\":2,\"photons\":5000,\"gatherRadius\":0.1}";
+		final var renderer = Settings.getInstance().getGson().fromJson(json, Renderer.class);
+		
+		assertTrue(renderer instanceof PhotonMappingRenderer);
+		assertEquals(3, ((PhotonMappingRenderer) renderer).getMaxDepth());
+		assertEquals(2, ((PhotonMappingRenderer) renderer).getLightSamples());
+		assertEquals(5000, ((PhotonMappingRenderer) renderer).getPhotons());
+		assertEquals(0.1, ((PhotonMappingRenderer) renderer).getGatherRadius(), 0.00001);
+	}
+	
+}
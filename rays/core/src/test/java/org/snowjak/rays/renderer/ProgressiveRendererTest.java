@@ -0,0 +1,200 @@
+package org.snowjak.rays.renderer;
+
+import static org.apache.commons.math3.util.FastMath.floor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.snowjak.rays.RenderTask;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.camera.OrthographicCamera;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.filter.BoxFilter;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.TracedSample;
+import org.snowjak.rays.sampler.AdaptiveSampler;
+import org.snowjak.rays.sampler.PseudorandomSampler;
+import org.snowjak.rays.sampler.Sampler;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class ProgressiveRendererTest {
+	
+	@Test
+	public void testMaxPasses() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var sampler = new PseudorandomSampler(0, 0, 3, 3, 2);
+		final var camera = new OrthographicCamera(4, 4, 4, 4);
+		final var renderer = new ProgressiveRenderer(new ConstantRenderer(), 0, 0, 3);
+		
+		final List<Integer> reportedSpp = new ArrayList<>();
+		final List<Integer> reportedPercent = new ArrayList<>();
+		renderer.render(sampler, film, null, camera, reportedPercent::add, reportedSpp::add);
+		
+		assertEquals("Unexpected number of passes!", 3, renderer.getPassesRendered());
+		assertEquals("Unexpected samples-per-pixel reports!", List.of(2, 4, 6), reportedSpp);
+		assertEquals("Final progress-report not 100%!", 100,
+				(int) reportedPercent.get(reportedPercent.size() - 1));
+	}
+	
+	@Test
+	public void testTargetVariance() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var sampler = new PseudorandomSampler(0, 0, 3, 3, 1);
+		final var camera = new OrthographicCamera(4, 4, 4, 4);
+		final var renderer = new ProgressiveRenderer(new ConstantRenderer(), 0, 1e-6, 64);
+		
+		renderer.render(sampler, film, null, camera, null, null);
+		
+		//
+		// Constant radiance has 0 variance, which we can only observe once every
+		// pixel has at least 2 samples.
+		//
+		assertEquals("Unexpected number of passes!", 2, renderer.getPassesRendered());
+	}
+	
+	@Test
+	public void testTargetVariance_partialFilm() {
+		
+		//
+		// The Sampler covers only a corner of the Film (as in a decomposed
+		// render), so the rest of the Film never receives any samples.
+		//
+		final var film = new Film(8, 8, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var sampler = new PseudorandomSampler(0, 0, 3, 3, 1);
+		final var camera = new OrthographicCamera(8, 8, 8, 8);
+		final var renderer = new ProgressiveRenderer(new ConstantRenderer(), 0, 1e-6, 64);
+		
+		renderer.render(sampler, film, null, camera, null, null);
+		
+		assertEquals("Unexpected number of passes!", 2, renderer.getPassesRendered());
+	}
+	
+	@Test
+	public void testAdaptivePasses() {
+		
+		final var camera = new OrthographicCamera(8, 8, 8, 8);
+		
+		//
+		// One pass of adaptive sampling gives the noisy pixel its maximum.
+		//
+		final var onePass = new Film(8, 8, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		new ProgressiveRenderer(new NoisyRenderer(), 0, 0, 1).render(new AdaptiveSampler(0, 0, 7, 7, 4, 32, 8, 0, 0),
+				onePass, null, camera, null, null);
+		assertEquals("Noisy pixel did not receive maximum samples!", 32, onePass.getStatistics().getCount(3, 3));
+		
+		//
+		// The second pass should refine the noisy pixel just as much again --
+		// its samples from the first pass don't count against the second's
+		// maximum.
+		//
+		final var twoPasses = new Film(8, 8, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		new ProgressiveRenderer(new NoisyRenderer(), 0, 0, 2).render(new AdaptiveSampler(0, 0, 7, 7, 4, 32, 8, 0, 0),
+				twoPasses, null, camera, null, null);
+		assertEquals("Noisy pixel not refined in second pass!", 64, twoPasses.getStatistics().getCount(3, 3));
+		assertEquals("Quiet pixel refined!", 8, twoPasses.getStatistics().getCount(0, 0));
+	}
+	
+	@Test
+	public void testTimeBudget() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var sampler = new PseudorandomSampler(0, 0, 3, 3, 1);
+		final var camera = new OrthographicCamera(4, 4, 4, 4);
+		final var renderer = new ProgressiveRenderer(new SlowRenderer(), 0.05, 0, 1000);
+		
+		final var start = System.nanoTime();
+		renderer.render(sampler, film, null, camera, null, null);
+		final var elapsed = (System.nanoTime() - start) / 1e9;
+		
+		assertTrue("Rendered too few passes!", renderer.getPassesRendered() >= 1);
+		assertTrue("Rendered too many passes!", renderer.getPassesRendered() < 1000);
+		assertTrue("Overran time-budget (" + elapsed + "s)!", elapsed < 0.5);
+	}
+	
+	@Test
+	public void testRenderTaskCallsHooks() {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var sampler = new PseudorandomSampler(0, 0, 3, 3, 1);
+		final var camera = new OrthographicCamera(4, 4, 4, 4);
+		final var inner = new ConstantRenderer();
+		
+		new RenderTask(sampler, new ProgressiveRenderer(inner, 0, 0, 2), film, new Scene(List.of()), camera)
+				.render();
+		
+		assertEquals("beforeRender() not called exactly once!", 1, inner.beforeRenders);
+		assertEquals("afterRender() not called exactly once!", 1, inner.afterRenders);
+	}
+	
+	private static class ConstantRenderer extends Renderer {
+		
+		private static final SpectralPowerDistribution RADIANCE = SpectralPowerDistribution.fromRGB(RGB.WHITE);
+		
+		private int beforeRenders = 0, afterRenders = 0;
+		
+		@Override
+		public void beforeRender(Sampler sampler, Film film, Scene scene) {
+			
+			beforeRenders++;
+		}
+		
+		@Override
+		public void afterRender(Sampler sampler, Film film, Scene scene) {
+			
+			afterRenders++;
+		}
+		
+		@Override
+		public EstimatedSample estimate(TracedSample sample, Scene scene) {
+			
+			return new EstimatedSample(sample.getSample(), RADIANCE);
+		}
+		
+	}
+	
+	/**
+	 * Pixel [3,3] alternates between black and white; every other pixel is a
+	 * constant grey.
+	 */
+	private static class NoisyRenderer extends Renderer {
+		
+		private static final SpectralPowerDistribution BLACK = SpectralPowerDistribution.fromRGB(RGB.BLACK),
+				WHITE = SpectralPowerDistribution.fromRGB(RGB.WHITE),
+				GREY = SpectralPowerDistribution.fromRGB(new RGB(0.5, 0.5, 0.5));
+		
+		private int noisySamples = 0;
+		
+		@Override
+		public EstimatedSample estimate(TracedSample sample, Scene scene) {
+			
+			final var filmPoint = sample.getSample().getFilmPoint();
+			if ((int) floor(filmPoint.getX()) != 3 || (int) floor(filmPoint.getY()) != 3)
+				return new EstimatedSample(sample.getSample(), GREY);
+			
+			return new EstimatedSample(sample.getSample(), (noisySamples++ % 2 == 0) ? WHITE : BLACK);
+		}
+		
+	}
+	
+	private static class SlowRenderer extends ConstantRenderer {
+		
+		@Override
+		public EstimatedSample estimate(TracedSample sample, Scene scene) {
+			
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.estimate(sample, scene);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,168 @@
+package org.snowjak.rays.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.snowjak.rays.Primitive;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.Settings;
+import org.snowjak.rays.camera.OrthographicCamera;
+import org.snowjak.rays.geometry.Point3D;
+import org.snowjak.rays.light.PointLight;
+import org.snowjak.rays.material.LambertianMaterial;
+import org.snowjak.rays.renderer.RenderCostMap.Region;
+import org.snowjak.rays.sampler.StratifiedSampler;
+import org.snowjak.rays.shape.PlaneShape;
+import org.snowjak.rays.shape.SphereShape;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.texture.ConstantTexture;
+import org.snowjak.rays.transform.TranslationTransform;
+
+public class RenderCostMapTest {
+	
+	@Test
+	public void testDecompose_uniform() {
+		
+		final var costs = new double[8 * 8];
+		Arrays.fill(costs, 1d);
+		final var map = new RenderCostMap(0, 0, 63, 63, 8, costs);
+		
+		final var regions = map.decompose(4);
+		assertEquals(4, regions.size());
+		for (Region region : regions) {
+			assertEquals(32, region.getWidth());
+			assertEquals(32, region.getHeight());
+			assertEquals(16d, region.getCost(), 0.00001);
+		}
+		
+		assertCovers(regions, 0, 0, 63, 63);
+	}
+	
+	@Test
+	public void testDecompose_skewed() {
+		
+		//
+		// The left-hand quarter of the image is 9x as expensive as the rest.
+		//
+		final var costs = new double[8 * 8];
+		for (int cy = 0; cy < 8; cy++)
+			for (int cx = 0; cx < 8; cx++)
+				costs[cy * 8 + cx] = (cx < 2) ? 9d : 1d;
+		final var map = new RenderCostMap(0, 0, 63, 63, 8, costs);
+		
+		final var regions = map.decompose(4);
+		assertEquals(4, regions.size());
+		assertCovers(regions, 0, 0, 63, 63);
+		
+		final var target = map.getTotalCost() / 4d;
+		for (Region region : regions)
+			assertEquals("Region [" + region.getXStart() + "," + region.getYStart() + "]-[" + region.getXEnd() + ","
+					+ region.getYEnd() + "] is not of roughly equal cost!", target, region.getCost(), target * 0.25);
+		
+		//
+		// The expensive regions should be smaller.
+		//
+		final var expensive = regions.stream().filter(r -> r.getXStart() == 0).findFirst().get();
+		final var cheap = regions.stream().filter(r -> r.getXEnd() == 63).findFirst().get();
+		assertTrue(expensive.getWidth() * expensive.getHeight() < cheap.getWidth() * cheap.getHeight());
+	}
+	
+	@Test
+	public void testDecompose_ragged() {
+		
+		//
+		// A region that doesn't divide evenly into cells, decomposed into more
+		// regions than will split evenly.
+		//
+		final var costs = new double[5 * 3];
+		Arrays.fill(costs, 1d);
+		final var map = new RenderCostMap(10, 20, 45, 40, 8, costs);
+		
+		final var regions = map.decompose(5);
+		assertEquals(5, regions.size());
+		assertCovers(regions, 10, 20, 45, 40);
+		
+		//
+		// Can't have more regions than there are cells.
+		//
+		assertEquals(15, map.decompose(100).size());
+		assertCovers(map.decompose(100), 10, 20, 45, 40);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_wrongCellCount() {
+		
+		new RenderCostMap(0, 0, 63, 63, 8, new double[10]);
+	}
+	
+	@Test
+	public void testEstimate() {
+		
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new SphereShape(1.0, new TranslationTransform(0, 1.5, 0)),
+						new LambertianMaterial(new ConstantTexture(RGB.WHITE)))),
+				Arrays.asList(new PointLight(new Point3D(3, 3, 0),
+						Settings.getInstance().getIlluminatorSpectralPowerDistribution())));
+		
+		final var map = RenderCostMap.estimate(0, 0, 39, 29, new StratifiedSampler(0, 0, 39, 29, 4),
+				new PathTracingRenderer(3, 1, 1), scene, new OrthographicCamera(40, 30, 4, 4), 8, 2, 0);
+		
+		assertEquals(5, map.getCellsX());
+		assertEquals(4, map.getCellsY());
+		for (int cy = 0; cy < map.getCellsY(); cy++)
+			for (int cx = 0; cx < map.getCellsX(); cx++)
+				assertTrue(map.getCost(cx, cy) > 0d);
+		
+		assertCovers(map.decompose(6), 0, 0, 39, 29);
+	}
+	
+	@Test
+	public void testEstimate_overBudget() {
+		
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE)))),
+				Arrays.asList(new PointLight(new Point3D(3, 3, 0),
+						Settings.getInstance().getIlluminatorSpectralPowerDistribution())));
+		
+		final var map = RenderCostMap.estimate(0, 0, 39, 29, new StratifiedSampler(0, 0, 39, 29, 4),
+				new PathTracingRenderer(3, 1, 1), scene, new OrthographicCamera(40, 30, 4, 4), 8, 2, 1e-9);
+		
+		assertNull(map);
+	}
+	
+	@Test
+	public void testGetCostEstimator_photonMapping() {
+		
+		final var renderer = new PhotonMappingRenderer(3, 2, 100000, 0.25);
+		
+		final var estimator = renderer.getCostEstimator();
+		assertFalse(estimator instanceof PhotonMappingRenderer);
+		assertTrue(estimator instanceof PathTracingRenderer);
+		assertEquals(3, ((PathTracingRenderer) estimator).getMaxDepth());
+		assertEquals(2, ((PathTracingRenderer) estimator).getLightSamples());
+		
+		assertTrue(new ProgressiveRenderer(renderer).getCostEstimator() instanceof PathTracingRenderer);
+	}
+	
+	private static void assertCovers(List<Region> regions, int xStart, int yStart, int xEnd, int yEnd) {
+		
+		final var coverage = new int[xEnd - xStart + 1][yEnd - yStart + 1];
+		for (Region region : regions)
+			for (int x = region.getXStart(); x <= region.getXEnd(); x++)
+				for (int y = region.getYStart(); y <= region.getYEnd(); y++)
+					coverage[x - xStart][y - yStart]++;
+		
+		for (int x = 0; x < coverage.length; x++)
+			for (int y = 0; y < coverage[x].length; y++)
+				assertEquals("Pixel (" + (x + xStart) + "," + (y + yStart) + ") not covered exactly once!", 1,
+						coverage[x][y]);
+	}
+	
+}
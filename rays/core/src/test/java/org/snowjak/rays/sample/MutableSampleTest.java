@@ -0,0 +1,170 @@
+package org.snowjak.rays.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.snowjak.rays.geometry.Point2D;
+
+public class MutableSampleTest {
+	
+	@Test
+	public void testSet() {
+		
+		final var sample = new MutableSample();
+		sample.set(1.5, 2.5, 0.25, 0.75, 0.125);
+		
+		assertEquals(new Point2D(1.5, 2.5), sample.getFilmPoint());
+		assertEquals(new Point2D(0.25, 0.75), sample.getLensUV());
+		assertEquals(0.125, sample.getT(), 0d);
+		
+		assertEquals(0.5, sample.getAdditional1DSample(), 0d);
+		assertEquals(Point2D.HALF, sample.getAdditional2DSample());
+		
+		sample.set(3.5, 4.5, 0.5, 0.5, 0.5);
+		assertEquals(new Point2D(3.5, 4.5), sample.getFilmPoint());
+	}
+	
+	@Test
+	public void testAdditionalSamples() {
+		
+		final var sample = new MutableSample();
+		sample.set(0, 0, 0.5, 0.5, 0.5);
+		
+		for (int i = 0; i < 10; i++) {
+			sample.addAdditional1DSample((double) i / 10d);
+			sample.addAdditional2DSample((double) i / 10d, 1d - (double) i / 10d);
+		}
+		
+		assertEquals(10, sample.getAdditional1DSampleCount());
+		assertEquals(10, sample.getAdditional2DSampleCount());
+		
+		//
+		// Additional points are handed out in order ...
+		//
+		for (int i = 0; i < 10; i++) {
+			assertEquals((double) i / 10d, sample.getAdditional1DSample(), 0d);
+			assertEquals(new Point2D((double) i / 10d, 1d - (double) i / 10d), sample.getAdditional2DSample());
+		}
+		
+		//
+		// ... and then start over, in a different order.
+		//
+		final var repeated1D = new double[10];
+		final var repeated2D = new Point2D[10];
+		for (int i = 0; i < 10; i++) {
+			repeated1D[i] = sample.getAdditional1DSample();
+			repeated2D[i] = sample.getAdditional2DSample();
+			
+			assertEquals(1d - repeated2D[i].getX(), repeated2D[i].getY(), 0.00001);
+		}
+		
+		final var sorted1D = Arrays.copyOf(repeated1D, repeated1D.length);
+		Arrays.sort(sorted1D);
+		for (int i = 0; i < 10; i++)
+			assertEquals((double) i / 10d, sorted1D[i], 0d);
+		
+		assertFalse("Additional points repeated in the same order!", Arrays.equals(sorted1D, repeated1D));
+		
+		sample.set(0, 0, 0.5, 0.5, 0.5);
+		assertEquals(0, sample.getAdditional1DSampleCount());
+		assertEquals(0.5, sample.getAdditional1DSample(), 0d);
+	}
+	
+	@Test
+	public void testAdditional2DSamples_intoArray() {
+		
+		final var sample = new MutableSample();
+		sample.set(0, 0, 0.5, 0.5, 0.5);
+		
+		final var point = new double[2];
+		assertEquals(0.5, sample.getAdditional2DSample(point)[0], 0d);
+		assertEquals(0.5, point[1], 0d);
+		
+		sample.addAdditional2DSample(0.1, 0.9);
+		sample.addAdditional2DSample(0.2, 0.8);
+		
+		//
+		// Points read into an array are taken from the same sequence as any other.
+		//
+		assertEquals(new Point2D(0.1, 0.9), sample.getAdditional2DSample());
+		sample.getAdditional2DSample(point);
+		assertEquals(0.2, point[0], 0d);
+		assertEquals(0.8, point[1], 0d);
+	}
+	
+	@Test
+	public void testAdditional2DSamples_scratchArray() {
+		
+		final var sample = new MutableSample();
+		sample.set(0, 0, 0.5, 0.5, 0.5);
+		
+		sample.addAdditional2DSample(0.1, 0.9);
+		sample.addAdditional2DSample(0.2, 0.8);
+		
+		final var first = sample.getAdditional2DSampleArray();
+		assertEquals(0.1, first[0], 0d);
+		assertEquals(0.9, first[1], 0d);
+		
+		//
+		// The same scratch-array should be re-used for every point.
+		//
+		final var second = sample.getAdditional2DSampleArray();
+		assertTrue("Scratch-array not re-used!", first == second);
+		assertEquals(0.2, second[0], 0d);
+		assertEquals(0.8, second[1], 0d);
+	}
+	
+	@Test
+	public void testRefill() {
+		
+		final var sample = new MutableSample();
+		sample.set(0, 0, 0.5, 0.5, 0.5);
+		
+		sample.addAdditional1DSample(0.1);
+		sample.addAdditional2DSample(0.1, 0.9);
+		
+		final var refills = new int[2];
+		sample.setRefill(new MutableSample.Refill() {
+			
+			@Override
+			public void refill1D(MutableSample sample) {
+				
+				refills[0]++;
+				sample.addAdditional1DSample(0.1 + 0.1 * refills[0]);
+			}
+			
+			@Override
+			public void refill2D(MutableSample sample) {
+				
+				refills[1]++;
+				sample.addAdditional2DSample(0.1 + 0.1 * refills[1], 0.9 - 0.1 * refills[1]);
+			}
+		});
+		
+		//
+		// Once a Sample runs out of additional points, it should ask for more.
+		//
+		final var point = new double[2];
+		assertEquals(0.1, sample.getAdditional1DSample(), 0.00001);
+		assertEquals(new Point2D(0.1, 0.9), sample.getAdditional2DSample());
+		assertEquals(0.2, sample.getAdditional1DSample(), 0.00001);
+		assertEquals(0.2, sample.getAdditional2DSample(point)[0], 0.00001);
+		assertEquals(0.3, sample.getAdditional1DSample(), 0.00001);
+		assertEquals(0.3, sample.getAdditional2DSample().getX(), 0.00001);
+		
+		assertEquals(2, refills[0]);
+		assertEquals(2, refills[1]);
+		
+		//
+		// Resetting a Sample discards its Refill.
+		//
+		sample.set(0, 0, 0.5, 0.5, 0.5);
+		assertEquals(0.5, sample.getAdditional1DSample(), 0d);
+		assertEquals(2, refills[0]);
+	}
+	
+}
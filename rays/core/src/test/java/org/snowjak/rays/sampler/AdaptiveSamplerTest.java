@@ -0,0 +1,113 @@
+package org.snowjak.rays.sampler;
+
+import static org.apache.commons.math3.util.FastMath.floor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.filter.BoxFilter;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class AdaptiveSamplerTest {
+	
+	@Test
+	public void testConstantRadiance() {
+		
+		final var sampler = new AdaptiveSampler(0, 0, 7, 7, 4, 32, 16, 0, 0);
+		final var radiance = SpectralPowerDistribution.fromRGB(RGB.WHITE);
+		
+		int sampleCount = 0;
+		while (sampler.hasNextSample()) {
+			final var s = sampler.getNextSample();
+			assertNotNull(s);
+			sampleCount++;
+			
+			sampler.reportSampleResult(new EstimatedSample(s, radiance));
+		}
+		
+		//
+		// With no variance anywhere, there's no reason to go past the first phase.
+		//
+		assertEquals("Unexpected number of samples generated!", 8 * 8 * 4, sampleCount);
+		assertEquals("Unexpected completion-percentage!", 1d, sampler.getPercentComplete(), 0.00001);
+	}
+	
+	@Test
+	public void testNoisyPixelReceivesMoreSamples() {
+		
+		final var sampler = new AdaptiveSampler(0, 0, 7, 7, 4, 32, 8, 0, 0);
+		final var black = SpectralPowerDistribution.fromRGB(RGB.BLACK);
+		final var white = SpectralPowerDistribution.fromRGB(RGB.WHITE);
+		final var grey = SpectralPowerDistribution.fromRGB(new RGB(0.5, 0.5, 0.5));
+		
+		final int[][] sampleCounts = new int[8][8];
+		int sampleCount = 0;
+		
+		while (sampler.hasNextSample()) {
+			final var s = sampler.getNextSample();
+			assertNotNull(s);
+			sampleCount++;
+			
+			final int x = (int) floor(s.getFilmPoint().getX()), y = (int) floor(s.getFilmPoint().getY());
+			sampleCounts[x][y]++;
+			
+			//
+			// Pixel [3,3] alternates between black and white; every other pixel
+			// is a constant grey.
+			//
+			if (x == 3 && y == 3)
+				sampler.reportSampleResult(new EstimatedSample(s, (sampleCounts[x][y] % 2 == 0) ? black : white));
+			else
+				sampler.reportSampleResult(new EstimatedSample(s, grey));
+		}
+		
+		assertTrue("Exceeded sample-budget!", sampleCount <= 8 * 8 * 8);
+		assertEquals("Noisy pixel did not receive maximum samples!", 32, sampleCounts[3][3]);
+		
+		for (int x = 0; x < 8; x++)
+			for (int y = 0; y < 8; y++)
+				if (x != 3 || y != 3)
+					assertEquals("Quiet pixel [" + x + "," + y + "] received unexpected samples!", 4,
+							sampleCounts[x][y]);
+	}
+	
+	@Test
+	public void testNoisyPixelReceivesMoreSamples_film() {
+		
+		final var sampler = new AdaptiveSampler(0, 0, 7, 7, 4, 32, 8, 0, 0);
+		final var film = new Film(8, 8, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		final var black = SpectralPowerDistribution.fromRGB(RGB.BLACK);
+		final var white = SpectralPowerDistribution.fromRGB(RGB.WHITE);
+		final var grey = SpectralPowerDistribution.fromRGB(new RGB(0.5, 0.5, 0.5));
+		
+		sampler.beforeRender(film);
+		assertTrue("Sampler not sharing Film's statistics!", film.getStatistics() == sampler.getStatistics());
+		
+		final int[][] sampleCounts = new int[8][8];
+		while (sampler.hasNextSample()) {
+			final var s = sampler.getNextSample();
+			
+			final int x = (int) floor(s.getFilmPoint().getX()), y = (int) floor(s.getFilmPoint().getY());
+			sampleCounts[x][y]++;
+			
+			final var estimate = new EstimatedSample(s,
+					(x == 3 && y == 3) ? ((sampleCounts[x][y] % 2 == 0) ? black : white) : grey);
+			if (sampler.reportSampleResult(estimate))
+				film.addSample(estimate);
+		}
+		
+		assertEquals("Noisy pixel did not receive maximum samples!", 32, sampleCounts[3][3]);
+		assertEquals("Film's statistics counted samples twice!", 32, film.getStatistics().getCount(3, 3));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMinSamplesPerPixel_invalid() {
+		
+		new AdaptiveSampler(0, 0, 7, 7, 0, 32);
+	}
+	
+}
@@ -0,0 +1,76 @@
+package org.snowjak.rays.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HaltonSamplerTest {
+	
+	@Test
+	public void testSamplingRange() {
+		
+		final var sampler = new HaltonSampler(0, 0, 16, 16, 3, 3, 4);
+		
+		final int[][] sampleCounts = new int[sampler.getXEnd() - sampler.getXStart() + 1][sampler.getYEnd()
+				- sampler.getYStart() + 1];
+		int sampleCount = 0;
+		
+		while (sampler.hasNextSample()) {
+			sampleCount++;
+			final var s = sampler.getNextSample();
+			
+			assertNotNull(s);
+			
+			final int filmX = (int) s.getFilmPoint().getX(), filmY = (int) s.getFilmPoint().getY();
+			assertTrue("Film-X (" + filmX + ") not in range.", (filmX >= 0) && (filmX < sampleCounts.length));
+			assertTrue("Film-Y (" + filmY + ") not in range.", (filmY >= 0) && (filmY < sampleCounts[filmX].length));
+			
+			sampleCounts[filmX][filmY]++;
+			
+			final double lensU = s.getLensUV().getX(), lensV = s.getLensUV().getY();
+			assertTrue("Lens-U (" + Double.toString(lensU) + ") not in range.", (lensU >= 0d) && (lensU < 1d));
+			assertTrue("Lens-V (" + Double.toString(lensV) + ") not in range.", (lensV >= 0d) && (lensV < 1d));
+			assertTrue("T (" + Double.toString(s.getT()) + ") not in range.", (s.getT() >= 0d) && (s.getT() < 1d));
+		}
+		
+		assertEquals("Not expected number of samples generated.", (sampler.getXEnd() - sampler.getXStart() + 1)
+				* (sampler.getYEnd() - sampler.getYStart() + 1) * (sampler.getSamplesPerPixel()), sampleCount);
+		
+		for (int x = 0; x < sampleCounts.length; x++)
+			for (int y = 0; y < sampleCounts[x].length; y++)
+				assertEquals("Not enough samples generated for pixel (" + x + "," + y + ").",
+						sampler.getSamplesPerPixel(), sampleCounts[x][y]);
+	}
+	
+	@Test
+	public void testScrambledRadicalInverse_stratification() {
+		
+		//
+		// The first b^k points in base b should fall into every interval of width
+		// 1/b^k exactly once, however they're scrambled.
+		//
+		for (int base : new int[] { 2, 3, 5 }) {
+			final var count = base * base * base;
+			
+			for (int seed : new int[] { 0, 12345, -987654321 }) {
+				final var cells = new int[count];
+				for (int i = 0; i < count; i++)
+					cells[(int) (HaltonSampler.scrambledRadicalInverse(base, i, seed) * (double) count)]++;
+				
+				for (int i = 0; i < count; i++)
+					assertEquals("Base " + base + ", seed " + seed + ": interval " + i + " not hit exactly once!", 1,
+							cells[i]);
+			}
+		}
+	}
+	
+	@Test
+	public void testScrambledRadicalInverse_scrambles() {
+		
+		assertTrue(HaltonSampler.scrambledRadicalInverse(2, 1, 1) != HaltonSampler.scrambledRadicalInverse(2, 1,
+				2));
+	}
+	
+}
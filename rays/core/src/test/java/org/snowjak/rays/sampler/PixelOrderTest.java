@@ -0,0 +1,132 @@
+package org.snowjak.rays.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PixelOrderTest {
+	
+	@Test
+	public void testForName() {
+		
+		assertEquals(PixelOrder.SCANLINE, PixelOrder.forName(null));
+		assertEquals(PixelOrder.SCANLINE, PixelOrder.forName(""));
+		assertEquals(PixelOrder.TILES, PixelOrder.forName("tiles"));
+		assertEquals(PixelOrder.MORTON, PixelOrder.forName("Morton"));
+		assertEquals(PixelOrder.HILBERT, PixelOrder.forName(" hilbert "));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testForName_unknown() {
+		
+		PixelOrder.forName("zig-zag");
+	}
+	
+	@Test
+	public void testGetSequence_scanline() {
+		
+		assertNull(PixelOrder.SCANLINE.getSequence(13, 7));
+	}
+	
+	@Test
+	public void testGetSequence_visitsEveryPixelOnce() {
+		
+		for (PixelOrder order : new PixelOrder[] { PixelOrder.TILES, PixelOrder.MORTON, PixelOrder.HILBERT })
+			for (int[] size : new int[][] { { 1, 1 }, { 16, 16 }, { 13, 7 }, { 3, 40 } }) {
+				
+				final var sequence = order.getSequence(size[0], size[1]);
+				assertEquals(size[0] * size[1], sequence.length);
+				
+				final var visits = new int[size[0] * size[1]];
+				for (int offset : sequence)
+					visits[offset]++;
+				
+				for (int i = 0; i < visits.length; i++)
+					assertEquals(order + " (" + size[0] + "x" + size[1] + ") did not visit pixel #" + i + " once.", 1,
+							visits[i]);
+			}
+	}
+	
+	@Test
+	public void testGetSequence_tiles() {
+		
+		final var sequence = PixelOrder.TILES.getSequence(20, 20);
+		
+		//
+		// The first tile should be finished before the second is begun.
+		//
+		for (int i = 0; i < PixelOrder.TILE_SIZE * PixelOrder.TILE_SIZE; i++) {
+			assertTrue(sequence[i] % 20 < PixelOrder.TILE_SIZE);
+			assertTrue(sequence[i] / 20 < PixelOrder.TILE_SIZE);
+		}
+		assertEquals(PixelOrder.TILE_SIZE, sequence[PixelOrder.TILE_SIZE * PixelOrder.TILE_SIZE]);
+	}
+	
+	@Test
+	public void testGetSequence_morton() {
+		
+		final var sequence = PixelOrder.MORTON.getSequence(4, 4);
+		
+		assertEquals(0, sequence[0]);
+		assertEquals(1, sequence[1]);
+		assertEquals(4, sequence[2]);
+		assertEquals(5, sequence[3]);
+		assertEquals(2, sequence[4]);
+	}
+	
+	@Test
+	public void testGetSequence_hilbertIsContinuous() {
+		
+		final var sequence = PixelOrder.HILBERT.getSequence(32, 32);
+		
+		for (int i = 1; i < sequence.length; i++) {
+			final var dx = Math.abs(sequence[i] % 32 - sequence[i - 1] % 32);
+			final var dy = Math.abs(sequence[i] / 32 - sequence[i - 1] / 32);
+			assertEquals("Pixels #" + (i - 1) + " and #" + i + " are not adjacent.", 1, dx + dy);
+		}
+	}
+	
+	@Test
+	public void testSampler_visitsEveryPixel() {
+		
+		for (PixelOrder order : PixelOrder.values()) {
+			
+			final var sampler = new StratifiedSampler(3, 5, 17, 12, 4);
+			sampler.setPixelOrder(order);
+			
+			final var partition = sampler.partition(3, 5, 17, 12);
+			assertEquals(order, partition.getPixelOrder());
+			
+			final var sampleCounts = new int[15][8];
+			while (partition.hasNextSample()) {
+				final var s = partition.getNextSample();
+				sampleCounts[(int) s.getFilmPoint().getX() - 3][(int) s.getFilmPoint().getY() - 5]++;
+			}
+			
+			for (int x = 0; x < sampleCounts.length; x++)
+				for (int y = 0; y < sampleCounts[x].length; y++)
+					assertEquals(order + ": wrong number of samples for pixel (" + x + "," + y + ").", 4,
+							sampleCounts[x][y]);
+		}
+	}
+	
+	@Test
+	public void testSampler_followsOrder() {
+		
+		final var sampler = new PseudorandomSampler(0, 0, 7, 7, 2);
+		sampler.setPixelOrder(PixelOrder.HILBERT);
+		
+		final var sequence = PixelOrder.HILBERT.getSequence(8, 8);
+		for (int i = 0; i < sequence.length; i++)
+			for (int n = 0; n < 2; n++) {
+				final var s = sampler.getNextSample();
+				assertEquals(sequence[i] % 8, (int) s.getFilmPoint().getX());
+				assertEquals(sequence[i] / 8, (int) s.getFilmPoint().getY());
+			}
+		
+		assertTrue(!sampler.hasNextSample());
+	}
+	
+}
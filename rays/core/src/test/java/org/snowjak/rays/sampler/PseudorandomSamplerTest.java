@@ -1,6 +1,7 @@
 package org.snowjak.rays.sampler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -8,6 +9,7 @@ import java.util.HashSet;
 
 import org.junit.Test;
 import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.util.RandomSource;
 
 public class PseudorandomSamplerTest {
 	
@@ -56,4 +58,40 @@ public class PseudorandomSamplerTest {
 						sampler.getSamplesPerPixel(), sampleCounts[x][y]);
 	}
 	
+	@Test
+	public void testPartitionSamples() {
+		
+		final var sampler = new PseudorandomSampler(0, 0, 3, 3, 10, 1, 2);
+		assertFalse(sampler.isSliced());
+		
+		final var slice = sampler.partitionSamples(2, 3);
+		assertEquals(4, slice.getSamplesPerPixel());
+		assertEquals(2, slice.getSlice());
+		assertEquals(3, slice.getSliceCount());
+		assertEquals(sampler.getXEnd(), slice.getXEnd());
+		assertEquals(sampler.getAdditional2DSamples(), slice.getAdditional2DSamples());
+		
+		//
+		// Slicing a slice, or partitioning it by region, keeps track of which slice
+		// it is.
+		//
+		final var subSlice = slice.partitionSamples(1, 2).partition(1, 1, 2, 2);
+		assertEquals(2, subSlice.getSamplesPerPixel());
+		assertEquals(5, subSlice.getSlice());
+		assertEquals(6, subSlice.getSliceCount());
+		
+		//
+		// Different slices are rendered from different random streams.
+		//
+		final var tileSeed = RandomSource.getSeed(null, 0, 0);
+		assertFalse(RandomSource.getSeed(tileSeed, slice.getSlice()) == RandomSource.getSeed(tileSeed,
+				sampler.partitionSamples(1, 3).getSlice()));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testPartitionSamples_outOfRange() {
+		
+		new PseudorandomSampler(0, 0, 3, 3, 10).partitionSamples(3, 3);
+	}
+	
 }
@@ -0,0 +1,145 @@
+package org.snowjak.rays.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SobolSamplerTest {
+	
+	@Test
+	public void testSamplingRange() {
+		
+		final var sampler = new SobolSampler(0, 0, 16, 16, 4, 3, 4);
+		
+		final int[][] sampleCounts = new int[sampler.getXEnd() - sampler.getXStart() + 1][sampler.getYEnd()
+				- sampler.getYStart() + 1];
+		int sampleCount = 0;
+		
+		while (sampler.hasNextSample()) {
+			sampleCount++;
+			final var s = sampler.getNextSample();
+			
+			assertNotNull(s);
+			
+			final int filmX = (int) s.getFilmPoint().getX(), filmY = (int) s.getFilmPoint().getY();
+			assertTrue("Film-X (" + filmX + ") not in range.", (filmX >= 0) && (filmX < sampleCounts.length));
+			assertTrue("Film-Y (" + filmY + ") not in range.", (filmY >= 0) && (filmY < sampleCounts[filmX].length));
+			
+			sampleCounts[filmX][filmY]++;
+			
+			final double lensU = s.getLensUV().getX(), lensV = s.getLensUV().getY();
+			assertTrue("Lens-U (" + Double.toString(lensU) + ") not in range.", (lensU >= 0d) && (lensU < 1d));
+			assertTrue("Lens-V (" + Double.toString(lensV) + ") not in range.", (lensV >= 0d) && (lensV < 1d));
+			assertTrue("T (" + Double.toString(s.getT()) + ") not in range.", (s.getT() >= 0d) && (s.getT() < 1d));
+		}
+		
+		assertEquals("Not expected number of samples generated.", (sampler.getXEnd() - sampler.getXStart() + 1)
+				* (sampler.getYEnd() - sampler.getYStart() + 1) * (sampler.getSamplesPerPixel()), sampleCount);
+		
+		for (int x = 0; x < sampleCounts.length; x++)
+			for (int y = 0; y < sampleCounts[x].length; y++)
+				assertEquals("Not enough samples generated for pixel (" + x + "," + y + ").",
+						sampler.getSamplesPerPixel(), sampleCounts[x][y]);
+	}
+	
+	@Test
+	public void testStratification() {
+		
+		//
+		// 16 Sobol' points should fall into every 4x4 -- and every 2x8, and 8x2
+		// -- grid-cell exactly once, for every slot.
+		//
+		final var sampler = new SobolSampler(3, 5, 3, 5, 16, 0, 1);
+		
+		final var filmCells = new int[4][4];
+		final var lensCells = new int[2][8];
+		final var additionalCells = new int[8][2];
+		
+		while (sampler.hasNextSample()) {
+			final var s = sampler.getNextSample();
+			
+			filmCells[(int) ((s.getFilmPoint().getX() - 3d) * 4d)][(int) ((s.getFilmPoint().getY() - 5d) * 4d)]++;
+			lensCells[(int) (s.getLensUV().getX() * 2d)][(int) (s.getLensUV().getY() * 8d)]++;
+			
+			final var additional = s.getAdditional2DSample();
+			additionalCells[(int) (additional.getX() * 8d)][(int) (additional.getY() * 2d)]++;
+		}
+		
+		for (int i = 0; i < 4; i++)
+			for (int j = 0; j < 4; j++)
+				assertEquals(1, filmCells[i][j]);
+		for (int i = 0; i < 2; i++)
+			for (int j = 0; j < 8; j++)
+				assertEquals(1, lensCells[i][j]);
+		for (int i = 0; i < 8; i++)
+			for (int j = 0; j < 2; j++)
+				assertEquals(1, additionalCells[i][j]);
+	}
+	
+	@Test
+	public void testDeterministic() {
+		
+		final var sampler = new SobolSampler(0, 0, 3, 3, 4, 2, 2);
+		final var partition = sampler.partition(2, 2, 3, 3);
+		
+		while (sampler.hasNextSample()) {
+			final var s = sampler.getNextSample();
+			if (s.getFilmPoint().getX() < 2d || s.getFilmPoint().getY() < 2d)
+				continue;
+			
+			final var p = partition.getNextSample();
+			assertEquals(s.getFilmPoint(), p.getFilmPoint());
+			assertEquals(s.getLensUV(), p.getLensUV());
+			assertEquals(s.getT(), p.getT(), 0d);
+		}
+	}
+	
+	@Test
+	public void testPassSampler() {
+		
+		final var first = new SobolSampler(0, 0, 0, 0, 4).getPassSampler(0);
+		final var second = new SobolSampler(0, 0, 0, 0, 4).getPassSampler(1);
+		final var both = new SobolSampler(0, 0, 0, 0, 8);
+		
+		while (both.hasNextSample()) {
+			final var expected = both.getNextSample();
+			final var actual = (first.hasNextSample()) ? first.getNextSample() : second.getNextSample();
+			assertEquals(expected.getFilmPoint(), actual.getFilmPoint());
+		}
+		
+		assertNotEquals(new SobolSampler(0, 0, 0, 0, 4).getNextSample().getFilmPoint(),
+				new SobolSampler(0, 0, 0, 0, 4).getPassSampler(1).getNextSample().getFilmPoint());
+	}
+	
+	@Test
+	public void testPartitionSamples() {
+		
+		//
+		// Slices 0 and 1 of a 16spp Sampler should take the first and second 8 of
+		// its samples -- and their second passes the first and second 8 of the
+		// next 16.
+		//
+		final var sampler = new SobolSampler(0, 0, 0, 0, 16);
+		final var first = sampler.partitionSamples(0, 2);
+		final var second = sampler.partitionSamples(1, 2);
+		
+		assertEquals(8, first.getSamplesPerPixel());
+		assertEquals(1, second.getSlice());
+		assertEquals(2, second.getSliceCount());
+		
+		final var both = new SobolSampler(0, 0, 0, 0, 32);
+		final var firstPass = first.getPassSampler(1);
+		final var secondPass = second.getPassSampler(1);
+		
+		for (var slice : new Sampler[] { first, second, firstPass, secondPass })
+			while (slice.hasNextSample())
+				assertEquals(both.getNextSample().getFilmPoint(), slice.getNextSample().getFilmPoint());
+		
+		assertFalse(both.hasNextSample());
+	}
+	
+}
@@ -3,9 +3,11 @@ package org.snowjak.rays.sampler;
 import static org.apache.commons.math3.util.FastMath.floor;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
+import org.snowjak.rays.sample.MutableSample;
 
 public class StratifiedSamplerTest {
 	
@@ -50,4 +52,51 @@ public class StratifiedSamplerTest {
 								1, sampleCounts[x][y][sx][sy]);
 	}
 	
+	
+	@Test
+	public void testGetNextSample_reused() {
+		
+		final var sampler = new StratifiedSampler(0, 0, 3, 3, 4, 4, 4);
+		final var record = new MutableSample();
+		
+		int count = 0;
+		while (sampler.hasNextSample()) {
+			final var sample = sampler.getNextSample(record);
+			assertSame(record, sample);
+			
+			assertEquals(4, record.getAdditional1DSampleCount());
+			assertEquals(4, record.getAdditional2DSampleCount());
+			
+			for (int i = 0; i < 4; i++) {
+				final var additional1D = record.getAdditional1DSample();
+				assertTrue((additional1D >= 0d) && (additional1D < 1d));
+			}
+			
+			count++;
+		}
+		
+		assertEquals(4 * 4 * 4, count);
+	}
+	
+	@Test
+	public void testGetNextSample_endlessAdditional() {
+		
+		final var sampler = new StratifiedSampler(0, 0, 0, 0, 1, 4, 4);
+		final var sample = sampler.getNextSample(new MutableSample());
+		
+		//
+		// A Sample asked for more additional points than it was given should
+		// receive new points, rather than the same ones over again.
+		//
+		final var first = new double[4][];
+		for (int i = 0; i < 4; i++)
+			first[i] = sample.getAdditional2DSample(new double[2]);
+		
+		for (int i = 0; i < 4; i++) {
+			final var next = sample.getAdditional2DSample(new double[2]);
+			assertTrue((next[0] >= 0d) && (next[0] < 1d) && (next[1] >= 0d) && (next[1] < 1d));
+			assertTrue("Additional point repeated!", next[0] != first[i][0] || next[1] != first[i][1]);
+		}
+	}
+	
 }
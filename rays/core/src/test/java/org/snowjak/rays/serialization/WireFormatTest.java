@@ -0,0 +1,214 @@
+package org.snowjak.rays.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.snowjak.rays.RenderTask;
+import org.snowjak.rays.RenderTask.ProgressInfo;
+import org.snowjak.rays.Settings;
+import org.snowjak.rays.camera.OrthographicCamera;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.filter.BoxFilter;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.renderer.PathTracingRenderer;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.sampler.StratifiedSampler;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class WireFormatTest {
+	
+	private static final UUID UUID_1 = UUID.fromString("3a313f08-8262-4f45-8cf6-60b9cb13601b");
+	
+	private Image getImage(boolean includeAccumulator) {
+		
+		final var film = new Film(4, 4, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0));
+		for (int x = 0; x < 4; x++)
+			for (int y = 0; y < 4; y++)
+				film.addSample(new EstimatedSample(
+						new FixedSample(new Point2D(x + 0.5, y + 0.5), new Point2D(0.5, 0.5), 0d,
+								Collections.emptyList(), Collections.emptyList()),
+						SpectralPowerDistribution.fromRGB(new RGB(x / 4d, y / 4d, 0.5))));
+		
+		return film.getImage(UUID_1, 0, 0, 3, 3, includeAccumulator);
+	}
+	
+	@Test
+	public void testImage() {
+		
+		final var image = getImage(false);
+		
+		final var encoded = WireFormat.encode(image);
+		assertEquals(WireFormat.Kind.IMAGE, WireFormat.getKind(encoded));
+		
+		final var decoded = WireFormat.decodeImage(encoded);
+		assertEquals(UUID_1, decoded.getUuid());
+		assertArrayEquals(image.getPngBytes(), decoded.getPngBytes());
+		assertNull(decoded.getAccumulator());
+		
+		//
+		// Raw bytes should be smaller than their Base64 encoding inside JSON.
+		//
+		assertTrue(encoded.length < Settings.getInstance().getGson().toJson(image).length());
+	}
+	
+	@Test
+	public void testImage_accumulator() {
+		
+		final var image = getImage(true);
+		
+		final var decoded = WireFormat.decodeImage(WireFormat.encode(image));
+		assertEquals(UUID_1, decoded.getUuid());
+		assertArrayEquals(image.getPngBytes(), decoded.getPngBytes());
+		assertArrayEquals(image.getAccumulator(), decoded.getAccumulator());
+		
+		final var undeflated = WireFormat.decodeImage(WireFormat.encode(image, false));
+		assertArrayEquals(image.getAccumulator(), undeflated.getAccumulator());
+	}
+	
+	@Test
+	public void testImage_json() {
+		
+		//
+		// Images must still round-trip through JSON, for nodes which don't
+		// support the binary encoding.
+		//
+		final var image = getImage(true);
+		
+		final var json = Settings.getInstance().getGson().toJson(image);
+		final var decoded = Settings.getInstance().getGson().fromJson(json, Image.class);
+		
+		assertEquals(UUID_1, decoded.getUuid());
+		assertArrayEquals(image.getPngBytes(), decoded.getPngBytes());
+		assertArrayEquals(image.getAccumulator(), decoded.getAccumulator());
+		assertEquals(image.getPng(), decoded.getPng());
+	}
+	
+	@Test
+	public void testImage_partial() {
+		
+		final var image = getImage(false);
+		final var partial = new Image(image.getPngBytes(), UUID_1, null, true);
+		
+		assertTrue(WireFormat.decodeImage(WireFormat.encode(partial)).isPartial());
+		assertTrue(!WireFormat.decodeImage(WireFormat.encode(image)).isPartial());
+		
+		final var json = Settings.getInstance().getGson().toJson(partial);
+		assertTrue(Settings.getInstance().getGson().fromJson(json, Image.class).isPartial());
+		assertTrue(!Settings.getInstance().getGson().fromJson(Settings.getInstance().getGson().toJson(image),
+				Image.class).isPartial());
+	}
+	
+	@Test
+	public void testProgressInfo() {
+		
+		final var decoded = WireFormat
+				.decodeProgressInfo(WireFormat.encode(new ProgressInfo(UUID_1, 42, 16)));
+		
+		assertEquals(UUID_1, decoded.getUuid());
+		assertEquals(42, decoded.getPercent());
+		assertEquals(16, decoded.getSamplesPerPixel());
+	}
+	
+	@Test
+	public void testRenderTask() {
+		
+		final var task = new RenderTask(UUID_1, new StratifiedSampler(0, 0, 15, 15, 4),
+				new PathTracingRenderer(3, 1, 1), new Film(16, 16, 1.0, 1.0, 1.0, 1.0, new BoxFilter(0)), null,
+				new OrthographicCamera(16, 16, 4, 4), 8, 4);
+		task.setSceneReference("abcdef");
+		
+		final var encoded = WireFormat.encode(task);
+		assertEquals(WireFormat.Kind.RENDER_TASK, WireFormat.getKind(encoded));
+		assertTrue(encoded.length < Settings.getInstance().getGson().toJson(task).length());
+		
+		final var decoded = WireFormat.decodeRenderTask(encoded);
+		assertEquals(UUID_1, decoded.getUuid());
+		assertEquals("abcdef", decoded.getSceneHash());
+		assertEquals(8, decoded.getOffsetX());
+		assertEquals(4, decoded.getOffsetY());
+		assertTrue(decoded.getSampler() instanceof StratifiedSampler);
+		assertEquals(15, decoded.getSampler().getXEnd());
+		assertTrue(decoded.getRenderer() instanceof PathTracingRenderer);
+		assertTrue(decoded.getCamera() instanceof OrthographicCamera);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_wrongKind() {
+		
+		WireFormat.decodeImage(WireFormat.encode(new ProgressInfo(UUID_1, 42)));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_notWireFormat() {
+		
+		WireFormat.decodeImage("{ \"png\": \"\" }".getBytes());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_truncated() {
+		
+		final var encoded = WireFormat.encode(getImage(true));
+		WireFormat.decodeImage(Arrays.copyOf(encoded, encoded.length / 2));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_corruptLength() {
+		
+		//
+		// The PNG's length (just after the Image's flags and UUID) is negative.
+		//
+		final var encoded = WireFormat.encode(getImage(false), false);
+		ByteBuffer.wrap(encoded).putInt(12 + 1 + 16, -2);
+		WireFormat.decodeImage(encoded);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_lengthPastEnd() {
+		
+		//
+		// The PNG's length runs past the end of the message.
+		//
+		final var encoded = WireFormat.encode(getImage(false), false);
+		ByteBuffer.wrap(encoded).putInt(12 + 1 + 16, Integer.MAX_VALUE);
+		WireFormat.decodeImage(encoded);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_emptyBody() {
+		
+		final var encoded = WireFormat.encode(new ProgressInfo(UUID_1, 42));
+		WireFormat.decodeProgressInfo(Arrays.copyOf(ByteBuffer.wrap(encoded).putInt(8, 0).array(), 12));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_inflatedLengthTooLarge() {
+		
+		//
+		// A small message claiming to inflate to an enormous body shouldn't be
+		// believed.
+		//
+		final var encoded = WireFormat.encode(getImage(true), true);
+		ByteBuffer.wrap(encoded).putInt(12, Integer.MAX_VALUE);
+		WireFormat.decodeImage(encoded);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecode_unsupportedVersion() {
+		
+		final var encoded = WireFormat.encode(new ProgressInfo(UUID_1, 42));
+		encoded[5] = (byte) (WireFormat.VERSION + 1);
+		WireFormat.decodeProgressInfo(encoded);
+	}
+	
+}
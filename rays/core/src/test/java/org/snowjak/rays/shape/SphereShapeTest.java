@@ -1,5 +1,7 @@
 package org.snowjak.rays.shape;
 
+import static org.apache.commons.math3.util.FastMath.PI;
+import static org.apache.commons.math3.util.FastMath.abs;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -111,6 +113,39 @@ public class SphereShapeTest {
 		assertNotNull(isect);
 	}
 	
+	@Test
+	public void testSampleSurfaceArea() {
+		
+		//
+		// Samples should be spread uniformly over the sphere's surface. By
+		// Archimedes' hat-box theorem, the band within half a radius of the
+		// equator holds exactly half the sphere's surface-area -- and so should
+		// receive half of the samples.
+		//
+		final var radius = 2.0;
+		final var sphere = new SphereShape(radius);
+		final var rnd = new Random(1234);
+		
+		final var count = 10000;
+		var inBand = 0;
+		for (int i = 0; i < count; i++) {
+			final var surface = sphere.sampleSurfaceArea(new FixedSample(null, null, 0.0,
+					Arrays.asList(rnd.nextDouble()), Arrays.asList(new Point2D(rnd.nextDouble(), rnd.nextDouble()))));
+			
+			assertEquals(radius, Vector3D.from(surface.getPoint()).getMagnitude(), 0.00001);
+			if (abs(surface.getPoint().getY()) < radius / 2d)
+				inBand++;
+		}
+		
+		assertEquals(0.5, (double) inBand / (double) count, 0.02);
+		
+		//
+		// The PDF is taken with respect to surface-area, and so must integrate to 1
+		// over the sphere's whole surface.
+		//
+		assertEquals(1d, sphere.pdf_sampleSurfaceArea(null) * 4d * PI * radius * radius, 0.00001);
+	}
+	
 	@Test
 	public void testSerialization() {
 		
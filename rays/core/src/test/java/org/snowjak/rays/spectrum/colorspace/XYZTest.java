@@ -86,4 +86,16 @@ public class XYZTest {
 		assertEquals(expected.getY(), rgb.getY(), 0.00001);
 		assertEquals(expected.getZ(), rgb.getZ(), 0.00001);
 	}
+	
+	@Test
+	public void testToPackedRGB() {
+		
+		final double[][] values = { { 0.5, 0.4, 0.3 }, { 0.05, 0.02, 0.9 }, { 0.95047, 1.0, 1.08883 },
+				{ 1.5, 0.2, 0.1 } };
+		
+		for (double[] v : values) {
+			final var expected = RGB.toPacked(new XYZ(v[0], v[1], v[2]).to(RGB.class), 0.5);
+			assertEquals(expected, XYZ.toPackedRGB(v[0], v[1], v[2], 0.5));
+		}
+	}
 }
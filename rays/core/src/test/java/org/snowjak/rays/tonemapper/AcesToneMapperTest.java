@@ -0,0 +1,41 @@
+package org.snowjak.rays.tonemapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AcesToneMapperTest {
+	
+	@Test
+	public void testMap() {
+		
+		final var rgb = new double[] { 0d, 0.18d, 1d, 1000d };
+		new AcesToneMapper(1d).map(rgb, 0, 1);
+		
+		assertEquals(0d, rgb[0], 0.00001);
+		assertEquals((0.18 * (2.51 * 0.18 + 0.03)) / (0.18 * (2.43 * 0.18 + 0.59) + 0.14), rgb[1], 0.00001);
+		assertEquals(2.54d / 3.16d, rgb[2], 0.00001);
+		
+		//
+		// Pixels outside the given range are left alone.
+		//
+		assertEquals(1000d, rgb[3], 0.00001);
+	}
+	
+	@Test
+	public void testMap_monotonic() {
+		
+		final var rgb = new double[300];
+		for (int i = 0; i < rgb.length; i++)
+			rgb[i] = (double) i * 0.1;
+		
+		new AcesToneMapper().map(rgb, 0, 100);
+		
+		for (int i = 1; i < rgb.length; i++) {
+			assertTrue(rgb[i] >= rgb[i - 1]);
+			assertTrue(rgb[i] <= 2.51d / 2.43d);
+		}
+	}
+	
+}
@@ -0,0 +1,41 @@
+package org.snowjak.rays.tonemapper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ReinhardToneMapperTest {
+	
+	@Test
+	public void testMap() {
+		
+		final var rgb = new double[] { 1d, 1d, 1d, 3d, 3d, 3d, 0d, 0d, 0d };
+		new ReinhardToneMapper().map(rgb, 0, 3);
+		
+		assertEquals(0.5d, rgb[0], 0.00001);
+		assertEquals(0.75d, rgb[4], 0.00001);
+		assertEquals(0d, rgb[8], 0.00001);
+	}
+	
+	@Test
+	public void testMap_whitePoint() {
+		
+		final var rgb = new double[] { 4d, 4d, 4d, 2d, 2d, 2d };
+		new ReinhardToneMapper(4d).map(rgb, 0, 2);
+		
+		assertEquals(1d, rgb[0], 0.00001);
+		assertEquals(2d * (1d + 2d / 16d) / 3d, rgb[3], 0.00001);
+	}
+	
+	@Test
+	public void testMap_preservesHue() {
+		
+		final var rgb = new double[] { 0d, 0d, 0d, 2d, 1d, 0.5d };
+		new ReinhardToneMapper().map(rgb, 1, 2);
+		
+		assertEquals(0d, rgb[0], 0.00001);
+		assertEquals(2d, rgb[3] / rgb[4], 0.00001);
+		assertEquals(2d, rgb[4] / rgb[5], 0.00001);
+	}
+	
+}
@@ -0,0 +1,92 @@
+package org.snowjak.rays.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.snowjak.rays.sample.Sample;
+import org.snowjak.rays.sampler.StratifiedSampler;
+
+public class RandomSourceTest {
+	
+	@After
+	public void tearDown() {
+		
+		RandomSource.unseed();
+	}
+	
+	@Test
+	public void testSeed() {
+		
+		RandomSource.seed(1234);
+		final var first = new double[] { RandomSource.nextDouble(), RandomSource.nextDouble(),
+				RandomSource.nextInt(100) };
+		
+		RandomSource.seed(1234);
+		final var second = new double[] { RandomSource.nextDouble(), RandomSource.nextDouble(),
+				RandomSource.nextInt(100) };
+		
+		for (int i = 0; i < first.length; i++)
+			assertEquals(first[i], second[i], 0d);
+	}
+	
+	@Test
+	public void testGetSeed() {
+		
+		final var uuid = UUID.randomUUID();
+		
+		assertEquals(RandomSource.getSeed(uuid, 16, 32), RandomSource.getSeed(uuid, 16, 32));
+		assertNotEquals(RandomSource.getSeed(uuid, 16, 32), RandomSource.getSeed(uuid, 32, 16));
+		assertNotEquals(RandomSource.getSeed(uuid, 16, 32), RandomSource.getSeed(UUID.randomUUID(), 16, 32));
+		assertNotEquals(RandomSource.getSeed(1234L, 0), RandomSource.getSeed(1234L, 1));
+	}
+	
+	@Test
+	public void testSampler_reproducible() throws InterruptedException, ExecutionException {
+		
+		final var seed = RandomSource.getSeed(UUID.randomUUID(), 0, 0);
+		
+		//
+		// The same seed should produce the same samples, regardless of which thread
+		// generates them.
+		//
+		final var executor = Executors.newFixedThreadPool(2);
+		try {
+			final var first = executor.submit(() -> generateSamples(seed));
+			final var second = executor.submit(() -> generateSamples(seed));
+			
+			final var expected = first.get();
+			final var actual = second.get();
+			
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getFilmPoint(), actual.get(i).getFilmPoint());
+				assertEquals(expected.get(i).getLensUV(), actual.get(i).getLensUV());
+				assertEquals(expected.get(i).getT(), actual.get(i).getT(), 0d);
+			}
+			
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	private static List<Sample> generateSamples(long seed) {
+		
+		RandomSource.seed(seed);
+		
+		final var sampler = new StratifiedSampler(0, 0, 7, 7, 4, 2, 2);
+		final var result = new ArrayList<Sample>();
+		while (sampler.hasNextSample())
+			result.add(sampler.getNextSample());
+		
+		return result;
+	}
+	
+}
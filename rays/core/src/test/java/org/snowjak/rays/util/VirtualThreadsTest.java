@@ -0,0 +1,32 @@
+package org.snowjak.rays.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+	
+	@Test
+	public void testNewThreadFactory() throws Exception {
+		
+		final var factory = VirtualThreads.newThreadFactory("test-");
+		
+		if (Runtime.version().feature() < 19) {
+			assertNull(factory);
+			return;
+		}
+		
+		if (factory == null)
+			return;
+		
+		final var thread = factory.newThread(() -> {
+		});
+		assertEquals("test-0", thread.getName());
+		assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+		assertEquals("test-1", factory.newThread(() -> {
+		}).getName());
+	}
+	
+}
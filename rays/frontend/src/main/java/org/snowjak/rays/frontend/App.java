@@ -1,20 +1,29 @@
 package org.snowjak.rays.frontend;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowjak.rays.util.VirtualThreads;
 
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -28,8 +37,11 @@ import com.google.common.eventbus.EventBus;
 @EnableJpaRepositories(basePackages = "org.snowjak.rays.support.model.repository")
 @EntityScan(basePackages = "org.snowjak.rays.support.model.entity")
 @EnableJpaAuditing
+@EnableScheduling
 public class App {
 	
+	private static final Logger LOG = LoggerFactory.getLogger(App.class);
+	
 	@Value("${rabbitmq.taskq}")
 	private String renderTaskQueueName;
 	
@@ -42,6 +54,12 @@ public class App {
 	@Value("${rabbitmq.deleteExchange}")
 	private String renderDeleteExchangeName;
 	
+	@Value("${rabbitmq.sceneq}")
+	private String sceneRequestQueueName;
+	
+	@Value("${org.snowjak.rays.virtual-threads}")
+	private boolean virtualThreads;
+	
 	public static void main(String[] args) {
 		
 		SpringApplication.run(App.class, args);
@@ -53,6 +71,7 @@ public class App {
 		final var admin = new RabbitAdmin(connectionFactory);
 		admin.declareQueue(taskQueue());
 		admin.declareQueue(progressQueue());
+		admin.declareQueue(sceneQueue());
 		admin.declareExchange(deleteFanout());
 		return admin;
 	}
@@ -75,12 +94,36 @@ public class App {
 		return new Queue(renderResultQueueName);
 	}
 	
+	@Bean
+	public Queue sceneQueue() {
+		
+		return new Queue(sceneRequestQueueName);
+	}
+	
 	@Bean
 	public FanoutExchange deleteFanout() {
 		
 		return new FanoutExchange(renderDeleteExchangeName);
 	}
 	
+	/**
+	 * Our Rabbit listeners spend most of their time waiting -- on the broker, or
+	 * on the database -- and so may run on virtual threads.
+	 */
+	@Bean
+	public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+			SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+		
+		final var factory = new SimpleRabbitListenerContainerFactory();
+		configurer.configure(factory, connectionFactory);
+		
+		final var threadFactory = getVirtualThreadFactory("rabbit-listener-");
+		if (threadFactory != null)
+			factory.setTaskExecutor(new SimpleAsyncTaskExecutor(threadFactory));
+		
+		return factory;
+	}
+	
 	@Bean
 	public EventBus eventBus() {
 		
@@ -90,6 +133,24 @@ public class App {
 	@Bean
 	public Executor eventBusExecutor() {
 		
+		//
+		// Our event-handlers mostly wait on the database or the broker. If enabled,
+		// give each event its own virtual thread.
+		//
+		final var threadFactory = getVirtualThreadFactory("event-bus-");
+		if (threadFactory != null)
+			return new SimpleAsyncTaskExecutor(threadFactory) {
+				
+				private static final long serialVersionUID = -2390146520735178391L;
+				
+				@Override
+				public void execute(Runnable task) {
+					
+					super.execute(withAuthentication(task));
+				}
+				
+			};
+		
 		//
 		// Create a custom extension of ThreadPoolTaskExecutor,
 		// which will automatically add the current Spring Security Authentication
@@ -105,13 +166,7 @@ public class App {
 			@Override
 			public void execute(Runnable task) {
 				
-				final var auth = SecurityContextHolder.getContext().getAuthentication();
-				
-				super.execute(() -> {
-					SecurityContextHolder.getContext().setAuthentication(auth);
-					
-					task.run();
-				});
+				super.execute(withAuthentication(task));
 			}
 			
 		};
@@ -120,4 +175,35 @@ public class App {
 		return executor;
 	}
 	
+	/**
+	 * Wrap the given task so that it runs with the current Spring Security
+	 * Authentication, whichever thread it runs on.
+	 */
+	private static Runnable withAuthentication(Runnable task) {
+		
+		final var auth = SecurityContextHolder.getContext().getAuthentication();
+		
+		return () -> {
+			SecurityContextHolder.getContext().setAuthentication(auth);
+			
+			task.run();
+		};
+	}
+	
+	/**
+	 * @return a ThreadFactory creating virtual threads, or {@code null} if they're
+	 *         not enabled (or not supported)
+	 */
+	private ThreadFactory getVirtualThreadFactory(String namePrefix) {
+		
+		if (!virtualThreads)
+			return null;
+		
+		final var threadFactory = VirtualThreads.newThreadFactory(namePrefix);
+		if (threadFactory == null)
+			LOG.warn("Virtual threads are not supported by this JVM -- using platform threads ({}*).", namePrefix);
+		
+		return threadFactory;
+	}
+	
 }
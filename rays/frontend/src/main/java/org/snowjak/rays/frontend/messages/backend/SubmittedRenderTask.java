@@ -0,0 +1,79 @@
+package org.snowjak.rays.frontend.messages.backend;
+
+import java.util.UUID;
+
+/**
+ * Posted whenever a Render's RenderTask has been sent to the workers, covering
+ * the image-region {@code [xStart,yStart]-[xEnd,yEnd]} (inclusive).
+ * 
+ * @author snowjak88
+ *
+ */
+public class SubmittedRenderTask {
+	
+	private final UUID uuid, parentUuid;
+	private final int xStart, yStart, xEnd, yEnd;
+	private final boolean splittable;
+	
+	public SubmittedRenderTask(UUID uuid, UUID parentUuid, int xStart, int yStart, int xEnd, int yEnd) {
+		
+		this(uuid, parentUuid, xStart, yStart, xEnd, yEnd, true);
+	}
+	
+	public SubmittedRenderTask(UUID uuid, UUID parentUuid, int xStart, int yStart, int xEnd, int yEnd,
+			boolean splittable) {
+		
+		this.uuid = uuid;
+		this.parentUuid = parentUuid;
+		this.xStart = xStart;
+		this.yStart = yStart;
+		this.xEnd = xEnd;
+		this.yEnd = yEnd;
+		this.splittable = splittable;
+	}
+	
+	public UUID getUuid() {
+		
+		return uuid;
+	}
+	
+	/**
+	 * @return the UUID of this RenderTask's Render's parent, or {@code null} if
+	 *         it has none
+	 */
+	public UUID getParentUuid() {
+		
+		return parentUuid;
+	}
+	
+	public int getXStart() {
+		
+		return xStart;
+	}
+	
+	public int getYStart() {
+		
+		return yStart;
+	}
+	
+	public int getXEnd() {
+		
+		return xEnd;
+	}
+	
+	public int getYEnd() {
+		
+		return yEnd;
+	}
+	
+	/**
+	 * @return {@code false} if this RenderTask's result cannot be assembled from
+	 *         those of smaller image-regions -- e.g., because it's a sample-slice,
+	 *         whose result must carry its whole Film's accumulator
+	 */
+	public boolean isSplittable() {
+		
+		return splittable;
+	}
+	
+}
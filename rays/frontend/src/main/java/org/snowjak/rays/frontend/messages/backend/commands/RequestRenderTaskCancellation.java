@@ -0,0 +1,24 @@
+package org.snowjak.rays.frontend.messages.backend.commands;
+
+import java.util.UUID;
+
+/**
+ * Ask the workers to abandon the given RenderTask, without deleting any Render
+ * (c.f. {@link RequestRenderDeletion}).
+ * 
+ * @author snowjak88
+ *
+ */
+public class RequestRenderTaskCancellation extends AbstractChainableCommand<UUID, Void> {
+	
+	public RequestRenderTaskCancellation(UUID uuid) {
+		
+		super(uuid);
+	}
+	
+	public UUID getUuid() {
+		
+		return getContext();
+	}
+	
+}
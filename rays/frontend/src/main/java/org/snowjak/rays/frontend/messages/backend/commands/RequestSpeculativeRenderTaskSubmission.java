@@ -0,0 +1,59 @@
+package org.snowjak.rays.frontend.messages.backend.commands;
+
+import java.util.UUID;
+
+/**
+ * Submit a copy of part of a Render's RenderTask -- covering only the
+ * image-region {@code [xStart,yStart]-[xEnd,yEnd]} (inclusive) -- under its own
+ * attempt-UUID, to be rendered alongside the original.
+ * 
+ * @author snowjak88
+ *
+ */
+public class RequestSpeculativeRenderTaskSubmission extends AbstractChainableCommand<UUID, Void> {
+	
+	private final UUID attemptUuid;
+	private final int xStart, yStart, xEnd, yEnd;
+	
+	public RequestSpeculativeRenderTaskSubmission(UUID renderUuid, UUID attemptUuid, int xStart, int yStart,
+			int xEnd, int yEnd) {
+		
+		super(renderUuid);
+		this.attemptUuid = attemptUuid;
+		this.xStart = xStart;
+		this.yStart = yStart;
+		this.xEnd = xEnd;
+		this.yEnd = yEnd;
+	}
+	
+	public UUID getUuid() {
+		
+		return getContext();
+	}
+	
+	public UUID getAttemptUuid() {
+		
+		return attemptUuid;
+	}
+	
+	public int getXStart() {
+		
+		return xStart;
+	}
+	
+	public int getYStart() {
+		
+		return yStart;
+	}
+	
+	public int getXEnd() {
+		
+		return xEnd;
+	}
+	
+	public int getYEnd() {
+		
+		return yEnd;
+	}
+	
+}
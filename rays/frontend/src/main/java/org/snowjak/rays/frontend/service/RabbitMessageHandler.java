@@ -1,19 +1,27 @@
 package org.snowjak.rays.frontend.service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snowjak.rays.RenderTask;
 import org.snowjak.rays.RenderTask.ProgressInfo;
 import org.snowjak.rays.Settings;
 import org.snowjak.rays.film.Film.Image;
 import org.snowjak.rays.frontend.messages.backend.ReceivedNewRenderResult;
 import org.snowjak.rays.frontend.messages.backend.ReceivedRenderProgressUpdate;
+import org.snowjak.rays.frontend.messages.backend.SubmittedRenderTask;
 import org.snowjak.rays.frontend.messages.backend.commands.RequestMultipleRenderTaskSubmission;
 import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderDeletion;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderTaskCancellation;
 import org.snowjak.rays.frontend.messages.backend.commands.RequestSingleRenderTaskSubmission;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestSpeculativeRenderTaskSubmission;
+import org.snowjak.rays.serialization.WireFormat;
 import org.snowjak.rays.support.model.repository.RenderRepository;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,12 +49,33 @@ public class RabbitMessageHandler {
 	@Value("${rabbitmq.deleteExchange}")
 	private String renderDeletionExchange;
 	
+	/**
+	 * How new RenderTasks are encoded: "json", or "binary" (see
+	 * {@link WireFormat}). Workers reply in the same encoding as their
+	 * RenderTasks, so this should remain "json" until every worker understands
+	 * the binary encoding.
+	 */
+	@Value("${org.snowjak.rays.wire-format:json}")
+	private String wireFormat;
+	
+	/**
+	 * Whether new RenderTasks carry only a reference to their Scene (see
+	 * {@link RenderTask#setSceneReference(String)}), rather than the Scene
+	 * itself. This should remain {@code false} until every worker can resolve
+	 * Scene references.
+	 */
+	@Value("${org.snowjak.rays.scene-by-reference:false}")
+	private boolean sceneByReference;
+	
 	@Autowired
 	private RenderRepository renderRepository;
 	
 	@Autowired
 	private RenderUpdateService renderUpdateService;
 	
+	@Autowired
+	private RenderSpeculator renderSpeculator;
+	
 	@Autowired
 	public RabbitMessageHandler(EventBus bus) {
 		
@@ -123,7 +152,7 @@ public class RabbitMessageHandler {
 		}
 		
 		LOG.debug("UUID={}: Inflating RenderTask from database ...", uuid.toString());
-		final var task = renderUpdateService.getRenderTask(uuid);
+		final var task = renderUpdateService.getRenderTask(uuid, sceneByReference);
 		
 		if (task == null) {
 			LOG.error("Cannot submit new RenderTask -- cannot inflate RenderTask from Render entity (UUID={})",
@@ -133,13 +162,10 @@ public class RabbitMessageHandler {
 		
 		LOG.debug("UUID={}: Submitting new RenderTask ...", uuid.toString());
 		
-		LOG.debug("UUID={}: Converting to JSON ...", task.getUuid());
-		final var json = Settings.getInstance().getGson().toJson(task);
-		
-		LOG.trace("UUID={}: JSON: {}", task.getUuid(), json);
-		
-		LOG.debug("UUID={}: Sending to RabbitMQ ...", task.getUuid());
-		rabbit.convertAndSend(newRenderTaskQueue, json);
+		final var parentUuid = (entity.isChild()) ? UUID.fromString(entity.getParent().getUuid()) : null;
+		bus.post(new SubmittedRenderTask(uuid, parentUuid, task.getSampler().getXStart(), task.getSampler().getYStart(),
+				task.getSampler().getXEnd(), task.getSampler().getYEnd(), !task.getSampler().isSliced()));
+		send(task);
 		
 		LOG.debug("UUID={}: Marking as submitted ...", task.getUuid());
 		renderUpdateService.markRenderAsSubmitted(task.getUuid().toString());
@@ -147,6 +173,79 @@ public class RabbitMessageHandler {
 		LOG.info("UUID={}: Submitted new RenderTask.", uuid.toString());
 	}
 	
+	/**
+	 * Submit a speculative copy of part of a Render's RenderTask, under its own
+	 * attempt-UUID (see {@link RenderSpeculator}).
+	 * 
+	 * @param submission
+	 */
+	@Subscribe
+	@AllowConcurrentEvents
+	public void requestSpeculativeRenderTaskSubmission(RequestSpeculativeRenderTaskSubmission submission) {
+		
+		LOG.info("UUID={}: Submitting speculative RenderTask (UUID={}) for [{},{}]-[{},{}] ...", submission.getUuid(),
+				submission.getAttemptUuid(), submission.getXStart(), submission.getYStart(), submission.getXEnd(),
+				submission.getYEnd());
+		
+		final var task = renderUpdateService.getRenderTask(submission.getUuid(), sceneByReference);
+		if (task == null) {
+			LOG.error("Cannot submit speculative RenderTask -- cannot inflate RenderTask from Render entity (UUID={})",
+					submission.getUuid());
+			return;
+		}
+		
+		final var attempt = new RenderTask(submission.getAttemptUuid(),
+				task.getSampler().partition(submission.getXStart(), submission.getYStart(), submission.getXEnd(),
+						submission.getYEnd()),
+				task.getRenderer(), task.getFilm().partition(submission.getXStart(), submission.getYStart(),
+						submission.getXEnd(), submission.getYEnd()),
+				task.getScene(), task.getCamera(), submission.getXStart(), submission.getYStart());
+		if (sceneByReference)
+			attempt.setSceneReference(task.getSceneHash());
+		
+		send(attempt);
+		
+		if (submission.hasNextInChain())
+			bus.post(submission.getNextInChain());
+	}
+	
+	private void send(RenderTask task) {
+		
+		if ("binary".equalsIgnoreCase(wireFormat)) {
+			
+			LOG.debug("UUID={}: Encoding ...", task.getUuid());
+			final var body = WireFormat.encode(task);
+			
+			final var properties = new MessageProperties();
+			properties.setContentType(WireFormat.CONTENT_TYPE);
+			properties.setContentLength(body.length);
+			
+			LOG.debug("UUID={}: Sending to RabbitMQ ({} bytes) ...", task.getUuid(), body.length);
+			rabbit.send(newRenderTaskQueue, new Message(body, properties));
+			
+		} else {
+			
+			LOG.debug("UUID={}: Converting to JSON ...", task.getUuid());
+			final var json = Settings.getInstance().getGson().toJson(task);
+			
+			LOG.trace("UUID={}: JSON: {}", task.getUuid(), json);
+			
+			LOG.debug("UUID={}: Sending to RabbitMQ ...", task.getUuid());
+			rabbit.convertAndSend(newRenderTaskQueue, json);
+		}
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void requestRenderTaskCancellation(RequestRenderTaskCancellation request) {
+		
+		LOG.debug("UUID={}: Notifying workers of cancellation ...", request.getUuid());
+		rabbit.convertAndSend(renderDeletionExchange, "", request.getUuid());
+		
+		if (request.hasNextInChain())
+			bus.post(request.getNextInChain());
+	}
+	
 	@Subscribe
 	public void handleRenderDeletion(RequestRenderDeletion request) {
 		
@@ -172,22 +271,67 @@ public class RabbitMessageHandler {
 	}
 	
 	@RabbitListener(queues = "${rabbitmq.progressq}")
-	public void receiveProgress(String json) throws JsonParseException {
+	public void receiveProgress(Message message) throws JsonParseException {
 		
-		LOG.trace("Received progress-notification: {}", json);
-		final var progress = Settings.getInstance().getGson().fromJson(json, ProgressInfo.class);
+		final ProgressInfo progress;
+		if (isBinary(message))
+			progress = WireFormat.decodeProgressInfo(message.getBody());
+		else {
+			final var json = new String(message.getBody(), StandardCharsets.UTF_8);
+			LOG.trace("Received progress-notification: {}", json);
+			progress = Settings.getInstance().getGson().fromJson(json, ProgressInfo.class);
+		}
 		
 		LOG.trace("UUID={}: Received progress update ({}%)", progress.getUuid(), progress.getPercent());
 		
+		if (renderSpeculator.receiveAttemptProgress(progress))
+			return;
+		
 		bus.post(new ReceivedRenderProgressUpdate(progress));
 	}
 	
 	@RabbitListener(queues = "${rabbitmq.resultq}")
-	public void receiveResult(String json) throws JsonParseException {
+	public void receiveResult(Message message) throws JsonParseException {
+		
+		final Image result;
+		if (isBinary(message))
+			result = WireFormat.decodeImage(message.getBody());
+		else
+			result = Settings.getInstance().getGson()
+					.fromJson(new String(message.getBody(), StandardCharsets.UTF_8), Image.class);
 		
-		final var result = Settings.getInstance().getGson().fromJson(json, Image.class);
+		if (renderSpeculator.receiveAttemptResult(result))
+			return;
 		
 		bus.post(new ReceivedNewRenderResult(result));
 	}
 	
+	private static boolean isBinary(Message message) {
+		
+		return message.getMessageProperties() != null
+				&& WireFormat.isBinary(message.getMessageProperties().getContentType());
+	}
+	
+	/**
+	 * Workers receive RenderTasks carrying only their Scenes' content-hashes, and
+	 * request the Scenes themselves only if they don't already have them cached.
+	 * 
+	 * @param hash
+	 * @return the requested Scene's JSON (or an empty String if no such Scene
+	 *         exists)
+	 */
+	@RabbitListener(queues = "${rabbitmq.sceneq}")
+	public String receiveSceneRequest(String hash) {
+		
+		LOG.debug("Received request for Scene {}", hash);
+		final var json = renderUpdateService.getSceneJson(hash);
+		
+		if (json == null) {
+			LOG.warn("Received request for Scene {}, but no such Scene exists!", hash);
+			return "";
+		}
+		
+		return json;
+	}
+	
 }
@@ -0,0 +1,183 @@
+package org.snowjak.rays.frontend.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowjak.rays.frontend.messages.backend.ReceivedNewRenderResult;
+import org.snowjak.rays.frontend.messages.backend.ReceivedRenderProgressUpdate;
+import org.snowjak.rays.frontend.messages.backend.SubmittedRenderTask;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderDeletion;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestSingleRenderTaskSubmission;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Tracks a lease on every RenderTask currently held by a worker, so that
+ * RenderTasks lost along with their workers are resubmitted.
+ * <p>
+ * A worker takes out a lease on a RenderTask when it first reports progress on
+ * it, and renews that lease with every subsequent progress-update (which
+ * workers send regularly, as heartbeats, whether or not they've actually made
+ * any progress). The lease is released when the RenderTask's final result is
+ * received, or when its Render is deleted -- after which any stray
+ * progress-updates are ignored, until the RenderTask is next submitted.
+ * </p>
+ * <p>
+ * Should a lease expire, its worker is presumed to have died (or hung), and
+ * its RenderTask is resubmitted -- up to a configured number of times, after
+ * which the RenderTask is given up on.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@Component
+public class RenderLeaseTracker {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(RenderLeaseTracker.class);
+	
+	private final EventBus bus;
+	private final Clock clock;
+	private final Duration timeout;
+	private final int maxAttempts;
+	
+	private final Map<UUID, Instant> leases = new ConcurrentHashMap<>();
+	private final Map<UUID, Integer> attempts = new ConcurrentHashMap<>();
+	private final Set<UUID> released = ConcurrentHashMap.newKeySet();
+	
+	@Autowired
+	public RenderLeaseTracker(EventBus bus, @Value("${org.snowjak.rays.lease.timeout}") long timeoutMillis,
+			@Value("${org.snowjak.rays.lease.max-attempts}") int maxAttempts) {
+		
+		this(bus, Clock.systemUTC(), Duration.ofMillis(timeoutMillis), maxAttempts);
+	}
+	
+	public RenderLeaseTracker(EventBus bus, Clock clock, Duration timeout, int maxAttempts) {
+		
+		this.bus = bus;
+		this.clock = clock;
+		this.timeout = timeout;
+		this.maxAttempts = maxAttempts;
+		
+		bus.register(this);
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveSubmission(SubmittedRenderTask submission) {
+		
+		released.remove(submission.getUuid());
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveProgress(ReceivedRenderProgressUpdate update) {
+		
+		renew(update.getInfo().getUuid());
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveResult(ReceivedNewRenderResult result) {
+		
+		if (result.getImage().isPartial())
+			renew(result.getImage().getUuid());
+		else
+			release(result.getImage().getUuid());
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveDeletion(RequestRenderDeletion deletion) {
+		
+		release(deletion.getUuid());
+	}
+	
+	/**
+	 * Take out (or renew) the lease on the given RenderTask.
+	 *
+	 * @param uuid
+	 */
+	public void renew(UUID uuid) {
+		
+		if (uuid == null || released.contains(uuid))
+			return;
+		
+		if (leases.put(uuid, clock.instant().plus(timeout)) == null)
+			LOG.debug("UUID={}: Leased by a worker.", uuid);
+	}
+	
+	/**
+	 * Release the lease on the given RenderTask, and forget how many times it's
+	 * been resubmitted. The RenderTask cannot be leased again until it's next
+	 * submitted.
+	 *
+	 * @param uuid
+	 */
+	public void release(UUID uuid) {
+		
+		if (uuid == null)
+			return;
+		
+		released.add(uuid);
+		if (leases.remove(uuid) != null)
+			LOG.debug("UUID={}: Lease released.", uuid);
+		attempts.remove(uuid);
+	}
+	
+	/**
+	 * @param uuid
+	 * @return {@code true} if the given RenderTask is currently leased by a worker
+	 */
+	public boolean isLeased(UUID uuid) {
+		
+		return leases.containsKey(uuid);
+	}
+	
+	/**
+	 * Resubmit every RenderTask whose lease has expired.
+	 */
+	@Scheduled(fixedDelayString = "${org.snowjak.rays.lease.check-interval}")
+	public void checkLeases() {
+		
+		final var now = clock.instant();
+		
+		for (var uuid : leases.keySet()) {
+			
+			final var expiry = leases.get(uuid);
+			if (expiry == null || expiry.isAfter(now))
+				continue;
+			
+			//
+			// Another thread may have renewed this lease since we looked at it.
+			//
+			if (!leases.remove(uuid, expiry))
+				continue;
+			
+			final int attempt = attempts.merge(uuid, 1, Integer::sum);
+			if (attempt > maxAttempts) {
+				LOG.error("UUID={}: Lease expired, and already resubmitted {} times. Giving up.", uuid, maxAttempts);
+				attempts.remove(uuid);
+				continue;
+			}
+			
+			LOG.warn("UUID={}: Lease expired -- worker presumed lost. Resubmitting (attempt {} of {}) ...", uuid,
+					attempt, maxAttempts);
+			bus.post(new RequestSingleRenderTaskSubmission(uuid));
+		}
+	}
+	
+}
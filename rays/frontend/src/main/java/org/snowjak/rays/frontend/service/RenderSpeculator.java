@@ -0,0 +1,533 @@
+package org.snowjak.rays.frontend.service;
+
+import static org.apache.commons.math3.util.FastMath.max;
+
+import java.awt.image.BufferedImage;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowjak.rays.RenderTask.ProgressInfo;
+import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.frontend.messages.backend.ReceivedNewRenderResult;
+import org.snowjak.rays.frontend.messages.backend.ReceivedRenderProgressUpdate;
+import org.snowjak.rays.frontend.messages.backend.SubmittedRenderTask;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderDeletion;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderTaskCancellation;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestSpeculativeRenderTaskSubmission;
+import org.snowjak.rays.renderer.RenderCostMap;
+import org.snowjak.rays.renderer.RenderCostMap.Region;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Cuts the tail off of large renders, by setting otherwise-idle workers on the
+ * stragglers.
+ * <p>
+ * Once every submitted RenderTask has been picked up by a worker -- i.e., the
+ * task-queue has drained, and so any further workers must be idle -- any
+ * RenderTask which has been running for much longer than the others took is
+ * presumed to be a straggler. Its image-region is split into smaller
+ * sub-regions, which are submitted as speculative RenderTasks (each under its
+ * own attempt-UUID) for the idle workers to pick up. (Sample-slices are never
+ * split, as their results must be merged whole -- see {@link SliceAccumulator}.)
+ * </p>
+ * <p>
+ * Whichever finishes first -- the original RenderTask, or all of its
+ * speculative sub-regions -- provides the Render's result. If the original
+ * wins, its outstanding speculative RenderTasks are cancelled. If the
+ * speculative sub-regions win, their results are stitched together and posted
+ * as the Render's result, and the original's result (whenever it arrives) is
+ * ignored.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@Component
+public class RenderSpeculator {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(RenderSpeculator.class);
+	
+	/**
+	 * How many of the most-recently-completed RenderTasks to consider, when
+	 * judging how long a RenderTask ought to take.
+	 */
+	private static final int DURATION_HISTORY = 64;
+	
+	private final EventBus bus;
+	private final Clock clock;
+	private final Duration minimumAge;
+	private final double stragglerFactor;
+	private final int splitCount;
+	private final int maxSpeculations;
+	
+	private final Map<UUID, Task> tasks = new ConcurrentHashMap<>();
+	private final Map<UUID, Speculation> speculations = new ConcurrentHashMap<>();
+	private final Map<UUID, Speculation> attempts = new ConcurrentHashMap<>();
+	private final Set<UUID> waitingAttempts = ConcurrentHashMap.newKeySet();
+	private final Map<UUID, Instant> retiredAttempts = new ConcurrentHashMap<>();
+	private final LinkedList<Duration> durations = new LinkedList<>();
+	
+	@Autowired
+	public RenderSpeculator(EventBus bus,
+			@Value("${org.snowjak.rays.speculation.minimum-age}") long minimumAgeMillis,
+			@Value("${org.snowjak.rays.speculation.straggler-factor}") double stragglerFactor,
+			@Value("${org.snowjak.rays.speculation.split}") int splitCount,
+			@Value("${org.snowjak.rays.speculation.max-concurrent}") int maxSpeculations) {
+		
+		this(bus, Clock.systemUTC(), Duration.ofMillis(minimumAgeMillis), stragglerFactor, splitCount,
+				maxSpeculations);
+	}
+	
+	/**
+	 *
+	 * @param bus
+	 * @param clock
+	 * @param minimumAge
+	 *            no RenderTask is considered a straggler until it has been running
+	 *            at least this long
+	 * @param stragglerFactor
+	 *            a RenderTask is a straggler if it has been running this many times
+	 *            longer than the median RenderTask took
+	 * @param splitCount
+	 *            into how many sub-regions a straggler is split
+	 * @param maxSpeculations
+	 *            how many stragglers may be speculated upon at once (0 to disable)
+	 */
+	public RenderSpeculator(EventBus bus, Clock clock, Duration minimumAge, double stragglerFactor, int splitCount,
+			int maxSpeculations) {
+		
+		this.bus = bus;
+		this.clock = clock;
+		this.minimumAge = minimumAge;
+		this.stragglerFactor = stragglerFactor;
+		this.splitCount = splitCount;
+		this.maxSpeculations = maxSpeculations;
+		
+		bus.register(this);
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveSubmission(SubmittedRenderTask submission) {
+		
+		tasks.put(submission.getUuid(),
+				new Task(submission.getUuid(), submission.getParentUuid(),
+						new Region(submission.getXStart(), submission.getYStart(), submission.getXEnd(),
+								submission.getYEnd(), 0d),
+						submission.isSplittable()));
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveProgress(ReceivedRenderProgressUpdate update) {
+		
+		final var task = tasks.get(update.getInfo().getUuid());
+		if (task != null)
+			task.progress(clock.instant(), update.getInfo().getPercent());
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveResult(ReceivedNewRenderResult result) {
+		
+		if (result.getImage().isPartial())
+			return;
+		
+		final var uuid = result.getImage().getUuid();
+		complete(uuid);
+		
+		final var speculation = speculations.remove(uuid);
+		if (speculation != null) {
+			LOG.info("UUID={}: Original render-task finished before its speculative sub-tasks. Cancelling them ...",
+					uuid);
+			cancel(speculation);
+		}
+	}
+	
+	@Subscribe
+	@AllowConcurrentEvents
+	public void receiveDeletion(RequestRenderDeletion deletion) {
+		
+		//
+		// A deleted parent-Render takes its children with it.
+		//
+		tasks.values().removeIf(t -> deletion.getUuid().equals(t.getParentUuid()));
+		
+		for (var uuid : new ArrayList<>(speculations.keySet())) {
+			final var speculation = speculations.get(uuid);
+			if (speculation != null && (uuid.equals(deletion.getUuid())
+					|| deletion.getUuid().equals(speculation.getTask().getParentUuid())))
+				if (speculations.remove(uuid, speculation))
+					cancel(speculation);
+		}
+		
+		tasks.remove(deletion.getUuid());
+	}
+	
+	/**
+	 * Handle a progress-update from a speculative RenderTask.
+	 *
+	 * @param progress
+	 * @return {@code true} if the given progress-update was for a speculative
+	 *         RenderTask (and so should go no further), {@code false} otherwise
+	 */
+	public boolean receiveAttemptProgress(ProgressInfo progress) {
+		
+		if (retiredAttempts.containsKey(progress.getUuid()))
+			return true;
+		
+		if (!attempts.containsKey(progress.getUuid()))
+			return false;
+		
+		waitingAttempts.remove(progress.getUuid());
+		return true;
+	}
+	
+	/**
+	 * Handle a result from a speculative RenderTask. Should that RenderTask be
+	 * the last of its Render's speculative sub-regions to finish, the Render's
+	 * stitched-together result is posted in its place.
+	 *
+	 * @param image
+	 * @return {@code true} if the given result was for a speculative RenderTask
+	 *         (and so should go no further), {@code false} otherwise
+	 */
+	public boolean receiveAttemptResult(Image image) {
+		
+		final var attemptUuid = image.getUuid();
+		
+		if (retiredAttempts.containsKey(attemptUuid))
+			return true;
+		
+		final var speculation = attempts.get(attemptUuid);
+		if (speculation == null)
+			return false;
+		
+		//
+		// Snapshots of speculative sub-regions aren't worth stitching together.
+		//
+		if (image.isPartial())
+			return true;
+		
+		attempts.remove(attemptUuid);
+		waitingAttempts.remove(attemptUuid);
+		
+		final var renderUuid = speculation.getTask().getUuid();
+		final var finished = speculation.complete(attemptUuid, image);
+		if (finished == null) {
+			LOG.debug("UUID={}: Speculative sub-task (UUID={}) finished.", renderUuid, attemptUuid);
+			return true;
+		}
+		
+		if (!speculations.remove(renderUuid, speculation)) {
+			LOG.debug("UUID={}: Speculative sub-tasks finished, but too late.", renderUuid);
+			return true;
+		}
+		
+		LOG.info("UUID={}: Speculative sub-tasks finished before the original render-task.", renderUuid);
+		complete(renderUuid);
+		
+		//
+		// We can't cancel the original render-task -- it shares its UUID with its
+		// Render, and a cancellation for a UUID no worker holds would be saved
+		// against that Render's *next* submission. Its result will simply be
+		// ignored when it arrives.
+		//
+		bus.post(new ReceivedNewRenderResult(new Image(finished, renderUuid)));
+		
+		return true;
+	}
+	
+	/**
+	 * @param uuid
+	 * @return {@code true} if the given RenderTask currently has speculative
+	 *         sub-tasks outstanding
+	 */
+	public boolean isSpeculating(UUID uuid) {
+		
+		return speculations.containsKey(uuid);
+	}
+	
+	/**
+	 * Check for stragglers, and speculatively split them up for idle workers.
+	 */
+	@Scheduled(fixedDelayString = "${org.snowjak.rays.speculation.check-interval}")
+	public void checkStragglers() {
+		
+		final var now = clock.instant();
+		retiredAttempts.values().removeIf(expiry -> expiry.isBefore(now));
+		
+		if (maxSpeculations < 1 || splitCount < 2)
+			return;
+		
+		//
+		// So long as there are RenderTasks still waiting to be picked up, there
+		// can't be any idle workers.
+		//
+		if (!waitingAttempts.isEmpty() || tasks.values().stream().anyMatch(t -> !t.isStarted()))
+			return;
+		
+		final var available = maxSpeculations - speculations.size();
+		if (available < 1)
+			return;
+		
+		final var threshold = getStragglerThreshold();
+		
+		tasks.values().stream().filter(Task::isStarted).filter(Task::isSplittable)
+				.filter(t -> !speculations.containsKey(t.getUuid()))
+				.filter(t -> t.getElapsed(now).compareTo(threshold) >= 0)
+				//
+				// Splitting is only worthwhile if the straggler would take longer to
+				// finish than would a sub-region.
+				//
+				.filter(t -> t.getRemaining(now).multipliedBy(splitCount)
+						.compareTo(t.getElapsed(now).plus(t.getRemaining(now))) > 0)
+				.sorted(Comparator.comparing((Task t) -> t.getRemaining(now)).reversed()).limit(available)
+				.forEach(t -> speculate(t, now));
+	}
+	
+	private void speculate(Task task, Instant now) {
+		
+		final var regions = split(task.getRegion());
+		if (regions.size() < 2)
+			return;
+		
+		final var speculation = new Speculation(task);
+		if (speculations.putIfAbsent(task.getUuid(), speculation) != null)
+			return;
+		
+		LOG.info("UUID={}: Straggling ({}% after {}s). Speculatively splitting into {} sub-tasks ...",
+				task.getUuid(), task.getPercent(), task.getElapsed(now).getSeconds(), regions.size());
+		
+		final var submissions = new LinkedList<RequestSpeculativeRenderTaskSubmission>();
+		for (var region : regions) {
+			final var attemptUuid = UUID.randomUUID();
+			speculation.add(attemptUuid, region);
+			attempts.put(attemptUuid, speculation);
+			waitingAttempts.add(attemptUuid);
+			
+			submissions.add(new RequestSpeculativeRenderTaskSubmission(task.getUuid(), attemptUuid,
+					region.getXStart(), region.getYStart(), region.getXEnd(), region.getYEnd()));
+		}
+		
+		submissions.forEach(bus::post);
+	}
+	
+	private List<Region> split(Region region) {
+		
+		final var cellSize = max(1, max(region.getWidth(), region.getHeight()) / 16);
+		final var cellsX = (region.getWidth() - 1) / cellSize + 1;
+		final var cellsY = (region.getHeight() - 1) / cellSize + 1;
+		
+		final var costs = new double[cellsX * cellsY];
+		Arrays.fill(costs, 1d);
+		
+		return new RenderCostMap(region.getXStart(), region.getYStart(), region.getXEnd(), region.getYEnd(), cellSize,
+				costs).decompose(splitCount);
+	}
+	
+	private void cancel(Speculation speculation) {
+		
+		final var expiry = clock.instant().plus(minimumAge);
+		for (var attemptUuid : speculation.cancel()) {
+			attempts.remove(attemptUuid);
+			waitingAttempts.remove(attemptUuid);
+			
+			//
+			// Keep ignoring this attempt's stragglers for a while.
+			//
+			retiredAttempts.put(attemptUuid, expiry);
+			
+			bus.post(new RequestRenderTaskCancellation(attemptUuid));
+		}
+	}
+	
+	private void complete(UUID uuid) {
+		
+		final var task = tasks.remove(uuid);
+		if (task == null || !task.isStarted())
+			return;
+		
+		synchronized (durations) {
+			durations.addLast(task.getElapsed(clock.instant()));
+			while (durations.size() > DURATION_HISTORY)
+				durations.removeFirst();
+		}
+	}
+	
+	/**
+	 * @return how long a RenderTask must have been running before it's
+	 *         considered a straggler
+	 */
+	private Duration getStragglerThreshold() {
+		
+		final Duration median;
+		synchronized (durations) {
+			if (durations.isEmpty())
+				return minimumAge;
+			
+			final var sorted = new ArrayList<>(durations);
+			sorted.sort(Comparator.naturalOrder());
+			median = sorted.get(sorted.size() / 2);
+		}
+		
+		final var threshold = Duration.ofMillis((long) (median.toMillis() * stragglerFactor));
+		return (threshold.compareTo(minimumAge) > 0) ? threshold : minimumAge;
+	}
+	
+	/**
+	 * A submitted RenderTask, and how far along it is.
+	 */
+	private static class Task {
+		
+		private final UUID uuid, parentUuid;
+		private final Region region;
+		private final boolean splittable;
+		private volatile Instant started = null;
+		private volatile int percent = 0;
+		
+		public Task(UUID uuid, UUID parentUuid, Region region, boolean splittable) {
+			
+			this.uuid = uuid;
+			this.parentUuid = parentUuid;
+			this.region = region;
+			this.splittable = splittable;
+		}
+		
+		public synchronized void progress(Instant now, int percent) {
+			
+			if (started == null)
+				started = now;
+			this.percent = percent;
+		}
+		
+		public UUID getUuid() {
+			
+			return uuid;
+		}
+		
+		public UUID getParentUuid() {
+			
+			return parentUuid;
+		}
+		
+		public Region getRegion() {
+			
+			return region;
+		}
+		
+		public int getPercent() {
+			
+			return percent;
+		}
+		
+		public boolean isStarted() {
+			
+			return started != null;
+		}
+		
+		public boolean isSplittable() {
+			
+			return splittable;
+		}
+		
+		public Duration getElapsed(Instant now) {
+			
+			return Duration.between(started, now);
+		}
+		
+		/**
+		 * @param now
+		 * @return an estimate of how much longer this RenderTask will take, going
+		 *         by its progress so far
+		 */
+		public Duration getRemaining(Instant now) {
+			
+			final var percent = this.percent;
+			return getElapsed(now).multipliedBy(100 - percent).dividedBy(max(percent, 1));
+		}
+	}
+	
+	/**
+	 * A straggling RenderTask's speculative sub-tasks, and the image they're
+	 * building up between them.
+	 */
+	private static class Speculation {
+		
+		private final Task task;
+		private final Map<UUID, Region> outstanding = new HashMap<>();
+		private BufferedImage image = null;
+		
+		public Speculation(Task task) {
+			
+			this.task = task;
+		}
+		
+		public Task getTask() {
+			
+			return task;
+		}
+		
+		public synchronized void add(UUID attemptUuid, Region region) {
+			
+			outstanding.put(attemptUuid, region);
+		}
+		
+		/**
+		 * Record a speculative sub-task's result.
+		 *
+		 * @param attemptUuid
+		 * @param result
+		 * @return the stitched-together image, if this was the last sub-task
+		 *         outstanding, or {@code null} otherwise
+		 */
+		public synchronized BufferedImage complete(UUID attemptUuid, Image result) {
+			
+			final var region = outstanding.remove(attemptUuid);
+			if (region == null)
+				return null;
+			
+			final var taskRegion = task.getRegion();
+			if (image == null)
+				image = new BufferedImage(taskRegion.getWidth(), taskRegion.getHeight(),
+						BufferedImage.TYPE_INT_ARGB);
+			
+			image.getGraphics().drawImage(result.getBufferedImage(), region.getXStart() - taskRegion.getXStart(),
+					region.getYStart() - taskRegion.getYStart(), null);
+			
+			return (outstanding.isEmpty()) ? image : null;
+		}
+		
+		/**
+		 * @return the attempt-UUIDs of every sub-task still outstanding
+		 */
+		public synchronized List<UUID> cancel() {
+			
+			final var cancelled = new ArrayList<>(outstanding.keySet());
+			outstanding.clear();
+			image = null;
+			return cancelled;
+		}
+	}
+	
+}
@@ -12,8 +12,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -37,6 +39,8 @@ import org.snowjak.rays.frontend.messages.frontend.ReceivedRenderChildrenUpdate;
 import org.snowjak.rays.frontend.messages.frontend.ReceivedRenderCreation;
 import org.snowjak.rays.frontend.messages.frontend.ReceivedRenderDeletion;
 import org.snowjak.rays.frontend.messages.frontend.ReceivedRenderUpdate;
+import org.snowjak.rays.renderer.RenderCostMap;
+import org.snowjak.rays.renderer.RenderCostMap.Region;
 import org.snowjak.rays.renderer.Renderer;
 import org.snowjak.rays.sampler.Sampler;
 import org.snowjak.rays.support.model.entity.Render;
@@ -45,6 +49,7 @@ import org.snowjak.rays.support.model.repository.RenderRepository;
 import org.snowjak.rays.support.model.repository.RenderSetupRepository;
 import org.snowjak.rays.support.model.repository.SceneRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -65,6 +70,11 @@ public class RenderUpdateService {
 	 */
 	private final Map<UUID, Lock> renderUpdateLocks = Collections.synchronizedMap(new HashMap<>());
 	
+	/**
+	 * See {@link #getSceneJson(String)}
+	 */
+	private final Map<String, Long> sceneIDsByHash = new ConcurrentHashMap<>();
+	
 	@Autowired
 	private RenderRepository renderRepository;
 	
@@ -74,6 +84,36 @@ public class RenderUpdateService {
 	@Autowired
 	private SceneRepository sceneRepository;
 	
+	/**
+	 * "uniform" (the default) or "cost" -- see
+	 * {@link #getCostBalancedRegions(UUID, int)}
+	 */
+	@Value("${org.snowjak.rays.decomposition-mode:uniform}")
+	private String decompositionMode;
+	
+	@Value("${org.snowjak.rays.decomposition-cell-size:16}")
+	private int decompositionCellSize;
+	
+	@Value("${org.snowjak.rays.decomposition-probe-size:4}")
+	private int decompositionProbeSize;
+	
+	/**
+	 * How long (in seconds) cost-estimation may take before it's abandoned in
+	 * favor of a uniform decomposition
+	 */
+	@Value("${org.snowjak.rays.decomposition-probe-budget:5}")
+	private double decompositionProbeBudget;
+	
+	/**
+	 * How many sample-slices each decomposed region is further divided into --
+	 * see {@link #decomposeRender(UUID, int, List)}
+	 */
+	@Value("${org.snowjak.rays.decomposition-sample-slices:1}")
+	private int decompositionSampleSlices;
+	
+	@Autowired
+	private SliceAccumulator sliceAccumulator;
+	
 	@Autowired
 	public RenderUpdateService(EventBus bus) {
 		
@@ -129,12 +169,20 @@ public class RenderUpdateService {
 			return;
 		}
 		
+		//
+		// Estimating render-costs can take a while -- so do it before locking
+		// this Render against updates.
+		//
+		List<Region> costBalancedRegions = null;
+		if ("cost".equalsIgnoreCase(decompositionMode))
+			costBalancedRegions = getCostBalancedRegions(request.getUuid(), request.getRegionSize());
+		
 		getUpdateLock(request.getUuid()).lock();
 		
 		renderRepository.save(render);
 		bus.post(new ReceivedRenderUpdate(render));
 		
-		final var childIDs = decomposeRender(request.getUuid(), request.getRegionSize());
+		final var childIDs = decomposeRender(request.getUuid(), request.getRegionSize(), costBalancedRegions);
 		
 		getUpdateLock(request.getUuid()).unlock();
 		
@@ -167,6 +215,7 @@ public class RenderUpdateService {
 		getUpdateLock(request.getUuid()).lock();
 		
 		renderRepository.delete(render);
+		sliceAccumulator.discard(request.getUuid());
 		
 		getUpdateLock(request.getUuid()).unlock();
 		
@@ -182,16 +231,31 @@ public class RenderUpdateService {
 	 * Decompose the given Render (specified by its UUID) into child Renders, each
 	 * covering a fraction of the total sampling-space.
 	 * <p>
-	 * This will divide the sampling-space up into square regions, each with a
-	 * maximum size of {@code n}x{@code n} (where {@code n = regionSize}).
+	 * By default, this will divide the sampling-space up into square regions,
+	 * each with a maximum size of {@code n}x{@code n} (where
+	 * {@code n = regionSize}).
+	 * </p>
+	 * <p>
+	 * If cost-balanced regions are given (see
+	 * {@link #getCostBalancedRegions(UUID, int)}), these are used instead.
+	 * </p>
+	 * <p>
+	 * If the configured number of sample-slices is greater than 1, each region is
+	 * covered by that many child Renders, each taking only its
+	 * {@link Sampler#partitionSamples(int, int) slice} of each pixel's samples.
+	 * This lets a small but expensive region be spread across several workers.
+	 * Their results are merged as they arrive (see {@link SliceAccumulator}).
 	 * </p>
 	 * 
 	 * @param uuid
 	 * @param regionSize
+	 * @param costBalancedRegions
+	 *            the regions to decompose into, or {@code null} to decompose into
+	 *            uniform squares
 	 * @return a collection of all created child Render UUIDs
 	 */
 	@Transactional
-	private Collection<UUID> decomposeRender(UUID uuid, int regionSize) {
+	private Collection<UUID> decomposeRender(UUID uuid, int regionSize, List<Region> costBalancedRegions) {
 		
 		LOG.info("Decomposing Render (UUID={}) -- region-size = {}", uuid.toString(), regionSize);
 		
@@ -222,24 +286,48 @@ public class RenderUpdateService {
 		LOG.trace("Inflating Sampler from database ...");
 		final var sampler = Settings.getInstance().getGson().fromJson(renderSetup.getSamplerJson(), Sampler.class);
 		
-		final var regionStartX = sampler.getXStart() + parentRender.getOffsetX();
-		final var regionStartY = sampler.getYStart() + parentRender.getOffsetY();
-		final var regionEndX = regionStartX + parentRender.getWidth() - 1;
-		final var regionEndY = regionStartY + parentRender.getHeight() - 1;
+		var regions = costBalancedRegions;
+		if (regions == null) {
+			final var bounds = getDecompositionBounds(parentRender, sampler);
+			regions = new LinkedList<>();
+			for (int x1 = bounds.getXStart(); x1 <= bounds.getXEnd(); x1 += regionSize)
+				for (int y1 = bounds.getYStart(); y1 <= bounds.getYEnd(); y1 += regionSize)
+					regions.add(new Region(x1, y1, min(x1 + regionSize - 1, sampler.getXEnd()),
+							min(y1 + regionSize - 1, sampler.getYEnd()), 0d));
+		}
 		
-		for (int x1 = regionStartX; x1 <= regionEndX; x1 += regionSize)
-			for (int y1 = regionStartY; y1 <= regionEndY; y1 += regionSize) {
-				
-				final var x2 = min(x1 + regionSize - 1, sampler.getXEnd());
-				final var y2 = min(y1 + regionSize - 1, sampler.getYEnd());
-				
-				final var subregionWidth = (x2 - x1) + 1;
-				final var subregionHeight = (y2 - y1) + 1;
-				
-				LOG.trace("Decomposing (UUID={}) -- child render at [{},{}]-[{},{}]", uuid.toString(), x1, y1, x2, y2);
-				
-				final var childRenderId = saveNewRender(renderSetup.getId(), parentRender.getUuid(), x1, y1,
-						subregionWidth, subregionHeight);
+		//
+		// Each sample-slice needs its own RenderSetup (differing only in its
+		// Sampler), which can be shared by every region.
+		//
+		final var setupIds = new LinkedList<Long>();
+		if (decompositionSampleSlices > 1) {
+			LOG.info("Decomposing (UUID={}) -- dividing each region into {} sample-slices.", uuid.toString(),
+					decompositionSampleSlices);
+			for (int slice = 0; slice < decompositionSampleSlices; slice++)
+				setupIds.add(saveNewRenderSetup(
+						Settings.getInstance().getGson().toJson(
+								sampler.partitionSamples(slice, decompositionSampleSlices), Sampler.class),
+						renderSetup.getRendererJson(), renderSetup.getFilmJson(), renderSetup.getCameraJson(),
+						renderSetup.getScene().getId()));
+		} else
+			setupIds.add(renderSetup.getId());
+		
+		for (var region : regions) {
+			
+			final var x1 = region.getXStart();
+			final var y1 = region.getYStart();
+			final var x2 = region.getXEnd();
+			final var y2 = region.getYEnd();
+			
+			final var subregionWidth = (x2 - x1) + 1;
+			final var subregionHeight = (y2 - y1) + 1;
+			
+			LOG.trace("Decomposing (UUID={}) -- child render at [{},{}]-[{},{}]", uuid.toString(), x1, y1, x2, y2);
+			
+			for (var setupId : setupIds) {
+				final var childRenderId = saveNewRender(setupId, parentRender.getUuid(), x1, y1, subregionWidth,
+						subregionHeight);
 				LOG.debug("Created child render (UUID={})", childRenderId.toString());
 				
 				getUpdateLock(UUID.fromString(parentRender.getUuid())).lock();
@@ -252,6 +340,7 @@ public class RenderUpdateService {
 				
 				childIdList.add(childRenderId);
 			}
+		}
 		
 		getUpdateLock(UUID.fromString(parentRender.getUuid())).lock();
 		
@@ -262,6 +351,70 @@ public class RenderUpdateService {
 		return childIdList;
 	}
 	
+	/**
+	 * @return the region of the sampling-space covered by the given Render (with
+	 *         the given Sampler)
+	 */
+	private Region getDecompositionBounds(Render render, Sampler sampler) {
+		
+		final var regionStartX = sampler.getXStart() + render.getOffsetX();
+		final var regionStartY = sampler.getYStart() + render.getOffsetY();
+		return new Region(regionStartX, regionStartY, regionStartX + render.getWidth() - 1,
+				regionStartY + render.getHeight() - 1, 0d);
+	}
+	
+	/**
+	 * Divide the given Render into as many regions as would
+	 * {@code regionSize}-square regions -- but with each of roughly equal cost to
+	 * render, as estimated by a cheap pre-pass (see {@link RenderCostMap}).
+	 * 
+	 * @return the cost-balanced regions, or {@code null} if the Render's cost
+	 *         cannot be estimated (or took too long to estimate)
+	 */
+	private List<Region> getCostBalancedRegions(UUID uuid, int regionSize) {
+		
+		if (regionSize < 1)
+			return null;
+		
+		final var render = renderRepository.findById(uuid.toString()).orElse(null);
+		if (render == null || render.getChildren().size() > 0)
+			return null;
+		
+		final RenderTask task;
+		final Region bounds;
+		try {
+			task = getRenderTask(uuid, false);
+			bounds = getDecompositionBounds(render,
+					Settings.getInstance().getGson().fromJson(render.getSetup().getSamplerJson(), Sampler.class));
+		} catch (JsonParseException e) {
+			LOG.warn("Cannot estimate render-cost (UUID={}) -- falling back to uniform decomposition.", uuid, e);
+			return null;
+		}
+		
+		if (task == null)
+			return null;
+		
+		final var regionCount = ((bounds.getWidth() - 1) / regionSize + 1)
+				* ((bounds.getHeight() - 1) / regionSize + 1);
+		
+		LOG.info("Estimating render-cost (UUID={}) with {}px cells ...", uuid, decompositionCellSize);
+		final var costMap = RenderCostMap.estimate(bounds.getXStart(), bounds.getYStart(), bounds.getXEnd(),
+				bounds.getYEnd(), task.getSampler(), task.getRenderer(), task.getScene(), task.getCamera(),
+				decompositionCellSize, decompositionProbeSize, decompositionProbeBudget);
+		
+		if (costMap == null) {
+			LOG.warn("Estimating render-cost (UUID={}) took longer than {}s -- falling back to uniform decomposition.",
+					uuid, decompositionProbeBudget);
+			return null;
+		}
+		
+		final var regions = costMap.decompose(regionCount);
+		LOG.info("Decomposing (UUID={}) into {} regions of ~{}ms estimated pre-pass cost each.", uuid,
+				regions.size(), String.format("%.3f", costMap.getTotalCost() / regions.size() / 1e6));
+		
+		return regions;
+	}
+	
 	@Transactional
 	private Long saveNewRenderSetup(String samplerJson, String rendererJson, String filmJson, String cameraJson,
 			long sceneId) {
@@ -366,6 +519,28 @@ public class RenderUpdateService {
 	@Transactional(readOnly = true)
 	public RenderTask getRenderTask(UUID uuid) throws JsonParseException {
 		
+		return getRenderTask(uuid, false);
+	}
+	
+	/**
+	 * Convert a {@link Render} entity (represented by its UUID) into a
+	 * {@link RenderTask}, or <code>null</code> if such conversion is not possible
+	 * -- e.g., because the UUID is not recognized, or the Render/Scene entities
+	 * have malformed JSON.
+	 * <p>
+	 * If {@code sceneByReference} is <code>true</code>, the RenderTask will carry
+	 * only its Scene's content-hash, rather than the Scene itself. Its recipient
+	 * can fetch the Scene's JSON (see {@link #getSceneJson(String)}) if it does
+	 * not already have it.
+	 * </p>
+	 * 
+	 * @param uuid
+	 * @param sceneByReference
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	public RenderTask getRenderTask(UUID uuid, boolean sceneByReference) throws JsonParseException {
+		
 		getUpdateLock(uuid).lock();
 		LOG.debug("UUID={}: Creating RenderTask from database ...", uuid.toString());
 		
@@ -410,13 +585,21 @@ public class RenderUpdateService {
 		LOG.trace("UUID={}: Retrieving associated Scene ...", uuid.toString());
 		final var sceneEntity = renderSetup.getScene();
 		
-		LOG.trace("UUID={}: Inflating Scene from JSON ...", uuid.toString());
 		Scene scene = null;
-		try {
-			scene = Settings.getInstance().getGson().fromJson(sceneEntity.getJson(), Scene.class);
-		} catch (JsonParseException e) {
-			getUpdateLock(uuid).unlock();
-			throw new JsonParseException("Cannot inflate Scene (ID = " + sceneEntity.getId() + ")", e);
+		String sceneHash = null;
+		if (sceneByReference) {
+			LOG.trace("UUID={}: Computing Scene content-hash ...", uuid.toString());
+			sceneHash = Scene.getContentHash(sceneEntity.getJson());
+			sceneIDsByHash.put(sceneHash, sceneEntity.getId());
+			
+		} else {
+			LOG.trace("UUID={}: Inflating Scene from JSON ...", uuid.toString());
+			try {
+				scene = Settings.getInstance().getGson().fromJson(sceneEntity.getJson(), Scene.class);
+			} catch (JsonParseException e) {
+				getUpdateLock(uuid).unlock();
+				throw new JsonParseException("Cannot inflate Scene (ID = " + sceneEntity.getId() + ")", e);
+			}
 		}
 		
 		LOG.trace("UUID={}: Inflating Camera from JSON ...", uuid.toString());
@@ -443,6 +626,8 @@ public class RenderUpdateService {
 		
 		final var renderTask = new RenderTask(uuid, sampler, renderer, film, scene, camera,
 				renderEntity.get().getOffsetX(), renderEntity.get().getOffsetY());
+		if (sceneByReference)
+			renderTask.setSceneReference(sceneHash);
 		
 		getUpdateLock(uuid).unlock();
 		LOG.debug("UUID={}: Created RenderTask from database.");
@@ -450,11 +635,47 @@ public class RenderUpdateService {
 		
 	}
 	
+	/**
+	 * Get the JSON of the Scene with the given content-hash (see
+	 * {@link Scene#getContentHash(String)}), or <code>null</code> if no such Scene
+	 * exists.
+	 * 
+	 * @param hash
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	public String getSceneJson(String hash) {
+		
+		final var knownID = sceneIDsByHash.get(hash);
+		if (knownID != null) {
+			final var json = sceneRepository.findById(knownID).map(s -> s.getJson()).orElse(null);
+			if (json != null && Scene.getContentHash(json).equals(hash))
+				return json;
+			
+			sceneIDsByHash.remove(hash, knownID);
+		}
+		
+		//
+		// We haven't seen this hash yet (or the Scene it pointed to has since
+		// changed). Search all Scenes for it.
+		//
+		LOG.debug("Searching all Scenes for content-hash {} ...", hash);
+		for (var sceneEntity : sceneRepository.findAll()) {
+			final var sceneHash = Scene.getContentHash(sceneEntity.getJson());
+			sceneIDsByHash.put(sceneHash, sceneEntity.getId());
+			
+			if (sceneHash.equals(hash))
+				return sceneEntity.getJson();
+		}
+		
+		return null;
+	}
+	
 	@Subscribe
 	public void receiveProgressUpdate(ReceivedRenderProgressUpdate renderProgressUpdate) {
 		
-		LOG.debug("UUID={}: Received progress update ({}%)", renderProgressUpdate.getInfo().getUuid(),
-				renderProgressUpdate.getInfo().getPercent());
+		LOG.debug("UUID={}: Received progress update ({}%, {}spp)", renderProgressUpdate.getInfo().getUuid(),
+				renderProgressUpdate.getInfo().getPercent(), renderProgressUpdate.getInfo().getSamplesPerPixel());
 		
 		LOG.trace("UUID={}: Checking current progress so far ...", renderProgressUpdate.getInfo().getUuid());
 		final Render render = renderRepository.findById(renderProgressUpdate.getInfo().getUuid().toString())
@@ -499,11 +720,59 @@ public class RenderUpdateService {
 			return;
 		}
 		
-		markRenderAsComplete(render.getUuid(), true);
+		//
+		// A snapshot may arrive after its render's final result -- in which case
+		// it's already out of date. So too may a second final result, if the
+		// render was speculatively duplicated (see RenderSpeculator) -- in which
+		// case the first result to arrive wins.
+		//
+		if (render.getCompleted() != null) {
+			LOG.debug("UUID={}: Ignoring result received after render completed.", render.getUuid());
+			return;
+		}
+		
+		final var sampleSlices = getSampleSliceCount(render);
+		var image = newRenderResult.getImage();
+		
+		if (image.isPartial()) {
+			//
+			// A partial result is only a snapshot of a render still in progress. Each
+			// snapshot holds only those pixels which have changed since the last, and
+			// so is simply painted over whatever we have already.
+			//
+			// A sample-slice's snapshot, though, would paint over its siblings'
+			// accumulated samples.
+			//
+			LOG.debug("UUID={}: Received result is a partial snapshot.", render.getUuid());
+			if (sampleSlices > 1) {
+				LOG.debug("UUID={}: Ignoring partial snapshot of a sample-slice.", render.getUuid());
+				return;
+			}
+			
+		} else {
+			markRenderAsComplete(render.getUuid(), true);
+			
+			if (sampleSlices > 1) {
+				//
+				// Merge this sample-slice with whatever of its siblings we have
+				// already, so that the combined image is saved in its place.
+				//
+				LOG.debug("UUID={}: Merging sample-slice result with its siblings.", render.getUuid());
+				final var combined = sliceAccumulator.accumulate(UUID.fromString(render.getParent().getUuid()),
+						render.getOffsetX(), render.getOffsetY(), render.getOffsetX() + render.getWidth() - 1,
+						render.getOffsetY() + render.getHeight() - 1, sampleSlices,
+						() -> render.getSetup().inflateFilm().partition(render.getOffsetX(), render.getOffsetY(),
+								render.getOffsetX() + render.getWidth() - 1,
+								render.getOffsetY() + render.getHeight() - 1),
+						image);
+				if (combined != null)
+					image = combined;
+			}
+		}
 		
 		try {
 			
-			final var updatedRenders = saveImageToDatabase(newRenderResult.getImage(), render.getUuid());
+			final var updatedRenders = saveImageToDatabase(image, render.getUuid());
 			
 			for (var r : updatedRenders) {
 				
@@ -521,6 +790,24 @@ public class RenderUpdateService {
 		}
 	}
 	
+	/**
+	 * @param render
+	 * @return how many sample-slices the given Render's region was divided into,
+	 *         or {@code 1} if it's not a sample-slice
+	 */
+	private int getSampleSliceCount(Render render) {
+		
+		if (!render.isChild())
+			return 1;
+		
+		try {
+			return render.getSetup().inflateSampler().getSliceCount();
+		} catch (JsonParseException e) {
+			LOG.warn("UUID={}: Cannot inflate Sampler settings.", render.getUuid(), e);
+			return 1;
+		}
+	}
+	
 	@Transactional
 	public Collection<Render> updateRenderProgress(String renderID, int percent) {
 		
@@ -0,0 +1,157 @@
+package org.snowjak.rays.frontend.service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.sampler.Sampler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Combines the results of RenderTasks which each rendered a different
+ * {@link Sampler#partitionSamples(int, int) sample-slice} of the same
+ * image-region.
+ * <p>
+ * Each slice's result carries its {@link Film}'s raw accumulator. These are
+ * {@link Film#mergeAccumulator(byte[]) merged} into a single Film for their
+ * region, from which the region's combined image is developed -- exactly as
+ * though one worker had taken every slice's samples. Once every slice of a
+ * region has been merged, that region's Film is discarded.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@Component
+public class SliceAccumulator {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(SliceAccumulator.class);
+	
+	private final Map<Region, Accumulation> accumulations = new ConcurrentHashMap<>();
+	
+	/**
+	 * Merge a sample-slice's result into the accumulated Film for its
+	 * image-region.
+	 *
+	 * @param parentUuid
+	 *            the UUID of the Render which the region's slices all belong to
+	 * @param xStart
+	 * @param yStart
+	 * @param xEnd
+	 * @param yEnd
+	 * @param slices
+	 *            how many slices the region was divided into
+	 * @param film
+	 *            supplies an empty Film covering the region, if this is the
+	 *            first of its slices to arrive
+	 * @param result
+	 *            the slice's result
+	 * @return the region's combined image (under the given result's UUID), or
+	 *         {@code null} if the given result carries no accumulator
+	 */
+	public Image accumulate(UUID parentUuid, int xStart, int yStart, int xEnd, int yEnd, int slices,
+			Supplier<Film> film, Image result) {
+		
+		if (result.getAccumulator() == null) {
+			LOG.warn("UUID={}: Sample-slice result carries no accumulator -- cannot merge it with its siblings.",
+					result.getUuid());
+			return null;
+		}
+		
+		final var region = new Region(parentUuid, xStart, yStart, xEnd, yEnd);
+		final var accumulation = accumulations.computeIfAbsent(region, r -> new Accumulation(film.get()));
+		
+		final Image combined;
+		synchronized (accumulation) {
+			
+			if (accumulation.merged.add(result.getUuid()))
+				accumulation.film.mergeAccumulator(result.getAccumulator());
+			else
+				LOG.debug("UUID={}: Sample-slice result already merged.", result.getUuid());
+			
+			combined = accumulation.film.getImage(result.getUuid(), xStart, yStart, xEnd, yEnd);
+			
+			if (accumulation.merged.size() >= slices) {
+				LOG.debug("UUID={}: All {} sample-slices of [{},{}]-[{},{}] merged.", parentUuid, slices, xStart,
+						yStart, xEnd, yEnd);
+				accumulations.remove(region, accumulation);
+			}
+		}
+		
+		return combined;
+	}
+	
+	/**
+	 * Discard any accumulated Films for the given Render's regions.
+	 *
+	 * @param parentUuid
+	 */
+	public void discard(UUID parentUuid) {
+		
+		accumulations.keySet().removeIf(r -> r.parentUuid.equals(parentUuid));
+	}
+	
+	/**
+	 * @param parentUuid
+	 * @return {@code true} if any of the given Render's regions are still
+	 *         accumulating
+	 */
+	public boolean isAccumulating(UUID parentUuid) {
+		
+		return accumulations.keySet().stream().anyMatch(r -> r.parentUuid.equals(parentUuid));
+	}
+	
+	private static class Region {
+		
+		private final UUID parentUuid;
+		private final int xStart, yStart, xEnd, yEnd;
+		
+		public Region(UUID parentUuid, int xStart, int yStart, int xEnd, int yEnd) {
+			
+			this.parentUuid = parentUuid;
+			this.xStart = xStart;
+			this.yStart = yStart;
+			this.xEnd = xEnd;
+			this.yEnd = yEnd;
+		}
+		
+		@Override
+		public int hashCode() {
+			
+			return Objects.hash(parentUuid, xStart, yStart, xEnd, yEnd);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Region))
+				return false;
+			
+			final var other = (Region) obj;
+			return parentUuid.equals(other.parentUuid) && xStart == other.xStart && yStart == other.yStart
+					&& xEnd == other.xEnd && yEnd == other.yEnd;
+		}
+	}
+	
+	private static class Accumulation {
+		
+		private final Film film;
+		private final Set<UUID> merged = new HashSet<>();
+		
+		public Accumulation(Film film) {
+			
+			this.film = film;
+		}
+	}
+	
+}
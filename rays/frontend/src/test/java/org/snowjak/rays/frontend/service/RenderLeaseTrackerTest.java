@@ -0,0 +1,228 @@
+package org.snowjak.rays.frontend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedList;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays.RenderTask.ProgressInfo;
+import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.frontend.messages.backend.ReceivedNewRenderResult;
+import org.snowjak.rays.frontend.messages.backend.ReceivedRenderProgressUpdate;
+import org.snowjak.rays.frontend.messages.backend.SubmittedRenderTask;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderDeletion;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestSingleRenderTaskSubmission;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+public class RenderLeaseTrackerTest {
+	
+	private static final Duration TIMEOUT = Duration.ofSeconds(60);
+	private static final UUID UUID_1 = UUID.fromString("3a313f08-8262-4f45-8cf6-60b9cb13601b");
+	
+	private EventBus bus;
+	private MutableClock clock;
+	private InMemoryBroker broker;
+	private RenderLeaseTracker tracker;
+	
+	@Before
+	public void setUp() {
+		
+		bus = new EventBus();
+		clock = new MutableClock();
+		broker = new InMemoryBroker();
+		bus.register(broker);
+		
+		tracker = new RenderLeaseTracker(bus, clock, TIMEOUT, 2);
+		
+		bus.post(new RequestSingleRenderTaskSubmission(UUID_1));
+	}
+	
+	@Test
+	public void testWorkerLost() {
+		
+		//
+		// A worker claims the task, reports some progress, and then dies.
+		//
+		assertEquals(UUID_1, broker.take());
+		heartbeat(UUID_1, 10);
+		assertTrue(tracker.isLeased(UUID_1));
+		
+		clock.advance(TIMEOUT.minusSeconds(1));
+		tracker.checkLeases();
+		assertNull("Should not have resubmitted before lease expired!", broker.take());
+		
+		clock.advance(Duration.ofSeconds(2));
+		tracker.checkLeases();
+		assertEquals("Should have resubmitted once lease expired!", UUID_1, broker.take());
+		assertFalse(tracker.isLeased(UUID_1));
+		
+		//
+		// Another worker picks it up, and finishes it.
+		//
+		heartbeat(UUID_1, 0);
+		clock.advance(TIMEOUT.dividedBy(2));
+		bus.post(new ReceivedNewRenderResult(new Image(new byte[0], UUID_1, null, true)));
+		clock.advance(TIMEOUT.dividedBy(2));
+		tracker.checkLeases();
+		assertNull("Partial results should renew the lease!", broker.take());
+		
+		bus.post(new ReceivedNewRenderResult(new Image(new byte[0], UUID_1, null)));
+		assertFalse(tracker.isLeased(UUID_1));
+		
+		clock.advance(TIMEOUT.multipliedBy(2));
+		tracker.checkLeases();
+		assertNull("Should not have resubmitted a finished task!", broker.take());
+	}
+	
+	@Test
+	public void testHeartbeatsRenewLease() {
+		
+		broker.take();
+		
+		for (int i = 0; i < 10; i++) {
+			heartbeat(UUID_1, i);
+			clock.advance(TIMEOUT.dividedBy(2));
+			tracker.checkLeases();
+		}
+		
+		assertNull(broker.take());
+		assertTrue(tracker.isLeased(UUID_1));
+	}
+	
+	@Test
+	public void testUnclaimedTaskNotResubmitted() {
+		
+		//
+		// A task still waiting in the broker isn't leased by anyone.
+		//
+		clock.advance(TIMEOUT.multipliedBy(10));
+		tracker.checkLeases();
+		
+		assertEquals(UUID_1, broker.take());
+		assertNull(broker.take());
+	}
+	
+	@Test
+	public void testGivesUpAfterMaxAttempts() {
+		
+		for (int attempt = 0; attempt < 2; attempt++) {
+			assertEquals(UUID_1, broker.take());
+			heartbeat(UUID_1, 0);
+			clock.advance(TIMEOUT.plusSeconds(1));
+			tracker.checkLeases();
+		}
+		
+		assertEquals(UUID_1, broker.take());
+		heartbeat(UUID_1, 0);
+		clock.advance(TIMEOUT.plusSeconds(1));
+		tracker.checkLeases();
+		
+		assertNull("Should have given up after 2 resubmissions!", broker.take());
+	}
+	
+	@Test
+	public void testDeletionReleasesLease() {
+		
+		broker.take();
+		heartbeat(UUID_1, 50);
+		
+		bus.post(new RequestRenderDeletion(UUID_1));
+		assertFalse(tracker.isLeased(UUID_1));
+		
+		clock.advance(TIMEOUT.multipliedBy(2));
+		tracker.checkLeases();
+		assertNull(broker.take());
+	}
+	
+	@Test
+	public void testLateHeartbeatIgnored() {
+		
+		broker.take();
+		heartbeat(UUID_1, 90);
+		bus.post(new ReceivedNewRenderResult(new Image(new byte[0], UUID_1, null)));
+		
+		//
+		// A heartbeat sent just before the result mustn't re-lease the finished
+		// task ...
+		//
+		heartbeat(UUID_1, 100);
+		assertFalse(tracker.isLeased(UUID_1));
+		
+		clock.advance(TIMEOUT.multipliedBy(2));
+		tracker.checkLeases();
+		assertNull(broker.take());
+		
+		//
+		// ... but once it's submitted again, it may be leased again.
+		//
+		bus.post(new SubmittedRenderTask(UUID_1, null, 0, 0, 31, 31));
+		heartbeat(UUID_1, 0);
+		assertTrue(tracker.isLeased(UUID_1));
+	}
+	
+	private void heartbeat(UUID uuid, int percent) {
+		
+		bus.post(new ReceivedRenderProgressUpdate(new ProgressInfo(uuid, percent)));
+	}
+	
+	/**
+	 * Stands in for the RabbitMQ task-queue: every RenderTask submission is
+	 * simply queued up, for a (simulated) worker to take.
+	 */
+	public static class InMemoryBroker {
+		
+		private final LinkedList<UUID> queue = new LinkedList<>();
+		
+		@Subscribe
+		public synchronized void submit(RequestSingleRenderTaskSubmission submission) {
+			
+			queue.add(submission.getUuid());
+		}
+		
+		public synchronized UUID take() {
+			
+			return queue.poll();
+		}
+	}
+	
+	public static class MutableClock extends Clock {
+		
+		private Instant now = Instant.parse("2019-01-01T00:00:00Z");
+		
+		public void advance(Duration duration) {
+			
+			now = now.plus(duration);
+		}
+		
+		@Override
+		public ZoneId getZone() {
+			
+			return ZoneOffset.UTC;
+		}
+		
+		@Override
+		public Clock withZone(ZoneId zone) {
+			
+			return this;
+		}
+		
+		@Override
+		public Instant instant() {
+			
+			return now;
+		}
+	}
+	
+}
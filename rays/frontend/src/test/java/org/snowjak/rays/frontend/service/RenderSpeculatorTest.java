@@ -0,0 +1,261 @@
+package org.snowjak.rays.frontend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays.RenderTask.ProgressInfo;
+import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.frontend.messages.backend.ReceivedNewRenderResult;
+import org.snowjak.rays.frontend.messages.backend.ReceivedRenderProgressUpdate;
+import org.snowjak.rays.frontend.messages.backend.SubmittedRenderTask;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestRenderTaskCancellation;
+import org.snowjak.rays.frontend.messages.backend.commands.RequestSpeculativeRenderTaskSubmission;
+import org.snowjak.rays.frontend.service.RenderLeaseTrackerTest.MutableClock;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+public class RenderSpeculatorTest {
+	
+	private static final Duration MINIMUM_AGE = Duration.ofSeconds(30);
+	private static final UUID UUID_1 = UUID.fromString("3a313f08-8262-4f45-8cf6-60b9cb13601b");
+	private static final UUID UUID_2 = UUID.fromString("8c1f6c8e-1b9e-4d0c-a3a4-5b1c5f0d9e11");
+	
+	private EventBus bus;
+	private MutableClock clock;
+	private Recorder recorder;
+	private RenderSpeculator speculator;
+	
+	@Before
+	public void setUp() {
+		
+		bus = new EventBus();
+		clock = new MutableClock();
+		recorder = new Recorder();
+		bus.register(recorder);
+		
+		speculator = new RenderSpeculator(bus, clock, MINIMUM_AGE, 2.0, 4, 4);
+		
+		bus.post(new SubmittedRenderTask(UUID_1, null, 0, 0, 31, 31));
+		bus.post(new SubmittedRenderTask(UUID_2, null, 32, 0, 63, 31));
+	}
+	
+	@Test
+	public void testNoSpeculationWhileQueued() {
+		
+		//
+		// UUID_2 is still waiting in the queue, so there's no idle worker to help
+		// UUID_1 out.
+		//
+		heartbeat(UUID_1, 0);
+		clock.advance(MINIMUM_AGE.multipliedBy(10));
+		speculator.checkStragglers();
+		
+		assertTrue(recorder.submissions.isEmpty());
+	}
+	
+	@Test
+	public void testStragglerSplit() {
+		
+		heartbeat(UUID_1, 0);
+		heartbeat(UUID_2, 0);
+		
+		clock.advance(MINIMUM_AGE.minusSeconds(1));
+		speculator.checkStragglers();
+		assertTrue("Should not have speculated before minimum-age!", recorder.submissions.isEmpty());
+		
+		//
+		// UUID_2 finishes promptly; UUID_1 straggles.
+		//
+		bus.post(new ReceivedNewRenderResult(new Image(image(32, 32, Color.BLUE), UUID_2)));
+		heartbeat(UUID_1, 10);
+		
+		clock.advance(MINIMUM_AGE);
+		speculator.checkStragglers();
+		
+		assertEquals(4, recorder.submissions.size());
+		assertTrue(speculator.isSpeculating(UUID_1));
+		
+		var area = 0;
+		for (var submission : recorder.submissions) {
+			assertEquals(UUID_1, submission.getUuid());
+			assertTrue(submission.getXStart() >= 0 && submission.getXEnd() <= 31);
+			assertTrue(submission.getYStart() >= 0 && submission.getYEnd() <= 31);
+			area += (submission.getXEnd() - submission.getXStart() + 1)
+					* (submission.getYEnd() - submission.getYStart() + 1);
+		}
+		assertEquals(32 * 32, area);
+		
+		//
+		// Speculating once is enough.
+		//
+		clock.advance(MINIMUM_AGE);
+		speculator.checkStragglers();
+		assertEquals(4, recorder.submissions.size());
+	}
+	
+	@Test
+	public void testUnsplittableNotSplit() {
+		
+		final var uuid = UUID.fromString("5d0a9b0e-4c1e-4f7a-9a4b-2e6f0c3d8b21");
+		bus.post(new SubmittedRenderTask(uuid, null, 64, 0, 95, 31, false));
+		
+		heartbeat(UUID_1, 0);
+		heartbeat(UUID_2, 0);
+		heartbeat(uuid, 0);
+		clock.advance(MINIMUM_AGE);
+		bus.post(new ReceivedNewRenderResult(new Image(image(32, 32, Color.BLUE), UUID_2)));
+		bus.post(new ReceivedNewRenderResult(new Image(image(32, 32, Color.BLUE), UUID_1)));
+		
+		heartbeat(uuid, 5);
+		clock.advance(MINIMUM_AGE.multipliedBy(2));
+		speculator.checkStragglers();
+		
+		assertTrue(recorder.submissions.isEmpty());
+		assertFalse(speculator.isSpeculating(uuid));
+	}
+	
+	@Test
+	public void testSpeculationWins() {
+		
+		final var submissions = straggle();
+		
+		for (int i = 0; i < submissions.size(); i++) {
+			final var submission = submissions.get(i);
+			
+			assertTrue(speculator.receiveAttemptProgress(new ProgressInfo(submission.getAttemptUuid(), 50)));
+			final var width = submission.getXEnd() - submission.getXStart() + 1;
+			final var height = submission.getYEnd() - submission.getYStart() + 1;
+			assertTrue(speculator
+					.receiveAttemptResult(new Image(image(width, height, Color.RED), submission.getAttemptUuid())));
+			
+			if (i < submissions.size() - 1)
+				assertTrue("Should not have posted a result before all sub-tasks finished!",
+						recorder.results.isEmpty());
+		}
+		
+		assertEquals(1, recorder.results.size());
+		final var result = recorder.results.get(0);
+		assertEquals(UUID_1, result.getUuid());
+		assertFalse(result.isPartial());
+		
+		final var stitched = result.getBufferedImage();
+		assertEquals(32, stitched.getWidth());
+		assertEquals(32, stitched.getHeight());
+		for (int y = 0; y < 32; y++)
+			for (int x = 0; x < 32; x++)
+				assertEquals("Pixel (" + x + "," + y + ") not stitched!", Color.RED.getRGB(), stitched.getRGB(x, y));
+		
+		assertFalse(speculator.isSpeculating(UUID_1));
+		assertTrue(recorder.cancellations.isEmpty());
+	}
+	
+	@Test
+	public void testOriginalWins() {
+		
+		final var submissions = straggle();
+		
+		final var first = submissions.get(0);
+		assertTrue(speculator.receiveAttemptResult(new Image(image(first.getXEnd() - first.getXStart() + 1,
+				first.getYEnd() - first.getYStart() + 1, Color.RED), first.getAttemptUuid())));
+		
+		bus.post(new ReceivedNewRenderResult(new Image(image(32, 32, Color.GREEN), UUID_1)));
+		assertFalse(speculator.isSpeculating(UUID_1));
+		
+		//
+		// Every other sub-task should have been cancelled.
+		//
+		assertEquals(submissions.size() - 1, recorder.cancellations.size());
+		for (int i = 1; i < submissions.size(); i++)
+			assertTrue(recorder.cancellations.contains(submissions.get(i).getAttemptUuid()));
+		
+		//
+		// Any stragglers from cancelled sub-tasks are swallowed.
+		//
+		final var last = submissions.get(submissions.size() - 1);
+		assertTrue(speculator.receiveAttemptProgress(new ProgressInfo(last.getAttemptUuid(), 90)));
+		assertTrue(
+				speculator.receiveAttemptResult(new Image(image(1, 1, Color.RED), last.getAttemptUuid(), null, true)));
+		
+		assertEquals(1, recorder.results.size());
+	}
+	
+	@Test
+	public void testUnknownUuidsPassedThrough() {
+		
+		assertFalse(speculator.receiveAttemptProgress(new ProgressInfo(UUID_1, 10)));
+		assertFalse(speculator.receiveAttemptResult(new Image(image(1, 1, Color.RED), UUID_1)));
+	}
+	
+	/**
+	 * Have UUID_2 finish promptly and UUID_1 straggle, until UUID_1 is
+	 * speculatively split up.
+	 *
+	 * @return the resulting speculative submissions
+	 */
+	private List<RequestSpeculativeRenderTaskSubmission> straggle() {
+		
+		heartbeat(UUID_1, 0);
+		heartbeat(UUID_2, 0);
+		clock.advance(MINIMUM_AGE);
+		bus.post(new ReceivedNewRenderResult(new Image(image(32, 32, Color.BLUE), UUID_2)));
+		
+		heartbeat(UUID_1, 5);
+		clock.advance(MINIMUM_AGE.multipliedBy(2));
+		speculator.checkStragglers();
+		
+		recorder.results.clear();
+		assertEquals(4, recorder.submissions.size());
+		return new LinkedList<>(recorder.submissions);
+	}
+	
+	private void heartbeat(UUID uuid, int percent) {
+		
+		bus.post(new ReceivedRenderProgressUpdate(new ProgressInfo(uuid, percent)));
+	}
+	
+	private static BufferedImage image(int width, int height, Color color) {
+		
+		final var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		final var g = image.getGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, width, height);
+		return image;
+	}
+	
+	public static class Recorder {
+		
+		private final List<RequestSpeculativeRenderTaskSubmission> submissions = new LinkedList<>();
+		private final List<UUID> cancellations = new LinkedList<>();
+		private final List<Image> results = new LinkedList<>();
+		
+		@Subscribe
+		public synchronized void submit(RequestSpeculativeRenderTaskSubmission submission) {
+			
+			submissions.add(submission);
+		}
+		
+		@Subscribe
+		public synchronized void cancel(RequestRenderTaskCancellation cancellation) {
+			
+			cancellations.add(cancellation.getUuid());
+		}
+		
+		@Subscribe
+		public synchronized void result(ReceivedNewRenderResult result) {
+			
+			results.add(result.getImage());
+		}
+	}
+	
+}
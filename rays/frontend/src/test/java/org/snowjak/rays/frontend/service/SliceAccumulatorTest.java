@@ -0,0 +1,116 @@
+package org.snowjak.rays.frontend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays.film.Film;
+import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.filter.MitchellFilter;
+import org.snowjak.rays.geometry.Point2D;
+import org.snowjak.rays.sample.EstimatedSample;
+import org.snowjak.rays.sample.FixedSample;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.spectrum.distribution.SpectralPowerDistribution;
+
+public class SliceAccumulatorTest {
+	
+	private static final UUID PARENT_UUID = UUID.fromString("3a313f08-8262-4f45-8cf6-60b9cb13601b");
+	
+	private SliceAccumulator accumulator;
+	
+	@Before
+	public void setUp() {
+		
+		accumulator = new SliceAccumulator();
+	}
+	
+	@Test
+	public void testAccumulate() {
+		
+		final var rnd = new Random(1234);
+		
+		final var whole = newFilm();
+		final var first = newFilm();
+		final var second = newFilm();
+		for (int i = 0; i < 2000; i++) {
+			final var sample = getRandomSample(rnd);
+			whole.addSample(sample);
+			((i % 2 == 0) ? first : second).addSample(sample);
+		}
+		
+		final var firstUuid = UUID.randomUUID();
+		final var secondUuid = UUID.randomUUID();
+		
+		final var partial = accumulator.accumulate(PARENT_UUID, 8, 8, 15, 15, 2, SliceAccumulatorTest::newFilm,
+				first.getImage(firstUuid, 8, 8, 15, 15, true));
+		assertEquals(firstUuid, partial.getUuid());
+		assertTrue(accumulator.isAccumulating(PARENT_UUID));
+		
+		final var combined = accumulator.accumulate(PARENT_UUID, 8, 8, 15, 15, 2, SliceAccumulatorTest::newFilm,
+				second.getImage(secondUuid, 8, 8, 15, 15, true));
+		assertEquals(secondUuid, combined.getUuid());
+		assertFalse("Should have discarded region once all its slices were merged!",
+				accumulator.isAccumulating(PARENT_UUID));
+		
+		final var expected = whole.getImage(null, 8, 8, 15, 15).getBufferedImage();
+		final var actual = combined.getBufferedImage();
+		for (int y = 0; y < 8; y++)
+			for (int x = 0; x < 8; x++)
+				assertEquals("Pixel (" + x + "," + y + ") not as expected!", expected.getRGB(x, y),
+						actual.getRGB(x, y));
+	}
+	
+	@Test
+	public void testAccumulate_duplicate() {
+		
+		final var slice = newFilm();
+		slice.addSample(getRandomSample(new Random(5678)));
+		final var image = slice.getImage(UUID.randomUUID(), 8, 8, 15, 15, true);
+		
+		accumulator.accumulate(PARENT_UUID, 8, 8, 15, 15, 2, SliceAccumulatorTest::newFilm, image);
+		accumulator.accumulate(PARENT_UUID, 8, 8, 15, 15, 2, SliceAccumulatorTest::newFilm, image);
+		
+		assertTrue("A duplicated slice should not count twice!", accumulator.isAccumulating(PARENT_UUID));
+		
+		accumulator.discard(PARENT_UUID);
+		assertFalse(accumulator.isAccumulating(PARENT_UUID));
+	}
+	
+	@Test
+	public void testAccumulate_noAccumulator() {
+		
+		final var image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, Color.RED.getRGB());
+		
+		assertNull(accumulator.accumulate(PARENT_UUID, 8, 8, 15, 15, 2, SliceAccumulatorTest::newFilm,
+				new Image(image, UUID.randomUUID())));
+		assertFalse(accumulator.isAccumulating(PARENT_UUID));
+	}
+	
+	private static Film newFilm() {
+		
+		return new Film(8, 8, 8, 8, 1.0, 1.0, 1.0, 1.0, new MitchellFilter(1, 0.33, 0.33));
+	}
+	
+	private static EstimatedSample getRandomSample(Random rnd) {
+		
+		final var colors = new SpectralPowerDistribution[] { SpectralPowerDistribution.fromRGB(RGB.RED),
+				SpectralPowerDistribution.fromRGB(RGB.GREEN), SpectralPowerDistribution.fromRGB(RGB.BLUE) };
+		
+		return new EstimatedSample(
+				new FixedSample(new Point2D(6d + rnd.nextDouble() * 12d, 6d + rnd.nextDouble() * 12d),
+						new Point2D(0.5, 0.5), 0d, new ArrayList<>(), new ArrayList<>()),
+				colors[rnd.nextInt(colors.length)]);
+	}
+	
+}
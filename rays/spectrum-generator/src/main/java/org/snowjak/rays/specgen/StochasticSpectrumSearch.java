@@ -16,7 +16,6 @@ import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.snowjak.rays.Settings;
 import org.snowjak.rays.geometry.util.Point;
 import org.snowjak.rays.specgen.SpectrumGenerator.StatusReporter;
 import org.snowjak.rays.spectrum.colorspace.RGB;
@@ -178,7 +177,7 @@ public class StochasticSpectrumSearch implements SpectrumSearch {
 		final Point[] entries2 = spd2.getTable().navigableKeySet().stream().map(k -> spd2.get(k))
 				.toArray(len -> new Point[len]);
 		
-		final int crossPoint = Settings.RND.nextInt(min(entries1.length, entries2.length));
+		final int crossPoint = SpectrumGenerator.RND.nextInt(min(entries1.length, entries2.length));
 		
 		final var shorter = (entries1.length <= entries2.length) ? entries1 : entries2;
 		final var longer = (entries1.length <= entries2.length) ? entries2 : entries1;
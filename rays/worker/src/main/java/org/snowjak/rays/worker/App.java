@@ -2,22 +2,31 @@ package org.snowjak.rays.worker;
 
 import static org.apache.commons.math3.util.FastMath.max;
 
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snowjak.rays.util.VirtualThreads;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 @SpringBootApplication(scanBasePackages = "org.snowjak.rays.worker")
+@EnableScheduling
 public class App extends SpringApplication {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(App.class);
@@ -27,48 +36,159 @@ public class App extends SpringApplication {
 		SpringApplication.run(App.class, args);
 	}
 	
-	@Bean("renderTaskExecutor")
-	public ListeningExecutorService renderTaskExecutor(@Value("${rays.worker.threads}") int parallelism,
+	/**
+	 * Limits how many RenderTasks this worker holds at once: enough to keep every
+	 * render-thread busy, plus {@code queueSize} waiting.
+	 */
+	@Bean
+	public PipelineGate renderPipelineGate(@Value("${rays.worker.threads}") int parallelism,
 			@Value("${rays.worker.queueSize}") int queueSize) {
 		
-		if (parallelism < 1)
-			parallelism = max(1, Runtime.getRuntime().availableProcessors() - 1);
+		return new PipelineGate(getRenderThreads(parallelism) + max(queueSize, 1));
+	}
+	
+	/**
+	 * RenderTask messages are acknowledged only once finished, and so the
+	 * broker's prefetch-count limits how many RenderTasks this worker holds.
+	 * Match it to the render-pipeline's capacity -- so that the broker never
+	 * sends more than the pipeline can hold, and never holds back any it could.
+	 * <p>
+	 * The listener-threads spend their time waiting on the broker, and so may be
+	 * virtual threads (if {@code rays.worker.virtualThreads} is enabled).
+	 * </p>
+	 */
+	@Bean
+	public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+			SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+			PipelineGate renderPipelineGate, @Value("${rays.worker.virtualThreads}") boolean virtualThreads) {
 		
-		queueSize = max(queueSize, 1);
+		final var factory = new SimpleRabbitListenerContainerFactory();
+		configurer.configure(factory, connectionFactory);
+		factory.setPrefetchCount(renderPipelineGate.getCapacity());
 		
-		LOG.info("Spinning up a RenderTask executor: {} threads, with a pending-queue {} tasks deep.", parallelism,
-				queueSize);
+		final var threadFactory = getVirtualThreadFactory(virtualThreads, "rabbit-listener-");
+		if (threadFactory != null)
+			factory.setTaskExecutor(new SimpleAsyncTaskExecutor(threadFactory));
 		
-		final var executor = MoreExecutors
-				.listeningDecorator(new ThreadPoolExecutor(1, parallelism, 30, TimeUnit.SECONDS,
-						new LinkedBlockingQueue<>(queueSize), new BlocksUntilReadyRejectedExecutionHandler()));
+		LOG.info("Receiving up to {} render-tasks at once.", renderPipelineGate.getCapacity());
+		return factory;
+	}
+	
+	/**
+	 * Render-deletion messages, unlike RenderTasks, are finished with as soon as
+	 * they're received -- and so are acknowledged automatically, and don't share
+	 * the render-pipeline's prefetch-count.
+	 */
+	@Bean
+	public SimpleRabbitListenerContainerFactory deleteListenerContainerFactory(
+			SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
 		
-		Runtime.getRuntime().addShutdownHook(new Thread(() -> executor.shutdownNow()));
-		return executor;
+		final var factory = new SimpleRabbitListenerContainerFactory();
+		configurer.configure(factory, connectionFactory);
+		factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+		
+		return factory;
 	}
 	
+	/**
+	 * Decodes received RenderTasks (and resolves their Scenes), so that the
+	 * listener-thread needn't.
+	 */
+	@Bean("renderDecodeExecutor")
+	public ListeningExecutorService renderDecodeExecutor(@Value("${rays.worker.decodeThreads}") int threads) {
+		
+		return newFixedExecutor("render-decode-%d", max(threads, 1));
+	}
+	
+	/**
+	 * Renders RenderTasks -- and nothing else, so that every render-thread spends
+	 * all its time rendering.
+	 */
+	@Bean("renderTaskExecutor")
+	public ListeningExecutorService renderTaskExecutor(@Value("${rays.worker.threads}") int parallelism) {
+		
+		parallelism = getRenderThreads(parallelism);
+		LOG.info("Spinning up a RenderTask executor: {} threads.", parallelism);
+		
+		return newFixedExecutor("render-%d", parallelism);
+	}
+	
+	/**
+	 * Develops finished RenderTasks' results, and encodes and publishes them.
+	 */
 	@Bean("renderResultExecutor")
-	public ListeningExecutorService renderResultExecutor() {
+	public ListeningExecutorService renderResultExecutor(@Value("${rays.worker.encodeThreads}") int threads) {
+		
+		return newFixedExecutor("render-encode-%d", max(threads, 1));
+	}
+	
+	/**
+	 * Sends progress-updates and results to the broker. This is I/O-bound, and so
+	 * kept off the pipeline's CPU-bound stages -- a slow broker shouldn't hold up
+	 * encoding (much less rendering).
+	 * <p>
+	 * If {@code rays.worker.virtualThreads} is enabled, each message is sent on
+	 * its own virtual thread. Otherwise, they're sent on a fixed number of
+	 * platform threads.
+	 * </p>
+	 */
+	@Bean("renderMessagingExecutor")
+	public Executor renderMessagingExecutor(@Value("${rays.worker.messagingThreads}") int threads,
+			@Value("${rays.worker.virtualThreads}") boolean virtualThreads) {
+		
+		final var threadFactory = getVirtualThreadFactory(virtualThreads, "render-messaging-");
+		if (threadFactory != null)
+			return (command) -> threadFactory.newThread(command).start();
 		
-		final var executor = MoreExecutors.listeningDecorator(MoreExecutors.newDirectExecutorService());
+		return newFixedExecutor("render-messaging-%d", max(threads, 1));
+	}
+	
+	@Bean("renderSnapshotExecutor")
+	public ScheduledExecutorService renderSnapshotExecutor() {
+		
+		final var executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+			final var thread = new Thread(r, "render-snapshots");
+			thread.setDaemon(true);
+			return thread;
+		});
 		
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> executor.shutdownNow()));
 		return executor;
 	}
 	
-	public static class BlocksUntilReadyRejectedExecutionHandler implements RejectedExecutionHandler {
-		
-		@Override
-		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-			
-			try {
-				LOG.debug("Waiting to drop another task into the executor {} ...", executor.toString());
-				executor.getQueue().put(r);
-			} catch (InterruptedException e) {
-				// do nothing here
-			}
-		}
+	private static int getRenderThreads(int parallelism) {
+		
+		return (parallelism < 1) ? max(1, Runtime.getRuntime().availableProcessors() - 1) : parallelism;
+	}
+	
+	/**
+	 * @return a ThreadFactory creating virtual threads, or {@code null} if they're
+	 *         not enabled (or not supported)
+	 */
+	private static ThreadFactory getVirtualThreadFactory(boolean enabled, String namePrefix) {
 		
+		if (!enabled)
+			return null;
+		
+		final var threadFactory = VirtualThreads.newThreadFactory(namePrefix);
+		if (threadFactory == null)
+			LOG.warn("Virtual threads are not supported by this JVM -- using platform threads ({}*).", namePrefix);
+		
+		return threadFactory;
+	}
+	
+	/**
+	 * Each pipeline-stage has a fixed number of threads, and an unbounded queue
+	 * -- the {@link PipelineGate} bounds how many RenderTasks can be in the
+	 * pipeline at all.
+	 */
+	private static ListeningExecutorService newFixedExecutor(String nameFormat, int threads) {
+		
+		final var executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build()));
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> executor.shutdownNow()));
+		return executor;
 	}
 	
 }
@@ -0,0 +1,75 @@
+package org.snowjak.rays.worker;
+
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounds how many RenderTasks this worker holds at once -- from the moment
+ * each is received, through decoding, rendering, and publishing its result,
+ * until it's acknowledged.
+ * <p>
+ * RenderTask messages are acknowledged only once finished, and so the broker's
+ * prefetch-count is the primary limit on how many RenderTasks this worker
+ * holds. The listener-container's prefetch-count is set to this gate's
+ * capacity, so that the gate should never actually be full when a RenderTask
+ * arrives. Should it be, the RenderTask is turned away (and should be returned
+ * to the broker) -- the receiving thread never blocks.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+public class PipelineGate {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(PipelineGate.class);
+	
+	private final int capacity;
+	private final Semaphore permits;
+	
+	public PipelineGate(int capacity) {
+		
+		if (capacity < 1)
+			throw new IllegalArgumentException("Pipeline capacity must be a positive integer.");
+		
+		this.capacity = capacity;
+		this.permits = new Semaphore(capacity);
+	}
+	
+	/**
+	 * Admit another RenderTask into the pipeline, if there's room for it.
+	 *
+	 * @return {@code true} if admitted, {@code false} if the pipeline is full
+	 */
+	public boolean tryAdmit() {
+		
+		if (permits.tryAcquire())
+			return true;
+		
+		LOG.warn("Render pipeline is full ({} render-tasks) -- is the prefetch-count too large?", capacity);
+		return false;
+	}
+	
+	/**
+	 * Release a RenderTask's place in the pipeline.
+	 */
+	public void release() {
+		
+		permits.release();
+	}
+	
+	public int getCapacity() {
+		
+		return capacity;
+	}
+	
+	/**
+	 * @return how many RenderTasks are currently in the pipeline
+	 */
+	public int getInFlight() {
+		
+		return capacity - permits.availablePermits();
+	}
+	
+}
@@ -1,18 +1,30 @@
 package org.snowjak.rays.worker;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snowjak.rays.RenderTask;
+import org.snowjak.rays.RenderTask.ProgressInfo;
 import org.snowjak.rays.Settings;
 import org.snowjak.rays.film.Film.Image;
+import org.snowjak.rays.film.FilmSnapshotter;
+import org.snowjak.rays.serialization.WireFormat;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.Exchange;
 import org.springframework.amqp.rabbit.annotation.Queue;
 import org.springframework.amqp.rabbit.annotation.QueueBinding;
@@ -21,18 +33,28 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.gson.JsonParseException;
+import com.rabbitmq.client.Channel;
 
 @Component
 public class RenderTaskReceiver {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(RenderTaskReceiver.class);
-	private final Map<UUID, ListenableFuture<Image>> executingFutures = Collections.synchronizedMap(new HashMap<>());
-	private final Set<UUID> deletedUUIDs = Collections.synchronizedSet(new HashSet<>());
+	private final Map<UUID, ListenableFuture<?>> executingFutures = Collections.synchronizedMap(new HashMap<>());
+	
+	/**
+	 * Deletions received for RenderTasks this worker hasn't (yet) seen, and when
+	 * (in epoch-milliseconds) each should be forgotten. Most such deletions are
+	 * for RenderTasks held by other workers, which this worker never will see.
+	 */
+	private final Map<UUID, Long> deletedUUIDs = new ConcurrentHashMap<>();
+	
+	private final Map<UUID, Runnable> heartbeats = new ConcurrentHashMap<>();
 	
 	@Value("${rabbitmq.resultq}")
 	private String renderResultQueueName = null;
@@ -43,6 +65,13 @@ public class RenderTaskReceiver {
 	@Value("${rabbitmq.taskq}")
 	private String renderTaskQueueName;
 	
+	@Value("${rabbitmq.sceneq}")
+	private String sceneRequestQueueName;
+	
+	@Autowired
+	@Qualifier("renderDecodeExecutor")
+	private ListeningExecutorService decodeExecutor;
+	
 	@Autowired
 	@Qualifier("renderTaskExecutor")
 	private ListeningExecutorService taskExecutor;
@@ -51,72 +80,484 @@ public class RenderTaskReceiver {
 	@Qualifier("renderResultExecutor")
 	private ListeningExecutorService resultExecutor;
 	
+	@Autowired
+	@Qualifier("renderMessagingExecutor")
+	private Executor messagingExecutor;
+	
+	@Autowired
+	@Qualifier("renderSnapshotExecutor")
+	private ScheduledExecutorService snapshotExecutor;
+	
+	@Value("${rays.worker.snapshotInterval}")
+	private long snapshotInterval;
+	
+	@Value("${rays.worker.deletionMemory:600000}")
+	private long deletionMemory;
+	
 	@Autowired
 	private RabbitTemplate rabbit;
 	
+	@Autowired
+	private SceneCache sceneCache;
+	
+	@Autowired
+	private PipelineGate pipelineGate;
+	
+	@Autowired
+	private WorkerMetrics metrics;
+	
+	/**
+	 * Receive a new RenderTask, in either of the supported encodings: JSON, or
+	 * the binary {@link WireFormat} (identified by the message's content-type).
+	 * Progress-updates and results are sent back in the same encoding as the
+	 * RenderTask itself.
+	 * <p>
+	 * Each RenderTask passes through a pipeline of separate stages, each with its
+	 * own threads:
+	 * <ol>
+	 * <li>decode (and resolve its Scene)</li>
+	 * <li>render</li>
+	 * <li>develop and encode its result</li>
+	 * <li>publish its result</li>
+	 * </ol>
+	 * The listener-thread merely hands each message off to the first stage.
+	 * Progress-updates and snapshots are published on the same threads as
+	 * results, so that neither rendering nor encoding ever waits on the broker.
+	 * </p>
+	 * <p>
+	 * The message is acknowledged only once its RenderTask has finished (and its
+	 * result has been sent). Should this worker die before then, the broker will
+	 * redeliver the RenderTask to another worker. Because the broker won't send
+	 * more messages than its prefetch-count allows to be unacknowledged, this
+	 * also provides backpressure -- see {@link PipelineGate}.
+	 * </p>
+	 * 
+	 * @param message
+	 * @param channel
+	 */
 	@RabbitListener(priority = "1", queues = "${rabbitmq.taskq}")
+	public void receive(Message message, Channel channel) {
+		
+		final var acknowledger = admit(channel, message.getMessageProperties().getDeliveryTag());
+		if (acknowledger == null)
+			return;
+		
+		if (!WireFormat.isBinary(message.getMessageProperties().getContentType())) {
+			decodeExecutor.execute(() -> decode(new String(message.getBody(), StandardCharsets.UTF_8), acknowledger));
+			return;
+		}
+		
+		decodeExecutor.execute(() -> {
+			try {
+				LOG.info("Received new render-task (binary).");
+				
+				LOG.debug("Decoding ({} bytes) ...", message.getBody().length);
+				execute(metrics.decode(() -> WireFormat.decodeRenderTask(message.getBody())), true, acknowledger);
+				
+			} catch (IllegalArgumentException | JsonParseException e) {
+				LOG.error("Binary -> RenderTask decode error!", e);
+				acknowledger.reject();
+				
+			} catch (RuntimeException e) {
+				LOG.error("Could not execute render-task!", e);
+				acknowledger.reject();
+			}
+		});
+	}
+	
 	public void receive(String taskJson) {
 		
+		final var acknowledger = admit(null, 0);
+		if (acknowledger == null)
+			return;
+		
+		decodeExecutor.execute(() -> decode(taskJson, acknowledger));
+	}
+	
+	/**
+	 * Admit a newly-received RenderTask into the pipeline. If there's no room for
+	 * it, its message is returned to the broker (to be redelivered, possibly to
+	 * another worker) rather than holding up the listener-thread.
+	 * 
+	 * @param channel
+	 * @param deliveryTag
+	 * @return an {@link Acknowledger} for the RenderTask's message (which also
+	 *         releases its place in the pipeline), or {@code null} if the
+	 *         pipeline is full
+	 */
+	private Acknowledger admit(Channel channel, long deliveryTag) {
+		
+		if (!pipelineGate.tryAdmit()) {
+			LOG.warn("No room in the render pipeline -- returning render-task to the broker.");
+			new Acknowledger(channel, deliveryTag, null).requeue();
+			return null;
+		}
+		
+		return new Acknowledger(channel, deliveryTag, pipelineGate::release);
+	}
+	
+	private void decode(String taskJson, Acknowledger acknowledger) {
+		
 		try {
 			LOG.info("Received new render-task.");
 			
 			LOG.trace("JSON: {}", taskJson);
 			
 			LOG.debug("Parsing from JSON ...");
-			final var task = Settings.getInstance().getGson().fromJson(taskJson, RenderTask.class);
+			execute(metrics.decode(() -> Settings.getInstance().getGson().fromJson(taskJson, RenderTask.class)), false,
+					acknowledger);
 			
-			if (deletedUUIDs.contains(task.getUuid())) {
-				LOG.info("Received render-task is already flagged as to-be-deleted. Not executing.");
-				deletedUUIDs.remove(task.getUuid());
-				return;
-			}
+		} catch (JsonParseException e) {
+			LOG.error("JSON -> RenderTask parse error!", e);
+			acknowledger.reject();
 			
-			if (renderProgressQueueName != null && !renderProgressQueueName.trim().isEmpty())
-				task.setProgressConsumer((progress) -> {
-					final var json = Settings.getInstance().getGson().toJson(progress);
-					rabbit.convertAndSend(renderProgressQueueName, json);
-				});
+		} catch (RuntimeException e) {
+			LOG.error("Could not execute render-task!", e);
+			acknowledger.reject();
+		}
+		
+	}
+	
+	private void execute(RenderTask task, boolean binary, Acknowledger acknowledger) {
+		
+		final var deletionExpiry = deletedUUIDs.remove(task.getUuid());
+		if (deletionExpiry != null && deletionExpiry >= System.currentTimeMillis()) {
+			LOG.info("Received render-task is already flagged as to-be-deleted. Not executing.");
+			acknowledger.acknowledge();
+			return;
+		}
+		
+		if (task.isSceneUnresolved()) {
+			LOG.debug("UUID={}: Resolving Scene {} ...", task.getUuid(), task.getSceneHash());
+			task.setScene(metrics.resolveScene(() -> sceneCache.get(task.getSceneHash(), this::fetchScene)));
 			
-			LOG.debug("UUID={}: Parsed successfully", task.getUuid());
+			if (task.isSceneUnresolved()) {
+				LOG.error("UUID={}: Cannot resolve Scene {}! Not executing.", task.getUuid(), task.getSceneHash());
+				acknowledger.reject();
+				return;
+			}
+		}
+		
+		if (isReportingProgress()) {
+			task.setProgressConsumer((progress) -> sendProgress(progress, binary));
 			
-			LOG.debug("UUID={}: Submitting to executor ...", task.getUuid());
-			final var future = taskExecutor.submit(task);
-			executingFutures.put(task.getUuid(), future);
+			//
+			// Until this task is finished, regularly remind the frontend that we're
+			// still working on it -- else the frontend will assume we've died, and
+			// resubmit it.
+			//
+			final Runnable heartbeat = () -> sendProgress(
+					new ProgressInfo(task.getUuid(), task.getPercentComplete(), task.getAchievedSamplesPerPixel()),
+					binary);
+			heartbeats.put(task.getUuid(), heartbeat);
+			heartbeat.run();
+		}
+		
+		LOG.debug("UUID={}: Parsed successfully", task.getUuid());
+		
+		//
+		// While the task is rendering, periodically publish snapshots of its
+		// progress so far.
+		//
+		final FilmSnapshotter snapshotter;
+		final ScheduledFuture<?> snapshots;
+		if (snapshotInterval > 0) {
+			LOG.debug("UUID={}: Scheduling snapshots every {}ms ...", task.getUuid(), snapshotInterval);
+			snapshotter = task.newSnapshotter();
+			snapshots = snapshotExecutor.scheduleWithFixedDelay(() -> publishSnapshot(snapshotter, binary),
+					snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+		} else {
+			snapshotter = null;
+			snapshots = null;
+		}
+		
+		LOG.debug("UUID={}: Submitting to executor ...", task.getUuid());
+		final var future = taskExecutor.submit(() -> metrics.render(task::render));
+		executingFutures.put(task.getUuid(), future);
+		
+		//
+		// Developing and publishing the result happens off the render-threads.
+		//
+		future.addListener(() -> {
+			executingFutures.remove(task.getUuid());
 			
-			future.addListener(() -> {
+			try {
 				try {
-					executingFutures.remove(task.getUuid());
-					
+					future.get();
 					LOG.info("UUID={}: Render complete", task.getUuid());
-					LOG.debug("UUID={}: Retrieving result ...", task.getUuid());
 					
-					final var result = future.get();
+				} catch (InterruptedException | ExecutionException e) {
+					LOG.error("Error retrieving render-result!", e);
+					acknowledger.reject();
 					
-					LOG.info("UUID={}: Sending result", result.getUuid());
-					final var resultJson = Settings.getInstance().getGson().toJson(result);
+					//
+					// Salvage whatever the task managed to render before it failed.
+					//
+					if (snapshotter != null) {
+						LOG.info("UUID={}: Sending final snapshot", task.getUuid());
+						publishSnapshot(snapshotter, binary);
+					}
+					return;
 					
-					rabbit.convertAndSend(renderResultQueueName, resultJson);
+				} catch (CancellationException e) {
+					LOG.info("UUID={}: Render was cancelled", task.getUuid());
+					acknowledger.acknowledge();
+					return;
 					
-				} catch (InterruptedException | ExecutionException e) {
-					LOG.error("Error retrieving render-result!", e);
+				} finally {
+					//
+					// Stop taking snapshots before developing the result, so that no
+					// snapshot can be published after it.
+					//
+					if (snapshotter != null) {
+						snapshots.cancel(false);
+						snapshotter.close();
+					}
 				}
-			}, resultExecutor);
+				
+				LOG.debug("UUID={}: Developing result ...", task.getUuid());
+				final var send = metrics.encode(() -> prepareImage(task.getResult(), binary));
+				messagingExecutor.execute(() -> {
+					try {
+						LOG.info("UUID={}: Sending result", task.getUuid());
+						metrics.publish(send);
+						
+						acknowledger.acknowledge();
+						
+					} catch (RuntimeException e) {
+						LOG.error("UUID={}: Could not publish render-result!", task.getUuid(), e);
+						acknowledger.reject();
+					}
+				});
+				
+			} catch (RuntimeException e) {
+				LOG.error("UUID={}: Could not develop render-result!", task.getUuid(), e);
+				acknowledger.reject();
+				
+			} finally {
+				heartbeats.remove(task.getUuid());
+			}
+		}, resultExecutor);
+	}
+	
+	private void publishSnapshot(FilmSnapshotter snapshotter, boolean binary) {
+		
+		try {
+			snapshotter.publishSnapshot((snapshot) -> {
+				LOG.debug("UUID={}: Sending snapshot", snapshot.getUuid());
+				sendImage(snapshot, binary);
+			});
+		} catch (RuntimeException e) {
+			//
+			// Don't let one failed snapshot stop all subsequent snapshots.
+			//
+			LOG.warn("Could not publish render-snapshot!", e);
+		}
+	}
+	
+	/**
+	 * Send a heartbeat for every RenderTask this worker currently holds (whether
+	 * rendering or waiting to be rendered), in the form of a progress-update.
+	 */
+	@Scheduled(fixedDelayString = "${rays.worker.heartbeatInterval}")
+	public void sendHeartbeats() {
+		
+		if (heartbeats.isEmpty())
+			return;
+		
+		LOG.trace("Sending heartbeats for {} render-tasks ...", heartbeats.size());
+		for (var heartbeat : heartbeats.values())
+			try {
+				heartbeat.run();
+			} catch (RuntimeException e) {
+				LOG.warn("Could not send heartbeat!", e);
+			}
+	}
+	
+	private boolean isReportingProgress() {
+		
+		return renderProgressQueueName != null && !renderProgressQueueName.trim().isEmpty();
+	}
+	
+	/**
+	 * Encode the given progress-update on the calling thread, and send it on the
+	 * messaging-executor.
+	 */
+	private void sendProgress(ProgressInfo progress, boolean binary) {
+		
+		final Runnable send;
+		if (binary) {
+			final var message = toBinaryMessage(WireFormat.encode(progress));
+			send = () -> rabbit.send(renderProgressQueueName, message);
+		} else {
+			final var json = Settings.getInstance().getGson().toJson(progress);
+			send = () -> rabbit.convertAndSend(renderProgressQueueName, json);
+		}
+		
+		messagingExecutor.execute(() -> {
+			try {
+				send.run();
+			} catch (RuntimeException e) {
+				LOG.warn("UUID={}: Could not send progress-update!", progress.getUuid(), e);
+			}
+		});
+	}
+	
+	/**
+	 * Encode the given snapshot on the calling thread, and send it on the
+	 * messaging-executor.
+	 */
+	private void sendImage(Image image, boolean binary) {
+		
+		final var send = prepareImage(image, binary);
+		messagingExecutor.execute(() -> {
+			try {
+				send.run();
+			} catch (RuntimeException e) {
+				LOG.warn("UUID={}: Could not send snapshot!", image.getUuid(), e);
+			}
+		});
+	}
+	
+	/**
+	 * Encode the given image, ready to be sent.
+	 * 
+	 * @return a Runnable which sends the encoded image to the result-queue
+	 */
+	private Runnable prepareImage(Image image, boolean binary) {
+		
+		if (binary) {
+			final var message = toBinaryMessage(WireFormat.encode(image));
+			return () -> rabbit.send(renderResultQueueName, message);
+		}
+		
+		final var json = Settings.getInstance().getGson().toJson(image);
+		return () -> rabbit.convertAndSend(renderResultQueueName, json);
+	}
+	
+	private static Message toBinaryMessage(byte[] body) {
+		
+		final var properties = new MessageProperties();
+		properties.setContentType(WireFormat.CONTENT_TYPE);
+		properties.setContentLength(body.length);
+		
+		return new Message(body, properties);
+	}
+	
+	/**
+	 * Acknowledges (or rejects) a single received RenderTask message, exactly once
+	 * -- at which point the RenderTask leaves the pipeline. An Acknowledger
+	 * without a {@link Channel} has no message to acknowledge.
+	 */
+	private static class Acknowledger {
+		
+		private final Channel channel;
+		private final long deliveryTag;
+		private final Runnable onDone;
+		private final AtomicBoolean done = new AtomicBoolean(false);
+		
+		public Acknowledger(Channel channel, long deliveryTag, Runnable onDone) {
 			
-		} catch (JsonParseException e) {
-			LOG.error("JSON -> RenderTask parse error!", e);
-			throw e;
+			this.channel = channel;
+			this.deliveryTag = deliveryTag;
+			this.onDone = onDone;
 		}
 		
+		public void acknowledge() {
+			
+			if (!finish())
+				return;
+			
+			try {
+				channel.basicAck(deliveryTag, false);
+			} catch (IOException e) {
+				LOG.error("Could not acknowledge render-task message!", e);
+			}
+		}
+		
+		/**
+		 * Reject the message without requeueing it -- a RenderTask which failed here
+		 * will probably fail anywhere. (The frontend will notice that it's no longer
+		 * being worked on, and decide whether to resubmit it.)
+		 */
+		public void reject() {
+			
+			if (!finish())
+				return;
+			
+			try {
+				channel.basicNack(deliveryTag, false, false);
+			} catch (IOException e) {
+				LOG.error("Could not reject render-task message!", e);
+			}
+		}
+		
+		/**
+		 * Return the message to the broker, to be delivered again (possibly to
+		 * another worker).
+		 */
+		public void requeue() {
+			
+			if (!finish())
+				return;
+			
+			try {
+				channel.basicNack(deliveryTag, false, true);
+			} catch (IOException e) {
+				LOG.error("Could not requeue render-task message!", e);
+			}
+		}
+		
+		/**
+		 * @return {@code true} if the message should now be acknowledged (or
+		 *         rejected), {@code false} if it already has been (or there's no
+		 *         message)
+		 */
+		private boolean finish() {
+			
+			if (done.getAndSet(true))
+				return false;
+			
+			if (onDone != null)
+				onDone.run();
+			
+			return (channel != null);
+		}
+	}
+	
+	/**
+	 * Request the JSON for the Scene with the given content-hash, waiting for the
+	 * reply.
+	 * 
+	 * @param hash
+	 * @return the Scene's JSON, or {@code null} if no such Scene exists (or no
+	 *         reply was received)
+	 */
+	private String fetchScene(String hash) {
+		
+		LOG.debug("Requesting Scene {} ...", hash);
+		final var reply = rabbit.convertSendAndReceive(sceneRequestQueueName, hash);
+		
+		if (reply == null)
+			return null;
+		
+		final var json = (reply instanceof byte[]) ? new String((byte[]) reply, StandardCharsets.UTF_8)
+				: reply.toString();
+		
+		return (json.isEmpty()) ? null : json;
 	}
 	
-	@RabbitListener(priority = "2", bindings = @QueueBinding(value = @Queue(""), exchange = @Exchange(name = "${rabbitmq.deleteExchange}", type = "fanout")))
+	@RabbitListener(priority = "2", containerFactory = "deleteListenerContainerFactory", bindings = @QueueBinding(value = @Queue(""), exchange = @Exchange(name = "${rabbitmq.deleteExchange}", type = "fanout")))
 	public void receiveDelete(UUID uuid) {
 		
 		LOG.info("Received deletion for render UUID={}", uuid);
 		
 		if (!executingFutures.containsKey(uuid)) {
 			LOG.info("Received deletion for render UUID={}, but given UUID is not recognized! Saving for later.", uuid);
-			deletedUUIDs.add(uuid);
+			
+			final var now = System.currentTimeMillis();
+			deletedUUIDs.values().removeIf(expiry -> expiry < now);
+			deletedUUIDs.put(uuid, now + deletionMemory);
 			return;
 		}
 		
@@ -0,0 +1,170 @@
+package org.snowjak.rays.worker;
+
+import static org.apache.commons.math3.util.FastMath.max;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.Settings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * A bounded, least-recently-used cache of parsed {@link Scene}s, keyed by their
+ * {@link Scene#getContentHash(String) content-hashes}.
+ * <p>
+ * Every cached Scene has already been {@link Scene#prepare() prepared}, and so
+ * can be shared (read-only) among any number of concurrently-executing
+ * RenderTasks. A Scene missing from the cache is fetched, parsed, and prepared
+ * only once, no matter how many threads request it at the same time.
+ * </p>
+ *
+ * @author snowjak88
+ *
+ */
+@Component
+public class SceneCache {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(SceneCache.class);
+	
+	private final int capacity;
+	private final Map<String, CompletableFuture<Scene>> scenes;
+	
+	public SceneCache(@Value("${rays.worker.sceneCacheSize}") int capacity) {
+		
+		this.capacity = max(capacity, 1);
+		this.scenes = new LinkedHashMap<>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = -1384318906633414744L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Scene>> eldest) {
+				
+				if (size() <= SceneCache.this.capacity)
+					return false;
+				
+				LOG.debug("Evicting Scene {} from the cache.", eldest.getKey());
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Get the {@link Scene} with the given content-hash, fetching it if it's not
+	 * already cached.
+	 *
+	 * @param hash
+	 * @param fetcher
+	 *            retrieves a Scene's JSON, given its content-hash (returning
+	 *            {@code null} if the Scene cannot be retrieved)
+	 * @return the Scene, or {@code null} if it could not be retrieved
+	 * @throws JsonParseException
+	 *             if the retrieved Scene cannot be parsed
+	 */
+	public Scene get(String hash, Function<String, String> fetcher) throws JsonParseException {
+		
+		final CompletableFuture<Scene> future;
+		final boolean isLoader;
+		
+		synchronized (scenes) {
+			final var existing = scenes.get(hash);
+			if (existing != null) {
+				future = existing;
+				isLoader = false;
+			} else {
+				future = new CompletableFuture<>();
+				isLoader = true;
+				scenes.put(hash, future);
+			}
+		}
+		
+		if (isLoader) {
+			LOG.info("Scene {} is not cached. Fetching ...", hash);
+			try {
+				future.complete(load(hash, fetcher));
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		} else
+			LOG.debug("Scene {} is cached.", hash);
+		
+		try {
+			final var scene = future.get();
+			
+			//
+			// Don't hold onto a failure -- the next request should try again.
+			//
+			if (scene == null)
+				evict(hash, future);
+			
+			return scene;
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+			
+		} catch (ExecutionException e) {
+			evict(hash, future);
+			
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	private Scene load(String hash, Function<String, String> fetcher) throws JsonParseException {
+		
+		final var json = fetcher.apply(hash);
+		if (json == null) {
+			LOG.warn("Scene {} could not be fetched.", hash);
+			return null;
+		}
+		
+		if (!Scene.getContentHash(json).equals(hash)) {
+			LOG.warn("Scene {} was fetched, but its content does not match its hash.", hash);
+			return null;
+		}
+		
+		LOG.debug("Scene {}: parsing from JSON ...", hash);
+		final var scene = Settings.getInstance().getGson().fromJson(json, Scene.class);
+		
+		LOG.debug("Scene {}: building acceleration-structures ...", hash);
+		scene.prepare();
+		
+		LOG.info("Scene {} is now cached.", hash);
+		return scene;
+	}
+	
+	private void evict(String hash, CompletableFuture<Scene> future) {
+		
+		synchronized (scenes) {
+			scenes.remove(hash, future);
+		}
+	}
+	
+	/**
+	 * @return the number of {@link Scene}s currently cached (including any still
+	 *         being fetched)
+	 */
+	public int size() {
+		
+		synchronized (scenes) {
+			return scenes.size();
+		}
+	}
+	
+	public int getCapacity() {
+		
+		return capacity;
+	}
+	
+}
@@ -0,0 +1,31 @@
+package org.snowjak.rays.worker;
+
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+
+/**
+ * This worker serves nothing over HTTP but its actuator endpoints (health and
+ * metrics), which are left open so that they can be scraped without
+ * credentials. Anything else is refused.
+ *
+ * @author snowjak88
+ *
+ */
+@EnableWebSecurity
+public class SecurityConfigurer extends WebSecurityConfigurerAdapter {
+	
+	@Override
+	protected void configure(HttpSecurity http) throws Exception {
+		
+		//@formatter:off
+		http.csrf().disable()
+			.authorizeRequests()
+				.requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
+				.anyRequest().denyAll();
+		//@formatter:on
+		
+	}
+	
+}
@@ -0,0 +1,139 @@
+package org.snowjak.rays.worker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import org.snowjak.rays.renderer.RenderStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes this worker's throughput to the {@link MeterRegistry}:
+ * <ul>
+ * <li>{@code rays.render.samples} -- samples estimated</li>
+ * <li>{@code rays.render.rays} -- rays traced, tagged by {@code type}
+ * ({@code camera}, {@code shadow}, or {@code indirect})</li>
+ * <li>{@code rays.render.scene.queries} and {@code rays.render.node.visits} --
+ * rays tested against the Scene, and acceleration-structure nodes visited in
+ * testing them (the ratio of the two being the node-visits per ray)</li>
+ * <li>{@code rays.worker.tasks} -- RenderTasks held by this worker, tagged by
+ * {@code state} ({@code held}, or {@code queued} -- i.e., not yet rendering)</li>
+ * <li>{@code rays.worker.render.threads.active} -- render-threads currently
+ * rendering</li>
+ * <li>{@code rays.worker.task.time} -- how long each RenderTask spent in each
+ * {@code stage} ({@code decode}, {@code scene}, {@code render}, {@code encode},
+ * or {@code publish})</li>
+ * </ul>
+ * The {@code rays.render} counters only ever increase; rates (rays per second,
+ * etc.) are left to whatever is collecting them. (JVM metrics -- including the
+ * allocation-rate, as {@code jvm.gc.memory.allocated} -- are published by
+ * Spring Boot.)
+ *
+ * @author snowjak88
+ *
+ */
+@Component
+public class WorkerMetrics {
+	
+	private final AtomicInteger activeRenders = new AtomicInteger();
+	
+	private final Timer decodeTimer, sceneTimer, renderTimer, encodeTimer, publishTimer;
+	
+	@Autowired
+	public WorkerMetrics(MeterRegistry registry, PipelineGate pipelineGate) {
+		
+		counter(registry, "rays.render.samples", "samples", "Samples estimated", m -> RenderStatistics.getSamples());
+		
+		counter(registry, "rays.render.rays", "rays", "Camera-rays traced", m -> RenderStatistics.getCameraRays(),
+				"type", "camera");
+		counter(registry, "rays.render.rays", "rays", "Shadow-rays traced", m -> RenderStatistics.getShadowRays(),
+				"type", "shadow");
+		counter(registry, "rays.render.rays", "rays", "Indirect-rays traced", m -> RenderStatistics.getIndirectRays(),
+				"type", "indirect");
+		
+		counter(registry, "rays.render.scene.queries", "rays", "Rays tested against the Scene",
+				m -> RenderStatistics.getSceneQueries());
+		counter(registry, "rays.render.node.visits", "nodes", "Acceleration-structure nodes visited",
+				m -> RenderStatistics.getNodeVisits());
+		
+		Gauge.builder("rays.worker.tasks", pipelineGate, PipelineGate::getInFlight)
+				.description("RenderTasks held by this worker").tag("state", "held").register(registry);
+		Gauge.builder("rays.worker.tasks", pipelineGate, g -> g.getInFlight() - activeRenders.get())
+				.description("RenderTasks held by this worker, but not yet rendering").tag("state", "queued")
+				.register(registry);
+		Gauge.builder("rays.worker.render.threads.active", activeRenders, AtomicInteger::get)
+				.description("Render-threads currently rendering").register(registry);
+		
+		decodeTimer = timer(registry, "decode");
+		sceneTimer = timer(registry, "scene");
+		renderTimer = timer(registry, "render");
+		encodeTimer = timer(registry, "encode");
+		publishTimer = timer(registry, "publish");
+	}
+	
+	private void counter(MeterRegistry registry, String name, String unit, String description,
+			ToDoubleFunction<WorkerMetrics> count, String... tags) {
+		
+		FunctionCounter.builder(name, this, count).baseUnit(unit).description(description).tags(tags)
+				.register(registry);
+	}
+	
+	private static Timer timer(MeterRegistry registry, String stage) {
+		
+		return Timer.builder("rays.worker.task.time").description("Time spent on each RenderTask, by stage")
+				.tag("stage", stage).register(registry);
+	}
+	
+	/**
+	 * Time decoding a received RenderTask.
+	 */
+	public <T> T decode(Supplier<T> decode) {
+		
+		return decodeTimer.record(decode);
+	}
+	
+	/**
+	 * Time resolving a RenderTask's Scene (whether cached or fetched).
+	 */
+	public <T> T resolveScene(Supplier<T> resolve) {
+		
+		return sceneTimer.record(resolve);
+	}
+	
+	/**
+	 * Time rendering a RenderTask, counting it as an active render-thread
+	 * meanwhile.
+	 */
+	public void render(Runnable render) {
+		
+		activeRenders.incrementAndGet();
+		try {
+			renderTimer.record(render);
+		} finally {
+			activeRenders.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Time developing and encoding a RenderTask's result.
+	 */
+	public <T> T encode(Supplier<T> encode) {
+		
+		return encodeTimer.record(encode);
+	}
+	
+	/**
+	 * Time publishing a RenderTask's result.
+	 */
+	public void publish(Runnable publish) {
+		
+		publishTimer.record(publish);
+	}
+	
+}
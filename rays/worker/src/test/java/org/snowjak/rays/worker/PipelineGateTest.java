@@ -0,0 +1,42 @@
+package org.snowjak.rays.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PipelineGateTest {
+	
+	@Test
+	public void testAdmitAndRelease() {
+		
+		final var gate = new PipelineGate(2);
+		
+		assertTrue(gate.tryAdmit());
+		assertTrue(gate.tryAdmit());
+		assertEquals(2, gate.getInFlight());
+		
+		//
+		// A third render-task is turned away (without waiting) until one of the
+		// first two leaves.
+		//
+		assertFalse(gate.tryAdmit());
+		assertEquals(2, gate.getInFlight());
+		
+		gate.release();
+		assertTrue(gate.tryAdmit());
+		assertEquals(2, gate.getInFlight());
+		
+		gate.release();
+		gate.release();
+		assertEquals(0, gate.getInFlight());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoCapacity() {
+		
+		new PipelineGate(0);
+	}
+	
+}
@@ -0,0 +1,116 @@
+package org.snowjak.rays.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays.Primitive;
+import org.snowjak.rays.Scene;
+import org.snowjak.rays.Settings;
+import org.snowjak.rays.material.LambertianMaterial;
+import org.snowjak.rays.shape.PlaneShape;
+import org.snowjak.rays.shape.SphereShape;
+import org.snowjak.rays.spectrum.colorspace.RGB;
+import org.snowjak.rays.texture.ConstantTexture;
+import org.snowjak.rays.transform.TranslationTransform;
+
+public class SceneCacheTest {
+	
+	private String sceneJson, sceneHash;
+	
+	@Before
+	public void setUp() {
+		
+		final var scene = new Scene(Arrays.asList(
+				new Primitive(new PlaneShape(), new LambertianMaterial(new ConstantTexture(RGB.WHITE))),
+				new Primitive(new SphereShape(1.0, new TranslationTransform(0, 1.5, 0)),
+						new LambertianMaterial(new ConstantTexture(RGB.WHITE)))));
+		
+		sceneJson = Settings.getInstance().getGson().toJson(scene);
+		sceneHash = Scene.getContentHash(sceneJson);
+	}
+	
+	@Test
+	public void testGet() {
+		
+		final var cache = new SceneCache(4);
+		final var fetches = new AtomicInteger();
+		
+		final var first = cache.get(sceneHash, (h) -> {
+			fetches.incrementAndGet();
+			return sceneJson;
+		});
+		assertNotNull(first);
+		assertEquals(1, fetches.get());
+		
+		final var second = cache.get(sceneHash, (h) -> {
+			fetches.incrementAndGet();
+			return sceneJson;
+		});
+		assertSame(first, second);
+		assertEquals("Should not have re-fetched a cached Scene!", 1, fetches.get());
+	}
+	
+	@Test
+	public void testGet_evictsLeastRecentlyUsed() {
+		
+		final var otherJson = sceneJson + " ";
+		final var otherHash = Scene.getContentHash(otherJson);
+		
+		final var cache = new SceneCache(1);
+		final var fetches = new AtomicInteger();
+		
+		cache.get(sceneHash, (h) -> {
+			fetches.incrementAndGet();
+			return sceneJson;
+		});
+		cache.get(otherHash, (h) -> {
+			fetches.incrementAndGet();
+			return otherJson;
+		});
+		assertEquals(1, cache.size());
+		
+		cache.get(sceneHash, (h) -> {
+			fetches.incrementAndGet();
+			return sceneJson;
+		});
+		assertEquals("Should have re-fetched an evicted Scene!", 3, fetches.get());
+	}
+	
+	@Test
+	public void testGet_failuresAreNotCached() {
+		
+		final var cache = new SceneCache(4);
+		
+		assertNull(cache.get(sceneHash, (h) -> null));
+		assertNull("Should not have accepted a Scene not matching its hash!",
+				cache.get(sceneHash, (h) -> sceneJson + " "));
+		assertEquals(0, cache.size());
+		
+		assertNotNull(cache.get(sceneHash, (h) -> sceneJson));
+	}
+	
+	@Test
+	public void testGet_concurrent() {
+		
+		final var cache = new SceneCache(4);
+		final var fetches = new AtomicInteger();
+		
+		final var scenes = IntStream.range(0, 16).parallel().mapToObj(i -> cache.get(sceneHash, (h) -> {
+			fetches.incrementAndGet();
+			return sceneJson;
+		})).toArray(Scene[]::new);
+		
+		assertEquals("Should have fetched the Scene only once!", 1, fetches.get());
+		for (Scene scene : scenes)
+			assertSame(scenes[0], scene);
+	}
+	
+}
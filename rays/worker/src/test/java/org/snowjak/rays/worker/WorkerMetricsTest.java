@@ -0,0 +1,55 @@
+package org.snowjak.rays.worker;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snowjak.rays.renderer.RenderStatistics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class WorkerMetricsTest {
+	
+	private MeterRegistry registry;
+	private PipelineGate gate;
+	private WorkerMetrics metrics;
+	
+	@Before
+	public void setUp() {
+		
+		registry = new SimpleMeterRegistry();
+		gate = new PipelineGate(4);
+		metrics = new WorkerMetrics(registry, gate);
+	}
+	
+	@Test
+	public void testRender() {
+		
+		gate.tryAdmit();
+		gate.tryAdmit();
+		
+		metrics.render(() -> {
+			assertEquals(1d, registry.get("rays.worker.render.threads.active").gauge().value(), 0d);
+			assertEquals(2d, registry.get("rays.worker.tasks").tag("state", "held").gauge().value(), 0d);
+			assertEquals(1d, registry.get("rays.worker.tasks").tag("state", "queued").gauge().value(), 0d);
+		});
+		
+		assertEquals(0d, registry.get("rays.worker.render.threads.active").gauge().value(), 0d);
+		assertEquals(2d, registry.get("rays.worker.tasks").tag("state", "queued").gauge().value(), 0d);
+		assertEquals(1, registry.get("rays.worker.task.time").tag("stage", "render").timer().count());
+	}
+	
+	@Test
+	public void testRenderStatistics() {
+		
+		final var counter = registry.get("rays.render.rays").tag("type", "shadow").functionCounter();
+		final var before = counter.count();
+		
+		RenderStatistics.addShadowRay();
+		RenderStatistics.addShadowRay();
+		
+		assertEquals(before + 2d, counter.count(), 0d);
+	}
+	
+}
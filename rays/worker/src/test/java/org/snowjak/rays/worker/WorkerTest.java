@@ -9,6 +9,9 @@ import static org.mockito.Mockito.verify;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -29,8 +32,11 @@ import org.springframework.test.context.junit4.SpringRunner;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @SpringBootTest
-@TestPropertySource(properties = { "rabbitmq.resultq=test-result", "rabbitmq.progressq=" })
+@TestPropertySource(properties = { "rabbitmq.resultq=test-result", "rabbitmq.progressq=",
+		"rays.worker.snapshotInterval=0" })
 @RunWith(SpringRunner.class)
 public class WorkerTest {
 	
@@ -43,6 +49,31 @@ public class WorkerTest {
 			return new RenderTaskReceiver();
 		}
 		
+		@Bean
+		public SceneCache sceneCache() {
+			
+			return new SceneCache(4);
+		}
+		
+		@Bean
+		public PipelineGate renderPipelineGate() {
+			
+			return new PipelineGate(4);
+		}
+		
+		@Bean
+		public WorkerMetrics workerMetrics(PipelineGate renderPipelineGate) {
+			
+			return new WorkerMetrics(new SimpleMeterRegistry(), renderPipelineGate);
+		}
+		
+		@Bean
+		@Qualifier("renderDecodeExecutor")
+		public ListeningExecutorService renderDecodeExecutor() {
+			
+			return MoreExecutors.newDirectExecutorService();
+		}
+		
 		@Bean
 		@Qualifier("renderTaskExecutor")
 		public ListeningExecutorService renderTaskExecutor() {
@@ -56,6 +87,20 @@ public class WorkerTest {
 			
 			return MoreExecutors.newDirectExecutorService();
 		}
+		
+		@Bean
+		@Qualifier("renderMessagingExecutor")
+		public Executor renderMessagingExecutor() {
+			
+			return MoreExecutors.directExecutor();
+		}
+		
+		@Bean
+		@Qualifier("renderSnapshotExecutor")
+		public ScheduledExecutorService renderSnapshotExecutor() {
+			
+			return Executors.newSingleThreadScheduledExecutor();
+		}
 	}
 	
 	@Autowired